@@ -4,4 +4,8 @@ public interface Constants {
 
     public static final String VCS_REPOSITORY_INFO_FILE_NAME = ".vcs-repository-info";
     public static final String VENDOR_DIRECTORY_NAME = "vendor";
+    public static final String ARTIFACT_INFO_CACHE_FILE_NAME = ".artifact-info-cache";
+    public static final String EVICTED_DIRECTORY_NAME = ".evicted";
+    public static final String DEPENDENCY_GRAPH_FILE_NAME = ".dependency-graph";
+    public static final String NEGATIVE_RESULT_CACHE_FILE_NAME = ".negative-result-cache";
 }
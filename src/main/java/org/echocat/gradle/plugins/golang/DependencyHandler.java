@@ -1,11 +1,17 @@
 package org.echocat.gradle.plugins.golang;
 
-import org.apache.commons.lang3.StringUtils;
+import org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker;
+import org.echocat.gradle.plugins.golang.cache.NegativeResultCache;
 import org.echocat.gradle.plugins.golang.model.DependenciesSettings;
 import org.echocat.gradle.plugins.golang.model.GolangDependency;
 import org.echocat.gradle.plugins.golang.model.Settings;
 import org.echocat.gradle.plugins.golang.utils.FileUtils;
+import org.echocat.gradle.plugins.golang.utils.GoHelper;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.echocat.gradle.plugins.golang.vcs.*;
+import org.echocat.gradle.plugins.golang.vcs.cacheserver.CacheServerVcsRepositoryProvider;
+import org.echocat.gradle.plugins.golang.vcs.goproxy.GoProxyVcsRepositoryProvider;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
@@ -19,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -26,6 +33,9 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static java.io.File.separatorChar;
@@ -39,12 +49,16 @@ import static org.apache.commons.lang3.StringUtils.capitalize;
 import static org.echocat.gradle.plugins.golang.DependencyHandler.DependencyDirType.*;
 import static org.echocat.gradle.plugins.golang.DependencyHandler.GetResult.alreadyExists;
 import static org.echocat.gradle.plugins.golang.DependencyHandler.GetResult.downloaded;
+import static org.echocat.gradle.plugins.golang.DependencyPrefetcher.findDependencyPrefetcherFor;
+import static org.echocat.gradle.plugins.golang.DependencyPrefetcher.recordGraphOf;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
 import static org.echocat.gradle.plugins.golang.model.GolangDependency.Type.*;
 import static org.echocat.gradle.plugins.golang.model.GolangDependency.newDependency;
 import static org.echocat.gradle.plugins.golang.model.VcsRepositoryProvider.toConcrete;
-import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.GoHelper.goHelperFor;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.throttled;
 import static org.echocat.gradle.plugins.golang.vcs.CombinedVcsRepositoryProvider.delegatesWithDefaults;
-import static org.echocat.gradle.plugins.golang.vcs.VcsRepository.Utils.progressMonitorFor;
 
 public class DependencyHandler {
 
@@ -72,23 +86,63 @@ public class DependencyHandler {
     public DependencyHandler(@Nonnull ProgressLoggerFactory progressLoggerFactory, @Nonnull Settings settings) {
         _progressLoggerFactory = progressLoggerFactory;
         _settings = settings;
-        final List<VcsRepositoryProvider> delegates = toConcrete(settings.getDependencies().getVcsRepositoryProviders());
-        _vcsRepositoryProvider = new CombinedVcsRepositoryProvider(delegatesWithDefaults(delegates));
+        _vcsRepositoryProvider = vcsRepositoryProviderFor(settings);
+    }
+
+    @Nonnull
+    public static VcsRepositoryProvider vcsRepositoryProviderFor(@Nonnull Settings settings) {
+        final DependenciesSettings dependencies = settings.getDependencies();
+        final List<VcsRepositoryProvider> delegates = toConcrete(dependencies.getVcsRepositoryProviders());
+        final NegativeResultCache negativeResultCache = negativeResultCacheFor(settings);
+        VcsRepositoryProvider result = new CombinedVcsRepositoryProvider(delegatesWithDefaults(delegates, negativeResultCache, dependencies.getGitBackend(), TRUE.equals(dependencies.getSparseCheckout())));
+        if (negativeResultCache != null) {
+            result = new NegativeResultCachingVcsRepositoryProvider(negativeResultCache, result);
+        }
+        final URI goProxy = dependencies.getGoProxy();
+        if (goProxy != null) {
+            result = new GoProxyVcsRepositoryProvider(goProxy, result);
+        }
+        final URI cacheServer = dependencies.getCacheServer();
+        if (cacheServer != null) {
+            result = new CacheServerVcsRepositoryProvider(cacheServer, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return <code>null</code> if negative results should not be cached.
+     */
+    @Nullable
+    protected static NegativeResultCache negativeResultCacheFor(@Nonnull Settings settings) {
+        final DependenciesSettings dependencies = settings.getDependencies();
+        final Path cacheRoot = settings.getGolang().getCacheRoot();
+        final Long timeToLive = dependencies.getNegativeResultTimeToLive();
+        if (cacheRoot == null || timeToLive == null || timeToLive <= 0) {
+            return null;
+        }
+        final NegativeResultCache result = NegativeResultCache.negativeResultCacheFor(cacheRoot);
+        result.setTimeToLive(timeToLive);
+        result.setReprobe(TRUE.equals(dependencies.getReprobe()));
+        return result;
     }
 
     @Nonnull
     public Map<GolangDependency, GetResult> get(@Nonnull GetTask task) throws Exception {
-        final ProgressLogger progressLogger = _progressLoggerFactory.newOperation(DependencyHandler.class);
+        final ProgressLogger operation = _progressLoggerFactory.newOperation(DependencyHandler.class);
+        final ThrottledProgressLogger progressLogger = throttled(operation);
 
         final DependenciesSettings dependencies = _settings.getDependencies();
         final Map<GolangDependency, GetResult> result = new TreeMap<>();
         final Set<String> handledReferenceIds = new LinkedHashSet<>();
+        final Set<GolangDependency> fetched = new LinkedHashSet<>();
         final Queue<GolangDependency> toHandle = new LinkedList<>();
         toHandle.addAll(task.getAdditionalRequiredPackages());
         toHandle.addAll(dependencies(task));
 
-        progressLogger.setDescription("Checking " + task.getConfiguration() + " dependencies...");
-        progressLogger.started();
+        final ArtifactAccessTracker tracker = accessTrackerFor(task);
+
+        operation.setDescription("Checking " + task.getConfiguration() + " dependencies...");
+        operation.started();
         GolangDependency dependency;
         while ((dependency = toHandle.poll()) != null) {
             if (!result.containsKey(dependency)) {
@@ -101,20 +155,33 @@ public class DependencyHandler {
                 final String normalizedReferenceId = repository.getReference().getId();
                 if (!handledReferenceIds.contains(normalizedReferenceId)) {
                     if (dependency.getType() != source) {
+                        if (tracker != null) {
+                            tracker.touch(normalizedReferenceId);
+                        }
                         LOGGER.info("Update dependency {} (if required)...", normalizedReferenceId);
                         progressLogger.progress("Update dependency " + normalizedReferenceId + " (if required)...");
                         if (TRUE.equals(dependencies.getForceUpdate())) {
-                            repository.forceUpdate(selectTargetDirectoryFor(task),
-                                progressMonitorFor("Updating dependency " + normalizedReferenceId + "... {0,number,0.0%}", progressLogger)
-                            );
+                            final Path targetDirectory = selectTargetDirectoryFor(task);
+                            final InterProcessLock lock = lock(targetDirectory, normalizedReferenceId, progressLogger);
+                            try {
+                                repository.forceUpdate(targetDirectory,
+                                    progressLogger.monitorFor("Updating dependency " + normalizedReferenceId)
+                                );
+                            } finally {
+                                lock.close();
+                            }
+                            if (tracker != null) {
+                                tracker.markUpdated(normalizedReferenceId);
+                            }
                             //noinspection UseOfSystemOutOrSystemErr
                             System.out.println("Dependency " + normalizedReferenceId + " updated.");
                             progressLogger.progress("Dependency " + normalizedReferenceId + " updated.");
                         } else {
-                            final VcsFullReference fullReference = repository.updateIfRequired(selectTargetDirectoryFor(task),
-                                progressMonitorFor("Updating dependency " + normalizedReferenceId + "... {0,number,0.0%}", progressLogger)
-                            );
+                            final VcsFullReference fullReference = updateIfRequired(repository, selectTargetDirectoryFor(task), progressLogger);
                             if (fullReference != null) {
+                                if (tracker != null) {
+                                    tracker.markUpdated(normalizedReferenceId);
+                                }
                                 //noinspection UseOfSystemOutOrSystemErr
                                 System.out.println("Dependency " + normalizedReferenceId + " updated.");
                                 progressLogger.progress("Dependency " + normalizedReferenceId + " updated.");
@@ -125,6 +192,7 @@ public class DependencyHandler {
                                 result.put(dependency, alreadyExists);
                             }
                         }
+                        fetched.add(dependency);
                     } else {
                         result.put(dependency, alreadyExists);
                     }
@@ -132,6 +200,9 @@ public class DependencyHandler {
                 } else {
                     result.put(dependency, alreadyExists);
                 }
+                if (dependency.getType() != source) {
+                    expandSparseCheckoutIfRequired(repository, selectTargetDirectoryFor(task), progressLogger);
+                }
                 LOGGER.debug("Resolve child dependencies of dependency {}...", normalizedReferenceId);
                 progressLogger.progress("Resolve child dependencies of dependency " + normalizedReferenceId + "...");
                 for (final GolangDependency nextCandidate : resolveDependenciesOf(dependency)) {
@@ -141,6 +212,10 @@ public class DependencyHandler {
                 }
             }
         }
+        if (tracker != null) {
+            tracker.saveIfRequired();
+            recordGraphOf(tracker.getRoot(), task.getConfiguration(), fetched);
+        }
         int numberOfDownloadedDependencies = 0;
         for (final GetResult getResult : result.values()) {
             if (getResult == downloaded) {
@@ -154,6 +229,9 @@ public class DependencyHandler {
             progressLogger.completed();
         }
 
+        if (remoteOperationGuard().getNumberOfRetries() > 0 || remoteOperationGuard().getNumberOfShortCircuitedOperations() > 0) {
+            LOGGER.info("Remote operations: {}", remoteOperationGuard().describeStatistics());
+        }
         if (LOGGER.isDebugEnabled() && !handledReferenceIds.isEmpty()) {
             final StringBuilder sb = new StringBuilder(capitalize(task.getConfiguration()) + " dependencies:");
             for (final String id : handledReferenceIds) {
@@ -164,11 +242,69 @@ public class DependencyHandler {
         return result;
     }
 
+    @Nullable
+    protected VcsFullReference updateIfRequired(@Nonnull VcsRepository repository, @Nonnull Path targetDirectory, @Nonnull ThrottledProgressLogger progressLogger) throws Exception {
+        final String id = repository.getReference().getId();
+        final DependencyPrefetcher prefetcher = findDependencyPrefetcherFor(targetDirectory);
+        final Future<VcsFullReference> prefetch = prefetcher != null ? prefetcher.take(id) : null;
+        VcsFullReference prefetched = null;
+        if (prefetch != null) {
+            progressLogger.progress("Wait for prefetch of dependency " + id + "...");
+            try {
+                prefetched = prefetch.get();
+            } catch (final ExecutionException | CancellationException e) {
+                LOGGER.debug("Prefetch of dependency {} failed. It will be updated now.", id, e);
+            }
+        }
+        // If the prefetch was based on an outdated reference this will fetch it again.
+        final VcsFullReference updated;
+        final InterProcessLock lock = lock(targetDirectory, id, progressLogger);
+        try {
+            updated = repository.updateIfRequired(targetDirectory,
+                progressLogger.monitorFor("Updating dependency " + id)
+            );
+        } finally {
+            lock.close();
+        }
+        return updated != null ? updated : prefetched;
+    }
+
+    /**
+     * Neither other builds nor the {@link org.echocat.gradle.plugins.golang.cache.CacheGarbageCollector} touch the
+     * dependency while it is updated. It must not be held while waiting for a prefetch which locks it itself.
+     */
+    @Nonnull
+    protected InterProcessLock lock(@Nonnull Path targetDirectory, @Nonnull String id, @Nonnull ThrottledProgressLogger progressLogger) throws IOException {
+        return artifactAccessTrackerFor(targetDirectory).lock(id, "updating dependency " + id, progressLogger);
+    }
+
+    protected void cancelPrefetchOf(@Nonnull Path root) {
+        final DependencyPrefetcher prefetcher = findDependencyPrefetcherFor(root);
+        if (prefetcher != null) {
+            prefetcher.cancelAndAwait();
+        }
+    }
+
     protected boolean isPartOfProjectSources(@Nonnull String packageName) throws Exception {
         final String projectPackageName = _settings.getGolang().getPackageName();
         return packageName.equals(projectPackageName) || packageName.startsWith(projectPackageName + "/");
     }
 
+    /**
+     * Another package of an already present dependency could be requested which was not checked out yet, if the
+     * dependency was only checked out sparse.
+     */
+    protected void expandSparseCheckoutIfRequired(@Nonnull VcsRepository repository, @Nonnull Path targetDirectory, @Nonnull ThrottledProgressLogger progressLogger) throws Exception {
+        if (repository instanceof SparseVcsRepository) {
+            final String id = repository.getReference().getId();
+            final String subPath = repository.getReference().getSubPath();
+            if (((SparseVcsRepository) repository).expandIfRequired(targetDirectory)) {
+                LOGGER.info("Expanded sparse checkout of dependency {} by {}.", id, subPath);
+                progressLogger.progress("Expanded sparse checkout of dependency " + id + " by " + subPath + ".");
+            }
+        }
+    }
+
     @Nonnull
     protected Path selectTargetDirectoryFor(@Nonnull GetTask task) throws Exception {
         return selectTargetDirectoryFor(task.getConfiguration());
@@ -182,22 +318,28 @@ public class DependencyHandler {
         return _settings.getDependencies().getDependencyCache();
     }
 
+    /**
+     * @return <code>null</code> if the target of the given task is not a cache (like the GOPATH of tools).
+     */
+    @Nullable
+    protected ArtifactAccessTracker accessTrackerFor(@Nonnull GetTask task) throws Exception {
+        final Path targetDirectory = selectTargetDirectoryFor(task);
+        final Path dependencyCache = _settings.getDependencies().getDependencyCache();
+        if (!targetDirectory.toAbsolutePath().normalize().equals(dependencyCache.toAbsolutePath().normalize())) {
+            return null;
+        }
+        return artifactAccessTrackerFor(dependencyCache);
+    }
+
     @Nonnull
     protected Set<GolangDependency> resolveDependenciesOf(@Nonnull GolangDependency dependency) throws Exception {
         final Set<GolangDependency> result = new TreeSet<>();
-        for (final Path file : filesFor(dependency)) {
-            final String plainPackages = executor(_settings.getToolchain().toolchainBinary("importsExtractor"))
-                .arguments(file)
-                .execute()
-                .getStdoutAsString();
-            for (final String plainPackage : StringUtils.split(plainPackages, '\n')) {
-                final String trimmed = plainPackage.trim();
-                if (!trimmed.isEmpty() && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
-                    final String candidate = trimmed.substring(1, trimmed.length() - 1);
-                    if (IS_EXTERNAL_DEPENDENCY_PATTERN.matcher(candidate).matches()) {
-                        final GolangDependency childDependency = resolvePackage(dependency, candidate);
-                        result.add(childDependency);
-                    }
+        final GoHelper helper = goHelperFor(_settings.getToolchain().toolchainBinary(GoHelper.NAME));
+        for (final List<String> imports : helper.importsOf(filesFor(dependency)).values()) {
+            for (final String candidate : imports) {
+                if (IS_EXTERNAL_DEPENDENCY_PATTERN.matcher(candidate).matches()) {
+                    final GolangDependency childDependency = resolvePackage(dependency, candidate);
+                    result.add(childDependency);
                 }
             }
         }
@@ -321,6 +463,7 @@ public class DependencyHandler {
         progress.started("Delete unknown dependencies if required...");
         final DependenciesSettings dependencies = _settings.getDependencies();
         final Path dependencyCacheDirectory = dependencies.getDependencyCache();
+        cancelPrefetchOf(dependencyCacheDirectory);
         final Set<String> knownDependencyIds = new HashSet<>();
         for (final GolangDependency dependency : allProjectDependencies()) {
             knownDependencyIds.add(dependency.getGroup());
@@ -337,6 +480,7 @@ public class DependencyHandler {
         progress.started("Delete all cached dependencies if required...");
         final DependenciesSettings dependencies = _settings.getDependencies();
         final Path dependencyCacheDirectory = dependencies.getDependencyCache();
+        cancelPrefetchOf(dependencyCacheDirectory);
         final Collection<Path> result = doDeleteAllCachedDependenciesIfRequired(dependencyCacheDirectory);
         progress.completed();
         return result;
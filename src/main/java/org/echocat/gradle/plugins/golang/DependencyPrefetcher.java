@@ -0,0 +1,288 @@
+package org.echocat.gradle.plugins.golang;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker;
+import org.echocat.gradle.plugins.golang.model.DependencyGraph;
+import org.echocat.gradle.plugins.golang.model.GolangDependency;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+import org.echocat.gradle.plugins.golang.vcs.VcsFullReference;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepositoryProvider;
+import org.echocat.gradle.plugins.golang.vcs.cacheserver.CacheServerClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.echocat.gradle.plugins.golang.Constants.DEPENDENCY_GRAPH_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+
+/**
+ * Fetches the dependencies recorded by the previous run in the background. {@link DependencyHandler} will take over
+ * the already started work instead of starting it again. Dependencies which are not requested anymore are simply
+ * ignored.
+ */
+@ThreadSafe
+public class DependencyPrefetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DependencyPrefetcher.class);
+
+    private static final ConcurrentMap<Path, DependencyPrefetcher> INSTANCES = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    @Nonnull
+    private static ThreadPoolExecutor createExecutor() {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final AtomicInteger counter = new AtomicInteger();
+        final ThreadPoolExecutor result = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@Nonnull Runnable runnable) {
+                final Thread thread = new Thread(runnable, "golang-dependency-prefetch-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+
+    /**
+     * Creates a new prefetcher for the given dependency cache. A possible existing one will be cancelled.
+     */
+    @Nonnull
+    public static DependencyPrefetcher startDependencyPrefetcherFor(@Nonnull Path root) {
+        final Path normalized = root.toAbsolutePath().normalize();
+        final DependencyPrefetcher result = new DependencyPrefetcher(normalized);
+        final DependencyPrefetcher previous = INSTANCES.put(normalized, result);
+        if (previous != null) {
+            previous.cancelAndAwait();
+        }
+        return result;
+    }
+
+    @Nullable
+    public static DependencyPrefetcher findDependencyPrefetcherFor(@Nonnull Path root) {
+        return INSTANCES.get(root.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Cancels all prefetchers and waits for their running fetches. They must not modify the dependency cache after the
+     * build which started them is finished.
+     */
+    public static void cancelAndAwaitAll() {
+        for (final DependencyPrefetcher prefetcher : INSTANCES.values()) {
+            prefetcher.cancelAndAwait();
+        }
+    }
+
+    /**
+     * Marks a dependency in {@link #_inFlight} which was taken over by {@link DependencyHandler}.
+     */
+    private static final Object CLAIMED = new Object();
+
+    private static final Object GRAPH_LOCK = new Object();
+
+    private static final Gson GSON = new GsonBuilder()
+        .setPrettyPrinting()
+        .create();
+
+    @Nonnull
+    public static DependencyGraph loadGraphOf(@Nonnull Path root) {
+        final Path file = root.resolve(DEPENDENCY_GRAPH_FILE_NAME);
+        synchronized (GRAPH_LOCK) {
+            if (isRegularFile(file)) {
+                try (final InputStream is = newInputStream(file)) {
+                    try (final Reader reader = new InputStreamReader(is, "UTF-8")) {
+                        final DependencyGraph result = GSON.fromJson(reader, DependencyGraph.class);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                } catch (final IOException | JsonParseException e) {
+                    LOGGER.debug("Could not read {}. It will be ignored.", file, e);
+                }
+            }
+            return new DependencyGraph();
+        }
+    }
+
+    public static void recordGraphOf(@Nonnull Path root, @Nonnull String configuration, @Nonnull Collection<GolangDependency> dependencies) {
+        final Path file = root.resolve(DEPENDENCY_GRAPH_FILE_NAME);
+        final Path tempFile = root.resolve(DEPENDENCY_GRAPH_FILE_NAME + ".tmp");
+        synchronized (GRAPH_LOCK) {
+            final DependencyGraph graph = loadGraphOf(root);
+            graph.record(configuration, dependencies);
+            try {
+                try (final OutputStream os = newOutputStream(tempFile)) {
+                    try (final Writer writer = new OutputStreamWriter(os, "UTF-8")) {
+                        GSON.toJson(graph, writer);
+                    }
+                }
+                move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (final IOException | JsonParseException e) {
+                LOGGER.warn("Could not save {}. Got: {}", file, e.toString());
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    @Nonnull
+    private final Path _root;
+    @Nonnull
+    private final ConcurrentMap<String, Object> _inFlight = new ConcurrentHashMap<>();
+
+    private volatile boolean _cancelled;
+
+    protected DependencyPrefetcher(@Nonnull Path root) {
+        _root = root;
+    }
+
+    @Nonnull
+    public Path getRoot() {
+        return _root;
+    }
+
+    /**
+     * Starts the fetch of all dependencies recorded by the previous run.
+     */
+    public void prefetchRecorded(@Nonnull VcsRepositoryProvider provider) {
+        prefetch(loadGraphOf(_root).allDependencies(), provider);
+    }
+
+    /**
+     * Like {@link #prefetchRecorded(VcsRepositoryProvider)} but if nothing was recorded locally yet the graph recorded by
+     * the given cache server is used.
+     */
+    public void prefetchRecorded(@Nonnull final VcsRepositoryProvider provider, @Nonnull final CacheServerClient cacheServer) {
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Collection<GolangDependency> dependencies = loadGraphOf(_root).allDependencies();
+                if (dependencies.isEmpty()) {
+                    final DependencyGraph remote = cacheServer.graph();
+                    if (remote != null) {
+                        dependencies = remote.allDependencies();
+                    }
+                }
+                submit(dependencies, provider);
+            }
+        });
+    }
+
+    public void prefetch(@Nonnull final Collection<GolangDependency> dependencies, @Nonnull final VcsRepositoryProvider provider) {
+        // Resolving the repositories could already require remote calls, so this is done in the background, too.
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                submit(dependencies, provider);
+            }
+        });
+    }
+
+    protected void submit(@Nonnull Collection<GolangDependency> dependencies, @Nonnull VcsRepositoryProvider provider) {
+        final ArtifactAccessTracker tracker = artifactAccessTrackerFor(_root);
+        for (final GolangDependency dependency : dependencies) {
+            if (_cancelled) {
+                return;
+            }
+            final VcsRepository repository;
+            try {
+                repository = provider.tryProvideFor(dependency.toRawVcsReference());
+            } catch (final VcsException e) {
+                LOGGER.debug("Could not prefetch {}. It will be ignored.", dependency, e);
+                continue;
+            }
+            if (repository != null) {
+                final String id = repository.getReference().getId();
+                final FutureTask<VcsFullReference> task = new FutureTask<>(new Callable<VcsFullReference>() {
+                    @Override
+                    public VcsFullReference call() throws Exception {
+                        return fetch(repository, tracker);
+                    }
+                });
+                if (_inFlight.putIfAbsent(id, task) == null) {
+                    LOGGER.debug("Prefetch dependency {}...", id);
+                    EXECUTOR.execute(task);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    protected VcsFullReference fetch(@Nonnull VcsRepository repository, @Nonnull ArtifactAccessTracker tracker) throws Exception {
+        if (_cancelled) {
+            return null;
+        }
+        final String id = repository.getReference().getId();
+        final VcsFullReference result;
+        final InterProcessLock lock = tracker.lock(id, "prefetching dependency " + id, null);
+        try {
+            tracker.touch(id);
+            result = repository.updateIfRequired(_root);
+        } finally {
+            lock.close();
+        }
+        if (result != null) {
+            tracker.markUpdated(id);
+            LOGGER.info("Dependency {} prefetched.", id);
+        }
+        return result;
+    }
+
+    /**
+     * Claims the given dependency, so it will not be prefetched anymore, and returns the prefetch if there was already
+     * one started. The caller is responsible for waiting for it.
+     */
+    @Nullable
+    public Future<VcsFullReference> take(@Nonnull String id) {
+        return prefetchOf(_inFlight.put(id, CLAIMED));
+    }
+
+    /**
+     * Prevents all not yet started fetches from running and waits for the already running ones.
+     */
+    public void cancelAndAwait() {
+        _cancelled = true;
+        for (final String id : _inFlight.keySet()) {
+            final Future<VcsFullReference> future = prefetchOf(_inFlight.remove(id));
+            if (future != null) {
+                try {
+                    future.get();
+                } catch (final InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (final ExecutionException | CancellationException ignored) {}
+            }
+        }
+        INSTANCES.remove(_root, this);
+    }
+
+    @Nullable
+    protected static Future<VcsFullReference> prefetchOf(@Nullable Object inFlight) {
+        if (inFlight instanceof Future) {
+            //noinspection unchecked
+            return (Future<VcsFullReference>) inFlight;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyPrefetcher{" + _root + "}";
+    }
+
+}
@@ -2,6 +2,12 @@ package org.echocat.gradle.plugins.golang;
 
 import org.echocat.gradle.plugins.golang.model.*;
 import org.echocat.gradle.plugins.golang.tasks.*;
+import org.echocat.gradle.plugins.golang.utils.ProcessTracer;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard;
+import org.echocat.gradle.plugins.golang.vcs.cacheserver.CacheServerClient;
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.ConfigurationContainer;
@@ -9,10 +15,27 @@ import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.tasks.TaskContainer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+import static java.lang.Boolean.TRUE;
+import static org.echocat.gradle.plugins.golang.DependencyHandler.vcsRepositoryProviderFor;
+import static org.echocat.gradle.plugins.golang.DependencyPrefetcher.cancelAndAwaitAll;
+import static org.echocat.gradle.plugins.golang.DependencyPrefetcher.startDependencyPrefetcherFor;
+import static org.echocat.gradle.plugins.golang.utils.GoHelper.closeGoHelpers;
+import static org.echocat.gradle.plugins.golang.utils.ProcessScheduler.processScheduler;
+import static org.echocat.gradle.plugins.golang.utils.ProcessTracer.processTracer;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
 
 public abstract class GolangPluginSupport implements Plugin<Project> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GolangPluginSupport.class);
+
     protected static final String INSTANCE_PROPERTY_NAME = "org.echocat.gradle.plugins.golang.plugin";
 
     @Override
@@ -33,6 +56,112 @@ public abstract class GolangPluginSupport implements Plugin<Project> {
 
         final TaskContainer tasks = project.getTasks();
         addTasks(tasks);
+
+        project.afterEvaluate(new Action<Project>() {
+            @Override
+            public void execute(Project evaluated) {
+                configureRemoteOperationGuard(evaluated);
+                configureProcessScheduler(evaluated);
+                configureProcessTracer(evaluated);
+                releaseSharedResourcesOnBuildFinished(evaluated);
+                prefetchDependenciesIfRequired(evaluated);
+            }
+        });
+    }
+
+    protected void configureRemoteOperationGuard(@Nonnull Project project) {
+        final GolangSettings golang = new Settings(project, project.getExtensions()).getGolang();
+        final RemoteOperationGuard guard = remoteOperationGuard();
+        if (golang.getRemoteTimeout() != null) {
+            guard.setTimeout(golang.getRemoteTimeout());
+        }
+        if (golang.getRemoteRetries() != null) {
+            guard.setRetries(golang.getRemoteRetries());
+        }
+        if (golang.getRemoteRetryBackoff() != null) {
+            guard.setRetryBackoff(golang.getRemoteRetryBackoff());
+        }
+        if (golang.getCircuitBreakerThreshold() != null) {
+            guard.setCircuitBreakerThreshold(golang.getCircuitBreakerThreshold());
+        }
+        if (golang.getCircuitBreakerOpenDuration() != null) {
+            guard.setCircuitBreakerOpenDuration(golang.getCircuitBreakerOpenDuration());
+        }
+    }
+
+    protected void configureProcessScheduler(@Nonnull Project project) {
+        final GolangSettings golang = new Settings(project, project.getExtensions()).getGolang();
+        final Integer maxConcurrentProcesses = golang.getMaxConcurrentProcesses();
+        if (maxConcurrentProcesses != null && maxConcurrentProcesses > 0) {
+            processScheduler().setMaxConcurrentProcesses(maxConcurrentProcesses);
+        }
+    }
+
+    /**
+     * The first project which enables the tracing starts it for the whole build; it is exported once the build is
+     * finished.
+     */
+    protected void configureProcessTracer(@Nonnull Project project) {
+        final GolangSettings golang = new Settings(project, project.getExtensions()).getGolang();
+        final ProcessTracer tracer = processTracer();
+        final Path file = golang.getProcessTraceFile();
+        if (!TRUE.equals(golang.getTraceProcesses()) || file == null || tracer.isEnabled()) {
+            return;
+        }
+        final Integer summarySize = golang.getProcessTraceSummarySize();
+        tracer.enable();
+        project.getGradle().addBuildListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                try {
+                    tracer.exportTo(file);
+                    //noinspection UseOfSystemOutOrSystemErr
+                    System.out.println(tracer.summaryOf(summarySize != null ? summarySize : 0) + "\nTrace of all processes: " + file);
+                } catch (final IOException e) {
+                    LOGGER.warn("Could not write trace of processes to {}.", file, e);
+                } finally {
+                    tracer.disable();
+                }
+            }
+        });
+    }
+
+    /**
+     * The helpers and the prefetches of dependencies are shared by all tasks (and projects) of the build but should not
+     * survive it - inside of a daemon the prefetches would otherwise still modify the dependency cache while the next
+     * build already uses it.
+     */
+    protected void releaseSharedResourcesOnBuildFinished(@Nonnull Project project) {
+        project.getGradle().addBuildListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                try {
+                    cancelAndAwaitAll();
+                } finally {
+                    closeGoHelpers();
+                }
+            }
+        });
+    }
+
+    protected void prefetchDependenciesIfRequired(@Nonnull Project project) {
+        final Settings settings = new Settings(project, project.getExtensions());
+        final DependenciesSettings dependencies = settings.getDependencies();
+        final Path dependencyCache = dependencies.getDependencyCache();
+        if (!TRUE.equals(dependencies.getPrefetch()) || TRUE.equals(dependencies.getForceUpdate()) || dependencyCache == null) {
+            return;
+        }
+        try {
+            final DependencyPrefetcher prefetcher = startDependencyPrefetcherFor(dependencyCache);
+            final URI cacheServer = dependencies.getCacheServer();
+            if (cacheServer != null) {
+                prefetcher.prefetchRecorded(vcsRepositoryProviderFor(settings), new CacheServerClient(cacheServer));
+            } else {
+                prefetcher.prefetchRecorded(vcsRepositoryProviderFor(settings));
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.debug("Could not start prefetch of dependencies. It will be ignored.", e);
+        }
     }
 
     protected void addTasks(@Nonnull TaskContainer tasks) {
@@ -49,6 +178,7 @@ public abstract class GolangPluginSupport implements Plugin<Project> {
         tasks.replace(realTaskNameFor("baseTest"), BaseTest.class);
         tasks.replace(realTaskNameFor("build"), Build.class);
         tasks.replace(realTaskNameFor("baseBuild"), BaseBuild.class);
+        tasks.replace(realTaskNameFor("serveDependencyCache"), ServeDependencyCache.class);
     }
 
     @Nonnull
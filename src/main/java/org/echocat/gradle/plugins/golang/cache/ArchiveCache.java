@@ -0,0 +1,677 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.echocat.gradle.plugins.golang.utils.ArchiveUtils.ChecksumMismatchException;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.Operation;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository.ProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.echocat.gradle.plugins.golang.utils.ArchiveUtils.extract;
+import static org.echocat.gradle.plugins.golang.utils.ArchiveUtils.sha256Digest;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.acquire;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.toHexString;
+
+/**
+ * Keeps downloaded SDK archives, stored by their SHA-256 digest as <code>sha256/&lt;digest&gt;/&lt;name&gt;</code>,
+ * so every GOROOT which needs the same archive could reuse it. Next to it a <code>&lt;name&gt;.sha256</code> file
+ * remembers which digest belongs to which archive name.
+ * <p>
+ * Downloads are written to <code>&lt;name&gt;.part</code> first. If a download is interrupted (also by a retry of the
+ * {@link org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard}) it continues with a HTTP range request where it
+ * stopped. If the server supports ranges the download could be split into several segments which are fetched in
+ * parallel; the progress of each segment is stored in <code>&lt;name&gt;.part.segments</code>.
+ * <p>
+ * A fresh download with one connection is hashed (and extracted if requested, see
+ * {@link #fetchAndExtract(URI, String, int, ProgressMonitor, Path)}) while it is written - the archive is read only
+ * once. Resumed and segmented downloads are hashed and extracted from the completed file.
+ */
+@ThreadSafe
+public class ArchiveCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveCache.class);
+    private static final ConcurrentMap<Path, ArchiveCache> INSTANCES = new ConcurrentHashMap<>();
+
+    public static final int DEFAULT_SEGMENTS = 4;
+    public static final long MINIMUM_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    protected static final Pattern SHA256_PATTERN = Pattern.compile("^([0-9a-fA-F]{64})(?:\\s.*)?$", Pattern.DOTALL);
+    protected static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("^bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)$");
+    protected static final String PART_SUFFIX = ".part";
+    protected static final String SEGMENTS_SUFFIX = ".segments";
+    protected static final String SHA256_SUFFIX = ".sha256";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long SAVE_SEGMENTS_EVERY = 8 * 1024 * 1024;
+
+    @Nonnull
+    public static ArchiveCache archiveCacheFor(@Nonnull Path root) {
+        final Path normalized = root.toAbsolutePath().normalize();
+        final ArchiveCache candidate = new ArchiveCache(normalized);
+        final ArchiveCache existing = INSTANCES.putIfAbsent(normalized, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    @Nonnull
+    private final Path _root;
+
+    protected ArchiveCache(@Nonnull Path root) {
+        _root = root;
+    }
+
+    @Nonnull
+    public Path getRoot() {
+        return _root;
+    }
+
+    /**
+     * @return the archive stored in this cache. It is only downloaded if there is not already an archive with the
+     * expected digest (or if there is no expected digest: with the same name) in this cache.
+     * @throws ChecksumMismatchException if the downloaded archive does not match <code>expectedSha256</code>.
+     */
+    @Nonnull
+    public Path fetch(@Nonnull URI uri, @Nullable String expectedSha256, @Nonnegative int segments, @Nullable ProgressMonitor monitor) throws IOException {
+        return fetch(uri, expectedSha256, segments, monitor, null);
+    }
+
+    /**
+     * Like {@link #fetch(URI, String, int, ProgressMonitor)} but also extracts the archive into a clean
+     * <code>to</code>.
+     *
+     * @throws ChecksumMismatchException if the downloaded archive does not match <code>expectedSha256</code>. In this
+     *                                   case <code>to</code> is deleted.
+     */
+    @Nonnull
+    public Path fetchAndExtract(@Nonnull URI uri, @Nullable String expectedSha256, @Nonnegative int segments, @Nullable ProgressMonitor monitor, @Nonnull Path to) throws IOException {
+        return fetch(uri, expectedSha256, segments, monitor, to);
+    }
+
+    @Nonnull
+    protected Path fetch(@Nonnull URI uri, @Nullable String expectedSha256, @Nonnegative int segments, @Nullable ProgressMonitor monitor, @Nullable Path extractTo) throws IOException {
+        final String name = nameOf(uri);
+        final String expected = expectedSha256 != null ? expectedSha256.trim().toLowerCase(Locale.US) : null;
+        // Also other processes could download into the same cache.
+        final InterProcessLock lock = acquire(_root.resolve(name), "downloading " + name, null);
+        try {
+            final Path cached = cachedFor(name, expected);
+            if (cached != null) {
+                LOGGER.debug("Reuse cached archive {} for {}.", cached, uri);
+                if (extractTo != null) {
+                    extract(cached, extractTo);
+                }
+                return cached;
+            }
+            createDirectoriesIfRequired(_root);
+            final Path part = _root.resolve(name + PART_SUFFIX);
+            final String hashedWhileWriting = download(uri, part, segments, extractTo, monitor);
+
+            final String sha256 = hashedWhileWriting != null ? hashedWhileWriting : sha256Of(part);
+            if (expected != null && !expected.equals(sha256)) {
+                deleteQuietly(part);
+                if (extractTo != null) {
+                    deleteQuietly(extractTo);
+                }
+                throw new ChecksumMismatchException("Archive " + uri + " has SHA-256 " + sha256 + " but " + expected + " was expected.");
+            }
+            final Path target = fileFor(sha256, name);
+            createDirectoriesIfRequired(target.getParent());
+            move(part, target, REPLACE_EXISTING, ATOMIC_MOVE);
+            writeSha256Of(name, sha256);
+            if (extractTo != null && hashedWhileWriting == null) {
+                extract(target, extractTo);
+            }
+            return target;
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * @return the digest published next to the archive as <code>&lt;uri&gt;.sha256</code> or <code>null</code> if
+     * there is none.
+     */
+    @Nullable
+    public String publishedSha256Of(@Nonnull URI uri) throws IOException {
+        final URI checksumUri = URI.create(uri.toString() + SHA256_SUFFIX);
+        final Request request = new Request.Builder()
+            .url(checksumUri.toURL())
+            .build();
+        return remoteOperationGuard().execute(checksumUri, "Download of " + checksumUri, true, new Operation<String, IOException>() {
+            @Override
+            public String execute() throws IOException {
+                try (final Response response = remoteOperationGuard().getHttpClient().newCall(request).execute()) {
+                    final ResponseBody body = response.body();
+                    if (response.code() == 404 || response.code() == 403 || response.code() == 410) {
+                        LOGGER.debug("There is no checksum published at {}.", checksumUri);
+                        return null;
+                    }
+                    if (!response.isSuccessful() || body == null) {
+                        throw new IOException("Got unexpected response from " + checksumUri + ": " + response.code() + " " + response.message());
+                    }
+                    return parseSha256(body.string(), checksumUri);
+                }
+            }
+        });
+    }
+
+    @Nullable
+    protected Path cachedFor(@Nonnull String name, @Nullable String expectedSha256) throws IOException {
+        final String sha256 = expectedSha256 != null ? expectedSha256 : readSha256Of(name);
+        if (sha256 == null) {
+            return null;
+        }
+        final Path file = fileFor(sha256, name);
+        if (isRegularFile(file)) {
+            return file;
+        }
+        // Same content which was downloaded under another name.
+        final Path directory = file.getParent();
+        if (isDirectory(directory)) {
+            try (final DirectoryStream<Path> candidates = newDirectoryStream(directory)) {
+                for (final Path candidate : candidates) {
+                    if (isRegularFile(candidate) && sameArchiveType(candidate.getFileName().toString(), name)) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    protected Path fileFor(@Nonnull String sha256, @Nonnull String name) {
+        return _root.resolve("sha256").resolve(sha256).resolve(name);
+    }
+
+    @Nullable
+    protected String readSha256Of(@Nonnull String name) throws IOException {
+        final Path file = _root.resolve(name + SHA256_SUFFIX);
+        if (!isRegularFile(file)) {
+            return null;
+        }
+        final String plain = new String(readAllBytes(file), "UTF-8");
+        final Matcher matcher = SHA256_PATTERN.matcher(plain.trim());
+        return matcher.matches() ? matcher.group(1).toLowerCase(Locale.US) : null;
+    }
+
+    protected void writeSha256Of(@Nonnull String name, @Nonnull String sha256) throws IOException {
+        final Path file = _root.resolve(name + SHA256_SUFFIX);
+        final Path tempFile = _root.resolve(name + SHA256_SUFFIX + ".tmp");
+        write(tempFile, (sha256 + "  " + name + "\n").getBytes("UTF-8"));
+        move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the SHA-256 digest if the whole file was written in one pass from its first byte; it was also extracted
+     * to <code>extractTo</code> (if given) in this case. Otherwise <code>null</code>.
+     */
+    @Nullable
+    protected String download(@Nonnull URI uri, @Nonnull Path part, @Nonnegative int segments, @Nullable Path extractTo, @Nullable ProgressMonitor monitor) throws IOException {
+        final Path segmentsFile = part.resolveSibling(part.getFileName() + SEGMENTS_SUFFIX);
+        List<Segment> parts = isRegularFile(part) ? loadSegments(segmentsFile) : null;
+        if (parts == null && segments > 1) {
+            final long length = rangeableLengthOf(uri);
+            if (length >= MINIMUM_SEGMENT_SIZE * 2) {
+                parts = segmentsFor(length, segments);
+                deleteQuietly(part);
+            }
+        }
+        if (monitor != null) {
+            monitor.started();
+        }
+        final String result;
+        if (parts != null) {
+            downloadSegments(uri, part, segmentsFile, parts, monitor);
+            result = null;
+        } else {
+            result = downloadResumable(uri, part, extractTo, monitor);
+        }
+        if (monitor != null) {
+            monitor.finished();
+        }
+        return result;
+    }
+
+    /**
+     * Downloads the whole file with one connection. If <code>part</code> already contains some bytes only the rest is
+     * requested.
+     *
+     * @return see {@link #download(URI, Path, int, Path, ProgressMonitor)}.
+     */
+    @Nullable
+    protected String downloadResumable(@Nonnull final URI uri, @Nonnull final Path part, @Nullable final Path extractTo, @Nullable final ProgressMonitor monitor) throws IOException {
+        return remoteOperationGuard().execute(uri, "Download of " + uri, true, new Operation<String, IOException>() {
+            @Override
+            public String execute() throws IOException {
+                final long offset = isRegularFile(part) ? size(part) : 0;
+                final Request.Builder request = new Request.Builder()
+                    .url(uri.toURL());
+                if (offset > 0) {
+                    LOGGER.info("Resume download of {} at byte {}...", uri, offset);
+                    request.header("Range", "bytes=" + offset + "-");
+                }
+                try (final Response response = remoteOperationGuard().getHttpClient().newCall(request.build()).execute()) {
+                    final ResponseBody body = response.body();
+                    if (response.code() == 416 && offset > 0 && Long.toString(offset).equals(totalLengthOf(response.header("Content-Range")))) {
+                        // Already complete.
+                        return null;
+                    }
+                    if (response.code() == 404 || response.code() == 410) {
+                        throw new FileNotFoundException("Could not find " + uri + ".");
+                    }
+                    if (!response.isSuccessful() || body == null) {
+                        if (response.code() == 416) {
+                            // The remote file seems to be changed - start again.
+                            deleteQuietly(part);
+                        }
+                        throw new IOException("Got unexpected response from " + uri + ": " + response.code() + " " + response.message());
+                    }
+                    final long start = response.code() == 206 ? startOf(response.header("Content-Range")) : 0;
+                    if (start != 0 && start != offset) {
+                        throw new IOException("Requested " + uri + " from byte " + offset + " but got content from byte " + start + ".");
+                    }
+                    final long contentLength = body.contentLength();
+                    final long total = contentLength >= 0 ? start + contentLength : -1;
+                    String result = null;
+                    try (final InputStream is = body.byteStream()) {
+                        try (final FileChannel channel = FileChannel.open(part, CREATE, WRITE)) {
+                            channel.truncate(start);
+                            if (start == 0) {
+                                final InputStream writing = new WritingInputStream(is, channel, total, monitor);
+                                if (extractTo != null) {
+                                    deleteQuietly(extractTo);
+                                    createDirectoriesIfRequired(extractTo);
+                                    result = extract(writing, nameOf(uri), extractTo);
+                                } else {
+                                    result = sha256Of(writing);
+                                }
+                            } else {
+                                transfer(is, channel, start, null, new AtomicLong(start), total, monitor, null, null);
+                            }
+                        }
+                    }
+                    if (total >= 0 && size(part) != total) {
+                        throw new IOException("Download of " + uri + " ended after " + size(part) + " of " + total + " bytes.");
+                    }
+                    return result;
+                }
+            }
+        });
+    }
+
+    protected void downloadSegments(@Nonnull final URI uri, @Nonnull final Path part, @Nonnull final Path segmentsFile, @Nonnull final List<Segment> segments, @Nullable final ProgressMonitor monitor) throws IOException {
+        long total = 0;
+        final AtomicLong done = new AtomicLong();
+        for (final Segment segment : segments) {
+            total = Math.max(total, segment._end + 1);
+            done.addAndGet(segment._done.get());
+        }
+        final long length = total;
+        LOGGER.info("Download {} ({} bytes) in {} segments...", uri, length, segments.size());
+        final ExecutorService executor = newFixedThreadPool(segments.size());
+        try (final FileChannel channel = FileChannel.open(part, CREATE, READ, WRITE)) {
+            final List<Future<Void>> futures = new ArrayList<>(segments.size());
+            for (final Segment segment : segments) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        downloadSegment(uri, channel, segment, segmentsFile, segments, done, length, monitor);
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    executor.shutdownNow();
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException("Download of " + uri + " failed.", cause);
+                } catch (final InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download of " + uri + " was interrupted.", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            saveSegments(segmentsFile, segments);
+        }
+        deleteQuietly(segmentsFile);
+    }
+
+    protected void downloadSegment(@Nonnull final URI uri, @Nonnull final FileChannel channel, @Nonnull final Segment segment, @Nonnull final Path segmentsFile, @Nonnull final List<Segment> segments, @Nonnull final AtomicLong done, final long total, @Nullable final ProgressMonitor monitor) throws IOException {
+        remoteOperationGuard().execute(uri, "Download of " + uri + " (bytes " + segment._start + "-" + segment._end + ")", true, new Operation<Void, IOException>() {
+            @Override
+            public Void execute() throws IOException {
+                final long from = segment._start + segment._done.get();
+                if (from > segment._end) {
+                    return null;
+                }
+                final Request request = new Request.Builder()
+                    .url(uri.toURL())
+                    .header("Range", "bytes=" + from + "-" + segment._end)
+                    .build();
+                final OkHttpClient client = remoteOperationGuard().getHttpClient();
+                try (final Response response = client.newCall(request).execute()) {
+                    final ResponseBody body = response.body();
+                    if (response.code() != 206 || body == null) {
+                        throw new IOException("Got unexpected response for range " + from + "-" + segment._end + " of " + uri + ": " + response.code() + " " + response.message());
+                    }
+                    if (startOf(response.header("Content-Range")) != from) {
+                        throw new IOException("Requested " + uri + " from byte " + from + " but got " + response.header("Content-Range") + ".");
+                    }
+                    try (final InputStream is = body.byteStream()) {
+                        transfer(is, channel, from, segment, done, total, monitor, segmentsFile, segments);
+                    }
+                }
+                if (segment._start + segment._done.get() <= segment._end) {
+                    throw new IOException("Download of " + uri + " ended in range " + segment._start + "-" + segment._end + " after " + segment._done.get() + " bytes.");
+                }
+                return null;
+            }
+        });
+    }
+
+    protected void transfer(@Nonnull InputStream is, @Nonnull FileChannel channel, long position, @Nullable Segment segment, @Nonnull AtomicLong done, long total, @Nullable ProgressMonitor monitor, @Nullable Path segmentsFile, @Nullable List<Segment> segments) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        long current = position;
+        long unsaved = 0;
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            if (segment != null) {
+                // Never write over the end of the segment, even if the server sends more.
+                read = (int) Math.min(read, segment._end + 1 - current);
+            }
+            wrapped.clear().limit(read);
+            while (wrapped.hasRemaining()) {
+                current += channel.write(wrapped, current);
+            }
+            final long overall = done.addAndGet(read);
+            if (segment != null) {
+                segment._done.addAndGet(read);
+                unsaved += read;
+                if (unsaved >= SAVE_SEGMENTS_EVERY && segmentsFile != null && segments != null) {
+                    channel.force(false);
+                    saveSegments(segmentsFile, segments);
+                    unsaved = 0;
+                }
+                if (current > segment._end) {
+                    break;
+                }
+            }
+            if (monitor != null && total > 0) {
+                monitor.update((double) overall / total);
+            }
+        }
+    }
+
+    /**
+     * @return the length of the file behind <code>uri</code> or <code>-1</code> if it is unknown or the server does not
+     * support range requests.
+     */
+    protected long rangeableLengthOf(@Nonnull final URI uri) throws IOException {
+        final Request request = new Request.Builder()
+            .url(uri.toURL())
+            .head()
+            .build();
+        final Long result = remoteOperationGuard().execute(uri, "Probe of " + uri, true, new Operation<Long, IOException>() {
+            @Override
+            public Long execute() throws IOException {
+                try (final Response response = remoteOperationGuard().getHttpClient().newCall(request).execute()) {
+                    if (response.code() == 404 || response.code() == 410) {
+                        throw new FileNotFoundException("Could not find " + uri + ".");
+                    }
+                    final String length = response.header("Content-Length");
+                    if (!response.isSuccessful() || !"bytes".equalsIgnoreCase(response.header("Accept-Ranges")) || length == null) {
+                        return -1L;
+                    }
+                    try {
+                        return Long.valueOf(length.trim());
+                    } catch (final NumberFormatException ignored) {
+                        return -1L;
+                    }
+                }
+            }
+        });
+        return result != null ? result : -1;
+    }
+
+    @Nonnull
+    protected static List<Segment> segmentsFor(@Nonnegative long length, @Nonnegative int segments) {
+        final int count = (int) Math.max(1, Math.min(segments, length / MINIMUM_SEGMENT_SIZE));
+        final long size = (length + count - 1) / count;
+        final List<Segment> result = new ArrayList<>(count);
+        for (long start = 0; start < length; start += size) {
+            result.add(new Segment(start, Math.min(start + size, length) - 1, 0));
+        }
+        return result;
+    }
+
+    @Nullable
+    protected static List<Segment> loadSegments(@Nonnull Path file) throws IOException {
+        if (!isRegularFile(file)) {
+            return null;
+        }
+        final List<Segment> result = new ArrayList<>();
+        long expectedStart = 0;
+        for (final String line : readAllLines(file, UTF_8)) {
+            final String[] parts = line.trim().split("\\s+");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                final Segment segment = new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                if (segment._start != expectedStart || segment._end < segment._start || segment._done.get() < 0 || segment._done.get() > segment._end - segment._start + 1) {
+                    return null;
+                }
+                expectedStart = segment._end + 1;
+                result.add(segment);
+            } catch (final NumberFormatException ignored) {
+                return null;
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    protected static synchronized void saveSegments(@Nonnull Path file, @Nonnull List<Segment> segments) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (final Segment segment : segments) {
+            sb.append(segment._start).append(' ').append(segment._end).append(' ').append(segment._done.get()).append('\n');
+        }
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        write(tempFile, sb.toString().getBytes("UTF-8"));
+        move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    @Nonnull
+    protected static String sha256Of(@Nonnull Path file) throws IOException {
+        try (final InputStream is = newInputStream(file)) {
+            return sha256Of(is);
+        }
+    }
+
+    @Nonnull
+    protected static String sha256Of(@Nonnull InputStream is) throws IOException {
+        final MessageDigest digest = sha256Digest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+        }
+        return toHexString(digest.digest());
+    }
+
+    @Nonnull
+    protected static String parseSha256(@Nonnull String plain, @Nonnull URI source) throws IOException {
+        final Matcher matcher = SHA256_PATTERN.matcher(plain.trim());
+        if (!matcher.matches()) {
+            throw new IOException("Checksum file " + source + " does not contain a SHA-256 digest.");
+        }
+        return matcher.group(1).toLowerCase(Locale.US);
+    }
+
+    protected static long startOf(@Nullable String contentRange) throws IOException {
+        final Matcher matcher = contentRange != null ? CONTENT_RANGE_PATTERN.matcher(contentRange.trim()) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new IOException("Got illegal Content-Range: " + contentRange);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    @Nullable
+    protected static String totalLengthOf(@Nullable String contentRange) {
+        if (contentRange == null) {
+            return null;
+        }
+        final int slash = contentRange.lastIndexOf('/');
+        return slash >= 0 ? contentRange.substring(slash + 1).trim() : null;
+    }
+
+    @Nonnull
+    protected static String nameOf(@Nonnull URI uri) {
+        final String path = uri.getPath();
+        final String name = path != null ? path.substring(path.lastIndexOf('/') + 1) : "";
+        if (name.isEmpty() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Could not determine an archive name of " + uri + ".");
+        }
+        return name;
+    }
+
+    protected static boolean sameArchiveType(@Nonnull String a, @Nonnull String b) {
+        return (a.endsWith(".tar.gz") && b.endsWith(".tar.gz")) || (a.endsWith(".zip") && b.endsWith(".zip"));
+    }
+
+    /**
+     * Writes everything which is read from it into the channel - also the bytes which are skipped.
+     */
+    protected static class WritingInputStream extends FilterInputStream {
+
+        @Nonnull
+        private final FileChannel _channel;
+        private final long _total;
+        @Nullable
+        private final ProgressMonitor _monitor;
+        private long _position;
+
+        protected WritingInputStream(@Nonnull InputStream in, @Nonnull FileChannel channel, long total, @Nullable ProgressMonitor monitor) {
+            super(in);
+            _channel = channel;
+            _total = total;
+            _monitor = monitor;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] buffer = new byte[1];
+            final int read = read(buffer, 0, 1);
+            return read > 0 ? buffer[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] buffer, int offset, int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                final ByteBuffer wrapped = ByteBuffer.wrap(buffer, offset, read);
+                while (wrapped.hasRemaining()) {
+                    _position += _channel.write(wrapped, _position);
+                }
+                if (_monitor != null && _total > 0) {
+                    _monitor.update((double) _position / _total);
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(n, 0))];
+            long skipped = 0;
+            while (skipped < n) {
+                final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {}
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+    }
+
+    protected static class Segment {
+
+        private final long _start;
+        private final long _end;
+        private final AtomicLong _done;
+
+        protected Segment(long start, long end, long done) {
+            _start = start;
+            _end = end;
+            _done = new AtomicLong(done);
+        }
+
+    }
+
+}
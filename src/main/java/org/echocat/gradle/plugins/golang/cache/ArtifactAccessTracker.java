@@ -0,0 +1,309 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.echocat.gradle.plugins.golang.model.ArtifactInfoCache;
+import org.echocat.gradle.plugins.golang.model.ArtifactInfoCache.Entry;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.Math.max;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.echocat.gradle.plugins.golang.Constants.ARTIFACT_INFO_CACHE_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.acquire;
+
+/**
+ * Keeps track of when artifacts (dependency repositories, SDKs, ...) located directly under a cache root were accessed
+ * the last time. The information is stored in {@value org.echocat.gradle.plugins.golang.Constants#ARTIFACT_INFO_CACHE_FILE_NAME}
+ * inside of the cache root and is used by the {@link CacheGarbageCollector} to evict the least recently used artifacts.
+ * <p>
+ * The same cache root could be used by several processes at the same time. So only the changes of this process are
+ * merged into the current content of the file (under its {@link InterProcessLock}) and never the whole view of this
+ * process is written.
+ */
+@ThreadSafe
+public class ArtifactAccessTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactAccessTracker.class);
+    private static final ConcurrentMap<Path, ArtifactAccessTracker> INSTANCES = new ConcurrentHashMap<>();
+
+    @Nonnull
+    public static ArtifactAccessTracker artifactAccessTrackerFor(@Nonnull Path root) {
+        final Path normalized = root.toAbsolutePath().normalize();
+        final ArtifactAccessTracker candidate = new ArtifactAccessTracker(normalized);
+        final ArtifactAccessTracker existing = INSTANCES.putIfAbsent(normalized, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    private final Gson _gson = new GsonBuilder()
+        .setPrettyPrinting()
+        .create();
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Set<String> _changed = new HashSet<>();
+    private final Set<String> _removed = new HashSet<>();
+
+    @Nonnull
+    private final Path _root;
+    @Nullable
+    private ArtifactInfoCache _cache;
+
+    protected ArtifactAccessTracker(@Nonnull Path root) {
+        _root = root;
+    }
+
+    @Nonnull
+    public Path getRoot() {
+        return _root;
+    }
+
+    /**
+     * Has to be held while the artifact <code>id</code> is written. The {@link CacheGarbageCollector} will never evict
+     * an artifact while its lock is held by any process.
+     */
+    @Nonnull
+    public InterProcessLock lock(@Nonnull String id, @Nonnull String description, @Nullable ThrottledProgressLogger progress) throws IOException {
+        return acquire(_root.resolve(id), description, progress);
+    }
+
+    public void touch(@Nonnull String id) {
+        final long now = currentTimeMillis();
+        _lock.lock();
+        try {
+            cache().touchEntry(id, now);
+            changed(id);
+        } finally {
+            _lock.unlock();
+        }
+        // Other processes see this access already before it is saved.
+        final Path directory = _root.resolve(id);
+        if (isDirectory(directory)) {
+            try {
+                setLastModifiedTime(directory, FileTime.fromMillis(now));
+            } catch (final IOException e) {
+                LOGGER.debug("Could not touch {}.", directory, e);
+            }
+        }
+    }
+
+    public void markUpdated(@Nonnull String id) {
+        _lock.lock();
+        try {
+            final long now = currentTimeMillis();
+            final Entry entry = cache().touchEntry(id, now);
+            entry.setLastUpdatedMillis(now);
+            changed(id);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void markSizeCalculated(@Nonnull String id, @Nonnegative long size) {
+        _lock.lock();
+        try {
+            final Entry entry = entryFor(id);
+            entry.setSize(size);
+            entry.setSizeCalculatedMillis(currentTimeMillis());
+            changed(id);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Nullable
+    public Entry findEntryBy(@Nonnull String id) {
+        _lock.lock();
+        try {
+            return cache().findEntryBy(id);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Nonnull
+    public Entry entryFor(@Nonnull String id) {
+        _lock.lock();
+        try {
+            final ArtifactInfoCache cache = cache();
+            Entry entry = cache.findEntryBy(id);
+            if (entry == null) {
+                entry = new Entry();
+                cache.saveEntry(id, entry);
+            }
+            return entry;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void remove(@Nonnull String id) {
+        _lock.lock();
+        try {
+            cache().removeEntry(id);
+            _changed.remove(id);
+            _removed.add(id);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Merges the changes of other processes into the view of this process.
+     */
+    public void reload() {
+        _lock.lock();
+        try {
+            if (!isDirectory(_root)) {
+                return;
+            }
+            final Path file = file();
+            try {
+                final InterProcessLock lock = acquire(file, "reading " + file, null);
+                try {
+                    _cache = merge(load());
+                } finally {
+                    lock.close();
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Could not reload {}. Got: {}", file, e.toString());
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void saveIfRequired() {
+        _lock.lock();
+        try {
+            if ((_changed.isEmpty() && _removed.isEmpty()) || !isDirectory(_root)) {
+                return;
+            }
+            final Path file = file();
+            final Path tempFile = _root.resolve(ARTIFACT_INFO_CACHE_FILE_NAME + ".tmp");
+            try {
+                final InterProcessLock lock = acquire(file, "saving " + file, null);
+                try {
+                    final ArtifactInfoCache merged = merge(load());
+                    try (final OutputStream os = newOutputStream(tempFile)) {
+                        try (final Writer writer = new OutputStreamWriter(os, "UTF-8")) {
+                            _gson.toJson(merged, writer);
+                        }
+                    }
+                    move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+                    _cache = merged;
+                    _changed.clear();
+                    _removed.clear();
+                } finally {
+                    lock.close();
+                }
+            } catch (final IOException | JsonParseException e) {
+                LOGGER.warn("Could not save {}. Got: {}", file, e.toString());
+                deleteQuietly(tempFile);
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    protected void changed(@Nonnull String id) {
+        _changed.add(id);
+        _removed.remove(id);
+    }
+
+    /**
+     * @return <code>stored</code> with all changes of this process applied.
+     */
+    @Nonnull
+    protected ArtifactInfoCache merge(@Nonnull ArtifactInfoCache stored) {
+        final ArtifactInfoCache local = cache();
+        for (final String id : _removed) {
+            stored.removeEntry(id);
+        }
+        for (final String id : _changed) {
+            final Entry entry = local.findEntryBy(id);
+            if (entry != null) {
+                stored.saveEntry(id, merge(stored.findEntryBy(id), entry));
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Every information is taken from the entry which has the more recent one.
+     */
+    @Nonnull
+    protected static Entry merge(@Nullable Entry stored, @Nonnull Entry local) {
+        if (stored == null) {
+            return local;
+        }
+        final Entry updated = local.getLastUpdatedMillis() >= stored.getLastUpdatedMillis() ? local : stored;
+        final Entry sized = local.getSizeCalculatedMillis() >= stored.getSizeCalculatedMillis() ? local : stored;
+        final Entry result = new Entry();
+        result.setRef(updated.getRef());
+        result.setDetailedRef(updated.getDetailedRef());
+        result.setManaged(updated.isManaged());
+        result.setLastUpdatedMillis(updated.getLastUpdatedMillis());
+        result.setLastAccessedMillis(max(local.getLastAccessedMillis(), stored.getLastAccessedMillis()));
+        result.setSize(sized.getSize());
+        result.setSizeCalculatedMillis(sized.getSizeCalculatedMillis());
+        return result;
+    }
+
+    @Nonnull
+    protected ArtifactInfoCache cache() {
+        ArtifactInfoCache result = _cache;
+        if (result == null) {
+            result = load();
+            _cache = result;
+        }
+        return result;
+    }
+
+    @Nonnull
+    protected ArtifactInfoCache load() {
+        final Path file = file();
+        if (isRegularFile(file)) {
+            try (final InputStream is = newInputStream(file)) {
+                try (final Reader reader = new InputStreamReader(is, "UTF-8")) {
+                    final ArtifactInfoCache result = _gson.fromJson(reader, ArtifactInfoCache.class);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            } catch (final IOException | JsonParseException e) {
+                LOGGER.warn("Could not read {}. It will be recreated. Got: {}", file, e.toString());
+            }
+        }
+        return new ArtifactInfoCache();
+    }
+
+    @Nonnull
+    protected Path file() {
+        return _root.resolve(ARTIFACT_INFO_CACHE_FILE_NAME);
+    }
+
+    @Override
+    public String toString() {
+        return "ArtifactAccessTracker{" + _root + "}";
+    }
+
+}
@@ -0,0 +1,371 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.echocat.gradle.plugins.golang.model.ArtifactInfoCache.Entry;
+import org.echocat.gradle.plugins.golang.model.GolangSettings;
+import org.echocat.gradle.plugins.golang.model.Settings;
+import org.echocat.gradle.plugins.golang.model.ToolchainSettings;
+import org.echocat.gradle.plugins.golang.model.VcsRepositoryInfo;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.utils.SettingsEnabledSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.max;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.Files.*;
+import static java.util.Collections.emptyList;
+import static java.util.UUID.randomUUID;
+import static org.echocat.gradle.plugins.golang.Constants.EVICTED_DIRECTORY_NAME;
+import static org.echocat.gradle.plugins.golang.Constants.VCS_REPOSITORY_INFO_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
+import static org.echocat.gradle.plugins.golang.cache.SdkStore.sdkStoreFor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.tryAcquire;
+
+/**
+ * Evicts the least recently used SDKs (under <code>golang.cacheRoot/sdk</code>) and cached dependencies (under
+ * <code>golang.dependencies.dependencyCache</code>) if they are older than <code>golang.cacheMaxAge</code> or if all
+ * of them together are larger than <code>golang.cacheMaxSize</code>.
+ */
+public class CacheGarbageCollector extends SettingsEnabledSupport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheGarbageCollector.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-cache-gc");
+            result.setDaemon(true);
+            result.setPriority(Thread.MIN_PRIORITY);
+            return result;
+        }
+    });
+
+    protected static final DirectoryStream.Filter<Path> SDK_FILTER = new DirectoryStream.Filter<Path>() {
+        @Override
+        public boolean accept(Path entry) throws IOException {
+            return isDirectory(entry) && !entry.getFileName().toString().startsWith(".");
+        }
+    };
+
+    private final Gson _gson = new Gson();
+
+    public CacheGarbageCollector(@Nonnull Settings settings) {
+        super(settings);
+    }
+
+    @Nonnull
+    public static ArtifactAccessTracker sdkTrackerFor(@Nonnull GolangSettings golang) {
+        return artifactAccessTrackerFor(golang.getCacheRoot().resolve("sdk"));
+    }
+
+    @Nonnull
+    public Future<Collection<Path>> collectInBackground() {
+        return EXECUTOR.submit(new Callable<Collection<Path>>() {
+            @Override
+            public Collection<Path> call() throws Exception {
+                try {
+                    return collect();
+                } catch (final Exception e) {
+                    LOGGER.warn("Could not collect garbage of caches. Got: {}", e.toString());
+                    LOGGER.debug("Could not collect garbage of caches.", e);
+                    throw e;
+                }
+            }
+        });
+    }
+
+    @Nonnull
+    public Collection<Path> collect() throws IOException {
+        final GolangSettings golang = getGolang();
+        final Long maxSize = golang.getCacheMaxSize();
+        final Long maxAge = golang.getCacheMaxAge();
+        if (maxSize == null && maxAge == null) {
+            return emptyList();
+        }
+
+        final List<ArtifactAccessTracker> trackers = trackers();
+        final List<Candidate> candidates = new ArrayList<>();
+        for (final ArtifactAccessTracker tracker : trackers) {
+            purgeEvicted(tracker);
+            candidates.addAll(candidatesOf(tracker));
+        }
+        Collections.sort(candidates);
+
+        long totalSize = 0;
+        for (final Candidate candidate : candidates) {
+            totalSize += candidate.getSize();
+        }
+
+        final long now = currentTimeMillis();
+        final Set<Path> protectedDirectories = protectedDirectories();
+        final List<Path> result = new ArrayList<>();
+        for (final Candidate candidate : candidates) {
+            final boolean tooOld = maxAge != null && candidate.getLastAccessedMillis() + maxAge < now;
+            final boolean tooLarge = maxSize != null && totalSize > maxSize;
+            if (!tooOld && !tooLarge) {
+                break;
+            }
+            if (!protectedDirectories.contains(candidate.getDirectory()) && evict(candidate)) {
+                totalSize -= candidate.getSize();
+                result.add(candidate.getDirectory());
+            }
+        }
+
+        for (final ArtifactAccessTracker tracker : trackers) {
+            tracker.saveIfRequired();
+        }
+        if (!result.isEmpty()) {
+            // Files of evicted SDKs could still be shared with others; only the unused ones are freed.
+            sdkStoreFor(sdkTrackerFor(golang).getRoot()).prune();
+            LOGGER.info("{} cached artifacts evicted. Remaining cache size: {} bytes.", result.size(), totalSize);
+        }
+        return result;
+    }
+
+    @Nonnull
+    protected List<ArtifactAccessTracker> trackers() {
+        final List<ArtifactAccessTracker> result = new ArrayList<>();
+        final Path dependencyCache = getDependencies().getDependencyCache();
+        if (dependencyCache != null) {
+            result.add(artifactAccessTrackerFor(dependencyCache));
+        }
+        result.add(sdkTrackerFor(getGolang()));
+        return result;
+    }
+
+    @Nonnull
+    protected Set<Path> protectedDirectories() {
+        final Set<Path> result = new HashSet<>();
+        final ToolchainSettings toolchain = getToolchain();
+        final Path goroot = toolchain.getGoroot();
+        if (goroot != null) {
+            result.add(goroot.toAbsolutePath().normalize());
+        }
+        final Path bootstrapGoroot = toolchain.getBootstrapGoroot();
+        if (bootstrapGoroot != null) {
+            result.add(bootstrapGoroot.toAbsolutePath().normalize());
+        }
+        return result;
+    }
+
+    @Nonnull
+    protected List<Candidate> candidatesOf(@Nonnull ArtifactAccessTracker tracker) throws IOException {
+        final List<Candidate> result = new ArrayList<>();
+        final Path root = tracker.getRoot();
+        if (!isDirectory(root)) {
+            return result;
+        }
+        // Other processes could have used the artifacts in the meantime.
+        tracker.reload();
+        for (final Path directory : artifactDirectoriesOf(tracker)) {
+            final String id = idOf(root, directory);
+            final Entry entry = tracker.entryFor(id);
+            final long lastAccessedMillis = max(max(entry.getLastAccessedMillis(), entry.getLastUpdatedMillis()), lastKnownUsageOf(directory));
+            long size = entry.getSize();
+            if (!entry.isSizeUpToDate()) {
+                size = sizeOf(directory);
+                tracker.markSizeCalculated(id, size);
+            }
+            result.add(new Candidate(tracker, id, directory, entry.getLastAccessedMillis(), lastAccessedMillis, size));
+        }
+        return result;
+    }
+
+    @Nonnull
+    protected Collection<Path> artifactDirectoriesOf(@Nonnull ArtifactAccessTracker tracker) throws IOException {
+        final Path root = tracker.getRoot();
+        final List<Path> result = new ArrayList<>();
+        if (root.equals(sdkTrackerFor(getGolang()).getRoot())) {
+            try (final DirectoryStream<Path> stream = newDirectoryStream(root, SDK_FILTER)) {
+                for (final Path directory : stream) {
+                    result.add(directory.toAbsolutePath().normalize());
+                }
+            }
+        } else {
+            walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (dir.equals(root)) {
+                        return CONTINUE;
+                    }
+                    if (dir.getFileName().toString().startsWith(".")) {
+                        return SKIP_SUBTREE;
+                    }
+                    if (isRegularFile(dir.resolve(VCS_REPOSITORY_INFO_FILE_NAME))) {
+                        result.add(dir.toAbsolutePath().normalize());
+                        return SKIP_SUBTREE;
+                    }
+                    return CONTINUE;
+                }
+            });
+        }
+        return result;
+    }
+
+    protected long lastKnownUsageOf(@Nonnull Path directory) {
+        long result = 0;
+        final Path infoFile = directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME);
+        if (isRegularFile(infoFile)) {
+            try (final InputStream is = newInputStream(infoFile)) {
+                try (final Reader reader = new InputStreamReader(is, "UTF-8")) {
+                    final VcsRepositoryInfo info = _gson.fromJson(reader, VcsRepositoryInfo.class);
+                    if (info != null) {
+                        result = info.getLastUpdatedMillis();
+                    }
+                }
+            } catch (final IOException | JsonParseException e) {
+                LOGGER.debug("Could not read {}.", infoFile, e);
+            }
+        }
+        try {
+            result = max(result, getLastModifiedTime(directory).toMillis());
+        } catch (final IOException ignored) {}
+        return result;
+    }
+
+    @Nonnegative
+    protected long sizeOf(@Nonnull Path directory) throws IOException {
+        final AtomicLong result = new AtomicLong();
+        walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                result.addAndGet(attrs.size());
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return CONTINUE;
+            }
+        });
+        return result.get();
+    }
+
+    protected boolean evict(@Nonnull Candidate candidate) {
+        final ArtifactAccessTracker tracker = candidate.getTracker();
+        final Path directory = candidate.getDirectory();
+        final Path trash = tracker.getRoot().resolve(EVICTED_DIRECTORY_NAME).resolve(randomUUID().toString());
+        try {
+            // Artifacts could be currently installed or updated by this or other processes.
+            final InterProcessLock lock = tryAcquire(directory);
+            if (lock == null) {
+                LOGGER.debug("{} is currently locked. It will not be evicted.", directory);
+                return false;
+            }
+            try {
+                tracker.reload();
+                final Entry entry = tracker.findEntryBy(candidate.getId());
+                if ((entry != null && entry.getLastAccessedMillis() != candidate.getSnapshotAccessedMillis())
+                    || lastKnownUsageOf(directory) > candidate.getLastAccessedMillis()) {
+                    LOGGER.debug("{} was accessed while collecting garbage. It will not be evicted.", directory);
+                    return false;
+                }
+                createDirectoriesIfRequired(trash.getParent());
+                move(directory, trash);
+                tracker.remove(candidate.getId());
+            } finally {
+                lock.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not evict {}. Got: {}", directory, e.toString());
+            return false;
+        }
+        LOGGER.info("Evict {} ({} bytes) from cache...", directory, candidate.getSize());
+        deleteQuietly(trash);
+        return true;
+    }
+
+    protected void purgeEvicted(@Nonnull ArtifactAccessTracker tracker) {
+        final Path evicted = tracker.getRoot().resolve(EVICTED_DIRECTORY_NAME);
+        if (exists(evicted)) {
+            deleteQuietly(evicted);
+        }
+    }
+
+    @Nonnull
+    protected String idOf(@Nonnull Path root, @Nonnull Path directory) {
+        return root.relativize(directory).toString().replace(File.separatorChar, '/');
+    }
+
+    protected static class Candidate implements Comparable<Candidate> {
+
+        @Nonnull
+        private final ArtifactAccessTracker _tracker;
+        @Nonnull
+        private final String _id;
+        @Nonnull
+        private final Path _directory;
+        private final long _snapshotAccessedMillis;
+        private final long _lastAccessedMillis;
+        private final long _size;
+
+        public Candidate(@Nonnull ArtifactAccessTracker tracker, @Nonnull String id, @Nonnull Path directory, long snapshotAccessedMillis, long lastAccessedMillis, long size) {
+            _tracker = tracker;
+            _id = id;
+            _directory = directory;
+            _snapshotAccessedMillis = snapshotAccessedMillis;
+            _lastAccessedMillis = lastAccessedMillis;
+            _size = size;
+        }
+
+        @Nonnull
+        public ArtifactAccessTracker getTracker() {
+            return _tracker;
+        }
+
+        @Nonnull
+        public String getId() {
+            return _id;
+        }
+
+        @Nonnull
+        public Path getDirectory() {
+            return _directory;
+        }
+
+        public long getSnapshotAccessedMillis() {
+            return _snapshotAccessedMillis;
+        }
+
+        public long getLastAccessedMillis() {
+            return _lastAccessedMillis;
+        }
+
+        public long getSize() {
+            return _size;
+        }
+
+        @Override
+        public int compareTo(@Nullable Candidate that) {
+            if (that == null) {
+                return -1;
+            }
+            return Long.compare(_lastAccessedMillis, that._lastAccessedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return _directory.toString();
+        }
+    }
+
+}
@@ -0,0 +1,342 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.echocat.gradle.plugins.golang.model.VcsRepositoryInfo;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.io.File.separatorChar;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.apache.commons.io.IOUtils.copy;
+import static org.echocat.gradle.plugins.golang.Constants.DEPENDENCY_GRAPH_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.Constants.VCS_REPOSITORY_INFO_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+
+/**
+ * Exposes a dependency cache over HTTP:
+ * <ul>
+ *     <li><code>GET /dependencies/&lt;id&gt;/info</code> - {@value org.echocat.gradle.plugins.golang.Constants#VCS_REPOSITORY_INFO_FILE_NAME} of the dependency.</li>
+ *     <li><code>GET /dependencies/&lt;id&gt;.zip</code> - Content of the dependency. Supports <code>If-None-Match</code> with the full reference (like the commit) as ETag.</li>
+ *     <li><code>GET /graph</code> - The recorded dependency graph.</li>
+ *     <li><code>GET /sdk/&lt;file&gt;</code> - SDK archives. If not cached yet they are downloaded from the configured <code>sdkUpstream</code> once.</li>
+ * </ul>
+ */
+public class DependencyCacheServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DependencyCacheServer.class);
+
+    public static final String DEPENDENCIES_PATH = "/dependencies/";
+    public static final String GRAPH_PATH = "/graph";
+    public static final String SDK_PATH = "/sdk/";
+
+    protected static final int SDK_LOCK_STRIPES = 16;
+
+    @Nonnull
+    private final Path _dependencyCache;
+    @Nonnull
+    private final Path _sdkArchives;
+    @Nullable
+    private final URI _sdkUpstream;
+    /**
+     * Striped by the name of the archive - the names are chosen by the clients, so there is no lock per name.
+     */
+    @Nonnull
+    private final Object[] _sdkLocks = new Object[SDK_LOCK_STRIPES];
+    @Nonnull
+    private final OkHttpClient _client = new OkHttpClient();
+    @Nonnull
+    private final Gson _gson = new Gson();
+
+    @Nullable
+    private HttpServer _server;
+    @Nullable
+    private ExecutorService _executor;
+
+    public DependencyCacheServer(@Nonnull Path dependencyCache, @Nonnull Path sdkArchives, @Nullable URI sdkUpstream) {
+        _dependencyCache = dependencyCache.toAbsolutePath().normalize();
+        _sdkArchives = sdkArchives.toAbsolutePath().normalize();
+        _sdkUpstream = sdkUpstream;
+        for (int i = 0; i < _sdkLocks.length; i++) {
+            _sdkLocks[i] = new Object();
+        }
+    }
+
+    @Nonnull
+    public DependencyCacheServer start(@Nonnull InetSocketAddress address) throws IOException {
+        if (_server != null) {
+            throw new IllegalStateException("Already started.");
+        }
+        final HttpServer server = HttpServer.create(address, 0);
+        server.createContext(DEPENDENCIES_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleDependency(exchange);
+            }
+        });
+        server.createContext(GRAPH_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleGraph(exchange);
+            }
+        });
+        server.createContext(SDK_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleSdk(exchange);
+            }
+        });
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        _server = server;
+        _executor = executor;
+        return this;
+    }
+
+    @Nonnull
+    public InetSocketAddress getAddress() {
+        final HttpServer server = _server;
+        if (server == null) {
+            throw new IllegalStateException("Not started.");
+        }
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        final HttpServer server = _server;
+        if (server != null) {
+            server.stop(1);
+            _server = null;
+        }
+        final ExecutorService executor = _executor;
+        if (executor != null) {
+            executor.shutdownNow();
+            _executor = null;
+        }
+    }
+
+    protected void handleDependency(@Nonnull HttpExchange exchange) throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath().substring(DEPENDENCIES_PATH.length());
+            if (path.endsWith("/info")) {
+                final Path directory = resolveSafe(_dependencyCache, path.substring(0, path.length() - "/info".length()));
+                sendFile(exchange, directory != null ? directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME) : null, "application/json");
+            } else if (path.endsWith(".zip")) {
+                final Path directory = resolveSafe(_dependencyCache, path.substring(0, path.length() - ".zip".length()));
+                sendDependency(exchange, directory);
+            } else {
+                send(exchange, 404);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected void handleGraph(@Nonnull HttpExchange exchange) throws IOException {
+        try {
+            sendFile(exchange, _dependencyCache.resolve(DEPENDENCY_GRAPH_FILE_NAME), "application/json");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected void handleSdk(@Nonnull HttpExchange exchange) throws IOException {
+        try {
+            final String name = exchange.getRequestURI().getPath().substring(SDK_PATH.length());
+            final Path file = resolveSafe(_sdkArchives, name);
+            if (file == null || name.contains("/")) {
+                send(exchange, 404);
+                return;
+            }
+            if (!isRegularFile(file) && !downloadSdkIfPossible(name, file)) {
+                send(exchange, 404);
+                return;
+            }
+            sendFile(exchange, file, "application/octet-stream");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected boolean downloadSdkIfPossible(@Nonnull String name, @Nonnull Path file) throws IOException {
+        final URI upstream = _sdkUpstream;
+        if (upstream == null) {
+            return false;
+        }
+        final Object lock = _sdkLocks[(name.hashCode() & Integer.MAX_VALUE) % _sdkLocks.length];
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (lock) {
+            if (isRegularFile(file)) {
+                return true;
+            }
+            final URI uri = URI.create(upstream.toString() + name);
+            LOGGER.info("Download {} to {}...", uri, file);
+            createDirectoriesIfRequired(file.getParent());
+            final Path tempFile = file.getParent().resolve(name + ".tmp");
+            try {
+                final Request request = new Request.Builder()
+                    .url(uri.toURL())
+                    .build();
+                try (final Response response = _client.newCall(request).execute()) {
+                    final ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        LOGGER.warn("Could not download {}. Got: {} {}", uri, response.code(), response.message());
+                        return false;
+                    }
+                    try (final InputStream is = body.byteStream()) {
+                        try (final OutputStream os = newOutputStream(tempFile)) {
+                            copy(is, os);
+                        }
+                    }
+                }
+                move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+                return true;
+            } finally {
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    /**
+     * The dependency is archived into a temporary file while its lock is held - updates and evictions of other processes
+     * could otherwise produce a mixed archive. It is sent afterwards, so slow clients do not block them.
+     */
+    protected void sendDependency(@Nonnull HttpExchange exchange, @Nullable Path directory) throws IOException {
+        if (directory == null) {
+            send(exchange, 404);
+            return;
+        }
+        final String id = _dependencyCache.relativize(directory).toString().replace(separatorChar, '/');
+        final String etag;
+        final Path tempFile;
+        final InterProcessLock lock = artifactAccessTrackerFor(_dependencyCache).lock(id, "serving dependency " + id, null);
+        try {
+            if (!isRegularFile(directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME))) {
+                send(exchange, 404);
+                return;
+            }
+            etag = "\"" + fullRefOf(directory) + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                send(exchange, 304);
+                return;
+            }
+            tempFile = createTempFile("dependency", ".zip");
+            try (final ZipOutputStream zip = new ZipOutputStream(newOutputStream(tempFile))) {
+                zip(directory, zip);
+            } catch (final IOException | RuntimeException e) {
+                deleteQuietly(tempFile);
+                throw e;
+            }
+        } finally {
+            lock.close();
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(200, size(tempFile));
+            try (final OutputStream os = exchange.getResponseBody()) {
+                Files.copy(tempFile, os);
+            }
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    @Nullable
+    protected String fullRefOf(@Nonnull Path directory) throws IOException {
+        try (final InputStream is = newInputStream(directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME))) {
+            try (final Reader reader = new InputStreamReader(is, "UTF-8")) {
+                final VcsRepositoryInfo info = _gson.fromJson(reader, VcsRepositoryInfo.class);
+                return info != null ? info.getFullRef() : null;
+            }
+        } catch (final JsonParseException e) {
+            throw new IOException("Could not read info of " + directory + ".", e);
+        }
+    }
+
+    protected void zip(@Nonnull final Path directory, @Nonnull final ZipOutputStream to) throws IOException {
+        walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String name = directory.relativize(file).toString().replace(separatorChar, '/');
+                if (!attrs.isRegularFile()) {
+                    // Symbolic links could point everywhere on this host - they are never served.
+                    LOGGER.debug("Skip {} because it is not a regular file.", file);
+                } else if (!name.equals(VCS_REPOSITORY_INFO_FILE_NAME)) {
+                    to.putNextEntry(new ZipEntry(name));
+                    Files.copy(file, to);
+                    to.closeEntry();
+                }
+                return CONTINUE;
+            }
+        });
+    }
+
+    protected void sendFile(@Nonnull HttpExchange exchange, @Nullable Path file, @Nonnull String contentType) throws IOException {
+        if (file == null || !isRegularFile(file, NOFOLLOW_LINKS)) {
+            send(exchange, 404);
+            return;
+        }
+        final String etag = "\"" + getLastModifiedTime(file).toMillis() + "-" + size(file) + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            send(exchange, 304);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(200, size(file));
+        try (final OutputStream os = exchange.getResponseBody()) {
+            Files.copy(file, os);
+        }
+    }
+
+    protected void send(@Nonnull HttpExchange exchange, int code) throws IOException {
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    /**
+     * @return <code>null</code> if the requested path leaves the given root.
+     */
+    @Nullable
+    protected Path resolveSafe(@Nonnull Path root, @Nonnull String path) {
+        final Path result = root.resolve(path).normalize();
+        return result.startsWith(root) && !result.equals(root) ? result : null;
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyCacheServer{" + _dependencyCache + "}";
+    }
+
+}
@@ -0,0 +1,284 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.echocat.gradle.plugins.golang.model.NegativeResults;
+import org.echocat.gradle.plugins.golang.model.NegativeResults.Entry;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+import org.echocat.gradle.plugins.golang.vcs.VcsReference;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.echocat.gradle.plugins.golang.Constants.NEGATIVE_RESULT_CACHE_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.model.DependenciesSettings.DEFAULT_NEGATIVE_RESULT_TIME_TO_LIVE;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.acquire;
+
+/**
+ * Remembers failed resolutions of dependencies and failed {@link VcsRepository#isWorking()} probes for a short time, so
+ * that following builds do not run into the same slow network failures and timeouts again. The information is stored
+ * in {@value org.echocat.gradle.plugins.golang.Constants#NEGATIVE_RESULT_CACHE_FILE_NAME} inside of the cache root.
+ * <p>
+ * Builds running at the same time share this file. It is re-read under its {@link InterProcessLock} for every lookup and
+ * every change is applied to its current content under the same lock.
+ */
+@ThreadSafe
+public class NegativeResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeResultCache.class);
+    private static final ConcurrentMap<Path, NegativeResultCache> INSTANCES = new ConcurrentHashMap<>();
+
+    @Nonnull
+    public static NegativeResultCache negativeResultCacheFor(@Nonnull Path root) {
+        final Path normalized = root.toAbsolutePath().normalize();
+        final NegativeResultCache candidate = new NegativeResultCache(normalized);
+        final NegativeResultCache existing = INSTANCES.putIfAbsent(normalized, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    private final Gson _gson = new GsonBuilder()
+        .setPrettyPrinting()
+        .create();
+
+    @Nonnull
+    private final Path _root;
+    private volatile long _timeToLive = DEFAULT_NEGATIVE_RESULT_TIME_TO_LIVE;
+    private volatile boolean _reprobe;
+
+    protected NegativeResultCache(@Nonnull Path root) {
+        _root = root;
+    }
+
+    @Nonnull
+    public Path getRoot() {
+        return _root;
+    }
+
+    public long getTimeToLive() {
+        return _timeToLive;
+    }
+
+    public void setTimeToLive(@Nonnegative long timeToLive) {
+        _timeToLive = timeToLive;
+    }
+
+    public boolean isReprobe() {
+        return _reprobe;
+    }
+
+    /**
+     * @param reprobe If <code>true</code> all recorded failures are ignored, but new results are still recorded.
+     */
+    public void setReprobe(boolean reprobe) {
+        _reprobe = reprobe;
+    }
+
+    /**
+     * @return <code>null</code> if there is no failure recorded for the given key which is younger than the time to
+     * live.
+     */
+    @Nullable
+    public synchronized Entry findFailureOf(@Nonnull String key) {
+        if (_reprobe) {
+            return null;
+        }
+        final Entry entry = results().findEntryBy(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            // Removed with the next change.
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized void recordFailureOf(@Nonnull String key, @Nonnull String cause) {
+        update(key, new Entry()
+            .setFailedMillis(currentTimeMillis())
+            .setCause(cause)
+        );
+    }
+
+    public void recordFailureOf(@Nonnull String key, @Nonnull Throwable cause) {
+        recordFailureOf(key, causeOf(cause));
+    }
+
+    public synchronized void recordSuccessOf(@Nonnull String key) {
+        if (results().findEntryBy(key) != null) {
+            update(key, null);
+        }
+    }
+
+    /**
+     * Like {@link VcsRepository#isWorking()} but a probe which failed within the time to live is not repeated.
+     */
+    public boolean isWorking(@Nonnull VcsRepository repository) throws VcsException {
+        final String key = probeKeyFor(repository.getReference());
+        final Entry failure = findFailureOf(key);
+        if (failure != null) {
+            LOGGER.debug("Skip probe of {} because it failed at {}: {}", key, new Date(failure.getFailedMillis()), failure.getCause());
+            return false;
+        }
+        final boolean result;
+        try {
+            result = repository.isWorking();
+        } catch (final VcsException | RuntimeException e) {
+            recordFailureOf(key, e);
+            throw e;
+        }
+        if (result) {
+            recordSuccessOf(key);
+        } else {
+            recordFailureOf(key, "Repository is not working.");
+        }
+        return result;
+    }
+
+    @Nonnull
+    public String describe(@Nonnull String key, @Nonnull Entry failure) {
+        return key + " failed at " + new Date(failure.getFailedMillis())
+            + " and will not be retried before " + new Date(failure.getFailedMillis() + _timeToLive)
+            + " (set golang.dependencies.reprobe = true to force it). Cause: " + failure.getCause();
+    }
+
+    @Nonnull
+    protected String probeKeyFor(@Nonnull VcsReference reference) {
+        return "probe:" + reference.getType() + ":" + reference.getUri();
+    }
+
+    @Nonnull
+    protected String causeOf(@Nonnull Throwable throwable) {
+        final StringBuilder sb = new StringBuilder();
+        Throwable current = throwable;
+        while (current != null) {
+            if (sb.length() > 0) {
+                sb.append(" <- ");
+            }
+            sb.append(current);
+            current = current.getCause() != current ? current.getCause() : null;
+        }
+        return sb.toString();
+    }
+
+    protected boolean isExpired(@Nonnull Entry entry) {
+        return entry.getFailedMillis() + _timeToLive < currentTimeMillis();
+    }
+
+    /**
+     * @return the current content of the file. Timestamps of files are too coarse to detect changes of other processes
+     * reliably, so it is always re-read.
+     */
+    @Nonnull
+    protected NegativeResults results() {
+        final Path file = file();
+        if (!isRegularFile(file)) {
+            return new NegativeResults();
+        }
+        try {
+            final InterProcessLock lock = acquire(file, "reading " + file, null);
+            try {
+                return load();
+            } finally {
+                lock.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not read {}. Got: {}", file, e.toString());
+            return new NegativeResults();
+        }
+    }
+
+    @Nonnull
+    protected NegativeResults load() {
+        final Path file = file();
+        if (isRegularFile(file)) {
+            try (final InputStream is = newInputStream(file)) {
+                try (final Reader reader = new InputStreamReader(is, "UTF-8")) {
+                    final NegativeResults result = _gson.fromJson(reader, NegativeResults.class);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            } catch (final IOException | JsonParseException e) {
+                LOGGER.warn("Could not read {}. It will be recreated. Got: {}", file, e.toString());
+            }
+        }
+        return new NegativeResults();
+    }
+
+    /**
+     * Applies the change (<code>entry</code> is <code>null</code> to remove <code>key</code>) to the current content of
+     * the file - not to the content this process has seen before - and drops all expired entries.
+     */
+    protected void update(@Nonnull String key, @Nullable Entry entry) {
+        final Path file = file();
+        final Path tempFile = _root.resolve(NEGATIVE_RESULT_CACHE_FILE_NAME + ".tmp");
+        try {
+            createDirectoriesIfRequired(_root);
+            final InterProcessLock lock = acquire(file, "saving " + file, null);
+            try {
+                final NegativeResults results = load();
+                apply(results, key, entry);
+                try (final OutputStream os = newOutputStream(tempFile)) {
+                    try (final Writer writer = new OutputStreamWriter(os, "UTF-8")) {
+                        _gson.toJson(results, writer);
+                    }
+                }
+                move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            } finally {
+                lock.close();
+            }
+        } catch (final IOException | JsonParseException e) {
+            LOGGER.warn("Could not save {}. Got: {}", file, e.toString());
+            deleteQuietly(tempFile);
+        }
+    }
+
+    protected void apply(@Nonnull NegativeResults results, @Nonnull String key, @Nullable Entry entry) {
+        if (entry != null) {
+            results.saveEntry(key, entry);
+        } else {
+            results.removeEntry(key);
+        }
+        final Map<String, Entry> entries = results.getEntries();
+        if (entries != null) {
+            final Iterator<Entry> i = entries.values().iterator();
+            while (i.hasNext()) {
+                if (isExpired(i.next())) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    protected Path file() {
+        return _root.resolve(NEGATIVE_RESULT_CACHE_FILE_NAME);
+    }
+
+    @Override
+    public String toString() {
+        return "NegativeResultCache{" + _root + "}";
+    }
+
+}
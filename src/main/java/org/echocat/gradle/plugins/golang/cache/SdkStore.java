@@ -0,0 +1,191 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.UUID.randomUUID;
+import static org.echocat.gradle.plugins.golang.utils.ArchiveUtils.sha256Digest;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.toHexString;
+
+/**
+ * Content addressed store of the files of all SDKs in a cache root. Files with the same content (and the same executable
+ * flag) in different SDKs, like most of the files of two patch releases of go, are replaced by hardlinks to one single
+ * object in the hidden directory {@value #OBJECTS_DIRECTORY_NAME}.
+ * <p>
+ * Deduplicated files share their content with all other SDKs and must therefore never be modified in place. This is
+ * why only SDKs which are never rebuild (binary distributions and bootstrap toolchains) should be deduplicated.
+ */
+@ThreadSafe
+public class SdkStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SdkStore.class);
+    private static final ConcurrentMap<Path, SdkStore> INSTANCES = new ConcurrentHashMap<>();
+
+    public static final String OBJECTS_DIRECTORY_NAME = ".objects";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Nonnull
+    public static SdkStore sdkStoreFor(@Nonnull Path sdkRoot) {
+        final Path normalized = sdkRoot.toAbsolutePath().normalize();
+        final SdkStore candidate = new SdkStore(normalized.resolve(OBJECTS_DIRECTORY_NAME));
+        final SdkStore existing = INSTANCES.putIfAbsent(normalized, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    @Nonnull
+    private final Path _objects;
+
+    protected SdkStore(@Nonnull Path objects) {
+        _objects = objects;
+    }
+
+    @Nonnull
+    public Path getObjects() {
+        return _objects;
+    }
+
+    /**
+     * Replaces every file of <code>goroot</code> by a hardlink to the object with the same content. Files without such
+     * an object become the object. If hardlinks are not supported (for example because the SDK is located on another
+     * file system than the store) the SDK is left as it is.
+     *
+     * @return the number of bytes which were already in the store and are now shared.
+     */
+    public long deduplicate(@Nonnull final Path goroot, @Nullable final Counter counter) throws IOException {
+        createDirectoriesIfRequired(_objects);
+        final AtomicLong shared = new AtomicLong();
+        try {
+            walkFileTree(goroot, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    // Empty files are often used as markers and written in place; there is nothing to save anyway.
+                    if (attributes.isRegularFile() && attributes.size() > 0) {
+                        if (deduplicate(file, attributes.size())) {
+                            shared.addAndGet(attributes.size());
+                        }
+                        if (counter != null) {
+                            counter.increment(null);
+                        }
+                    }
+                    return CONTINUE;
+                }
+            });
+        } catch (final UnsupportedOperationException | SecurityException e) {
+            LOGGER.info("Could not deduplicate {} because hardlinks are not supported. Got: {}", goroot, e.toString());
+            return shared.get();
+        } catch (final IOException e) {
+            if (!exists(goroot)) {
+                throw e;
+            }
+            LOGGER.info("Could not deduplicate {}; the rest of it is left as it is. Got: {}", goroot, e.toString());
+            return shared.get();
+        }
+        LOGGER.info("Deduplicated {}. {} bytes are shared with other SDKs.", goroot, shared.get());
+        return shared.get();
+    }
+
+    /**
+     * @return <code>true</code> if <code>file</code> was replaced by a link to an already existing object.
+     */
+    protected boolean deduplicate(@Nonnull Path file, long size) throws IOException {
+        final Path object = objectFor(sha256Of(file), isExecutable(file));
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (exists(object) && size(object) == size) {
+                if (isSameFile(object, file)) {
+                    return false;
+                }
+                final Path temp = file.resolveSibling("." + file.getFileName() + "." + randomUUID() + ".tmp");
+                try {
+                    createLink(temp, object);
+                    move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+                    return true;
+                } catch (final NoSuchFileException ignored) {
+                    // Object was pruned in the meantime - store it again.
+                    deleteQuietly(temp);
+                }
+            }
+            createDirectoriesIfRequired(object.getParent());
+            try {
+                createLink(object, file);
+                return false;
+            } catch (final FileAlreadyExistsException ignored) {
+                // Stored by another process in the meantime - link to it.
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all objects which are not used by any SDK anymore.
+     *
+     * @return the number of freed bytes.
+     */
+    public long prune() throws IOException {
+        if (!isDirectory(_objects)) {
+            return 0;
+        }
+        final AtomicLong freed = new AtomicLong();
+        walkFileTree(_objects, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                final Object links;
+                try {
+                    links = getAttribute(file, "unix:nlink");
+                } catch (final UnsupportedOperationException | IllegalArgumentException ignored) {
+                    return FileVisitResult.TERMINATE;
+                }
+                if (links instanceof Number && ((Number) links).intValue() <= 1) {
+                    deleteQuietly(file);
+                    freed.addAndGet(attributes.size());
+                }
+                return CONTINUE;
+            }
+        });
+        if (freed.get() > 0) {
+            LOGGER.info("Pruned {} bytes of unused SDK files.", freed.get());
+        }
+        return freed.get();
+    }
+
+    @Nonnull
+    protected Path objectFor(@Nonnull String sha256, boolean executable) {
+        return _objects.resolve(sha256.substring(0, 2)).resolve(sha256 + (executable ? "-x" : ""));
+    }
+
+    @Nonnull
+    protected static String sha256Of(@Nonnull Path file) throws IOException {
+        final MessageDigest digest = sha256Digest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (final InputStream is = newInputStream(file)) {
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHexString(digest.digest());
+    }
+
+}
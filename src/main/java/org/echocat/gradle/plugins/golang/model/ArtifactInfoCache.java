@@ -71,6 +71,19 @@ public class ArtifactInfoCache {
         saveEntry(rawReference.getId(), rawReference.getRef(), fullReference.getFull(), currentTimeMillis(), managed);
     }
 
+    @Nonnull
+    public Entry touchEntry(@Nonnull String id, @Nonnegative long accessedMillis) {
+        Entry entry = findEntryBy(id);
+        if (entry == null) {
+            entry = new Entry();
+            saveEntry(id, entry);
+        }
+        if (entry.getLastAccessedMillis() < accessedMillis) {
+            entry.setLastAccessedMillis(accessedMillis);
+        }
+        return entry;
+    }
+
     public void removeEntry(@Nonnull String id) {
         final Map<String, Entry> entries = _entries;
         if (entries == null) {
@@ -89,6 +102,12 @@ public class ArtifactInfoCache {
         private long _lastUpdatedMillis;
         @SerializedName("managed")
         private boolean _managed = true;
+        @SerializedName("lastAccessedMillis")
+        private long _lastAccessedMillis;
+        @SerializedName("size")
+        private long _size = -1;
+        @SerializedName("sizeCalculatedMillis")
+        private long _sizeCalculatedMillis;
 
         public String getRef() {
             return _ref;
@@ -121,6 +140,37 @@ public class ArtifactInfoCache {
         public void setManaged(boolean managed) {
             this._managed = managed;
         }
+
+        public long getLastAccessedMillis() {
+            return _lastAccessedMillis;
+        }
+
+        public void setLastAccessedMillis(long lastAccessedMillis) {
+            _lastAccessedMillis = lastAccessedMillis;
+        }
+
+        /**
+         * @return size in bytes of the artifact on disk or <code>-1</code> if not yet calculated.
+         */
+        public long getSize() {
+            return _size;
+        }
+
+        public void setSize(long size) {
+            _size = size;
+        }
+
+        public long getSizeCalculatedMillis() {
+            return _sizeCalculatedMillis;
+        }
+
+        public void setSizeCalculatedMillis(long sizeCalculatedMillis) {
+            _sizeCalculatedMillis = sizeCalculatedMillis;
+        }
+
+        public boolean isSizeUpToDate() {
+            return _size >= 0 && _sizeCalculatedMillis >= _lastUpdatedMillis;
+        }
     }
 
 }
@@ -16,6 +16,7 @@ import static java.io.File.separator;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.notExists;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
 
 public class BuildSettings {
 
@@ -30,6 +31,8 @@ public class BuildSettings {
     private String[] _arguments;
     private String _outputFilenamePattern;
     private Map<String, String> _definitions;
+    private Long _timeout;
+    private Integer _parallelism;
 
     @Inject
     public BuildSettings(boolean initialize, @Nonnull Project project) {
@@ -53,6 +56,8 @@ public class BuildSettings {
             _excludes = new String[]{
                 ".git/**", ".svn/**", "build.gradle", "build/**", ".gradle/**", "gradle/**"
             };
+            // go build itself compiles the packages of one platform in parallel.
+            _parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
         }
     }
 
@@ -161,6 +166,32 @@ public class BuildSettings {
         _arguments = arguments;
     }
 
+    /**
+     * Maximum duration of "go build" for one platform. <code>null</code> means no limit.
+     */
+    public Long getTimeout() {
+        return _timeout;
+    }
+
+    public void setTimeout(Long timeout) {
+        _timeout = timeout;
+    }
+
+    public void setTimeout(String timeout) {
+        setTimeout(parseDuration(timeout));
+    }
+
+    /**
+     * Number of platforms which are build at the same time.
+     */
+    public Integer getParallelism() {
+        return _parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        _parallelism = parallelism;
+    }
+
     @Nonnull
     public Path outputFilenameFor(@Nonnull Platform platform) {
         return java.nio.file.Paths.get(replacePlaceholdersFor(platform, getOutputFilenamePattern()));
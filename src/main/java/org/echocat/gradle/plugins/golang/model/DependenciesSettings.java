@@ -3,6 +3,7 @@ package org.echocat.gradle.plugins.golang.model;
 import groovy.lang.Closure;
 import groovy.lang.MissingMethodException;
 import org.echocat.gradle.plugins.golang.vcs.VcsType;
+import org.echocat.gradle.plugins.golang.vcs.git.GitBackend;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
@@ -20,12 +21,16 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.echocat.gradle.plugins.golang.Constants.VENDOR_DIRECTORY_NAME;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
 import static org.echocat.gradle.plugins.golang.vcs.VcsType.git;
 import static org.gradle.util.ConfigureUtil.configure;
 
 public class DependenciesSettings {
 
+    public static final long DEFAULT_NEGATIVE_RESULT_TIME_TO_LIVE = MINUTES.toMillis(10);
+
     protected static final Pattern NOTATION_PATTERN = Pattern.compile("(?<group>[a-zA-Z0-9.\\-_/]+)(?::(?<version>[a-zA-Z0-9.\\-_/]+))?");
 
     private final boolean _root;
@@ -37,6 +42,15 @@ public class DependenciesSettings {
     private Boolean _deleteUnknownDependencies;
     private Boolean _deleteAllCachedDependenciesOnClean;
     private Path _dependencyCache;
+    private Boolean _prefetch;
+    private URI _goProxy;
+    private URI _cacheServer;
+    private Integer _cacheServerPort;
+    private String _cacheServerAddress;
+    private Long _negativeResultTimeToLive;
+    private Boolean _reprobe;
+    private GitBackend _gitBackend;
+    private Boolean _sparseCheckout;
 
     private Collection<VcsRepositoryProvider> _vcsRepositoryProviders;
 
@@ -47,6 +61,11 @@ public class DependenciesSettings {
         if (root) {
             _dependencyCache = project.getProjectDir().toPath().resolve(VENDOR_DIRECTORY_NAME);
             _deleteUnknownDependencies = true;
+            _prefetch = true;
+            _cacheServerPort = 8765;
+            _negativeResultTimeToLive = DEFAULT_NEGATIVE_RESULT_TIME_TO_LIVE;
+            _gitBackend = GitBackend.jgit;
+            _sparseCheckout = false;
         }
     }
 
@@ -82,6 +101,94 @@ public class DependenciesSettings {
         _dependencyCache = dependencyCache;
     }
 
+    public Boolean getPrefetch() {
+        return _prefetch;
+    }
+
+    public void setPrefetch(Boolean prefetch) {
+        _prefetch = prefetch;
+    }
+
+    public URI getGoProxy() {
+        return _goProxy;
+    }
+
+    public void setGoProxy(URI goProxy) {
+        _goProxy = goProxy;
+    }
+
+    public void setGoProxy(String goProxy) {
+        setGoProxy(goProxy != null ? URI.create(goProxy) : null);
+    }
+
+    public URI getCacheServer() {
+        return _cacheServer;
+    }
+
+    public void setCacheServer(URI cacheServer) {
+        _cacheServer = cacheServer;
+    }
+
+    public void setCacheServer(String cacheServer) {
+        setCacheServer(cacheServer != null ? URI.create(cacheServer) : null);
+    }
+
+    public Integer getCacheServerPort() {
+        return _cacheServerPort;
+    }
+
+    public void setCacheServerPort(Integer cacheServerPort) {
+        _cacheServerPort = cacheServerPort;
+    }
+
+    public String getCacheServerAddress() {
+        return _cacheServerAddress;
+    }
+
+    public void setCacheServerAddress(String cacheServerAddress) {
+        _cacheServerAddress = cacheServerAddress;
+    }
+
+    public Long getNegativeResultTimeToLive() {
+        return _negativeResultTimeToLive;
+    }
+
+    public void setNegativeResultTimeToLive(Long negativeResultTimeToLive) {
+        _negativeResultTimeToLive = negativeResultTimeToLive;
+    }
+
+    public void setNegativeResultTimeToLive(String negativeResultTimeToLive) {
+        setNegativeResultTimeToLive(negativeResultTimeToLive != null ? parseDuration(negativeResultTimeToLive) : null);
+    }
+
+    public Boolean getReprobe() {
+        return _reprobe;
+    }
+
+    public void setReprobe(Boolean reprobe) {
+        _reprobe = reprobe;
+    }
+
+    public GitBackend getGitBackend() {
+        return _gitBackend;
+    }
+
+    public void setGitBackend(GitBackend gitBackend) {
+        _gitBackend = gitBackend;
+    }
+
+    public void setGitBackend(String gitBackend) {
+        setGitBackend(gitBackend != null ? GitBackend.valueOf(gitBackend) : null);
+    }
+
+    public Boolean getSparseCheckout() {
+        return _sparseCheckout;
+    }
+
+    public void setSparseCheckout(Boolean sparseCheckout) {
+        _sparseCheckout = sparseCheckout;
+    }
+
     public Collection<VcsRepositoryProvider> getVcsRepositoryProviders() {
         return _vcsRepositoryProviders;
     }
@@ -105,9 +212,19 @@ public class DependenciesSettings {
         return vcsRepositoryProvider(VcsType.valueOf(type), prefix, name, Pattern.compile(dependencyPattern));
     }
 
+    @Nonnull
+    public VcsRepositoryProvider vcsRepositoryProvider(@Nonnull String type, @Nonnull String prefix, @Nonnull String name, @Nonnull String dependencyPattern, @Nonnull String gitBackend) {
+        return vcsRepositoryProvider(VcsType.valueOf(type), prefix, name, Pattern.compile(dependencyPattern), GitBackend.valueOf(gitBackend));
+    }
+
     @Nonnull
     public VcsRepositoryProvider vcsRepositoryProvider(@Nonnull VcsType type, @Nonnull String prefix, @Nonnull String name, @Nonnull Pattern dependencyPattern) {
-        final VcsRepositoryProvider result = new VcsRepositoryProvider(type, prefix, name, dependencyPattern);
+        return vcsRepositoryProvider(type, prefix, name, dependencyPattern, null);
+    }
+
+    @Nonnull
+    public VcsRepositoryProvider vcsRepositoryProvider(@Nonnull VcsType type, @Nonnull String prefix, @Nonnull String name, @Nonnull Pattern dependencyPattern, @Nullable GitBackend gitBackend) {
+        final VcsRepositoryProvider result = new VcsRepositoryProvider(type, prefix, name, dependencyPattern, gitBackend);
         add(result);
         return result;
     }
@@ -0,0 +1,168 @@
+package org.echocat.gradle.plugins.golang.model;
+
+import com.google.gson.annotations.SerializedName;
+import org.echocat.gradle.plugins.golang.Version;
+import org.echocat.gradle.plugins.golang.vcs.VcsType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.util.*;
+
+import static org.echocat.gradle.plugins.golang.model.GolangDependency.newDependency;
+
+/**
+ * Dependencies resolved by a previous run per configuration. Is used to fetch them in the background before they are
+ * actually requested.
+ */
+public class DependencyGraph {
+
+    @SerializedName("revision")
+    private int _revision = 1;
+    @SerializedName("creator")
+    private String _creator = Version.NAME + " " + Version.VERSION;
+    @SerializedName("configurations")
+    private Map<String, List<Node>> _configurations = new TreeMap<>();
+
+    public int getRevision() {
+        return _revision;
+    }
+
+    public void setRevision(int revision) {
+        _revision = revision;
+    }
+
+    public String getCreator() {
+        return _creator;
+    }
+
+    public void setCreator(String creator) {
+        _creator = creator;
+    }
+
+    public Map<String, List<Node>> getConfigurations() {
+        return _configurations;
+    }
+
+    public void setConfigurations(Map<String, List<Node>> configurations) {
+        _configurations = configurations;
+    }
+
+    public void record(@Nonnull String configuration, @Nonnull Collection<GolangDependency> dependencies) {
+        if (_configurations == null) {
+            _configurations = new TreeMap<>();
+        }
+        final List<Node> nodes = new ArrayList<>();
+        for (final GolangDependency dependency : dependencies) {
+            nodes.add(new Node(dependency));
+        }
+        _configurations.put(configuration, nodes);
+    }
+
+    @Nonnull
+    public Set<GolangDependency> allDependencies() {
+        final Set<GolangDependency> result = new LinkedHashSet<>();
+        if (_configurations != null) {
+            for (final List<Node> nodes : _configurations.values()) {
+                if (nodes != null) {
+                    for (final Node node : nodes) {
+                        final GolangDependency dependency = node.toDependency();
+                        if (dependency != null) {
+                            result.add(dependency);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public static class Node {
+
+        @SerializedName("group")
+        private String _group;
+        @SerializedName("version")
+        private String _version;
+        @SerializedName("repositoryUri")
+        private String _repositoryUri;
+        @SerializedName("repositoryType")
+        private VcsType _repositoryType;
+        @SerializedName("updatePolicy")
+        private String _updatePolicy;
+
+        public Node() {}
+
+        public Node(@Nonnull GolangDependency dependency) {
+            _group = dependency.getGroup();
+            _version = dependency.getVersion();
+            final URI repositoryUri = dependency.getRepositoryUri();
+            _repositoryUri = repositoryUri != null ? repositoryUri.toString() : null;
+            _repositoryType = dependency.getRepositoryType();
+            _updatePolicy = dependency.getUpdatePolicy().toString();
+        }
+
+        public String getGroup() {
+            return _group;
+        }
+
+        public void setGroup(String group) {
+            _group = group;
+        }
+
+        public String getVersion() {
+            return _version;
+        }
+
+        public void setVersion(String version) {
+            _version = version;
+        }
+
+        public String getRepositoryUri() {
+            return _repositoryUri;
+        }
+
+        public void setRepositoryUri(String repositoryUri) {
+            _repositoryUri = repositoryUri;
+        }
+
+        public VcsType getRepositoryType() {
+            return _repositoryType;
+        }
+
+        public void setRepositoryType(VcsType repositoryType) {
+            _repositoryType = repositoryType;
+        }
+
+        public String getUpdatePolicy() {
+            return _updatePolicy;
+        }
+
+        public void setUpdatePolicy(String updatePolicy) {
+            _updatePolicy = updatePolicy;
+        }
+
+        /**
+         * @return <code>null</code> if this node could not be converted (anymore) into a valid dependency.
+         */
+        @Nullable
+        public GolangDependency toDependency() {
+            if (_group == null || _group.isEmpty()) {
+                return null;
+            }
+            try {
+                final GolangDependency result = newDependency(_group)
+                    .setVersion(_version)
+                    .setRepositoryUri(_repositoryUri != null ? URI.create(_repositoryUri) : null)
+                    .setRepositoryType(_repositoryType);
+                if (_updatePolicy != null) {
+                    result.setUpdatePolicy(UpdatePolicy.valueOf(_updatePolicy));
+                }
+                return result;
+            } catch (final IllegalArgumentException ignored) {
+                return null;
+            }
+        }
+
+    }
+
+}
@@ -10,8 +10,13 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.echocat.gradle.plugins.golang.model.Platform.currentPlatform;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.toPath;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseSize;
 
 public class GolangSettings {
 
@@ -22,6 +27,17 @@ public class GolangSettings {
     private String _packageName;
     private Platform _hostPlatform;
     private Path _cacheRoot;
+    private Long _cacheMaxSize;
+    private Long _cacheMaxAge;
+    private Long _remoteTimeout;
+    private Integer _remoteRetries;
+    private Long _remoteRetryBackoff;
+    private Integer _circuitBreakerThreshold;
+    private Long _circuitBreakerOpenDuration;
+    private Integer _maxConcurrentProcesses;
+    private Boolean _traceProcesses;
+    private Path _processTraceFile;
+    private Integer _processTraceSummarySize;
 
     @Inject
     public GolangSettings(boolean initialize, @Nonnull Project project) {
@@ -30,6 +46,16 @@ public class GolangSettings {
             setHostPlatform(currentPlatform());
             setPlatforms(currentPlatform());
             setCacheRoot(Paths.get(System.getProperty("user.home", ".")).resolve(".go"));
+            setCacheMaxAge(DAYS.toMillis(90));
+            setRemoteTimeout(MINUTES.toMillis(1));
+            setRemoteRetries(3);
+            setRemoteRetryBackoff(SECONDS.toMillis(1));
+            setCircuitBreakerThreshold(5);
+            setCircuitBreakerOpenDuration(MINUTES.toMillis(1));
+            setMaxConcurrentProcesses(Runtime.getRuntime().availableProcessors());
+            setTraceProcesses(false);
+            setProcessTraceFile(project.getRootProject().getBuildDir().toPath().resolve("golang-process-trace.json"));
+            setProcessTraceSummarySize(10);
         }
     }
 
@@ -81,6 +107,153 @@ public class GolangSettings {
         setCacheRoot(toPath(cacheRoot));
     }
 
+    /**
+     * Maximum size in bytes of all SDKs and cached dependencies together. If exceeded the least recently used ones will
+     * be evicted. <code>null</code> means no limit.
+     */
+    public Long getCacheMaxSize() {
+        return _cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(Long cacheMaxSize) {
+        _cacheMaxSize = cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(String cacheMaxSize) {
+        setCacheMaxSize(parseSize(cacheMaxSize));
+    }
+
+    /**
+     * Maximum time in milliseconds a SDK or cached dependency could be unused before it will be evicted.
+     * <code>null</code> means no limit.
+     */
+    public Long getCacheMaxAge() {
+        return _cacheMaxAge;
+    }
+
+    public void setCacheMaxAge(Long cacheMaxAge) {
+        _cacheMaxAge = cacheMaxAge;
+    }
+
+    public void setCacheMaxAge(String cacheMaxAge) {
+        setCacheMaxAge(parseDuration(cacheMaxAge));
+    }
+
+    /**
+     * Connect and read timeout in milliseconds of every single attempt of a remote operation.
+     */
+    public Long getRemoteTimeout() {
+        return _remoteTimeout;
+    }
+
+    public void setRemoteTimeout(Long remoteTimeout) {
+        _remoteTimeout = remoteTimeout;
+    }
+
+    public void setRemoteTimeout(String remoteTimeout) {
+        setRemoteTimeout(parseDuration(remoteTimeout));
+    }
+
+    /**
+     * How often an idempotent remote operation (ls-remote, clone, fetch, download) is retried after a transient
+     * failure.
+     */
+    public Integer getRemoteRetries() {
+        return _remoteRetries;
+    }
+
+    public void setRemoteRetries(Integer remoteRetries) {
+        _remoteRetries = remoteRetries;
+    }
+
+    /**
+     * Wait time in milliseconds before the first retry. It is doubled with every further retry.
+     */
+    public Long getRemoteRetryBackoff() {
+        return _remoteRetryBackoff;
+    }
+
+    public void setRemoteRetryBackoff(Long remoteRetryBackoff) {
+        _remoteRetryBackoff = remoteRetryBackoff;
+    }
+
+    public void setRemoteRetryBackoff(String remoteRetryBackoff) {
+        setRemoteRetryBackoff(parseDuration(remoteRetryBackoff));
+    }
+
+    /**
+     * Number of failures in a row after which a host is not contacted anymore for
+     * {@link #getCircuitBreakerOpenDuration()}. <code>0</code> disables it.
+     */
+    public Integer getCircuitBreakerThreshold() {
+        return _circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(Integer circuitBreakerThreshold) {
+        _circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public Long getCircuitBreakerOpenDuration() {
+        return _circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(Long circuitBreakerOpenDuration) {
+        _circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(String circuitBreakerOpenDuration) {
+        setCircuitBreakerOpenDuration(parseDuration(circuitBreakerOpenDuration));
+    }
+
+    /**
+     * Maximum number of child processes (go, git, ...) running at the same time across all tasks of the build.
+     */
+    public Integer getMaxConcurrentProcesses() {
+        return _maxConcurrentProcesses;
+    }
+
+    public void setMaxConcurrentProcesses(Integer maxConcurrentProcesses) {
+        _maxConcurrentProcesses = maxConcurrentProcesses;
+    }
+
+    /**
+     * Records every executed child process and writes them at the end of the build to {@link #getProcessTraceFile()}.
+     */
+    public Boolean getTraceProcesses() {
+        return _traceProcesses;
+    }
+
+    public void setTraceProcesses(Boolean traceProcesses) {
+        _traceProcesses = traceProcesses;
+    }
+
+    /**
+     * Chrome trace (<code>chrome://tracing</code> or <a href="https://ui.perfetto.dev">Perfetto</a>) of all executed
+     * child processes grouped by task.
+     */
+    public Path getProcessTraceFile() {
+        return _processTraceFile;
+    }
+
+    public void setProcessTraceFile(Path processTraceFile) {
+        _processTraceFile = processTraceFile;
+    }
+
+    public void setProcessTraceFile(String processTraceFile) {
+        setProcessTraceFile(toPath(processTraceFile));
+    }
+
+    /**
+     * Number of the slowest child processes printed at the end of the build if processes are traced.
+     */
+    public Integer getProcessTraceSummarySize() {
+        return _processTraceSummarySize;
+    }
+
+    public void setProcessTraceSummarySize(Integer processTraceSummarySize) {
+        _processTraceSummarySize = processTraceSummarySize;
+    }
+
     @Nonnull
     public Path packagePathFor(@Nonnull Path gopath) {
         return gopath.resolve("src").resolve(getPackageName()).toAbsolutePath();
@@ -0,0 +1,99 @@
+package org.echocat.gradle.plugins.golang.model;
+
+import com.google.gson.annotations.SerializedName;
+import org.echocat.gradle.plugins.golang.Version;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Failed resolutions and probes of the previous runs with their causes.
+ */
+public class NegativeResults {
+
+    @SerializedName("revision")
+    private int _revision = 1;
+    @SerializedName("creator")
+    private String _creator = Version.NAME + " " + Version.VERSION;
+    @SerializedName("entries")
+    private Map<String, Entry> _entries = new TreeMap<>();
+
+    public int getRevision() {
+        return _revision;
+    }
+
+    public void setRevision(int revision) {
+        _revision = revision;
+    }
+
+    public String getCreator() {
+        return _creator;
+    }
+
+    public void setCreator(String creator) {
+        _creator = creator;
+    }
+
+    public Map<String, Entry> getEntries() {
+        return _entries;
+    }
+
+    public void setEntries(Map<String, Entry> entries) {
+        _entries = entries;
+    }
+
+    @Nullable
+    public Entry findEntryBy(@Nonnull String key) {
+        final Map<String, Entry> entries = _entries;
+        if (entries == null) {
+            return null;
+        }
+        return entries.get(key);
+    }
+
+    public void saveEntry(@Nonnull String key, @Nonnull Entry entry) {
+        if (_entries == null) {
+            _entries = new TreeMap<>();
+        }
+        _entries.put(key, entry);
+    }
+
+    @Nullable
+    public Entry removeEntry(@Nonnull String key) {
+        final Map<String, Entry> entries = _entries;
+        if (entries == null) {
+            return null;
+        }
+        return entries.remove(key);
+    }
+
+    public static class Entry {
+
+        @SerializedName("failedMillis")
+        private long _failedMillis;
+        @SerializedName("cause")
+        private String _cause;
+
+        public long getFailedMillis() {
+            return _failedMillis;
+        }
+
+        public Entry setFailedMillis(long failedMillis) {
+            _failedMillis = failedMillis;
+            return this;
+        }
+
+        public String getCause() {
+            return _cause;
+        }
+
+        public Entry setCause(String cause) {
+            _cause = cause;
+            return this;
+        }
+
+    }
+
+}
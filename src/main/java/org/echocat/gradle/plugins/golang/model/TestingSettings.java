@@ -7,6 +7,7 @@ import javax.inject.Inject;
 import java.nio.file.Path;
 
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.toPath;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
 
 public class TestingSettings {
 
@@ -49,6 +50,12 @@ public class TestingSettings {
      */
     private Path _junitReport;
 
+    /**
+     * Maximum duration of "go test" for one package. If exceeded the stacks of all its goroutines are dumped into the
+     * test output and the process is killed. <code>null</code> means no limit.
+     */
+    private Long _timeout;
+
     @Inject
     public TestingSettings(boolean initialize, @Nonnull Project project) {
         _project = project;
@@ -152,6 +159,18 @@ public class TestingSettings {
         setJunitReport(toPath(junitReport));
     }
 
+    public Long getTimeout() {
+        return _timeout;
+    }
+
+    public void setTimeout(Long timeout) {
+        _timeout = timeout;
+    }
+
+    public void setTimeout(String timeout) {
+        setTimeout(parseDuration(timeout));
+    }
+
     public String[] getArguments() {
         return _arguments;
     }
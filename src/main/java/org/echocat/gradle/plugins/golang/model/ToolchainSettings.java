@@ -10,38 +10,69 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static java.nio.file.Files.isExecutable;
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.UUID.randomUUID;
 import static java.util.regex.Pattern.compile;
+import static org.echocat.gradle.plugins.golang.cache.ArchiveCache.DEFAULT_SEGMENTS;
 import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
 import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
 import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.toPath;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
 
 public class ToolchainSettings {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ToolchainSettings.class);
     protected static final Pattern VERSION_RESPONSE_PATTERN = compile("go version ([0-9.\\-_a-z]+) .+");
+    protected static final Pattern GOVERSION_PATTERN = compile("^go([0-9]+(?:\\.[0-9]+){0,2}).*$");
+    protected static final String VERSION_STAMP_FILE_NAME = ".goversion";
+    private static final ConcurrentMap<String, String> VERSION_PROBES = new ConcurrentHashMap<>();
+
+    /**
+     * Since this version the go toolchain is able to cross compile pure go code for every platform without building
+     * the toolchain for the target platform first.
+     */
+    public static final IntegerVersion NATIVE_CROSS_COMPILATION_SINCE = new IntegerVersion(1, 5, null);
 
     @SuppressWarnings({"FieldCanBeLocal", "unused"})
     @Nonnull
     private final Project _project;
 
     private Boolean _forceBuildToolchain;
+    private Boolean _useBinaryDistribution;
+    private Boolean _deduplicateSdks;
     private String _goversion;
     private Path _goroot;
     private Boolean _cgoEnabled;
+    private Boolean _precompileStandardLibrary;
     private Path _bootstrapGoroot;
     private URI _downloadUriRoot;
+    private String _downloadSha256;
+    private String _bootstrapDownloadSha256;
+    private Boolean _verifyPublishedChecksums;
+    private Integer _downloadSegments;
+    private Long _buildTimeout;
 
     @Inject
     public ToolchainSettings(boolean initialize, @Nonnull Project project) {
         _project = project;
         if (initialize) {
             _goversion = "go1.8";
+            _useBinaryDistribution = true;
+            _deduplicateSdks = true;
+            _precompileStandardLibrary = false;
             _downloadUriRoot = URI.create("https://storage.googleapis.com/golang/");
+            _verifyPublishedChecksums = true;
+            _downloadSegments = DEFAULT_SEGMENTS;
         }
     }
 
@@ -53,6 +84,18 @@ public class ToolchainSettings {
         _forceBuildToolchain = forceBuildToolchain;
     }
 
+    /**
+     * @return <code>true</code> if the official binary distribution should be installed as GOROOT instead of building
+     * the toolchain from its sources. This is only possible on host platforms with a binary distribution.
+     */
+    public Boolean getUseBinaryDistribution() {
+        return _useBinaryDistribution;
+    }
+
+    public void setUseBinaryDistribution(Boolean useBinaryDistribution) {
+        _useBinaryDistribution = useBinaryDistribution;
+    }
+
     public String getGoversion() {
         return _goversion;
     }
@@ -81,6 +124,31 @@ public class ToolchainSettings {
         _cgoEnabled = cgoEnabled;
     }
 
+    /**
+     * @return <code>true</code> if identical files of the binary distributions in the cache root should be replaced by
+     * hardlinks to one shared copy (see {@link org.echocat.gradle.plugins.golang.cache.SdkStore}). Such files are shared
+     * with all other SDKs and must never be modified in place.
+     */
+    public Boolean getDeduplicateSdks() {
+        return _deduplicateSdks;
+    }
+
+    public void setDeduplicateSdks(Boolean deduplicateSdks) {
+        _deduplicateSdks = deduplicateSdks;
+    }
+
+    /**
+     * @return <code>true</code> if the standard library should be precompiled for every target platform although
+     * {@link #isNativeCrossCompilationSupported() no toolchain build is required}.
+     */
+    public Boolean getPrecompileStandardLibrary() {
+        return _precompileStandardLibrary;
+    }
+
+    public void setPrecompileStandardLibrary(Boolean precompileStandardLibrary) {
+        _precompileStandardLibrary = precompileStandardLibrary;
+    }
+
     public Path getBootstrapGoroot() {
         return _bootstrapGoroot;
     }
@@ -105,12 +173,116 @@ public class ToolchainSettings {
         setDownloadUriRoot(downloadUriRoot != null ? URI.create(downloadUriRoot) : null);
     }
 
+    /**
+     * @return expected SHA-256 digest of the source archive of {@link #getGoversion()}.
+     */
+    public String getDownloadSha256() {
+        return _downloadSha256;
+    }
+
+    public void setDownloadSha256(String downloadSha256) {
+        _downloadSha256 = downloadSha256;
+    }
+
+    /**
+     * @return expected SHA-256 digest of the binary distribution of {@link #getGoversion()} for the current platform
+     * which is used as bootstrap or directly as GOROOT.
+     */
+    public String getBootstrapDownloadSha256() {
+        return _bootstrapDownloadSha256;
+    }
+
+    public void setBootstrapDownloadSha256(String bootstrapDownloadSha256) {
+        _bootstrapDownloadSha256 = bootstrapDownloadSha256;
+    }
+
+    public Boolean getVerifyPublishedChecksums() {
+        return _verifyPublishedChecksums;
+    }
+
+    public void setVerifyPublishedChecksums(Boolean verifyPublishedChecksums) {
+        _verifyPublishedChecksums = verifyPublishedChecksums;
+    }
+
+    public Integer getDownloadSegments() {
+        return _downloadSegments;
+    }
+
+    public void setDownloadSegments(Integer downloadSegments) {
+        _downloadSegments = downloadSegments;
+    }
+
+    /**
+     * Maximum duration of every process which builds the toolchain (make.bash, precompiling of the standard library,
+     * building the tools). <code>null</code> means no limit.
+     */
+    public Long getBuildTimeout() {
+        return _buildTimeout;
+    }
+
+    public void setBuildTimeout(Long buildTimeout) {
+        _buildTimeout = buildTimeout;
+    }
+
+    public void setBuildTimeout(String buildTimeout) {
+        setBuildTimeout(parseDuration(buildTimeout));
+    }
+
+    /**
+     * @return the {@link #getGoversion() goversion} like <code>go1.8.3</code> or <code>go1.9rc1</code> as
+     * <code>1.8.3</code> or <code>1.9</code>. <code>null</code> if it does not follow this pattern.
+     */
+    @Nullable
+    public IntegerVersion getGoversionAsInteger() {
+        final String goversion = getGoversion();
+        final Matcher matcher = goversion != null ? GOVERSION_PATTERN.matcher(goversion.trim()) : null;
+        return matcher != null && matcher.matches() ? new IntegerVersion(matcher.group(1)) : null;
+    }
+
+    public boolean isNativeCrossCompilationSupported() {
+        final IntegerVersion version = getGoversionAsInteger();
+        return version != null && version.compareTo(NATIVE_CROSS_COMPILATION_SINCE) >= 0;
+    }
+
+    /**
+     * The result is cached by the path, size and modification time of the go binary in memory and in the stamp file
+     * {@value #VERSION_STAMP_FILE_NAME} inside of <code>goroot</code>. Only if the binary was changed it is executed
+     * again.
+     */
     @Nullable
     public String goBinaryVersionOf(Path goroot) {
-        final Path goBinary = goBinaryOf(goroot);
+        final Path goBinary = goBinaryOf(goroot).toAbsolutePath().normalize();
         if (!isExecutable(goBinary)) {
             return null;
         }
+        final String stamp;
+        try {
+            final BasicFileAttributes attributes = readAttributes(goBinary, BasicFileAttributes.class);
+            stamp = goBinary + "\n" + attributes.size() + "\n" + attributes.lastModifiedTime().toMillis() + "\n";
+        } catch (final IOException e) {
+            LOGGER.debug("Could not read attributes of {}.", goBinary, e);
+            return probeGoBinaryVersionOf(goBinary);
+        }
+        final String cached = VERSION_PROBES.get(stamp);
+        if (cached != null) {
+            return cached;
+        }
+        final Path stampFile = goroot.resolve(VERSION_STAMP_FILE_NAME);
+        final String stored = readVersionStampFrom(stampFile, stamp);
+        if (stored != null) {
+            VERSION_PROBES.put(stamp, stored);
+            return stored;
+        }
+        final String result = probeGoBinaryVersionOf(goBinary);
+        if (result != null) {
+            VERSION_PROBES.put(stamp, result);
+            writeVersionStampTo(stampFile, stamp, result);
+        }
+        return result;
+    }
+
+    @Nullable
+    protected String probeGoBinaryVersionOf(@Nonnull Path goBinary) {
         final String stdout;
         try {
             stdout = executor(goBinary)
@@ -131,6 +303,36 @@ public class ToolchainSettings {
         return matcher.group(1);
     }
 
+    @Nullable
+    protected static String readVersionStampFrom(@Nonnull Path file, @Nonnull String stamp) {
+        if (!isRegularFile(file)) {
+            return null;
+        }
+        try {
+            final String content = new String(readAllBytes(file), "UTF-8");
+            if (!content.startsWith(stamp)) {
+                return null;
+            }
+            final String version = content.substring(stamp.length()).trim();
+            return version.isEmpty() ? null : version;
+        } catch (final IOException e) {
+            LOGGER.debug("Could not read {}.", file, e);
+            return null;
+        }
+    }
+
+    protected static void writeVersionStampTo(@Nonnull Path file, @Nonnull String stamp, @Nonnull String version) {
+        final Path tempFile = file.resolveSibling(file.getFileName() + "." + randomUUID() + ".tmp");
+        try {
+            write(tempFile, (stamp + version + "\n").getBytes("UTF-8"));
+            move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (final IOException e) {
+            // For example a read only GOROOT of the system - the probe is then only cached in memory.
+            LOGGER.debug("Could not write {}.", file, e);
+            deleteQuietly(tempFile);
+        }
+    }
+
     @Nonnull
     public Path goBinaryOf(Path goroot) {
         if (goroot == null) {
@@ -1,6 +1,7 @@
 package org.echocat.gradle.plugins.golang.model;
 
 import org.echocat.gradle.plugins.golang.vcs.VcsType;
+import org.echocat.gradle.plugins.golang.vcs.git.GitBackend;
 import org.echocat.gradle.plugins.golang.vcs.isps.DefaultVcsRepositoryProvider;
 
 import javax.annotation.Nonnull;
@@ -46,12 +47,19 @@ public class VcsRepositoryProvider {
     private final String _name;
     @Nonnull
     private final Pattern _dependencyPattern;
+    @Nullable
+    private final GitBackend _gitBackend;
 
     public VcsRepositoryProvider(@Nonnull VcsType type, @Nonnull String prefix, @Nonnull String name, @Nonnull Pattern dependencyPattern) {
+        this(type, prefix, name, dependencyPattern, null);
+    }
+
+    public VcsRepositoryProvider(@Nonnull VcsType type, @Nonnull String prefix, @Nonnull String name, @Nonnull Pattern dependencyPattern, @Nullable GitBackend gitBackend) {
         _prefix = prefix;
         _type = type;
         _name = name;
         _dependencyPattern = dependencyPattern;
+        _gitBackend = gitBackend;
     }
 
     @Nonnull
@@ -74,14 +82,24 @@ public class VcsRepositoryProvider {
         return _dependencyPattern;
     }
 
+    /**
+     * @return <code>null</code> if the globally configured backend should be used.
+     */
+    @Nullable
+    public GitBackend getGitBackend() {
+        return _gitBackend;
+    }
+
     @Override
     public String toString() {
-        return getName() + "{prefix: " + getPrefix() + ", type: " + getType() + ", dependencyPattern: " + getDependencyPattern() + "}";
+        return getName() + "{prefix: " + getPrefix() + ", type: " + getType() + ", dependencyPattern: " + getDependencyPattern() + (getGitBackend() != null ? ", gitBackend: " + getGitBackend() : "") + "}";
     }
 
     @Nonnull
     public org.echocat.gradle.plugins.golang.vcs.VcsRepositoryProvider toConcrete() {
-        return new DefaultVcsRepositoryProvider(getType(), getPrefix(), getName(), getDependencyPattern());
+        final DefaultVcsRepositoryProvider result = new DefaultVcsRepositoryProvider(getType(), getPrefix(), getName(), getDependencyPattern());
+        result.setGitBackend(getGitBackend());
+        return result;
     }
 
     @Nonnull
@@ -1,8 +1,9 @@
 package org.echocat.gradle.plugins.golang.tasks;
 
 import org.echocat.gradle.plugins.golang.DependencyHandler;
+import org.echocat.gradle.plugins.golang.cache.CacheGarbageCollector;
 import org.echocat.gradle.plugins.golang.model.Paths;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,10 +38,11 @@ public class BaseClean extends GolangTaskSupport {
         final DependencyHandler dependencyHandler = getDependencyHandler();
         dependencyHandler.deleteUnknownDependenciesIfRequired();
         dependencyHandler.deleteAllCachedDependenciesIfRequired();
+        new CacheGarbageCollector(getSettings()).collectInBackground();
     }
 
     protected void deleteBuildDirIfRequired() throws IOException {
-        final ProgressLogger progress = startProgress("Clean");
+        final ThrottledProgressLogger progress = startProgress("Clean");
         final Path path = getProject().getBuildDir().toPath();
         if (exists(path)) {
             progress.progress("Delete all contents of " + path + "...");
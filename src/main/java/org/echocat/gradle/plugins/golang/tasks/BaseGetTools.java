@@ -3,7 +3,7 @@ package org.echocat.gradle.plugins.golang.tasks;
 import org.echocat.gradle.plugins.golang.DependencyHandler.GetResult;
 import org.echocat.gradle.plugins.golang.model.*;
 import org.echocat.gradle.plugins.golang.model.GolangDependency.Type;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 
 import javax.annotation.Nonnull;
 import java.nio.file.Path;
@@ -32,7 +32,7 @@ public class BaseGetTools extends GolangTaskSupport {
 
     @Override
     public void run() throws Exception {
-        final ProgressLogger progress = startProgress("Get tools");
+        final ThrottledProgressLogger progress = startProgress("Get tools");
 
         final Map<GolangDependency, GetResult> dependencies = getDependencyHandler().get(by("tool"));
         boolean atLeastOneBuild = false;
@@ -51,7 +51,7 @@ public class BaseGetTools extends GolangTaskSupport {
         progress.completed();
     }
 
-    protected boolean buildIfRequired(@Nonnull GolangDependency dependency, @Nonnull GetResult getResult, @Nonnull ProgressLogger progress) throws Exception {
+    protected boolean buildIfRequired(@Nonnull GolangDependency dependency, @Nonnull GetResult getResult, @Nonnull ThrottledProgressLogger progress) throws Exception {
         final GolangSettings settings = getGolang();
         final BuildSettings build = getBuild();
         final ToolchainSettings toolchain = getToolchain();
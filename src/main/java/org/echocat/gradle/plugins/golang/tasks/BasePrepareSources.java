@@ -4,7 +4,7 @@ import org.apache.commons.io.IOUtils;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.echocat.gradle.plugins.golang.model.BuildSettings;
 import org.echocat.gradle.plugins.golang.model.GolangSettings;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +36,7 @@ public class BasePrepareSources extends GolangTaskSupport {
 
     @Override
     public void run()  throws  Exception {
-        final ProgressLogger progress = startProgress("Prepare sources");
+        final ThrottledProgressLogger progress = startProgress("Prepare sources");
 
         final GolangSettings settings = getGolang();
         final BuildSettings build = getBuild();
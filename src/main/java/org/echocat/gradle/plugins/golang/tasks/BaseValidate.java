@@ -1,10 +1,11 @@
 package org.echocat.gradle.plugins.golang.tasks;
 
+import org.echocat.gradle.plugins.golang.cache.CacheGarbageCollector;
 import org.echocat.gradle.plugins.golang.model.BuildSettings;
 import org.echocat.gradle.plugins.golang.model.GolangSettings;
 import org.echocat.gradle.plugins.golang.model.Settings;
 import org.echocat.gradle.plugins.golang.model.ToolchainSettings;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,7 +33,7 @@ public class BaseValidate extends GolangTaskSupport {
         final ToolchainSettings toolchain = settings.getToolchain();
         final BuildSettings build = settings.getBuild();
 
-        final ProgressLogger progress = startProgress("Validate");
+        final ThrottledProgressLogger progress = startProgress("Validate");
         progress.progress("Check package name...");
         if (isEmpty(golang.getPackageName())) {
             final Object group = getProject().getGroup();
@@ -60,6 +61,8 @@ public class BaseValidate extends GolangTaskSupport {
         LOGGER.info("GOROOT:           {}", toolchain.getGoroot());
         LOGGER.info("GOROOT_BOOTSTRAP: {}", toolchain.getBootstrapGoroot());
         LOGGER.info("GOPATH:           {}", build.getGopath());
+
+        new CacheGarbageCollector(settings).collectInBackground();
     }
 
     protected void configureGorootIfNeeded() {
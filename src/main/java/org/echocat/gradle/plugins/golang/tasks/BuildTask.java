@@ -8,17 +8,21 @@ import org.echocat.gradle.plugins.golang.model.Platform;
 import org.echocat.gradle.plugins.golang.model.ToolchainSettings;
 import org.echocat.gradle.plugins.golang.utils.Executor;
 import org.echocat.gradle.plugins.golang.utils.Executor.ExecutionFailedExceptionProducer;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import static java.lang.Boolean.TRUE;
 import static java.nio.file.Files.isDirectory;
-import static org.apache.commons.lang3.StringUtils.isNotEmpty;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.echocat.gradle.plugins.golang.DependencyHandler.GetTask.by;
 import static org.echocat.gradle.plugins.golang.model.GolangDependency.newDependency;
 import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
@@ -35,6 +39,11 @@ public class BuildTask extends GolangTaskSupport {
         }
     };
 
+    /**
+     * Keeps the output of every platform together.
+     */
+    private final Object _outputLock = new Object();
+
     public BuildTask() {
         setGroup("support");
         dependsOn(
@@ -55,17 +64,25 @@ public class BuildTask extends GolangTaskSupport {
             .withAdditionalRequiredPackages(targetPackage)
         );
 
-        final ProgressLogger progress = startProgress("Build");
+        final ThrottledProgressLogger progress = startProgress("Build");
 
         final List<Platform> platforms = getGolang().getPlatforms();
         if (platforms == null || platforms.isEmpty()) {
             throw new IllegalArgumentException("There are no platforms specified.");
         }
-        for (final Platform platform : platforms) {
-            executeFor(platform, targetPackage, progress);
+        final Integer parallelism = getBuild().getParallelism();
+        final Counter built = progress.counterFor("Build", "platforms");
+        try {
+            inParallel(new ArrayList<>(new LinkedHashSet<>(platforms)), parallelism != null ? parallelism : 1, new PlatformAction() {
+                @Override
+                public void run(@Nonnull Platform platform) throws Exception {
+                    executeFor(platform, targetPackage, progress);
+                    built.increment(platform.toString());
+                }
+            });
+        } finally {
+            progress.completed();
         }
-
-        progress.completed();
     }
 
     protected Path selectPackageLocation(@Nonnull String packageName) {
@@ -79,15 +96,21 @@ public class BuildTask extends GolangTaskSupport {
         throw new IllegalStateException("Project '" + packageName + "' is not part of GOPATH (" + build.getGopath() + ").");
     }
 
-    protected void executeFor(@Nonnull Platform platform, @Nonnull GolangDependency targetPackage, @Nonnull ProgressLogger progress) throws Exception {
+    /**
+     * The output of the build is buffered and shown as a whole after it is done - builds of several platforms run at the
+     * same time and would otherwise interleave their output.
+     */
+    protected void executeFor(@Nonnull Platform platform, @Nonnull GolangDependency targetPackage, @Nonnull ThrottledProgressLogger parent) throws Exception {
         final ToolchainSettings toolchain = getToolchain();
         final BuildSettings build = getBuild();
 
         final Path outputFilename = build.outputFilenameFor(platform);
+        final ThrottledProgressLogger progress = startProgress("Build " + platform, parent);
         progress.progress("Building " + outputFilename + "...");
         LOGGER.info("Building {}...", outputFilename);
 
-        final Executor executor = executor(toolchain.getGoBinary())
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Executor executor = executor(toolchain.getGoBinary(), output, output)
             .workingDirectory(build.getFirstGopath())
             .env("GOPATH", build.getGopath())
             .env("GOROOT", toolchain.getGoroot())
@@ -95,22 +118,42 @@ public class BuildTask extends GolangTaskSupport {
             .env("GOARCH", platform.getArchitecture().getNameInGo())
             .env("CGO_ENABLED", TRUE.equals(toolchain.getCgoEnabled()) ? "1" : "0");
 
+        executor.timeout(build.getTimeout());
         executor.arguments("build");
         executor.arguments("-o", outputFilename);
         executor.arguments(build.getResolvedArguments());
         executor.argument(targetPackage.getGroup());
 
-        executor.execute(EXCEPTION_PRODUCER);
-
-        final String stdoutAsString = executor.getStdoutAsString();
-        if (isNotEmpty(stdoutAsString)) {
-            for (final String line : StringUtils.split(stdoutAsString, "\n")) {
-                LOGGER.info(line);
-            }
+        try {
+            executor.execute(EXCEPTION_PRODUCER);
+        } catch (final Exception e) {
+            log(platform, output.toString(), true);
+            throw e;
+        } finally {
+            progress.completed();
         }
+        log(platform, output.toString(), false);
         //noinspection UseOfSystemOutOrSystemErr
         System.out.println(outputFilename + " build.");
     }
 
+    protected void log(@Nonnull Platform platform, @Nonnull String output, boolean failed) {
+        if (isEmpty(output)) {
+            return;
+        }
+        synchronized (_outputLock) {
+            if (failed) {
+                LOGGER.error("Build for {} failed:", platform);
+            }
+            for (final String line : StringUtils.split(output, "\n")) {
+                if (failed) {
+                    LOGGER.error(line);
+                } else {
+                    LOGGER.info(line);
+                }
+            }
+        }
+    }
+
 }
 
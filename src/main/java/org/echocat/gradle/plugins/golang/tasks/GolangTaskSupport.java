@@ -4,20 +4,42 @@ import groovy.lang.Closure;
 import org.echocat.gradle.plugins.golang.DependencyHandler;
 import org.echocat.gradle.plugins.golang.GolangPluginSupport;
 import org.echocat.gradle.plugins.golang.model.*;
+import org.echocat.gradle.plugins.golang.utils.ProcessTracer;
+import org.echocat.gradle.plugins.golang.utils.ProcessTracer.Group;
 import org.echocat.gradle.plugins.golang.utils.ProjectEnabled;
 import org.echocat.gradle.plugins.golang.utils.SettingsEnabled;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.echocat.gradle.plugins.golang.utils.ProcessTracer.processTracer;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.throttled;
 
 public abstract class GolangTaskSupport extends DefaultTask implements SettingsEnabled, ProjectEnabled {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GolangTaskSupport.class);
+
+    /**
+     * Time cancelled actions of {@link #inParallel(List, int, PlatformAction)} get to terminate.
+     */
+    protected static final long CANCELLATION_TIMEOUT = MINUTES.toMillis(1);
+
     @Nonnull
     private final Settings _globalSettings;
     @Nonnull
@@ -98,6 +120,7 @@ public abstract class GolangTaskSupport extends DefaultTask implements SettingsE
     @TaskAction
     public final void runBare() throws Exception {
         _mergedSettings = _globalSettings.merge(_taskSettings);
+        final Group group = processTracer().enterGroup(getPath());
         try {
             runBefore();
             try {
@@ -106,6 +129,7 @@ public abstract class GolangTaskSupport extends DefaultTask implements SettingsE
                 runAfter();
             }
         } finally {
+            group.close();
             _mergedSettings = null;
         }
     }
@@ -145,11 +169,88 @@ public abstract class GolangTaskSupport extends DefaultTask implements SettingsE
     }
 
     @Nonnull
-    protected ProgressLogger startProgress(@Nonnull String description) {
+    protected ThrottledProgressLogger startProgress(@Nonnull String description) {
         final ProgressLogger progressLogger = getServices().get(ProgressLoggerFactory.class).newOperation(getClass());
         progressLogger.setDescription(description);
         progressLogger.started();
-        return progressLogger;
+        return throttled(progressLogger);
+    }
+
+    /**
+     * Starts an operation as child of <code>parent</code>. Gradle shows every running child in its own line.
+     */
+    @Nonnull
+    protected ThrottledProgressLogger startProgress(@Nonnull String description, @Nonnull ThrottledProgressLogger parent) {
+        final ProgressLogger progressLogger = getServices().get(ProgressLoggerFactory.class).newOperation(getClass(), parent.getDelegate());
+        progressLogger.setDescription(description);
+        progressLogger.started();
+        return throttled(progressLogger);
+    }
+
+    /**
+     * Runs <code>action</code> for every platform; up to <code>parallelism</code> of them at the same time. The first
+     * failure cancels (interrupts) all others and is thrown after they are terminated (but waits for them at most
+     * {@link #CANCELLATION_TIMEOUT}).
+     */
+    protected void inParallel(@Nonnull List<Platform> platforms, @Nonnegative int parallelism, @Nonnull final PlatformAction action) throws Exception {
+        final ProcessTracer tracer = processTracer();
+        final String group = tracer.currentGroup();
+        final ExecutorService executor = newFixedThreadPool(Math.max(1, Math.min(platforms.size(), parallelism)));
+        try {
+            final CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (final Platform platform : platforms) {
+                completion.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        final Group entered = group != null ? tracer.enterGroup(group) : null;
+                        try {
+                            action.run(platform);
+                        } finally {
+                            if (entered != null) {
+                                entered.close();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (int i = 0; i < platforms.size(); i++) {
+                try {
+                    completion.take().get();
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            awaitTerminationOf(executor);
+        }
+    }
+
+    protected static void awaitTerminationOf(@Nonnull ExecutorService executor) {
+        // Also wait if this thread itself got cancelled - the others could still write to the outputs.
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executor.awaitTermination(CANCELLATION_TIMEOUT, MILLISECONDS)) {
+                LOGGER.warn("Cancelled actions did not terminate within {}s.", MILLISECONDS.toSeconds(CANCELLATION_TIMEOUT));
+            }
+        } catch (final InterruptedException ignored) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                currentThread().interrupt();
+            }
+        }
+    }
+
+    protected static interface PlatformAction {
+
+        public void run(@Nonnull Platform platform) throws Exception;
+
     }
 
     @Nonnull
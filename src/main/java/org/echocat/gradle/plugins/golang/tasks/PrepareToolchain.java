@@ -2,34 +2,73 @@ package org.echocat.gradle.plugins.golang.tasks;
 
 import org.apache.commons.io.IOUtils;
 import org.echocat.gradle.plugins.golang.Version;
+import org.echocat.gradle.plugins.golang.cache.ArchiveCache;
+import org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker;
+import org.echocat.gradle.plugins.golang.cache.SdkStore;
 import org.echocat.gradle.plugins.golang.model.*;
-import org.echocat.gradle.plugins.golang.utils.ArchiveUtils;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.Execution;
+import org.echocat.gradle.plugins.golang.utils.Execution.Step;
+import org.echocat.gradle.plugins.golang.utils.Executor;
+import org.echocat.gradle.plugins.golang.utils.GoHelper;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.utils.ProcessScheduler;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
+import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 import static java.net.URI.create;
 import static java.nio.file.Files.*;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.UUID.randomUUID;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static org.echocat.gradle.plugins.golang.cache.ArchiveCache.archiveCacheFor;
+import static org.echocat.gradle.plugins.golang.cache.CacheGarbageCollector.sdkTrackerFor;
+import static org.echocat.gradle.plugins.golang.cache.SdkStore.sdkStoreFor;
+import static org.echocat.gradle.plugins.golang.model.Architecture.AMD64;
+import static org.echocat.gradle.plugins.golang.model.Architecture.X86;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.FREEBSD;
+import static org.echocat.gradle.plugins.golang.model.Platform.*;
+import static org.echocat.gradle.plugins.golang.utils.Execution.awaitAll;
 import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.copyDirectory;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.GoHelper.closeGoHelperOf;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.acquire;
 import static org.gradle.api.internal.tasks.TaskExecutionOutcome.UP_TO_DATE;
 
 public class PrepareToolchain extends GolangTaskSupport {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PrepareToolchain.class);
+    protected static final Set<Platform> BINARY_DISTRIBUTION_PLATFORMS = unmodifiableSet(new HashSet<>(asList(
+        LINUX_X86, LINUX_AMD64, DARWIN_AMD64, WINDOWS_X86, WINDOWS_AMD64,
+        new Platform(FREEBSD, X86), new Platform(FREEBSD, AMD64)
+    )));
+
+    /**
+     * Guards the artifacts of GOROOT which are shared between all platforms while builds running in parallel.
+     */
+    private final Object _sharedArtifactsLock = new Object();
 
     public PrepareToolchain() {
         setGroup("build");
@@ -39,19 +78,68 @@ public class PrepareToolchain extends GolangTaskSupport {
 
     @Override
     public void run() throws Exception {
-        final ProgressLogger progress = startProgress("Prepare toolchain");
-        downloadBootstrapIfRequired(progress);
-        downloadSourcesIfRequired(progress);
-        final boolean hostBuild = buildHostIfRequired(progress);
-        final boolean targetsBuild = buildTargetsIfRequired(progress);
-        final boolean toolsBuild = buildToolsIfRequired(progress);
+        final ThrottledProgressLogger progress = startProgress("Prepare toolchain");
+        touchSdksIfRequired();
+        final ToolchainSettings toolchain = getToolchain();
+        final boolean hostBuild;
+        final boolean targetsBuild;
+        final boolean toolsBuild;
+        // Other builds on this machine could share the same GOROOT - only one of them should install it.
+        final InterProcessLock lock = acquire(toolchain.getGoroot(), "installing go toolchain " + toolchain.getGoversion(), progress);
+        try {
+            if (useBinaryDistribution()) {
+                hostBuild = installBinaryDistributionIfRequired(progress);
+                if (requiresTargetBuilds()) {
+                    downloadBootstrapWithLockIfRequired(progress);
+                }
+            } else {
+                downloadBootstrapWithLockIfRequired(progress);
+                downloadSourcesIfRequired(progress);
+                hostBuild = buildHostIfRequired(progress);
+            }
+            targetsBuild = buildTargetsIfRequired(progress);
+            toolsBuild = buildToolsIfRequired(progress);
+        } finally {
+            lock.close();
+        }
         if (!hostBuild && !targetsBuild && !toolsBuild) {
             getState().setOutcome(UP_TO_DATE);
         }
+        sdkTrackerFor(getGolang()).saveIfRequired();
         progress.completed();
     }
 
-    protected boolean buildHostIfRequired(@Nonnull ProgressLogger progress) throws Exception {
+    protected void downloadBootstrapWithLockIfRequired(@Nonnull ThrottledProgressLogger progress) throws IOException {
+        final InterProcessLock lock = acquire(getToolchain().getBootstrapGoroot(), "installing bootstrap go toolchain", progress);
+        try {
+            downloadBootstrapIfRequired(progress);
+        } finally {
+            lock.close();
+        }
+    }
+
+    protected void touchSdksIfRequired() {
+        final ToolchainSettings toolchain = getToolchain();
+        touchSdkIfRequired(toolchain.getGoroot());
+        touchSdkIfRequired(toolchain.getBootstrapGoroot());
+    }
+
+    protected void touchSdkIfRequired(@Nullable Path goroot) {
+        if (goroot != null && isCachedSdk(goroot)) {
+            sdkTrackerFor(getGolang()).touch(goroot.toAbsolutePath().normalize().getFileName().toString());
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the given GOROOT is one of the SDKs of the cache root. Only these are owned by this
+     * plugin and could be replaced or shared - every other GOROOT belongs to the user.
+     */
+    protected boolean isCachedSdk(@Nonnull Path goroot) {
+        final ArtifactAccessTracker tracker = sdkTrackerFor(getGolang());
+        return tracker.getRoot().equals(goroot.toAbsolutePath().normalize().getParent());
+    }
+
+    protected boolean buildHostIfRequired(@Nonnull ThrottledProgressLogger progress) throws Exception {
         final ToolchainSettings toolchain = getToolchain();
         final String expectedVersion = toolchain.getGoversion();
         String version = goBinaryVersion();
@@ -67,27 +155,239 @@ public class PrepareToolchain extends GolangTaskSupport {
         return build;
     }
 
-    protected boolean buildTargetsIfRequired(@Nonnull ProgressLogger progress) throws Exception {
+    /**
+     * @return <code>true</code> if the official binary distribution should be installed as GOROOT instead of building
+     * it from the sources. This is only possible if there is a binary distribution for the host platform.
+     */
+    protected boolean useBinaryDistribution() {
+        final ToolchainSettings toolchain = getToolchain();
+        return TRUE.equals(toolchain.getUseBinaryDistribution())
+            && BINARY_DISTRIBUTION_PLATFORMS.contains(Platform.currentPlatform());
+    }
+
+    protected boolean installBinaryDistributionIfRequired(@Nonnull ThrottledProgressLogger progress) throws Exception {
+        final ToolchainSettings toolchain = getToolchain();
+        final Path goroot = toolchain.getGoroot();
+        final String expectedVersion = toolchain.getGoversion();
+        String version = goBinaryVersion();
+        if (Objects.equals(version, expectedVersion)) {
+            LOGGER.debug("Found go version {}.", version);
+            return false;
+        }
+        if (version != null && !isCachedSdk(goroot)) {
+            throw new IllegalStateException("go SDK in " + goroot + " has expected of version " + expectedVersion + " but it is " + version + ".");
+        }
+
+        final URI downloadUri = downloadUriForBinaryDistribution();
+        progress.progress("Download go toolchain...");
+        LOGGER.info("There was no go SDK of version {} found. Going to install binary distribution from {} to {} ...", expectedVersion, downloadUri, goroot);
+        try {
+            // Before go1.5 the toolchain of a target platform could be build in place - such a GOROOT is never shared.
+            downloadAndExtract(downloadUri, toolchain.getBootstrapDownloadSha256(), goroot, toolchain.isNativeCrossCompilationSupported(), "Download go toolchain", progress);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not download " + downloadUri + " to " + goroot + ".", e);
+        }
+        version = goBinaryVersion();
+        if (version == null) {
+            throw new IllegalStateException("Downloaded and extracted binary distribution to " + goroot + " but it could not be validated as working go installation.");
+        }
+        if (!Objects.equals(version, expectedVersion)) {
+            throw new IllegalStateException("Downloaded and extracted binary distribution to " + goroot + " and expected an installation in version " + expectedVersion + " but it is " + version + ".");
+        }
+        // The standard library of the host platform is already part of the distribution.
+        write(buildMarkerFor(Platform.currentPlatform()), new byte[0]);
+        //noinspection UseOfSystemOutOrSystemErr
+        System.out.println("Go toolchain (" + version + ") successfully installed to \"" + goroot + "\".");
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if at least one of the target platforms has to be build with <code>make</code>.
+     */
+    protected boolean requiresTargetBuilds() {
+        final ToolchainSettings toolchain = getToolchain();
+        final List<Platform> platforms = getGolang().getPlatforms();
+        if (platforms == null || toolchain.isNativeCrossCompilationSupported()) {
+            return false;
+        }
+        for (final Platform platform : platforms) {
+            if (TRUE.equals(toolchain.getForceBuildToolchain()) || !exists(buildMarkerFor(platform))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nonnull
+    protected Path buildMarkerFor(@Nonnull Platform platform) {
+        final String goos = platform.getOperatingSystem().getNameInGo();
+        final String goarch = platform.getArchitecture().getNameInGo();
+        return getToolchain().getGoroot().resolve("pkg").resolve(goos + "_" + goarch).resolve(".builded");
+    }
+
+    protected boolean buildTargetsIfRequired(@Nonnull final ThrottledProgressLogger progress) throws Exception {
         final GolangSettings settings = getGolang();
         final ToolchainSettings toolchain = getToolchain();
         final List<Platform> platforms = settings.getPlatforms();
         if (platforms == null || platforms.isEmpty()) {
             throw new IllegalArgumentException("There are no platforms specified.");
         }
-        boolean atLeastOneBuild = false;
+        if (toolchain.isNativeCrossCompilationSupported()) {
+            LOGGER.debug("Go {} cross compiles without building the toolchain for every target platform.", toolchain.getGoversion());
+            return TRUE.equals(toolchain.getPrecompileStandardLibrary()) && precompileStandardLibrariesIfRequired(platforms, progress);
+        }
+        final List<Platform> required = platformsRequiringBuild(platforms);
+        if (required.size() <= 1) {
+            boolean atLeastOneBuild = false;
+            for (final Platform platform : required) {
+                if (build(platform, true, progress)) {
+                    atLeastOneBuild = true;
+                }
+            }
+            return atLeastOneBuild;
+        }
+        inParallel(required, Runtime.getRuntime().availableProcessors(), new PlatformAction() {
+            @Override
+            public void run(@Nonnull Platform platform) throws Exception {
+                buildIsolated(platform, progress);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Installs the standard library for every target platform which was not precompiled yet. Every platform is
+     * compiled in its own process; as many in parallel as the {@link ProcessScheduler} allows.
+     */
+    protected boolean precompileStandardLibrariesIfRequired(@Nonnull List<Platform> platforms, @Nonnull ThrottledProgressLogger progress) throws Exception {
+        final List<Platform> required = platformsRequiringBuild(platforms);
+        if (required.isEmpty()) {
+            return false;
+        }
+        final Counter precompiled = progress.counterFor("Precompile standard library", "platforms");
+        final List<Execution> executions = new ArrayList<>(required.size());
+        for (final Platform platform : required) {
+            executions.add(precompileStandardLibrary(platform).then(new Step() {
+                @Override
+                public Execution next(@Nonnull Executor previous) throws Exception {
+                    write(buildMarkerFor(platform), new byte[0]);
+                    //noinspection UseOfSystemOutOrSystemErr
+                    System.out.println("Go standard library for " + platform + " precompiled.");
+                    precompiled.increment(platform.toString());
+                    return null;
+                }
+            }));
+        }
+        awaitAll(executions);
+        return true;
+    }
+
+    @Nonnull
+    protected List<Platform> platformsRequiringBuild(@Nonnull List<Platform> platforms) {
+        final boolean force = TRUE.equals(getToolchain().getForceBuildToolchain());
+        final List<Platform> result = new ArrayList<>();
         for (final Platform platform : platforms) {
-            if (build(platform, TRUE.equals(toolchain.getForceBuildToolchain()), progress)) {
-                atLeastOneBuild = true;
+            if ((force || !exists(buildMarkerFor(platform))) && !result.contains(platform)) {
+                result.add(platform);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the toolchain for the given platform in a private copy of GOROOT, so that several platforms could be build
+     * at the same time without interfering with each other. Afterwards the standard library
+     * (<code>pkg/&lt;goos&gt;_&lt;goarch&gt;</code>) and the additional compilers (<code>pkg/tool/&lt;host&gt;</code>)
+     * are taken over into the real GOROOT.
+     */
+    protected void buildIsolated(@Nonnull Platform platform, @Nonnull ThrottledProgressLogger parent) throws Exception {
+        final ToolchainSettings toolchain = getToolchain();
+        final Path goroot = toolchain.getGoroot();
+        final String goos = platform.getOperatingSystem().getNameInGo();
+        final String goarch = platform.getArchitecture().getNameInGo();
+        final Path workingGoroot = goroot.resolveSibling("." + goroot.getFileName() + ".build-" + goos + "_" + goarch);
+        final ThrottledProgressLogger progress = startProgress("Build go toolchain for " + platform, parent);
+        try {
+            progress.progress("Copy sources...");
+            deleteQuietly(workingGoroot);
+            copyDirectory(goroot, workingGoroot, "pkg", "bin");
+
+            progress.progress("Building...");
+            LOGGER.info("Going to build go toolchain for {} in {}...", platform, workingGoroot);
+            final Path sourceDirectory = workingGoroot.resolve("src");
+            executor(sourceDirectory.resolve("make." + (OperatingSystem.currentOperatingSystem() == OperatingSystem.WINDOWS ? "bat" : "bash")))
+                .arguments("--no-clean")
+                .workingDirectory(sourceDirectory)
+                .removeEnv("GOPATH")
+                .env("GOROOT", workingGoroot)
+                // The results are moved into the real GOROOT - they must not refer to the temporary copy.
+                .env("GOROOT_FINAL", goroot)
+                .env("GOROOT_BOOTSTRAP", toolchain.getBootstrapGoroot())
+                .env("GOOS", goos)
+                .env("GOARCH", goarch)
+                .env("CGO_ENABLED", TRUE.equals(toolchain.getCgoEnabled()) ? "1" : "0")
+                .failKeywords("ERROR: ", "($GOPATH not set)", "Access denied")
+                .discardOutput()
+                .timeout(toolchain.getBuildTimeout())
+                .execute();
+
+            progress.progress("Install...");
+            synchronized (_sharedArtifactsLock) {
+                takeOverBuildOf(platform, workingGoroot, goroot);
             }
+            //noinspection UseOfSystemOutOrSystemErr
+            System.out.println("Go toolchain for " + platform + " build.");
+        } finally {
+            deleteQuietly(workingGoroot);
+            progress.completed();
         }
-        return atLeastOneBuild;
     }
 
-    protected boolean buildToolsIfRequired(@Nonnull ProgressLogger progress) throws Exception {
-        return buildToolIfRequired("importsExtractor", progress);
+    protected void takeOverBuildOf(@Nonnull Platform platform, @Nonnull Path workingGoroot, @Nonnull Path goroot) throws IOException {
+        final String name = platform.getOperatingSystem().getNameInGo() + "_" + platform.getArchitecture().getNameInGo();
+        final Path packages = goroot.resolve("pkg").resolve(name);
+        deleteQuietly(packages);
+        createDirectoriesIfRequired(packages.getParent());
+        move(workingGoroot.resolve("pkg").resolve(name), packages, ATOMIC_MOVE);
+
+        final String hostName = Platform.currentPlatform().getOperatingSystem().getNameInGo() + "_" + Platform.currentPlatform().getArchitecture().getNameInGo();
+        final Path tools = workingGoroot.resolve("pkg").resolve("tool").resolve(hostName);
+        if (isDirectory(tools)) {
+            final Path targetTools = goroot.resolve("pkg").resolve("tool").resolve(hostName);
+            createDirectoriesIfRequired(targetTools);
+            try (final DirectoryStream<Path> candidates = newDirectoryStream(tools)) {
+                for (final Path candidate : candidates) {
+                    final Path target = targetTools.resolve(candidate.getFileName());
+                    if (!exists(target)) {
+                        move(candidate, target);
+                    }
+                }
+            }
+        }
+        write(buildMarkerFor(platform), new byte[0]);
     }
 
-    protected boolean buildToolIfRequired(@Nonnull String name, @Nonnull ProgressLogger progress) throws Exception {
+    @Nonnull
+    protected Execution precompileStandardLibrary(@Nonnull Platform platform) {
+        final ToolchainSettings toolchain = getToolchain();
+        LOGGER.info("Going to precompile standard library for {}...", platform);
+        return executor(toolchain.getGoBinary())
+            .arguments("install", "std")
+            .removeEnv("GOPATH")
+            .env("GOROOT", toolchain.getGoroot())
+            .env("GOOS", platform.getOperatingSystem().getNameInGo())
+            .env("GOARCH", platform.getArchitecture().getNameInGo())
+            .env("CGO_ENABLED", TRUE.equals(toolchain.getCgoEnabled()) ? "1" : "0")
+            .discardOutput()
+            .timeout(toolchain.getBuildTimeout())
+            .executeAsync();
+    }
+
+    protected boolean buildToolsIfRequired(@Nonnull ThrottledProgressLogger progress) throws Exception {
+        return buildToolIfRequired(GoHelper.NAME, progress);
+    }
+
+    protected boolean buildToolIfRequired(@Nonnull String name, @Nonnull ThrottledProgressLogger progress) throws Exception {
         final ToolchainSettings toolchain = getToolchain();
         final Path goBinary = toolchain.getGoBinary();
         final Path binDirectory = goBinary.getParent();
@@ -119,12 +419,15 @@ public class PrepareToolchain extends GolangTaskSupport {
             }
 
             createDirectoriesIfRequired(binDirectory);
+            // A running helper keeps the old binary alive (and locked on Windows).
+            closeGoHelperOf(toolBinary);
 
             executor(goBinary)
                 .arguments("build", "-o", toolBinary, sourceTempFile)
                 .removeEnv("GOPATH")
                 .env("GOROOT", toolchain.getGoroot())
                 .env("GOROOT_BOOTSTRAP", toolchain.getBootstrapGoroot())
+                .timeout(toolchain.getBuildTimeout())
                 .execute();
         } finally {
             deleteQuietly(sourceTempFile);
@@ -136,11 +439,11 @@ public class PrepareToolchain extends GolangTaskSupport {
         return true;
     }
 
-    protected boolean build(Platform platform, boolean force, @Nonnull ProgressLogger progress) throws Exception {
+    protected boolean build(Platform platform, boolean force, @Nonnull ThrottledProgressLogger progress) throws Exception {
         final ToolchainSettings toolchain = getToolchain();
         final String goos = platform.getOperatingSystem().getNameInGo();
         final String goarch = platform.getArchitecture().getNameInGo();
-        final Path buildMarker = toolchain.getGoroot().resolve("pkg").resolve(goos + "_" + goarch).resolve(".builded");
+        final Path buildMarker = buildMarkerFor(platform);
         if (force || !exists(buildMarker)) {
             final Path sourceDirectory = toolchain.getGorootSourceRoot();
             final Path makeScript = sourceDirectory.resolve("make." + (OperatingSystem.currentOperatingSystem() == OperatingSystem.WINDOWS ? "bat" : "bash"));
@@ -158,6 +461,8 @@ public class PrepareToolchain extends GolangTaskSupport {
                 .env("GOARCH", goarch)
                 .env("CGO_ENABLED", TRUE.equals(toolchain.getCgoEnabled()) ? "1" : "0")
                 .failKeywords("ERROR: ", "($GOPATH not set)", "Access denied")
+                .discardOutput()
+                .timeout(toolchain.getBuildTimeout())
                 .execute();
 
             write(buildMarker, new byte[0]);
@@ -168,7 +473,7 @@ public class PrepareToolchain extends GolangTaskSupport {
         return false;
     }
 
-    protected void downloadSourcesIfRequired(@Nonnull ProgressLogger progress) {
+    protected void downloadSourcesIfRequired(@Nonnull ThrottledProgressLogger progress) {
         final ToolchainSettings toolchain = getToolchain();
         final Path goroot = toolchain.getGoroot();
         final String expectedVersion = toolchain.getGoversion();
@@ -183,7 +488,7 @@ public class PrepareToolchain extends GolangTaskSupport {
         progress.progress("Download go toolchain...");
         LOGGER.info("There was no go SDK sources of version {} found. Going to download it from {} to {} ...", expectedVersion, downloadUri, goroot);
         try {
-            ArchiveUtils.download(downloadUri, goroot);
+            downloadAndExtract(downloadUri, toolchain.getDownloadSha256(), goroot, false, "Download go toolchain", progress);
         } catch (final IOException e) {
             throw new IllegalStateException("Could not download " + downloadUri + " to " + goroot + ".", e);
         }
@@ -198,6 +503,63 @@ public class PrepareToolchain extends GolangTaskSupport {
         System.out.println("Go toolchain sources (" + version + ") successfully downloaded to \"" + goroot + "\".");
     }
 
+    /**
+     * Downloads the archive into (or takes it from) the archive cache and extracts it to <code>to</code>. The archive is
+     * verified against <code>expectedSha256</code> or if not configured against the checksum published next to it. If
+     * <code>deduplicate</code> is set the extracted files are shared with the other SDKs of the cache root (see
+     * {@link SdkStore}); only use this for SDKs which are never build in place. An existing <code>to</code> is only
+     * replaced if it is one of the SDKs of the cache root (see {@link #isCachedSdk(Path)}) and is restored if the new
+     * one could not be moved in place.
+     */
+    protected void downloadAndExtract(@Nonnull URI uri, @Nullable String expectedSha256, @Nonnull Path to, boolean deduplicate, @Nonnull String description, @Nonnull ThrottledProgressLogger progress) throws IOException {
+        final ToolchainSettings toolchain = getToolchain();
+        final ArchiveCache cache = archiveCacheFor(getGolang().getCacheRoot().resolve("archives"));
+        String sha256 = expectedSha256;
+        if (sha256 == null && !FALSE.equals(toolchain.getVerifyPublishedChecksums())) {
+            sha256 = cache.publishedSha256Of(uri);
+            if (sha256 == null) {
+                LOGGER.warn("There is no checksum published for {}. The downloaded archive cannot be verified.", uri);
+            }
+        }
+        final Integer segments = toolchain.getDownloadSegments();
+
+        // Extract next to the target and move it in place afterwards, so nobody could ever see a half extracted SDK.
+        final Path normalized = to.toAbsolutePath().normalize();
+        final Path temp = normalized.resolveSibling("." + normalized.getFileName() + ".tmp-" + randomUUID());
+        final Path old = normalized.resolveSibling("." + normalized.getFileName() + ".old-" + randomUUID());
+        final boolean cachedSdk = isCachedSdk(normalized);
+        final boolean replace = exists(normalized);
+        if (replace && !cachedSdk) {
+            throw new IllegalStateException("Refuse to replace " + normalized + " because it is not located in " + sdkTrackerFor(getGolang()).getRoot() + ".");
+        }
+        try {
+            cache.fetchAndExtract(uri, sha256, segments != null ? segments : 1, progress.monitorFor(description), temp);
+            if (deduplicate && !FALSE.equals(toolchain.getDeduplicateSdks()) && cachedSdk) {
+                progress.progress("Deduplicate SDK files...");
+                sdkStoreFor(normalized.getParent()).deduplicate(temp, progress.counterFor("Deduplicate SDK files", "files"));
+            }
+            if (replace) {
+                move(normalized, old, ATOMIC_MOVE);
+            }
+            createDirectoriesIfRequired(normalized.getParent());
+            try {
+                move(temp, normalized, ATOMIC_MOVE);
+            } catch (final IOException e) {
+                if (replace) {
+                    try {
+                        move(old, normalized, ATOMIC_MOVE);
+                    } catch (final IOException restoreFailed) {
+                        e.addSuppressed(restoreFailed);
+                    }
+                }
+                throw e;
+            }
+        } finally {
+            deleteQuietly(temp);
+        }
+        deleteQuietly(old);
+    }
+
     protected String readGoVersionFrom(Path goroot) {
         final Path file = goroot.resolve("VERSION");
         if (isDirectory(file) || !isReadable(file)) {
@@ -220,7 +582,7 @@ public class PrepareToolchain extends GolangTaskSupport {
         return create(toolchain.getDownloadUriRoot() + toolchain.getGoversion() + ".src.tar.gz");
     }
 
-    protected void downloadBootstrapIfRequired(@Nonnull ProgressLogger progress) {
+    protected void downloadBootstrapIfRequired(@Nonnull ThrottledProgressLogger progress) {
         final ToolchainSettings toolchain = getToolchain();
         String version = bootstrapGoBinaryVersion();
         if (version != null) {
@@ -233,7 +595,7 @@ public class PrepareToolchain extends GolangTaskSupport {
         progress.progress("Download bootstrap go toolchain...");
         LOGGER.info("There was no go bootstrap found. Going to download it from {} to {} ...", downloadUri, bootstrapGoroot);
         try {
-            ArchiveUtils.download(downloadUri, bootstrapGoroot);
+            downloadAndExtract(downloadUri, toolchain.getBootstrapDownloadSha256(), bootstrapGoroot, true, "Download bootstrap go toolchain", progress);
         } catch (final IOException e) {
             throw new IllegalStateException("Could not download " + downloadUri + " to " + bootstrapGoroot + ".", e);
         }
@@ -254,6 +616,10 @@ public class PrepareToolchain extends GolangTaskSupport {
     }
 
     protected URI downloadUriForBootstrap() {
+        return downloadUriForBinaryDistribution();
+    }
+
+    protected URI downloadUriForBinaryDistribution() {
         final ToolchainSettings toolchain = getToolchain();
         final Platform platform = Platform.currentPlatform();
         final PackageFormat packageFormat = platform.getOperatingSystem().getGoPackageFormat();
@@ -0,0 +1,40 @@
+package org.echocat.gradle.plugins.golang.tasks;
+
+import org.echocat.gradle.plugins.golang.cache.DependencyCacheServer;
+import org.echocat.gradle.plugins.golang.model.DependenciesSettings;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+public class ServeDependencyCache extends GolangTaskSupport {
+
+    public ServeDependencyCache() {
+        setGroup("build");
+        setDescription("Serves the dependency cache and the SDK archives over HTTP for other builds until it is interrupted.");
+        dependsOn(
+            "validate"
+        );
+    }
+
+    @Override
+    public void run() throws Exception {
+        final DependenciesSettings dependencies = getDependencies();
+        final Path dependencyCache = dependencies.getDependencyCache();
+        final Path sdkArchives = getGolang().getCacheRoot().resolve("archives");
+        final Integer port = dependencies.getCacheServerPort();
+        final String address = dependencies.getCacheServerAddress();
+
+        try (final DependencyCacheServer server = new DependencyCacheServer(dependencyCache, sdkArchives, getToolchain().getDownloadUriRoot())) {
+            // Nobody is authenticated - only other hosts if this was requested explicitly.
+            server.start(new InetSocketAddress(address != null ? InetAddress.getByName(address) : InetAddress.getLoopbackAddress(), port != null ? port : 0));
+            //noinspection UseOfSystemOutOrSystemErr
+            System.out.println("Serving " + dependencyCache + " at http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/ ...");
+            new CountDownLatch(1).await();
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
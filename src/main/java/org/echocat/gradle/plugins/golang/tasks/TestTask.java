@@ -12,8 +12,10 @@ import org.echocat.gradle.plugins.golang.testing.report.ReportTransformer;
 import org.echocat.gradle.plugins.golang.testing.report.junit.TestSuites;
 import org.echocat.gradle.plugins.golang.utils.Executor;
 import org.echocat.gradle.plugins.golang.utils.Executor.ExecutionFailedExceptionProducer;
+import org.echocat.gradle.plugins.golang.utils.Executor.ExecutionTimedOutException;
 import org.echocat.gradle.plugins.golang.utils.StdStreams;
-import org.gradle.internal.logging.progress.ProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -87,15 +89,15 @@ public class TestTask extends GolangTaskSupport {
             .withAdditionalRequiredPackages(packages)
         );
 
-        final ProgressLogger progress = startProgress("Run tests");
-        final ObserverNotifier notifier = new ObserverNotifier(progress);
+        final ThrottledProgressLogger progress = startProgress("Run tests");
+        final Counter startedTests = progress.counterFor("Run tests", "tests");
+        final ObserverNotifier notifier = new ObserverNotifier(startedTests);
 
         boolean success = true;
         try (final ReportObserver observer = observerFor(getGolang().getPackageName(), notifier)) {
             try (final StdStreams streams = wrapIfRequired(observer)) {
                 for (final GolangDependency targetPackage : packages) {
-                    notifier.packageName(targetPackage.getGroup());
-                    progress.progress("Run " + targetPackage + "...");
+                    startedTests.setDescription("Run " + targetPackage.getGroup());
                     if (!executeTestsFor(targetPackage, coverProfile, streams)) {
                         success = false;
                     }
@@ -166,6 +168,7 @@ public class TestTask extends GolangTaskSupport {
             .env("GOARCH", platform.getArchitecture().getNameInGo())
             .env("CGO_ENABLED", TRUE.equals(toolchain.getCgoEnabled()) ? "1" : "0");
 
+        executor.timeout(testing.getTimeout());
         executor.arguments("test", "-v");
         executor.arguments((Object[])testing.getArguments());
 
@@ -188,6 +191,9 @@ public class TestTask extends GolangTaskSupport {
             success = true;
         } catch (final AtLeastOneTestFailedException ignored) {
             success = false;
+        } catch (final ExecutionTimedOutException e) {
+            LOGGER.error(e.getMessage());
+            success = false;
         }
 
         if (coverProfile != null && isRegularFile(packageCoverProfile)) {
@@ -281,25 +287,24 @@ public class TestTask extends GolangTaskSupport {
         return result;
     }
 
+    /**
+     * Only counts the started tests. The progress message is rendered by {@link ThrottledProgressLogger} at most once
+     * per frame.
+     */
     protected static class ObserverNotifier implements Notifier {
 
         @Nonnull
-        private final ProgressLogger _progressLogger;
-        private String _packageName;
+        private final Counter _startedTests;
 
-        public ObserverNotifier(@Nonnull ProgressLogger progressLogger) {
-            _progressLogger = progressLogger;
+        public ObserverNotifier(@Nonnull Counter startedTests) {
+            _startedTests = startedTests;
         }
 
         @Override
         public void onTestStarted(@Nonnull String name) {
-            _progressLogger.progress("Run " + _packageName + "::" + name + "...");
+            _startedTests.increment(name);
         }
 
-        public void packageName(@Nonnull String packageName) {
-            _packageName = packageName;
-        }
     }
 
 }
-
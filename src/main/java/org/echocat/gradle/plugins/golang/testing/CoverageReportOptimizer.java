@@ -7,8 +7,8 @@ import org.echocat.gradle.plugins.golang.model.ToolchainSettings;
 import org.echocat.gradle.plugins.golang.utils.ProjectEnabled;
 import org.echocat.gradle.plugins.golang.utils.ProjectsAndSettingsEnabledSupport;
 import org.echocat.gradle.plugins.golang.utils.SettingsEnabled;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger;
 import org.gradle.api.Project;
-import org.gradle.internal.logging.progress.ProgressLogger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -46,7 +46,7 @@ public class CoverageReportOptimizer extends ProjectsAndSettingsEnabledSupport {
         return coverProfile;
     }
 
-    public void postHandlePackagesCover(@Nullable Path coverProfile, @Nonnull ProgressLogger progress) throws Exception {
+    public void postHandlePackagesCover(@Nullable Path coverProfile, @Nonnull ThrottledProgressLogger progress) throws Exception {
         progress.progress("Post process of covering profiles...");
         final TestingSettings testing = getTesting();
         final Path coverProfileHtml = testing.getCoverProfileHtml();
@@ -1,123 +1,441 @@
 package org.echocat.gradle.plugins.golang.utils;
 
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Request.Builder;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.URI;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Set;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 import static java.nio.file.Files.*;
-import static org.apache.commons.io.FilenameUtils.getExtension;
-import static org.apache.commons.io.IOUtils.copy;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.attribute.PosixFilePermission.*;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
-import static org.echocat.gradle.plugins.golang.utils.FileUtils.ensureParentOf;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.toHexString;
 
 public class ArchiveUtils {
 
     private static final Pattern REMOVE_LEADING_GO_PATH_PATTERN = Pattern.compile("^(|\\./)go/");
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int PARALLELISM = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_BUFFERED_ENTRY_SIZE = 8 * 1024 * 1024;
+    private static final int MINIMUM_ENTRIES_PER_WORKER = 32;
 
-    public static void download(URI uri, Path to) throws IOException {
-        if (exists(to)) {
-            deleteQuietly(to);
-        }
-        createDirectoriesIfRequired(to);
+    private static final ThreadFactory EXTRACTOR_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger _number = new AtomicInteger();
 
-        final OkHttpClient client = new OkHttpClient();
-        final Request request = new Builder()
-            .url(uri.toURL())
-            .build();
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-extractor-" + _number.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        }
+    };
 
-        final Path tempFile = createTempFile("golang-maven-plugin", "." + getExtension(uri.toString()));
-        try {
-            try (final InputStream is = client.newCall(request).execute().body().byteStream()) {
-                try (final OutputStream os = newOutputStream(tempFile)) {
-                    copy(is, os);
-                }
-            }
-            if (uri.toString().endsWith(".tar.gz")) {
-                unTarGz(tempFile, to);
-            } else if (uri.toString().endsWith(".zip")) {
-                unZip(tempFile, to);
+    /**
+     * Extracts the archive (<code>.tar.gz</code> or <code>.zip</code> by <code>name</code>) while it is read from
+     * <code>is</code> - there is no temporary file. The stream is always read until its end.
+     *
+     * @return the hex encoded SHA-256 digest of the whole archive.
+     */
+    @Nonnull
+    public static String extract(@Nonnull InputStream is, @Nonnull String name, @Nonnull Path to) throws IOException {
+        final MessageDigest digest = sha256Digest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (final DigestInputStream digesting = new DigestInputStream(new BufferedInputStream(is, BUFFER_SIZE), digest)) {
+            if (name.endsWith(".tar.gz")) {
+                unTarGz(new GZIPInputStream(digesting, BUFFER_SIZE), to, buffer);
             } else {
-                throw new IllegalStateException("Does not support download archive of type " + uri + ".");
+                unZip(new ZipArchiveInputStream(digesting), to, REMOVE_LEADING_GO_PATH_PATTERN, buffer);
             }
-        } finally {
-            deleteQuietly(tempFile);
+            // Trailing padding and the central directory are not read by the extraction but are part of the digest.
+            //noinspection StatementWithEmptyBody
+            while (digesting.read(buffer) >= 0) {}
+        }
+        return toHexString(digest.digest());
+    }
+
+    @Nonnull
+    public static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * Extracts the given local archive (<code>.tar.gz</code> or <code>.zip</code>) into a clean <code>to</code>.
+     */
+    public static void extract(@Nonnull Path archive, @Nonnull Path to) throws IOException {
+        final String name = archive.getFileName().toString();
+        if (!name.endsWith(".tar.gz") && !name.endsWith(".zip")) {
+            throw new IllegalStateException("Does not support archive of type " + archive + ".");
+        }
+        if (exists(to)) {
+            deleteQuietly(to);
+        }
+        createDirectoriesIfRequired(to);
+        if (name.endsWith(".tar.gz")) {
+            unTarGz(archive, to);
+        } else {
+            unZip(archive, to);
         }
     }
 
     public static void unTarGz(Path file, Path target) throws IOException {
         try (final InputStream is = newInputStream(file)) {
-            final InputStream gzip = new GZIPInputStream(is);
-            final TarArchiveInputStream archive = new TarArchiveInputStream(gzip);
+            unTarGz(new GZIPInputStream(is, BUFFER_SIZE), target, new byte[BUFFER_SIZE]);
+        }
+    }
+
+    /**
+     * Decompresses on the current thread while the contents of the entries are written (in parallel) by other threads.
+     * Entries larger than {@value #MAX_BUFFERED_ENTRY_SIZE} bytes are written directly by the current thread.
+     */
+    protected static void unTarGz(@Nonnull InputStream gzip, @Nonnull Path target, @Nonnull byte[] buffer) throws IOException {
+        final TarArchiveInputStream archive = new TarArchiveInputStream(gzip);
+        final Directories directories = new Directories();
+        try (final ParallelWriter writer = new ParallelWriter()) {
             TarArchiveEntry entry = archive.getNextTarEntry();
             while (entry != null) {
-                final Path entryFile = target.resolve(REMOVE_LEADING_GO_PATH_PATTERN.matcher(entry.getName()).replaceFirst("")).toAbsolutePath();
+                final Path entryFile = entryFileOf(target, entry.getName(), REMOVE_LEADING_GO_PATH_PATTERN);
                 if (entry.isDirectory()) {
-                    createDirectoriesIfRequired(entryFile);
+                    directories.ensure(entryFile);
                 } else {
-                    ensureParentOf(entryFile);
-                    try (final OutputStream os = newOutputStream(entryFile)) {
-                        copy(archive, os);
-                    }
-                    final PosixFileAttributeView view = getFileAttributeView(entryFile, PosixFileAttributeView.class);
-                    if (view != null) {
-                        final int mode = entry.getMode();
-                        final Set<PosixFilePermission> perms = new HashSet<>();
-                        perms.add(PosixFilePermission.OWNER_READ);
-                        perms.add(PosixFilePermission.GROUP_READ);
-                        perms.add(PosixFilePermission.OTHERS_READ);
-                        //noinspection OctalInteger,ResultOfMethodCallIgnored,IncompatibleBitwiseMaskOperation
-                        if ((mode | 0001) > 0) {
-                            perms.add(PosixFilePermission.OWNER_EXECUTE);
-                        }
-                        //noinspection OctalInteger,ResultOfMethodCallIgnored,IncompatibleBitwiseMaskOperation
-                        if ((mode | 0100) > 0) {
-                            perms.add(PosixFilePermission.GROUP_EXECUTE);
-                            perms.add(PosixFilePermission.OTHERS_EXECUTE);
-                        }
-                        view.setPermissions(perms);
+                    directories.ensure(entryFile.getParent());
+                    if (entry.getSize() > MAX_BUFFERED_ENTRY_SIZE) {
+                        write(archive, entryFile, buffer);
+                        applyMode(entryFile, entry.getMode());
+                    } else {
+                        writer.submit(entryFile, readFully(archive, (int) entry.getSize()), entry.getMode());
                     }
                 }
                 entry = archive.getNextTarEntry();
             }
+            writer.finish();
+        }
+    }
+
+    protected static void unZip(@Nonnull ZipArchiveInputStream archive, @Nonnull Path target, @Nonnull Pattern removeLeadingPathPattern, @Nonnull byte[] buffer) throws IOException {
+        final Directories directories = new Directories();
+        ZipArchiveEntry entry = archive.getNextZipEntry();
+        while (entry != null) {
+            final Path entryFile = entryFileOf(target, entry.getName(), removeLeadingPathPattern);
+            if (entry.isDirectory()) {
+                directories.ensure(entryFile);
+            } else {
+                directories.ensure(entryFile.getParent());
+                write(archive, entryFile, buffer);
+            }
+            entry = archive.getNextZipEntry();
+        }
+    }
+
+    /**
+     * @throws IOException if the entry would be written outside of <code>target</code> (like <code>../../.bashrc</code>).
+     */
+    @Nonnull
+    protected static Path entryFileOf(@Nonnull Path target, @Nonnull String name, @Nonnull Pattern removeLeadingPathPattern) throws IOException {
+        final Path root = target.toAbsolutePath().normalize();
+        final Path result = root.resolve(removeLeadingPathPattern.matcher(name).replaceFirst("")).normalize();
+        if (!result.startsWith(root)) {
+            throw new IOException("Entry " + name + " of archive points outside of " + target + ".");
+        }
+        return result;
+    }
+
+    /**
+     * Writes with one large buffer directly into the channel of the file instead of many small stream writes.
+     */
+    protected static void write(@Nonnull InputStream is, @Nonnull Path to, @Nonnull byte[] buffer) throws IOException {
+        try (final FileChannel channel = FileChannel.open(to, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                wrapped.clear().limit(read);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+        }
+    }
+
+    protected static void write(@Nonnull byte[] content, @Nonnull Path to) throws IOException {
+        try (final FileChannel channel = FileChannel.open(to, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            final ByteBuffer wrapped = ByteBuffer.wrap(content);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        }
+    }
+
+    @Nonnull
+    protected static byte[] readFully(@Nonnull InputStream is, @Nonnegative int size) throws IOException {
+        final byte[] result = new byte[size];
+        int offset = 0;
+        while (offset < size) {
+            final int read = is.read(result, offset, size - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive.");
+            }
+            offset += read;
+        }
+        return result;
+    }
+
+    /**
+     * Applies the unix <code>mode</code> of an archive entry to <code>file</code>. The owner could always read and
+     * write. A <code>mode</code> of <code>0</code> (unknown) or a file system without posix permissions is ignored.
+     */
+    protected static void applyMode(@Nonnull Path file, int mode) throws IOException {
+        if ((mode & 0777) == 0) {
+            return;
+        }
+        final PosixFileAttributeView view = getFileAttributeView(file, PosixFileAttributeView.class);
+        if (view != null) {
+            view.setPermissions(permissionsOf(mode));
+        }
+    }
+
+    @Nonnull
+    protected static Set<PosixFilePermission> permissionsOf(int mode) {
+        final Set<PosixFilePermission> result = EnumSet.of(OWNER_READ, OWNER_WRITE);
+        //noinspection OctalInteger
+        if ((mode & 0100) != 0) {
+            result.add(OWNER_EXECUTE);
         }
+        //noinspection OctalInteger
+        if ((mode & 0040) != 0) {
+            result.add(GROUP_READ);
+        }
+        //noinspection OctalInteger
+        if ((mode & 0010) != 0) {
+            result.add(GROUP_EXECUTE);
+        }
+        //noinspection OctalInteger
+        if ((mode & 0004) != 0) {
+            result.add(OTHERS_READ);
+        }
+        //noinspection OctalInteger
+        if ((mode & 0001) != 0) {
+            result.add(OTHERS_EXECUTE);
+        }
+        return result;
     }
 
     public static void unZip(Path file, Path target) throws IOException {
+        unZip(file, target, REMOVE_LEADING_GO_PATH_PATTERN);
+    }
+
+    /**
+     * Zip files allow random access to their entries. So the files are distributed (balanced by their size) over up to
+     * {@link #PARALLELISM} workers which extract them independent of each other. All directories are created before.
+     */
+    public static void unZip(@Nonnull final Path file, @Nonnull final Path target, @Nonnull final Pattern removeLeadingPathPattern) throws IOException {
+        final List<ZipArchiveEntry> files = new ArrayList<>();
+        final Directories directories = new Directories();
         try (final ZipFile zipFile = new ZipFile(file.toFile())) {
-            final Enumeration<ZipArchiveEntry> files = zipFile.getEntriesInPhysicalOrder();
-            while (files.hasMoreElements()) {
-                final ZipArchiveEntry entry = files.nextElement();
-                final Path entryFile = target.resolve(REMOVE_LEADING_GO_PATH_PATTERN.matcher(entry.getName()).replaceFirst("")).toAbsolutePath();
+            final Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                final ZipArchiveEntry entry = entries.nextElement();
+                final Path entryFile = entryFileOf(target, entry.getName(), removeLeadingPathPattern);
                 if (entry.isDirectory()) {
-                    createDirectoriesIfRequired(entryFile);
+                    directories.ensure(entryFile);
                 } else {
-                    ensureParentOf(entryFile);
-                    try (final InputStream is = zipFile.getInputStream(entry)) {
-                        try (final OutputStream os = newOutputStream(entryFile)) {
-                            copy(is, os);
+                    directories.ensure(entryFile.getParent());
+                    files.add(entry);
+                }
+            }
+            if (files.size() < MINIMUM_ENTRIES_PER_WORKER * 2) {
+                unZip(zipFile, files, target, removeLeadingPathPattern);
+                return;
+            }
+        }
+
+        Collections.sort(files, new Comparator<ZipArchiveEntry>() {
+            @Override
+            public int compare(ZipArchiveEntry o1, ZipArchiveEntry o2) {
+                return Long.compare(o2.getSize(), o1.getSize());
+            }
+        });
+        final int workers = Math.min(PARALLELISM, files.size() / MINIMUM_ENTRIES_PER_WORKER);
+        final List<List<ZipArchiveEntry>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<ZipArchiveEntry>());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            partitions.get(i % workers).add(files.get(i));
+        }
+        final ExecutorService executor = newFixedThreadPool(workers, EXTRACTOR_THREAD_FACTORY);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(workers);
+            for (final List<ZipArchiveEntry> partition : partitions) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        // Every worker reads with its own file handle.
+                        try (final ZipFile zipFile = new ZipFile(file.toFile())) {
+                            unZip(zipFile, partition, target, removeLeadingPathPattern);
                         }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    executor.shutdownNow();
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
                     }
+                    throw new IOException("Could not extract " + file + ".", cause);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while extracting " + file + ".");
                 }
             }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected static void unZip(@Nonnull ZipFile zipFile, @Nonnull List<ZipArchiveEntry> files, @Nonnull Path target, @Nonnull Pattern removeLeadingPathPattern) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        for (final ZipArchiveEntry candidate : files) {
+            final ZipArchiveEntry entry = zipFile.getEntry(candidate.getName());
+            final Path entryFile = entryFileOf(target, entry.getName(), removeLeadingPathPattern);
+            try (final InputStream is = zipFile.getInputStream(entry)) {
+                write(is, entryFile, buffer);
+            }
+            applyMode(entryFile, entry.getUnixMode());
         }
     }
+
+    /**
+     * Creates every directory only once - also if it is the parent of many entries.
+     */
+    protected static class Directories {
+
+        private final Set<Path> _known = new HashSet<>();
+
+        public void ensure(@Nonnull Path directory) throws IOException {
+            if (_known.contains(directory)) {
+                return;
+            }
+            createDirectoriesIfRequired(directory);
+            Path current = directory;
+            while (current != null && _known.add(current)) {
+                current = current.getParent();
+            }
+        }
+
+    }
+
+    /**
+     * Writes already read contents of entries in parallel. Not more than {@value #MAX_PENDING_BYTES} bytes are kept in
+     * memory; {@link #submit(Path, byte[], int)} blocks until there is enough space. The first failure of any write is
+     * thrown by the next call of {@link #submit(Path, byte[], int)} or {@link #finish()}.
+     */
+    protected static class ParallelWriter implements AutoCloseable {
+
+        private final ExecutorService _executor = newFixedThreadPool(PARALLELISM, EXTRACTOR_THREAD_FACTORY);
+        private final Semaphore _pending = new Semaphore(MAX_PENDING_BYTES);
+        private final AtomicReference<Throwable> _failure = new AtomicReference<>();
+
+        public void submit(@Nonnull final Path file, @Nonnull final byte[] content, final int mode) throws IOException {
+            checkFailure();
+            final int permits = Math.max(1, content.length);
+            try {
+                _pending.acquire(permits);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while extracting " + file + ".");
+            }
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        write(content, file);
+                        applyMode(file, mode);
+                    } catch (final Throwable e) {
+                        _failure.compareAndSet(null, e);
+                    } finally {
+                        _pending.release(permits);
+                    }
+                }
+            });
+        }
+
+        public void finish() throws IOException {
+            _executor.shutdown();
+            try {
+                //noinspection StatementWithEmptyBody
+                while (!_executor.awaitTermination(1, MINUTES)) {}
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while extracting.");
+            }
+            checkFailure();
+        }
+
+        protected void checkFailure() throws IOException {
+            final Throwable failure = _failure.get();
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw new IOException("Could not extract.", failure);
+            }
+        }
+
+        @Override
+        public void close() {
+            _executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * The downloaded archive does not have the expected digest.
+     */
+    public static class ChecksumMismatchException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ChecksumMismatchException(String message) {
+            super(message);
+        }
+
+    }
+
 }
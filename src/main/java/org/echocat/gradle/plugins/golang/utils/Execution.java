@@ -0,0 +1,245 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Result of an asynchronous process execution (see {@link Executor#executeAsync()}). It completes with the
+ * {@link Executor} (to access its output) or with the failure of the process.
+ */
+@ThreadSafe
+public class Execution extends FutureTask<Executor> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Execution.class);
+    private static final Callable<Executor> NOTHING = new Callable<Executor>() {
+        @Override
+        public Executor call() throws Exception {
+            return null;
+        }
+    };
+
+    private final List<Listener> _listeners = new ArrayList<>();
+    private boolean _done;
+
+    public Execution(@Nonnull Callable<Executor> callable) {
+        super(callable);
+    }
+
+    /**
+     * Creates an execution which is only completed by {@link #complete(Executor)} or {@link #fail(Throwable)}.
+     */
+    protected Execution() {
+        this(NOTHING);
+    }
+
+    /**
+     * Blocks until the process is terminated.
+     *
+     * @return the executor of the process.
+     * @throws IOException if the process could not be executed or has failed.
+     */
+    @Nonnull
+    public Executor await() throws IOException {
+        try {
+            return get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for process.");
+        } catch (final CancellationException e) {
+            throw new InterruptedIOException("Execution was cancelled.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : null, cause);
+        }
+    }
+
+    /**
+     * Calls <code>listener</code> once this execution is done - immediately if it is already done.
+     */
+    @Nonnull
+    public Execution onCompletion(@Nonnull Listener listener) {
+        synchronized (_listeners) {
+            if (!_done) {
+                _listeners.add(listener);
+                return this;
+            }
+        }
+        notify(listener);
+        return this;
+    }
+
+    /**
+     * Starts <code>step</code> after this execution was successful.
+     *
+     * @return an execution which completes with the result of the execution returned by <code>step</code> (or with the
+     * result of this execution if <code>step</code> returns <code>null</code>). If this execution or <code>step</code>
+     * fails, it fails too. Cancelling it cancels this execution and the one returned by <code>step</code>.
+     */
+    @Nonnull
+    public Execution then(@Nonnull final Step step) {
+        final Execution result = new Execution();
+        final Execution previous = this;
+        final AtomicReference<Execution> nextReference = new AtomicReference<>();
+        result.onCompletion(new Listener() {
+            @Override
+            public void onCompletion(@Nonnull Execution execution) {
+                if (execution.isCancelled()) {
+                    previous.cancel(true);
+                    final Execution next = nextReference.get();
+                    if (next != null) {
+                        next.cancel(true);
+                    }
+                }
+            }
+        });
+        onCompletion(new Listener() {
+            @Override
+            public void onCompletion(@Nonnull Execution execution) {
+                final Execution next;
+                try {
+                    next = step.next(execution.await());
+                } catch (final Throwable e) {
+                    result.fail(e);
+                    return;
+                }
+                if (next == null) {
+                    result.complete(execution.resultOrNull());
+                    return;
+                }
+                nextReference.set(next);
+                // Could be cancelled before next was known.
+                if (result.isCancelled()) {
+                    next.cancel(true);
+                    return;
+                }
+                next.onCompletion(new Listener() {
+                    @Override
+                    public void onCompletion(@Nonnull Execution nextExecution) {
+                        try {
+                            result.complete(nextExecution.await());
+                        } catch (final Throwable e) {
+                            result.fail(e);
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for all <code>executions</code> in the order they complete. The first failure cancels all others and is
+     * thrown.
+     */
+    public static void awaitAll(@Nonnull Collection<Execution> executions) throws IOException {
+        final BlockingQueue<Execution> completed = new LinkedBlockingQueue<>();
+        final Listener listener = new Listener() {
+            @Override
+            public void onCompletion(@Nonnull Execution execution) {
+                completed.add(execution);
+            }
+        };
+        try {
+            for (final Execution execution : executions) {
+                execution.onCompletion(listener);
+            }
+            for (int i = 0; i < executions.size(); i++) {
+                completed.take().await();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for processes.");
+        } finally {
+            for (final Execution execution : executions) {
+                execution.cancel(true);
+            }
+        }
+    }
+
+    protected void complete(@Nullable Executor executor) {
+        set(executor);
+    }
+
+    protected void fail(@Nonnull Throwable e) {
+        setException(e);
+    }
+
+    @Nullable
+    protected Executor resultOrNull() {
+        try {
+            return isDone() && !isCancelled() ? get() : null;
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final ExecutionException ignored) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void done() {
+        final List<Listener> listeners;
+        synchronized (_listeners) {
+            _done = true;
+            listeners = new ArrayList<>(_listeners);
+            _listeners.clear();
+        }
+        for (final Listener listener : listeners) {
+            notify(listener);
+        }
+    }
+
+    protected void notify(@Nonnull Listener listener) {
+        try {
+            listener.onCompletion(this);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Listener {} of execution failed. Got: {}", listener, e.toString());
+            LOGGER.debug("Listener {} of execution failed.", listener, e);
+        }
+    }
+
+    public interface Listener {
+
+        /**
+         * Called once the execution is done, failed or was cancelled. Use {@link Execution#await()} to get the result.
+         */
+        public void onCompletion(@Nonnull Execution execution);
+
+    }
+
+    public interface Step {
+
+        /**
+         * @return the next execution or <code>null</code> if there is none.
+         */
+        @Nullable
+        public Execution next(@Nonnull Executor previous) throws Exception;
+
+    }
+
+}
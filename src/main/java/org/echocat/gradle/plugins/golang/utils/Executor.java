@@ -1,7 +1,10 @@
 package org.echocat.gradle.plugins.golang.utils;
 
+import org.echocat.gradle.plugins.golang.utils.OutputScanner.LineListener;
+import org.echocat.gradle.plugins.golang.utils.ProcessScheduler.Slot;
 import org.slf4j.Logger;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
@@ -11,12 +14,16 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
-import static java.lang.Runtime.getRuntime;
 import static java.lang.Thread.currentThread;
 import static org.apache.commons.io.IOUtils.closeQuietly;
-import static org.apache.commons.lang3.StringUtils.split;
+import static org.echocat.gradle.plugins.golang.utils.KeywordMatcher.keywordMatcherFor;
+import static org.echocat.gradle.plugins.golang.utils.ProcessScheduler.processScheduler;
+import static org.echocat.gradle.plugins.golang.utils.ProcessTracer.processTracer;
+import static org.echocat.gradle.plugins.golang.utils.ProcessWatchdog.killTreeOf;
+import static org.echocat.gradle.plugins.golang.utils.ProcessWatchdog.watch;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.formatDuration;
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class Executor {
@@ -30,14 +37,28 @@ public class Executor {
         }
     };
 
+    /**
+     * Number of the last lines of the own captured output which are logged if the execution fails.
+     */
+    public static final int DEFAULT_TAIL_LINES = 200;
+
     private final Map<String, String> _environment = new HashMap<>(System.getenv());
     private final List<Object> _arguments = new ArrayList<>();
-    private final OutputStream _stdout;
-    private final OutputStream _stderr;
+    private final List<LineListener> _lineListeners = new ArrayList<>();
+    private final boolean _ownOutput;
+    @Nullable
+    private OutputStream _stdout;
+    @Nullable
+    private OutputStream _stderr;
     private final Path _executable;
 
     private Path _workingDirectory;
     private final Set<String> _failKeywords = new HashSet<>();
+    private int _tailLines = DEFAULT_TAIL_LINES;
+    @Nullable
+    private Long _timeout;
+    @Nonnull
+    private ProcessScheduler _scheduler = processScheduler();
 
     @Nonnull
     public static Executor executor(@Nonnull String executable) {
@@ -70,6 +91,7 @@ public class Executor {
     }
 
     public Executor(@Nonnull Path executable, @Nullable OutputStream stdout, @Nullable OutputStream stderr) {
+        _ownOutput = stdout == null;
         _stdout = stdout != null ? stdout : new ByteArrayOutputStream();
         _stderr = stderr != null ? stderr : _stdout;
         _executable = executable;
@@ -130,85 +152,236 @@ public class Executor {
         return this;
     }
 
+    /**
+     * The execution fails if stdout contains the keyword. Only output which is captured in memory (or discarded) is
+     * scanned, not output passed to other streams of the caller. stderr is only scanned if it is written into the same
+     * stream as stdout.
+     */
     @Nonnull
     public Executor failKeyword(String keyword) {
         _failKeywords.add(keyword);
         return this;
     }
 
+    /**
+     * @see #failKeyword(String)
+     */
     @Nonnull
     public Executor failKeywords(String... keywords) {
         Collections.addAll(_failKeywords, keywords);
         return this;
     }
 
+    /**
+     * Calls <code>listener</code> for every line of the output while the process is running.
+     */
+    @Nonnull
+    public Executor onLine(@Nonnull LineListener listener) {
+        _lineListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * The output which is not passed to a given stream is not captured in memory anymore. Only the last
+     * {@link #tailLines(int)} lines are retained to report a failure. Use it for chatty processes which output is
+     * not required.
+     */
+    @Nonnull
+    public Executor discardOutput() {
+        if (_ownOutput) {
+            if (_stderr == _stdout) {
+                _stderr = null;
+            }
+            _stdout = null;
+        }
+        return this;
+    }
+
+    /**
+     * Writes stderr into the same stream as stdout. Use it if the caller does not need them separately.
+     */
+    @Nonnull
+    public Executor redirectErrorToOutput() {
+        _stderr = _stdout;
+        return this;
+    }
+
+    /**
+     * Number of the last lines of the own captured output which are logged if the execution fails.
+     */
+    @Nonnull
+    public Executor tailLines(@Nonnegative int tailLines) {
+        _tailLines = tailLines;
+        return this;
+    }
+
+    /**
+     * Maximum duration of the execution in milliseconds. If exceeded the stacks of the process tree are dumped and it is
+     * killed (see {@link ProcessWatchdog}). <code>null</code> or <code>0</code> means no limit.
+     */
+    @Nonnull
+    public Executor timeout(@Nullable Long timeout) {
+        _timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Scheduler which limits the number of concurrently running processes. Default is the build wide one
+     * ({@link ProcessScheduler#processScheduler()}).
+     */
+    @Nonnull
+    public Executor scheduler(@Nonnull ProcessScheduler scheduler) {
+        _scheduler = scheduler;
+        return this;
+    }
+
     @Nonnull
     public Executor execute() throws IOException {
         return execute(DEFAULT_EXCEPTION_PRODUCER);
     }
 
+    /**
+     * Executes the process in the background as soon as the limit of concurrently running processes (see
+     * {@link ProcessScheduler}) allows it.
+     */
+    @Nonnull
+    public Execution executeAsync() {
+        return executeAsync(DEFAULT_EXCEPTION_PRODUCER);
+    }
+
+    @Nonnull
+    public Execution executeAsync(@Nonnull final ExecutionFailedExceptionProducer<?> executionFailedExceptionProducer) {
+        // The trace group is the one of the caller - not the one of the pooled thread.
+        final String group = processTracer().currentGroup();
+        return _scheduler.submit(new Execution(new Callable<Executor>() {
+            @Override
+            public Executor call() throws Exception {
+                final ProcessTracer.Group entered = group != null ? processTracer().enterGroup(group) : null;
+                try {
+                    return execute(executionFailedExceptionProducer);
+                } catch (final Exception | Error e) {
+                    throw e;
+                } catch (final Throwable e) {
+                    throw new IOException(e.getMessage(), e);
+                } finally {
+                    if (entered != null) {
+                        entered.close();
+                    }
+                }
+            }
+        }));
+    }
+
     @Nonnull
     public <T extends Throwable> Executor execute(ExecutionFailedExceptionProducer<T> executionFailedExceptionProducer) throws T, IOException {
         final String[] commandLine = commandLine();
         final File workingDirectory = _workingDirectory != null ? _workingDirectory.toFile() : null;
-        final Process process = getRuntime().exec(commandLine, envp(), workingDirectory);
-        try (final ProcessOutput po = new ProcessOutput(process, _stdout, _stderr)) {
+        final Slot slot = _scheduler.acquire();
+        try {
+            execute(commandLine, workingDirectory, executionFailedExceptionProducer);
+        } finally {
+            slot.close();
+        }
+        return this;
+    }
+
+    protected <T extends Throwable> void execute(@Nonnull String[] commandLine, @Nullable File workingDirectory, @Nonnull ExecutionFailedExceptionProducer<T> executionFailedExceptionProducer) throws T, IOException {
+        final OutputScanner stdout = scannerFor(_stdout, true);
+        // Both into the same stream: One pipe and one pump are enough.
+        final boolean merged = _stderr == _stdout;
+        final OutputScanner stderr = merged ? stdout : scannerFor(_stderr, false);
+        final ProcessBuilder builder = new ProcessBuilder(commandLine)
+            .directory(workingDirectory)
+            .redirectErrorStream(merged);
+        builder.environment().clear();
+        builder.environment().putAll(_environment);
+        final long started = System.nanoTime();
+        Integer exitCode = null;
+        final Process process = builder.start();
+        final ProcessWatchdog watchdog = _timeout != null && _timeout > 0 ? watch(process, Arrays.toString(commandLine), _timeout) : null;
+        try (final ProcessOutput po = new ProcessOutput(process, stdout, merged ? null : stderr)) {
             try {
                 try {
                     po.waitFor();
                 } catch (final InterruptedException ignored) {
                     currentThread().interrupt();
                 }
-                final int exitCode = process.waitFor();
-                final String[] lines = _stdout instanceof ByteArrayOutputStream ? split(getStdoutAsString(), '\n') : null;
+                exitCode = process.waitFor();
+                stdout.finish();
+                stderr.finish();
+                if (watchdog != null && watchdog.hasExpired()) {
+                    logTailOf(stdout, stderr);
+                    throw new ExecutionTimedOutException("Got no result within " + formatDuration(watchdog.getTimeout()) + " while executing " + Arrays.toString(commandLine) + ". The process was killed.");
+                }
                 if (exitCode != 0) {
-                    toLog(lines, true);
+                    logTailOf(stdout, stderr);
                     throw executionFailedExceptionProducer.produceFor(this, commandLine, exitCode);
                 }
-                if (containsProblem(lines)) {
-                    toLog(lines, true);
+                if (stdout.hasMatched() || stderr.hasMatched()) {
+                    logTailOf(stdout, stderr);
                     throw new IOException("Problem while executing " + Arrays.toString(commandLine) + ".");
                 }
-                toLog(lines, false);
             } catch (final InterruptedException e) {
+                // Callers have to know that the execution was cancelled.
+                currentThread().interrupt();
                 throw new IOException("Got interrupted while executing " + Arrays.toString(commandLine) + ".", e);
             }
         } finally {
+            if (watchdog != null) {
+                watchdog.cancel();
+            }
+            if (exitCode == null) {
+                // Still running if this thread was interrupted (for example because the execution was cancelled). Its
+                // children (like compile and link of go build) would otherwise keep running and writing.
+                killTreeOf(process, Arrays.toString(commandLine));
+            }
+            process.destroy();
             if (_stdout instanceof LoggingOutputStream) {
                 closeQuietly(_stdout);
             }
             if (_stderr instanceof LoggingOutputStream) {
                 closeQuietly(_stderr);
             }
+            final ProcessTracer tracer = processTracer();
+            if (tracer.isEnabled()) {
+                tracer.record(tracer.currentGroup(), commandLine, _workingDirectory, started, System.nanoTime(), exitCode, stdout.getBytes(), merged ? 0 : stderr.getBytes());
+            }
         }
-        return this;
     }
 
-    protected boolean containsProblem(@Nullable String[] lines) {
-        if (lines == null) {
-            return false;
-        }
-        for (final String line : lines) {
-            for (final String failKeyword : _failKeywords) {
-                if (line.contains(failKeyword)) {
-                    return true;
+    /**
+     * Only the own captured output is logged (at debug while running, its tail as error on failure) - output passed to
+     * given streams is already visible. If nothing has to be scanned the bytes are only passed through.
+     *
+     * @param stdout <code>true</code> if this is the scanner of stdout (which includes stderr if both are merged).
+     */
+    @Nonnull
+    protected OutputScanner scannerFor(@Nullable OutputStream delegate, boolean stdout) {
+        final boolean own = _ownOutput && (delegate == null || delegate instanceof ByteArrayOutputStream);
+        final boolean scanned = stdout && (delegate == null || delegate instanceof ByteArrayOutputStream);
+        final List<LineListener> listeners = new ArrayList<>(_lineListeners);
+        if (own && LOGGER.isDebugEnabled()) {
+            listeners.add(new LineListener() {
+                @Override
+                public void onLine(@Nonnull String line) {
+                    LOGGER.debug(line);
                 }
-            }
+            });
         }
-        return false;
+        final int tailLines = own && LOGGER.isErrorEnabled() ? _tailLines : 0;
+        return new OutputScanner(delegate, keywordMatcherFor(scanned ? _failKeywords : Collections.<String>emptySet()), tailLines, listeners);
     }
 
-    protected void toLog(@Nullable String[] lines, boolean asProblem) {
-        if (asProblem || LOGGER.isDebugEnabled()) {
-            if (lines != null) {
-                for (final String line : lines) {
-                    if (asProblem) {
-                        LOGGER.error(line);
-                    } else {
-                        LOGGER.debug(line);
-                    }
-                }
-            }
+    protected void logTailOf(@Nonnull OutputScanner stdout, @Nonnull OutputScanner stderr) {
+        final List<String> lines = stdout.getTail();
+        if (stderr != stdout) {
+            lines.addAll(stderr.getTail());
+        }
+        if (lines.size() >= _tailLines && _tailLines > 0) {
+            LOGGER.error("... (only the last {} lines of output are shown)", _tailLines);
+        }
+        for (final String line : lines) {
+            LOGGER.error(line);
         }
     }
 
@@ -223,16 +396,6 @@ public class Executor {
         return result;
     }
 
-    @Nonnull
-    protected String[] envp() {
-        final String[] result = new String[_environment.size()];
-        int i = 0;
-        for (final Entry<String, String> entry : _environment.entrySet()) {
-            result[i++] = entry.getKey() + "=" + entry.getValue();
-        }
-        return result;
-    }
-
     @Nonnull
     public String getStdoutAsString() {
         if (!(_stdout instanceof ByteArrayOutputStream)) {
@@ -275,6 +438,16 @@ public class Executor {
         return sb.toString();
     }
 
+    public static class ExecutionTimedOutException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ExecutionTimedOutException(String message) {
+            super(message);
+        }
+
+    }
+
     public interface ExecutionFailedExceptionProducer<T extends Throwable> {
 
         @Nonnull
@@ -12,7 +12,11 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
 import static java.nio.file.Files.*;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public class FileUtils {
 
@@ -33,6 +37,35 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Copies the directory <code>from</code> recursively to <code>to</code> - except of the direct children of
+     * <code>from</code> with the given <code>excludedNames</code>.
+     */
+    public static void copyDirectory(@Nonnull final Path from, @Nonnull final Path to, @Nonnull String... excludedNames) throws IOException {
+        final Set<Path> excludes = new TreeSet<>();
+        for (final String excludedName : excludedNames) {
+            excludes.add(from.resolve(excludedName));
+        }
+        walkFileTree(from, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (excludes.contains(dir)) {
+                    return SKIP_SUBTREE;
+                }
+                createDirectoriesIfRequired(to.resolve(from.relativize(dir)));
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!excludes.contains(file)) {
+                    copy(file, to.resolve(from.relativize(file)), COPY_ATTRIBUTES, REPLACE_EXISTING, NOFOLLOW_LINKS);
+                }
+                return CONTINUE;
+            }
+        });
+    }
+
     public static void delete(@Nullable Path path) throws IOException {
         if (path == null || !exists(path)) {
             return;
@@ -0,0 +1,494 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import org.echocat.gradle.plugins.golang.model.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Client of the long living helper process <code>goHelper</code> which is built together with the toolchain (see
+ * <code>goHelper.go</code>). Instead of spawning one process per question every question is sent as one line of JSON to
+ * the same process; many of them could be pending at the same time. The process is started on first use, restarted if
+ * it died and kept alive until {@link #closeGoHelpers()} is called at the end of the build.
+ */
+@ThreadSafe
+public class GoHelper implements Closeable {
+
+    public static final String NAME = "goHelper";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoHelper.class);
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Gson GSON = new Gson();
+    private static final Type STRINGS = new TypeToken<List<String>>() {}.getType();
+    private static final long CLOSE_TIMEOUT_IN_SECONDS = 5;
+    private static final ConcurrentMap<Path, GoHelper> INSTANCES = new ConcurrentHashMap<>();
+
+    @Nonnull
+    public static GoHelper goHelperFor(@Nonnull Path binary) {
+        final Path normalized = binary.toAbsolutePath().normalize();
+        final GoHelper candidate = new GoHelper(normalized);
+        final GoHelper existing = INSTANCES.putIfAbsent(normalized, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    /**
+     * Terminates the helper process of <code>binary</code> (if running), for example before the binary is replaced.
+     */
+    public static void closeGoHelperOf(@Nonnull Path binary) {
+        final GoHelper helper = INSTANCES.remove(binary.toAbsolutePath().normalize());
+        if (helper != null) {
+            helper.close();
+        }
+    }
+
+    public static void closeGoHelpers() {
+        for (final Path binary : new ArrayList<>(INSTANCES.keySet())) {
+            closeGoHelperOf(binary);
+        }
+    }
+
+    @Nonnull
+    private final Path _binary;
+    private final AtomicLong _nextId = new AtomicLong();
+    private final Object _lock = new Object();
+
+    @Nullable
+    private Connection _connection;
+
+    protected GoHelper(@Nonnull Path binary) {
+        _binary = binary;
+    }
+
+    @Nonnull
+    public Path getBinary() {
+        return _binary;
+    }
+
+    /**
+     * @return version of the go toolchain the helper was built with, like <code>go1.7.4</code>.
+     */
+    @Nonnull
+    public String version() throws IOException {
+        return call(new Request("version")).await().getAsString();
+    }
+
+    /**
+     * @return the packages imported by the given go source file.
+     */
+    @Nonnull
+    public List<String> importsOf(@Nonnull Path file) throws IOException {
+        return importsOf(Collections.singleton(file)).get(file);
+    }
+
+    /**
+     * All files are sent at once and parsed concurrently by the helper.
+     *
+     * @return the packages imported by every of the given go source files.
+     */
+    @Nonnull
+    public Map<Path, List<String>> importsOf(@Nonnull Collection<Path> files) throws IOException {
+        final Map<Path, Call> calls = new LinkedHashMap<>();
+        for (final Path file : files) {
+            calls.put(file, call(new Request("imports").withFile(file)));
+        }
+        final Map<Path, List<String>> result = new LinkedHashMap<>();
+        for (final Map.Entry<Path, Call> entry : calls.entrySet()) {
+            final List<String> imports = GSON.fromJson(entry.getValue().await(), STRINGS);
+            result.put(entry.getKey(), imports != null ? imports : Collections.<String>emptyList());
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the build constraints of all go source files in <code>directory</code> for the given platform.
+     */
+    @Nonnull
+    public GoPackage packageOf(@Nonnull Path directory, @Nullable Platform platform, @Nullable Collection<String> tags) throws IOException {
+        final Request request = new Request("package").withDirectory(directory).withPlatform(platform).withTags(tags);
+        return GSON.fromJson(call(request).await(), GoPackage.class);
+    }
+
+    @Nonnull
+    protected Call call(@Nonnull Request request) throws IOException {
+        request._id = _nextId.incrementAndGet();
+        return connection().send(request);
+    }
+
+    @Nonnull
+    protected Connection connection() throws IOException {
+        synchronized (_lock) {
+            Connection result = _connection;
+            if (result == null || result.isTerminated()) {
+                if (result != null) {
+                    LOGGER.info("Helper {} was terminated unexpectedly. Going to restart it...", _binary);
+                }
+                result = new Connection(new ProcessBuilder(_binary.toString()).start());
+                _connection = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Closes stdin of the helper which lets it terminate after all pending requests are answered.
+     */
+    @Override
+    public void close() {
+        final Connection connection;
+        synchronized (_lock) {
+            connection = _connection;
+            _connection = null;
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return _binary.toString();
+    }
+
+    protected class Connection {
+
+        @Nonnull
+        private final Process _process;
+        @Nonnull
+        private final Writer _stdin;
+        private final ConcurrentMap<Long, Call> _calls = new ConcurrentHashMap<>();
+
+        @Nullable
+        private volatile IOException _terminated;
+
+        protected Connection(@Nonnull Process process) {
+            _process = process;
+            _stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF_8));
+            start("stdout", new Runnable() {
+                @Override
+                public void run() {
+                    readResponses();
+                }
+            });
+            start("stderr", new Runnable() {
+                @Override
+                public void run() {
+                    logErrors();
+                }
+            });
+        }
+
+        protected void start(@Nonnull String stream, @Nonnull Runnable runnable) {
+            final Thread thread = new Thread(runnable, "golang-helper-" + stream);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public boolean isTerminated() {
+            return _terminated != null;
+        }
+
+        @Nonnull
+        public Call send(@Nonnull Request request) throws IOException {
+            final Call result = new Call(request);
+            _calls.put(request._id, result);
+            try {
+                assertNotTerminated();
+                synchronized (_stdin) {
+                    _stdin.write(GSON.toJson(request));
+                    _stdin.write('\n');
+                    _stdin.flush();
+                }
+            } catch (final IOException e) {
+                _calls.remove(request._id);
+                throw e;
+            }
+            return result;
+        }
+
+        protected void assertNotTerminated() throws IOException {
+            final IOException terminated = _terminated;
+            if (terminated != null) {
+                throw new IOException(terminated.getMessage(), terminated);
+            }
+        }
+
+        protected void readResponses() {
+            IOException cause = null;
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(_process.getInputStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Response response;
+                    try {
+                        response = GSON.fromJson(line, Response.class);
+                    } catch (final JsonParseException e) {
+                        throw new IOException("Got unexpected response of helper " + _binary + ": " + line, e);
+                    }
+                    final Call call = response != null ? _calls.remove(response._id) : null;
+                    if (call != null) {
+                        call.complete(response);
+                    }
+                }
+            } catch (final IOException e) {
+                cause = e;
+            } finally {
+                terminated(cause);
+            }
+        }
+
+        protected void logErrors() {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(_process.getErrorStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LOGGER.warn("{}: {}", NAME, line);
+                }
+            } catch (final IOException ignored) {}
+        }
+
+        protected void terminated(@Nullable IOException cause) {
+            _terminated = new IOException("Helper " + _binary + " was terminated.", cause);
+            for (final Long id : new ArrayList<>(_calls.keySet())) {
+                final Call call = _calls.remove(id);
+                if (call != null) {
+                    call.fail(_terminated);
+                }
+            }
+        }
+
+        public void close() {
+            try {
+                synchronized (_stdin) {
+                    _stdin.close();
+                }
+            } catch (final IOException ignored) {}
+            try {
+                final long timeout = System.currentTimeMillis() + SECONDS.toMillis(CLOSE_TIMEOUT_IN_SECONDS);
+                while (isAlive() && System.currentTimeMillis() < timeout) {
+                    Thread.sleep(10);
+                }
+            } catch (final InterruptedException ignored) {
+                currentThread().interrupt();
+            } finally {
+                _process.destroy();
+            }
+        }
+
+        protected boolean isAlive() {
+            try {
+                _process.exitValue();
+                return false;
+            } catch (final IllegalThreadStateException ignored) {
+                return true;
+            }
+        }
+
+    }
+
+    protected static class Call {
+
+        @Nonnull
+        private final Request _request;
+        private final CountDownLatch _done = new CountDownLatch(1);
+
+        @Nullable
+        private Response _response;
+        @Nullable
+        private IOException _failure;
+
+        protected Call(@Nonnull Request request) {
+            _request = request;
+        }
+
+        protected void complete(@Nonnull Response response) {
+            _response = response;
+            _done.countDown();
+        }
+
+        protected void fail(@Nonnull IOException failure) {
+            _failure = failure;
+            _done.countDown();
+        }
+
+        @Nullable
+        public JsonElement await() throws IOException {
+            try {
+                _done.await();
+            } catch (final InterruptedException e) {
+                currentThread().interrupt();
+                throw new InterruptedIOException("Got interrupted while waiting for " + _request._method + " of helper.");
+            }
+            if (_failure != null) {
+                throw new IOException(_failure.getMessage(), _failure);
+            }
+            //noinspection ConstantConditions
+            if (_response._error != null) {
+                throw new IOException(_response._error);
+            }
+            return _response._result;
+        }
+
+    }
+
+    protected static class Request {
+
+        @SerializedName("id")
+        private long _id;
+        @SerializedName("method")
+        private final String _method;
+        @SerializedName("file")
+        private String _file;
+        @SerializedName("dir")
+        private String _directory;
+        @SerializedName("goos")
+        private String _goos;
+        @SerializedName("goarch")
+        private String _goarch;
+        @SerializedName("tags")
+        private List<String> _tags;
+
+        protected Request(@Nonnull String method) {
+            _method = method;
+        }
+
+        @Nonnull
+        protected Request withFile(@Nonnull Path file) {
+            _file = file.toAbsolutePath().toString();
+            return this;
+        }
+
+        @Nonnull
+        protected Request withDirectory(@Nonnull Path directory) {
+            _directory = directory.toAbsolutePath().toString();
+            return this;
+        }
+
+        @Nonnull
+        protected Request withPlatform(@Nullable Platform platform) {
+            if (platform != null) {
+                _goos = platform.getOperatingSystem().getNameInGo();
+                _goarch = platform.getArchitecture().getNameInGo();
+            }
+            return this;
+        }
+
+        @Nonnull
+        protected Request withTags(@Nullable Collection<String> tags) {
+            _tags = tags != null ? new ArrayList<>(tags) : null;
+            return this;
+        }
+
+    }
+
+    protected static class Response {
+
+        @SerializedName("id")
+        private long _id;
+        @SerializedName("result")
+        private JsonElement _result;
+        @SerializedName("error")
+        private String _error;
+
+    }
+
+    /**
+     * Files of a go package after its build constraints are evaluated for one platform.
+     */
+    public static class GoPackage {
+
+        @SerializedName("name")
+        private String _name;
+        @SerializedName("goFiles")
+        private List<String> _goFiles;
+        @SerializedName("cgoFiles")
+        private List<String> _cgoFiles;
+        @SerializedName("testGoFiles")
+        private List<String> _testGoFiles;
+        @SerializedName("xTestGoFiles")
+        private List<String> _xTestGoFiles;
+        @SerializedName("ignoredGoFiles")
+        private List<String> _ignoredGoFiles;
+        @SerializedName("imports")
+        private List<String> _imports;
+        @SerializedName("testImports")
+        private List<String> _testImports;
+        @SerializedName("xTestImports")
+        private List<String> _xTestImports;
+
+        /**
+         * @return <code>null</code> if there are no go files for the platform.
+         */
+        @Nullable
+        public String getName() {
+            return _name != null && !_name.isEmpty() ? _name : null;
+        }
+
+        @Nonnull
+        public List<String> getGoFiles() {
+            return nonNull(_goFiles);
+        }
+
+        @Nonnull
+        public List<String> getCgoFiles() {
+            return nonNull(_cgoFiles);
+        }
+
+        @Nonnull
+        public List<String> getTestGoFiles() {
+            return nonNull(_testGoFiles);
+        }
+
+        @Nonnull
+        public List<String> getXTestGoFiles() {
+            return nonNull(_xTestGoFiles);
+        }
+
+        /**
+         * @return go files which are excluded by build constraints for the platform.
+         */
+        @Nonnull
+        public List<String> getIgnoredGoFiles() {
+            return nonNull(_ignoredGoFiles);
+        }
+
+        @Nonnull
+        public List<String> getImports() {
+            return nonNull(_imports);
+        }
+
+        @Nonnull
+        public List<String> getTestImports() {
+            return nonNull(_testImports);
+        }
+
+        @Nonnull
+        public List<String> getXTestImports() {
+            return nonNull(_xTestImports);
+        }
+
+        @Nonnull
+        protected static List<String> nonNull(@Nullable List<String> candidate) {
+            return candidate != null ? Collections.unmodifiableList(candidate) : Collections.<String>emptyList();
+        }
+
+    }
+
+}
@@ -0,0 +1,184 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.ensureParentOf;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.formatDuration;
+
+/**
+ * Exclusive lock of a target (like a GOROOT) which is respected by all threads of this JVM and by all other processes
+ * on this machine (for example concurrently started builds which share the same cache). The lock is represented by
+ * the hidden file <code>.&lt;name&gt;.lock</code> next to the target.
+ */
+@ThreadSafe
+public class InterProcessLock implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InterProcessLock.class);
+    private static final ConcurrentMap<Path, ReentrantLock> LOCAL_LOCKS = new ConcurrentHashMap<>();
+    private static final long POLL_INTERVAL = 250;
+
+    /**
+     * Blocks until the lock of <code>target</code> is acquired. While waiting for another process it is reported to
+     * <code>progress</code>.
+     */
+    @Nonnull
+    public static InterProcessLock acquire(@Nonnull Path target, @Nonnull String description, @Nullable ThrottledProgressLogger progress) throws IOException {
+        final Path lockFile = lockFileOf(target);
+        final ReentrantLock localLock = localLockFor(lockFile);
+        final long started = currentTimeMillis();
+        try {
+            while (!localLock.tryLock(POLL_INTERVAL, MILLISECONDS)) {
+                reportWaiting(description, started, progress);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for lock of " + target + ".");
+        }
+        if (localLock.getHoldCount() > 1) {
+            // Already hold by this thread - the file lock could not be acquired twice by the same JVM.
+            return new InterProcessLock(lockFile, localLock, null, null);
+        }
+        boolean success = false;
+        FileChannel channel = null;
+        try {
+            try {
+                ensureParentOf(lockFile);
+                channel = FileChannel.open(lockFile, CREATE, WRITE);
+            } catch (final IOException e) {
+                LOGGER.debug("Could not create lock file {}. Continue without inter process lock. Got: {}", lockFile, e.toString());
+                success = true;
+                return new InterProcessLock(lockFile, localLock, null, null);
+            }
+            FileLock fileLock = channel.tryLock();
+            while (fileLock == null) {
+                reportWaiting(description, started, progress);
+                Thread.sleep(POLL_INTERVAL);
+                fileLock = channel.tryLock();
+            }
+            if (currentTimeMillis() - started > POLL_INTERVAL) {
+                LOGGER.info("Waited {} for another process {}.", formatDuration(currentTimeMillis() - started), description);
+            }
+            success = true;
+            return new InterProcessLock(lockFile, localLock, channel, fileLock);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for lock of " + target + ".");
+        } finally {
+            if (!success) {
+                IOUtils.closeQuietly(channel);
+                localLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return <code>null</code> if the lock of <code>target</code> is currently hold by another thread or process.
+     */
+    @Nullable
+    public static InterProcessLock tryAcquire(@Nonnull Path target) throws IOException {
+        final Path lockFile = lockFileOf(target);
+        final ReentrantLock localLock = localLockFor(lockFile);
+        if (!localLock.tryLock()) {
+            return null;
+        }
+        if (localLock.getHoldCount() > 1) {
+            return new InterProcessLock(lockFile, localLock, null, null);
+        }
+        FileChannel channel = null;
+        boolean success = false;
+        try {
+            channel = FileChannel.open(lockFile, CREATE, WRITE);
+            final FileLock fileLock = channel.tryLock();
+            if (fileLock == null) {
+                return null;
+            }
+            success = true;
+            return new InterProcessLock(lockFile, localLock, channel, fileLock);
+        } finally {
+            if (!success) {
+                IOUtils.closeQuietly(channel);
+                localLock.unlock();
+            }
+        }
+    }
+
+    @Nonnull
+    public static Path lockFileOf(@Nonnull Path target) {
+        final Path normalized = target.toAbsolutePath().normalize();
+        return normalized.resolveSibling("." + normalized.getFileName() + ".lock");
+    }
+
+    @Nonnull
+    protected static ReentrantLock localLockFor(@Nonnull Path lockFile) {
+        final ReentrantLock candidate = new ReentrantLock();
+        final ReentrantLock existing = LOCAL_LOCKS.putIfAbsent(lockFile, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    protected static void reportWaiting(@Nonnull String description, long started, @Nullable ThrottledProgressLogger progress) {
+        if (progress != null) {
+            progress.progress("Waiting for another process " + description + "... (" + formatDuration(currentTimeMillis() - started) + ")");
+        }
+    }
+
+    @Nonnull
+    private final Path _lockFile;
+    @Nonnull
+    private final ReentrantLock _localLock;
+    @Nullable
+    private final FileChannel _channel;
+    @Nullable
+    private final FileLock _fileLock;
+    private boolean _released;
+
+    protected InterProcessLock(@Nonnull Path lockFile, @Nonnull ReentrantLock localLock, @Nullable FileChannel channel, @Nullable FileLock fileLock) {
+        _lockFile = lockFile;
+        _localLock = localLock;
+        _channel = channel;
+        _fileLock = fileLock;
+    }
+
+    @Nonnull
+    public Path getLockFile() {
+        return _lockFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (_released) {
+            return;
+        }
+        _released = true;
+        try {
+            if (_fileLock != null) {
+                _fileLock.release();
+            }
+        } finally {
+            try {
+                if (_channel != null) {
+                    _channel.close();
+                }
+            } finally {
+                _localLock.unlock();
+            }
+        }
+    }
+
+}
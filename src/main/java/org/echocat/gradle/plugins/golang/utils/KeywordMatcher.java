@@ -0,0 +1,125 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Finds any of several keywords in one single pass over a stream of bytes (Aho-Corasick). The keywords are matched
+ * against their UTF-8 representation, so the scanned output never has to be decoded. Every state is represented as an
+ * <code>int</code>; start with {@link #INITIAL_STATE} and feed every byte into {@link #next(int, byte)}.
+ */
+@Immutable
+public class KeywordMatcher {
+
+    public static final int INITIAL_STATE = 0;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Nullable
+    public static KeywordMatcher keywordMatcherFor(@Nullable Collection<String> keywords) {
+        if (keywords == null) {
+            return null;
+        }
+        final List<byte[]> patterns = new ArrayList<>(keywords.size());
+        for (final String keyword : keywords) {
+            if (keyword != null && !keyword.isEmpty()) {
+                patterns.add(keyword.getBytes(UTF_8));
+            }
+        }
+        return patterns.isEmpty() ? null : new KeywordMatcher(patterns);
+    }
+
+    /**
+     * Complete transition table: <code>_transitions[state][byte &amp; 0xff]</code>.
+     */
+    @Nonnull
+    private final int[][] _transitions;
+    @Nonnull
+    private final boolean[] _matches;
+
+    protected KeywordMatcher(@Nonnull List<byte[]> patterns) {
+        final List<int[]> gotos = new ArrayList<>();
+        final List<Boolean> matches = new ArrayList<>();
+        gotos.add(newState());
+        matches.add(false);
+        for (final byte[] pattern : patterns) {
+            int state = INITIAL_STATE;
+            for (final byte b : pattern) {
+                final int c = b & 0xff;
+                if (gotos.get(state)[c] < 0) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(newState());
+                    matches.add(false);
+                }
+                state = gotos.get(state)[c];
+            }
+            matches.set(state, true);
+        }
+
+        final int size = gotos.size();
+        _transitions = new int[size][];
+        _matches = new boolean[size];
+        final int[] failures = new int[size];
+        final Deque<Integer> queue = new ArrayDeque<>();
+        _transitions[INITIAL_STATE] = gotos.get(INITIAL_STATE);
+        for (int c = 0; c < 256; c++) {
+            final int target = _transitions[INITIAL_STATE][c];
+            if (target < 0) {
+                _transitions[INITIAL_STATE][c] = INITIAL_STATE;
+            } else {
+                failures[target] = INITIAL_STATE;
+                queue.add(target);
+            }
+        }
+        _matches[INITIAL_STATE] = matches.get(INITIAL_STATE);
+        // Breadth first: The failure state of every state is always processed before the state itself.
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            final int[] transitions = gotos.get(state);
+            _matches[state] = matches.get(state) || _matches[failures[state]];
+            for (int c = 0; c < 256; c++) {
+                final int target = transitions[c];
+                if (target < 0) {
+                    transitions[c] = _transitions[failures[state]][c];
+                } else {
+                    failures[target] = _transitions[failures[state]][c];
+                    queue.add(target);
+                }
+            }
+            _transitions[state] = transitions;
+        }
+    }
+
+    public int next(int state, byte b) {
+        return _transitions[state][b & 0xff];
+    }
+
+    /**
+     * @return <code>true</code> if at least one keyword ends at the given state.
+     */
+    public boolean matches(int state) {
+        return _matches[state];
+    }
+
+    public boolean containsAnyIn(@Nonnull String text) {
+        int state = INITIAL_STATE;
+        for (final byte b : text.getBytes(UTF_8)) {
+            state = next(state, b);
+            if (matches(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nonnull
+    protected static int[] newState() {
+        final int[] result = new int[256];
+        Arrays.fill(result, -1);
+        return result;
+    }
+
+}
@@ -0,0 +1,201 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.echocat.gradle.plugins.golang.utils.KeywordMatcher.INITIAL_STATE;
+
+/**
+ * Passes the output of a process through to <code>delegate</code> (if any) and scans it on the fly: Fail keywords are
+ * searched in every line, the last bytes are retained in a ring buffer to report failures and every complete line is
+ * passed to the {@link LineListener}s. Lines are only decoded if there are listeners.
+ */
+@ThreadSafe
+public class OutputScanner extends OutputStream {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Longer lines are truncated before they are passed to listeners.
+     */
+    protected static final int MAX_LINE_LENGTH = 16 * 1024;
+    /**
+     * Maximum number of bytes retained for {@link #getTail()}.
+     */
+    protected static final int MAX_TAIL_SIZE = 64 * 1024;
+
+    @Nullable
+    private final OutputStream _delegate;
+    @Nullable
+    private final KeywordMatcher _matcher;
+    @Nonnegative
+    private final int _tailLines;
+    @Nonnull
+    private final List<LineListener> _listeners;
+    @Nullable
+    private final ByteArrayOutputStream _line;
+    @Nullable
+    private final byte[] _tail;
+
+    private long _bytes;
+    private long _written;
+    private int _state = INITIAL_STATE;
+    private boolean _matched;
+
+    public OutputScanner(@Nullable OutputStream delegate, @Nullable KeywordMatcher matcher, @Nonnegative int tailLines, @Nullable Collection<LineListener> listeners) {
+        _delegate = delegate;
+        _matcher = matcher;
+        _tailLines = tailLines;
+        _listeners = listeners != null ? new ArrayList<>(listeners) : new ArrayList<LineListener>();
+        _line = !_listeners.isEmpty() ? new ByteArrayOutputStream() : null;
+        _tail = tailLines > 0 ? new byte[MAX_TAIL_SIZE] : null;
+    }
+
+    @Override
+    public synchronized void write(@Nonnull byte[] bytes, int off, int len) throws IOException {
+        if (_delegate != null) {
+            _delegate.write(bytes, off, len);
+        }
+        _bytes += len;
+        retain(bytes, off, len);
+        if (_matcher == null && _line == null) {
+            return;
+        }
+        int lineStart = off;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == '\n') {
+                appendToLine(bytes, lineStart, i - lineStart);
+                lineCompleted();
+                lineStart = i + 1;
+                _state = INITIAL_STATE;
+            } else if (_matcher != null && !_matched) {
+                _state = _matcher.next(_state, b);
+                if (_matcher.matches(_state)) {
+                    _matched = true;
+                }
+            }
+        }
+        appendToLine(bytes, lineStart, end - lineStart);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (_delegate != null) {
+            _delegate.flush();
+        }
+    }
+
+    /**
+     * Completes the last line if the output does not end with a line break. The delegate is not closed.
+     */
+    public synchronized void finish() {
+        if (_line != null && _line.size() > 0) {
+            lineCompleted();
+        }
+        _state = INITIAL_STATE;
+    }
+
+    /**
+     * @return <code>true</code> if at least one of the fail keywords was found.
+     */
+    public synchronized boolean hasMatched() {
+        return _matched;
+    }
+
+    /**
+     * @return number of all bytes written so far.
+     */
+    @Nonnegative
+    public synchronized long getBytes() {
+        return _bytes;
+    }
+
+    /**
+     * @return the last lines of the output; oldest first.
+     */
+    @Nonnull
+    public synchronized List<String> getTail() {
+        final List<String> result = new ArrayList<>();
+        if (_tail == null || _written == 0) {
+            return result;
+        }
+        final int size = (int) Math.min(_written, _tail.length);
+        final int start = (int) ((_written - size) % _tail.length);
+        final byte[] bytes = new byte[size];
+        final int firstPart = Math.min(size, _tail.length - start);
+        System.arraycopy(_tail, start, bytes, 0, firstPart);
+        System.arraycopy(_tail, 0, bytes, firstPart, size - firstPart);
+        final String[] lines = new String(bytes, UTF_8).split("\\r?\\n", -1);
+        // The first line could be incomplete if the ring buffer was overrun; an empty last one is no line at all.
+        final int from = size < _written ? 1 : 0;
+        final int to = lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+        for (int i = Math.max(from, to - _tailLines); i < to; i++) {
+            result.add(lines[i]);
+        }
+        return result;
+    }
+
+    protected void retain(@Nonnull byte[] bytes, int off, int len) {
+        if (_tail == null) {
+            return;
+        }
+        int offset = off;
+        int remaining = len;
+        if (remaining > _tail.length) {
+            offset += remaining - _tail.length;
+            _written += remaining - _tail.length;
+            remaining = _tail.length;
+        }
+        while (remaining > 0) {
+            final int position = (int) (_written % _tail.length);
+            final int chunk = Math.min(remaining, _tail.length - position);
+            System.arraycopy(bytes, offset, _tail, position, chunk);
+            offset += chunk;
+            remaining -= chunk;
+            _written += chunk;
+        }
+    }
+
+    protected void appendToLine(@Nonnull byte[] bytes, int off, int len) {
+        if (_line != null && len > 0) {
+            _line.write(bytes, off, Math.min(len, MAX_LINE_LENGTH - _line.size()));
+        }
+    }
+
+    protected void lineCompleted() {
+        if (_line == null) {
+            return;
+        }
+        String line = new String(_line.toByteArray(), UTF_8);
+        _line.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        for (final LineListener listener : _listeners) {
+            listener.onLine(line);
+        }
+    }
+
+    public interface LineListener {
+
+        public void onLine(@Nonnull String line);
+
+    }
+
+}
@@ -1,42 +1,78 @@
 package org.echocat.gradle.plugins.golang.utils;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Pumps the output of a process into the given streams. The pumping threads are taken from a pool which is shared by
+ * all processes and every one of them reuses its own buffer - short running processes do not pay for creating threads.
+ * If stderr of the process is redirected into stdout (see {@link ProcessBuilder#redirectErrorStream(boolean)}) or
+ * <code>stderr</code> is <code>null</code> only stdout is pumped.
+ */
 public class ProcessOutput implements Closeable {
 
     private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final ExecutorService PUMPS = newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger _number = new AtomicInteger();
 
-    private final Thread _stdoutThread;
-    private final Thread _stderrThread;
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-process-output-" + _number.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        }
+    });
 
-    public ProcessOutput(Process process, OutputStream stdout, OutputStream stderr) {
-        _stdoutThread = new Thread(new Copier(process.getInputStream(), stdout), "stdout");
-        _stderrThread = new Thread(new Copier(process.getErrorStream(), stderr), "stderr");
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
 
-        _stdoutThread.setDaemon(true);
-        _stderrThread.setDaemon(true);
+    @Nonnull
+    private final Future<?> _stdout;
+    @Nullable
+    private final Future<?> _stderr;
 
-        _stdoutThread.start();
-        _stderrThread.start();
+    public ProcessOutput(@Nonnull Process process, @Nonnull OutputStream stdout, @Nullable OutputStream stderr) {
+        _stdout = PUMPS.submit(new Copier(process.getInputStream(), stdout));
+        _stderr = stderr != null ? PUMPS.submit(new Copier(process.getErrorStream(), stderr)) : null;
     }
 
     public void waitFor() throws InterruptedException {
-        _stdoutThread.join();
-        _stderrThread.join();
+        waitFor(_stdout);
+        waitFor(_stderr);
+    }
+
+    protected static void waitFor(@Nullable Future<?> pump) throws InterruptedException {
+        if (pump != null) {
+            try {
+                pump.get();
+            } catch (final ExecutionException ignored) {
+                // Copier swallows all IOExceptions - and there is nothing more to wait for.
+            }
+        }
     }
 
     @Override
     public void close() throws IOException {
-        _stdoutThread.interrupt();
-        _stderrThread.interrupt();
-        try {
-            _stdoutThread.join();
-            _stderrThread.join();
-        } catch (final InterruptedException ignored) {
-            Thread.currentThread().interrupt();
+        _stdout.cancel(true);
+        if (_stderr != null) {
+            _stderr.cancel(true);
         }
     }
 
@@ -52,10 +88,10 @@ public class ProcessOutput implements Closeable {
 
         @Override
         public void run() {
-            try {
-                final byte[] buffer = new byte[4096];
+            final byte[] buffer = BUFFERS.get();
+            try (final InputStream from = _from) {
                 int n;
-                while (!Thread.currentThread().isInterrupted() && EOF != (n = _from.read(buffer))) {
+                while (!Thread.currentThread().isInterrupted() && EOF != (n = from.read(buffer))) {
                     _to.write(buffer, 0, n);
                 }
             } catch (final IOException ignored) {}
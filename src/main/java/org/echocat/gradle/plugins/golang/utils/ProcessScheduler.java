@@ -0,0 +1,146 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Limits the number of child processes which are running at the same time across all tasks of a build - independent
+ * if they are executed blocking ({@link Executor#execute()}) or asynchronous ({@link Executor#executeAsync()}).
+ * Asynchronous executions are waiting for a free slot in a background thread.
+ */
+@ThreadSafe
+public class ProcessScheduler {
+
+    public static final int DEFAULT_MAX_CONCURRENT_PROCESSES = Runtime.getRuntime().availableProcessors();
+
+    private static final ProcessScheduler INSTANCE = new ProcessScheduler();
+
+    @Nonnull
+    public static ProcessScheduler processScheduler() {
+        return INSTANCE;
+    }
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _released = _lock.newCondition();
+    private final ThreadLocal<Integer> _holdByCurrentThread = new ThreadLocal<>();
+    private final ExecutorService _executor = newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger _number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-process-" + _number.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        }
+    });
+
+    private int _maxConcurrentProcesses = DEFAULT_MAX_CONCURRENT_PROCESSES;
+    private int _running;
+
+    protected ProcessScheduler() {}
+
+    public int getMaxConcurrentProcesses() {
+        _lock.lock();
+        try {
+            return _maxConcurrentProcesses;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void setMaxConcurrentProcesses(@Nonnegative int maxConcurrentProcesses) {
+        if (maxConcurrentProcesses < 1) {
+            throw new IllegalArgumentException("maxConcurrentProcesses should be at least 1 but is " + maxConcurrentProcesses + ".");
+        }
+        _lock.lock();
+        try {
+            _maxConcurrentProcesses = maxConcurrentProcesses;
+            _released.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public int getRunning() {
+        _lock.lock();
+        try {
+            return _running;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until another process could be started. A thread which already holds a slot (for example while it waits
+     * for a child process which needs another one) always gets a further one, otherwise it could block itself.
+     */
+    @Nonnull
+    public Slot acquire() throws InterruptedIOException {
+        final Integer hold = _holdByCurrentThread.get();
+        _lock.lock();
+        try {
+            if (hold == null) {
+                while (_running >= _maxConcurrentProcesses) {
+                    _released.await();
+                }
+            }
+            _running++;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free process slot.");
+        } finally {
+            _lock.unlock();
+        }
+        _holdByCurrentThread.set(hold != null ? hold + 1 : 1);
+        return new Slot();
+    }
+
+    protected void release() {
+        final Integer hold = _holdByCurrentThread.get();
+        if (hold == null || hold <= 1) {
+            _holdByCurrentThread.remove();
+        } else {
+            _holdByCurrentThread.set(hold - 1);
+        }
+        _lock.lock();
+        try {
+            _running--;
+            _released.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Runs <code>execution</code> in a background thread.
+     */
+    @Nonnull
+    public Execution submit(@Nonnull Execution execution) {
+        _executor.execute(execution);
+        return execution;
+    }
+
+    public class Slot implements AutoCloseable {
+
+        private boolean _released;
+
+        @Override
+        public void close() {
+            if (!_released) {
+                _released = true;
+                release();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,303 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import com.google.gson.stream.JsonWriter;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.ensureParentOf;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.formatDuration;
+
+/**
+ * Records every executed child process (if enabled) and exports them as
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome trace</a> which
+ * could be opened with <code>chrome://tracing</code> or <a href="https://ui.perfetto.dev">Perfetto</a>. Every group
+ * (normally the path of the Gradle task which executed the process) is shown as own process of the trace.
+ */
+@ThreadSafe
+public class ProcessTracer {
+
+    private static final ProcessTracer INSTANCE = new ProcessTracer();
+    private static final String NO_GROUP = "<none>";
+
+    @Nonnull
+    public static ProcessTracer processTracer() {
+        return INSTANCE;
+    }
+
+    private final Queue<Record> _records = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<String> _group = new ThreadLocal<>();
+
+    private volatile boolean _enabled;
+    private volatile long _startedNanos = System.nanoTime();
+
+    protected ProcessTracer() {}
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Enables (and resets) the recording.
+     */
+    public void enable() {
+        _records.clear();
+        _startedNanos = System.nanoTime();
+        _enabled = true;
+    }
+
+    public void disable() {
+        _enabled = false;
+        _records.clear();
+    }
+
+    /**
+     * All processes executed by the current thread until the returned group is closed belong to <code>name</code>.
+     */
+    @Nonnull
+    public Group enterGroup(@Nonnull String name) {
+        final Group result = new Group(_group.get());
+        _group.set(name);
+        return result;
+    }
+
+    @Nullable
+    public String currentGroup() {
+        return _group.get();
+    }
+
+    public void record(@Nullable String group, @Nonnull String[] commandLine, @Nullable Path workingDirectory, long startedNanos, long endedNanos, @Nullable Integer exitCode, @Nonnegative long stdoutBytes, @Nonnegative long stderrBytes) {
+        if (_enabled) {
+            _records.add(new Record(group != null ? group : NO_GROUP, commandLine, workingDirectory, startedNanos, endedNanos, exitCode, stdoutBytes, stderrBytes, Thread.currentThread().getId()));
+        }
+    }
+
+    @Nonnull
+    public List<Record> getRecords() {
+        return new ArrayList<>(_records);
+    }
+
+    /**
+     * Writes all records to <code>file</code>.
+     */
+    public void exportTo(@Nonnull Path file) throws IOException {
+        final List<Record> records = getRecords();
+        final Map<String, Integer> pids = new LinkedHashMap<>();
+        for (final Record record : records) {
+            if (!pids.containsKey(record.getGroup())) {
+                pids.put(record.getGroup(), pids.size() + 1);
+            }
+        }
+        ensureParentOf(file);
+        final Path temp = file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (final Writer writer = new OutputStreamWriter(newOutputStream(temp), "UTF-8")) {
+                final JsonWriter json = new JsonWriter(writer);
+                json.beginObject();
+                json.name("displayTimeUnit").value("ms");
+                json.name("traceEvents").beginArray();
+                for (final Map.Entry<String, Integer> pid : pids.entrySet()) {
+                    json.beginObject();
+                    json.name("name").value("process_name");
+                    json.name("ph").value("M");
+                    json.name("pid").value(pid.getValue());
+                    json.name("args").beginObject().name("name").value(pid.getKey()).endObject();
+                    json.endObject();
+                }
+                for (final Record record : records) {
+                    json.beginObject();
+                    json.name("name").value(record.getName());
+                    json.name("cat").value("process");
+                    json.name("ph").value("X");
+                    json.name("ts").value(NANOSECONDS.toMicros(record.getStartedNanos() - _startedNanos));
+                    json.name("dur").value(NANOSECONDS.toMicros(record.getDurationNanos()));
+                    json.name("pid").value(pids.get(record.getGroup()));
+                    json.name("tid").value(record.getThreadId());
+                    json.name("args").beginObject();
+                    json.name("commandLine").value(record.getCommandLine());
+                    json.name("workingDirectory").value(record.getWorkingDirectory() != null ? record.getWorkingDirectory().toString() : null);
+                    json.name("exitCode").value(record.getExitCode());
+                    json.name("stdoutBytes").value(record.getStdoutBytes());
+                    json.name("stderrBytes").value(record.getStderrBytes());
+                    json.endObject();
+                    json.endObject();
+                }
+                json.endArray();
+                json.endObject();
+                json.flush();
+            }
+            move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * @return the <code>limit</code> slowest processes; slowest first.
+     */
+    @Nonnull
+    public List<Record> slowest(@Nonnegative int limit) {
+        final List<Record> records = getRecords();
+        Collections.sort(records, new Comparator<Record>() {
+            @Override
+            public int compare(Record o1, Record o2) {
+                return Long.compare(o2.getDurationNanos(), o1.getDurationNanos());
+            }
+        });
+        return records.subList(0, Math.min(limit, records.size()));
+    }
+
+    @Nonnull
+    public String summaryOf(@Nonnegative int limit) {
+        final List<Record> records = getRecords();
+        long total = 0;
+        for (final Record record : records) {
+            total += record.getDurationNanos();
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append(records.size()).append(" processes executed in ").append(formatDuration(NANOSECONDS.toMillis(total))).append(" (sum). Slowest:");
+        for (final Record record : slowest(limit)) {
+            sb.append(String.format("%n  %10s  %-6s  %-30s  %s",
+                formatDuration(NANOSECONDS.toMillis(record.getDurationNanos())),
+                record.getExitCode() != null ? record.getExitCode().toString() : "-",
+                record.getGroup(),
+                abbreviated(record.getCommandLine(), 120)
+            ));
+        }
+        return sb.toString();
+    }
+
+    @Nonnull
+    protected static String abbreviated(@Nonnull String text, @Nonnegative int maximumLength) {
+        return text.length() <= maximumLength ? text : text.substring(0, maximumLength - 3) + "...";
+    }
+
+    public class Group implements AutoCloseable {
+
+        @Nullable
+        private final String _previous;
+
+        protected Group(@Nullable String previous) {
+            _previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (_previous != null) {
+                _group.set(_previous);
+            } else {
+                _group.remove();
+            }
+        }
+
+    }
+
+    @Immutable
+    public static class Record {
+
+        @Nonnull
+        private final String _group;
+        @Nonnull
+        private final String[] _commandLine;
+        @Nullable
+        private final Path _workingDirectory;
+        private final long _startedNanos;
+        private final long _endedNanos;
+        @Nullable
+        private final Integer _exitCode;
+        private final long _stdoutBytes;
+        private final long _stderrBytes;
+        private final long _threadId;
+
+        public Record(@Nonnull String group, @Nonnull String[] commandLine, @Nullable Path workingDirectory, long startedNanos, long endedNanos, @Nullable Integer exitCode, long stdoutBytes, long stderrBytes, long threadId) {
+            _group = group;
+            _commandLine = commandLine.clone();
+            _workingDirectory = workingDirectory;
+            _startedNanos = startedNanos;
+            _endedNanos = endedNanos;
+            _exitCode = exitCode;
+            _stdoutBytes = stdoutBytes;
+            _stderrBytes = stderrBytes;
+            _threadId = threadId;
+        }
+
+        @Nonnull
+        public String getGroup() {
+            return _group;
+        }
+
+        /**
+         * @return file name of the executable and the first argument, like <code>go build</code>.
+         */
+        @Nonnull
+        public String getName() {
+            final String executable = _commandLine[0];
+            final int slash = Math.max(executable.lastIndexOf('/'), executable.lastIndexOf('\\'));
+            final String result = executable.substring(slash + 1);
+            return _commandLine.length > 1 ? result + " " + _commandLine[1] : result;
+        }
+
+        @Nonnull
+        public String getCommandLine() {
+            final StringBuilder sb = new StringBuilder();
+            for (final String argument : _commandLine) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(argument);
+            }
+            return sb.toString();
+        }
+
+        @Nullable
+        public Path getWorkingDirectory() {
+            return _workingDirectory;
+        }
+
+        public long getStartedNanos() {
+            return _startedNanos;
+        }
+
+        public long getDurationNanos() {
+            return _endedNanos - _startedNanos;
+        }
+
+        @Nullable
+        public Integer getExitCode() {
+            return _exitCode;
+        }
+
+        public long getStdoutBytes() {
+            return _stdoutBytes;
+        }
+
+        public long getStderrBytes() {
+            return _stderrBytes;
+        }
+
+        public long getThreadId() {
+            return _threadId;
+        }
+
+        @Override
+        public String toString() {
+            return getCommandLine() + " (" + formatDuration(NANOSECONDS.toMillis(getDurationNanos())) + ")";
+        }
+
+    }
+
+}
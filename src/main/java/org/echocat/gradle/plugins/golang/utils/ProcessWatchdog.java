@@ -0,0 +1,274 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.formatDuration;
+
+/**
+ * Kills a process which is still running after its timeout. Before that every process of its tree receives
+ * {@value #STACK_DUMP_SIGNAL} (not on Windows): Go programs print the stacks of all their goroutines to stderr and exit,
+ * so the output tells where it hung. Afterwards the whole process tree is killed - children which survive their parent
+ * would otherwise keep running and keep the output of the process open.
+ * <p>
+ * SIGQUIT (which is used by <code>go test</code> itself) does not work here: The JVM blocks it in all of its threads for
+ * its own thread dumps and every spawned process inherits this signal mask. The go runtime handles SIGABRT the same way.
+ */
+@ThreadSafe
+public class ProcessWatchdog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessWatchdog.class);
+
+    public static final String STACK_DUMP_SIGNAL = "ABRT";
+
+    /**
+     * Time the processes get to dump their stacks after {@value #STACK_DUMP_SIGNAL} before they are killed.
+     */
+    public static final long STACK_DUMP_GRACE_PERIOD = SECONDS.toMillis(5);
+
+    private static final ScheduledExecutorService TIMER = newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-process-watchdog");
+            result.setDaemon(true);
+            return result;
+        }
+    });
+
+    @Nonnull
+    public static ProcessWatchdog watch(@Nonnull Process process, @Nonnull String description, @Nonnegative long timeout) {
+        final ProcessWatchdog result = new ProcessWatchdog(process, description, timeout);
+        result._future = TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                result.expired();
+            }
+        }, timeout, MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Kills the process and all its descendants immediately - without dumping their stacks first. Used for processes
+     * which are still running while their execution gets cancelled.
+     */
+    public static void killTreeOf(@Nonnull Process process, @Nonnull String description) {
+        if (!isAlive(process)) {
+            return;
+        }
+        // Usually called by an interrupted thread - the interruption would prevent waiting for ps and kill.
+        final boolean interrupted = Thread.interrupted();
+        final Long pid = pidOf(process);
+        try {
+            if (pid != null && currentOperatingSystem() != WINDOWS) {
+                signal("KILL", treeOf(pid));
+            } else if (pid != null) {
+                run("taskkill", "/F", "/T", "/PID", pid.toString());
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not kill the process tree of {}. Only the process itself will be killed.", description, e);
+        } catch (final InterruptedException ignored) {
+            currentThread().interrupt();
+        } finally {
+            process.destroy();
+            if (interrupted) {
+                currentThread().interrupt();
+            }
+        }
+    }
+
+    @Nonnull
+    private final Process _process;
+    @Nonnull
+    private final String _description;
+    @Nonnegative
+    private final long _timeout;
+    private final AtomicBoolean _expired = new AtomicBoolean();
+
+    @Nullable
+    private volatile ScheduledFuture<?> _future;
+
+    protected ProcessWatchdog(@Nonnull Process process, @Nonnull String description, @Nonnegative long timeout) {
+        _process = process;
+        _description = description;
+        _timeout = timeout;
+    }
+
+    /**
+     * @return <code>true</code> if the process was killed because it exceeded its timeout.
+     */
+    public boolean hasExpired() {
+        return _expired.get();
+    }
+
+    @Nonnegative
+    public long getTimeout() {
+        return _timeout;
+    }
+
+    /**
+     * Stops watching. A process which already expired is killed anyway.
+     */
+    public void cancel() {
+        final ScheduledFuture<?> future = _future;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    protected void expired() {
+        if (!isAlive(_process) || !_expired.compareAndSet(false, true)) {
+            return;
+        }
+        LOGGER.warn("{} did not terminate within {}. Going to dump its stacks and kill it...", _description, formatDuration(_timeout));
+        final Long pid = pidOf(_process);
+        final Set<Long> tree = new LinkedHashSet<>();
+        try {
+            if (pid != null && currentOperatingSystem() != WINDOWS) {
+                tree.addAll(treeOf(pid));
+                signal(STACK_DUMP_SIGNAL, tree);
+                waitFor(_process, STACK_DUMP_GRACE_PERIOD);
+                if (isAlive(_process)) {
+                    tree.addAll(treeOf(pid));
+                } else {
+                    // Already reaped - the pid could be reused at any time.
+                    tree.remove(pid);
+                }
+                signal("KILL", tree);
+            } else if (pid != null) {
+                run("taskkill", "/F", "/T", "/PID", pid.toString());
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Could not dump stacks of or kill the process tree of {}. Only the process itself will be killed.", _description, e);
+        } catch (final InterruptedException ignored) {
+            currentThread().interrupt();
+        } finally {
+            _process.destroy();
+        }
+    }
+
+    /**
+     * @return the process and all its descendants; parents before their children.
+     */
+    @Nonnull
+    protected static List<Long> treeOf(long pid) throws IOException, InterruptedException {
+        final Map<Long, List<Long>> childrenByParent = new HashMap<>();
+        for (final String line : run("ps", "-A", "-o", "pid=", "-o", "ppid=").split("\n")) {
+            final String[] parts = line.trim().split("\\s+");
+            if (parts.length == 2) {
+                try {
+                    final Long parent = Long.valueOf(parts[1]);
+                    List<Long> children = childrenByParent.get(parent);
+                    if (children == null) {
+                        children = new ArrayList<>();
+                        childrenByParent.put(parent, children);
+                    }
+                    children.add(Long.valueOf(parts[0]));
+                } catch (final NumberFormatException ignored) {}
+            }
+        }
+        final List<Long> result = new ArrayList<>();
+        result.add(pid);
+        for (int i = 0; i < result.size(); i++) {
+            final List<Long> children = childrenByParent.get(result.get(i));
+            if (children != null) {
+                for (final Long child : children) {
+                    if (!result.contains(child)) {
+                        result.add(child);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    protected static void signal(@Nonnull String signal, @Nonnull Collection<Long> pids) throws IOException, InterruptedException {
+        if (pids.isEmpty()) {
+            return;
+        }
+        final List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-" + signal);
+        for (final Long pid : pids) {
+            command.add(pid.toString());
+        }
+        // Some of them could be already gone - not a problem.
+        run(command.toArray(new String[command.size()]));
+    }
+
+    /**
+     * Executes a small system command directly; it must neither wait for a slot of the {@link ProcessScheduler} nor be
+     * traced.
+     */
+    @Nonnull
+    protected static String run(@Nonnull String... command) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (final InputStream is = process.getInputStream()) {
+            final String result = org.apache.commons.io.IOUtils.toString(is, "UTF-8");
+            process.waitFor();
+            return result;
+        } finally {
+            process.destroy();
+        }
+    }
+
+    protected static void waitFor(@Nonnull Process process, @Nonnegative long timeout) throws InterruptedException {
+        final long until = System.currentTimeMillis() + timeout;
+        while (isAlive(process) && System.currentTimeMillis() < until) {
+            Thread.sleep(50);
+        }
+    }
+
+    protected static boolean isAlive(@Nonnull Process process) {
+        try {
+            process.exitValue();
+            return false;
+        } catch (final IllegalThreadStateException ignored) {
+            return true;
+        }
+    }
+
+    /**
+     * @return <code>null</code> if the pid could not be determined (Windows before Java 9).
+     */
+    @Nullable
+    protected static Long pidOf(@Nonnull Process process) {
+        try {
+            final Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (final NoSuchMethodException ignored) {
+            // Before Java 9
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Could not determine pid of {}.", process, e);
+            return null;
+        }
+        try {
+            final Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return ((Number) field.get(process)).longValue();
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Could not determine pid of {}.", process, e);
+            return null;
+        }
+    }
+
+}
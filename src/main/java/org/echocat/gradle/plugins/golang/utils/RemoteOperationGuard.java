@@ -0,0 +1,353 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import okhttp3.OkHttpClient;
+import org.eclipse.jgit.errors.NoRemoteRepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Guards all remote operations (ls-remote, clones, fetches and downloads) of the plugin. Transient failures of
+ * idempotent operations are retried with jittered exponential backoff and every host has its own circuit breaker: After
+ * {@link #getCircuitBreakerThreshold()} consecutive failures all further operations on this host fail instantly for
+ * {@link #getCircuitBreakerOpenDuration()} instead of running into the same network timeout again and again.
+ */
+@ThreadSafe
+public class RemoteOperationGuard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteOperationGuard.class);
+    private static final RemoteOperationGuard INSTANCE = new RemoteOperationGuard();
+
+    public static final long DEFAULT_TIMEOUT = MINUTES.toMillis(1);
+    public static final int DEFAULT_RETRIES = 3;
+    public static final long DEFAULT_RETRY_BACKOFF = SECONDS.toMillis(1);
+    public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = MINUTES.toMillis(1);
+
+    @Nonnull
+    public static RemoteOperationGuard remoteOperationGuard() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, Host> _hosts = new ConcurrentHashMap<>();
+    private final Random _random = new Random();
+    private final AtomicLong _operations = new AtomicLong();
+    private final AtomicLong _retries = new AtomicLong();
+    private final AtomicLong _failures = new AtomicLong();
+    private final AtomicLong _shortCircuited = new AtomicLong();
+
+    private volatile long _timeout = DEFAULT_TIMEOUT;
+    private volatile int _retriesPerOperation = DEFAULT_RETRIES;
+    private volatile long _retryBackoff = DEFAULT_RETRY_BACKOFF;
+    private volatile int _circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+    private volatile long _circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+    @Nullable
+    private volatile OkHttpClient _httpClient;
+
+    protected RemoteOperationGuard() {}
+
+    /**
+     * @return Connect and read timeout of every single attempt in milliseconds.
+     */
+    public long getTimeout() {
+        return _timeout;
+    }
+
+    public void setTimeout(@Nonnegative long timeout) {
+        if (_timeout != timeout) {
+            _timeout = timeout;
+            _httpClient = null;
+        }
+    }
+
+    public int getRetries() {
+        return _retriesPerOperation;
+    }
+
+    public void setRetries(@Nonnegative int retries) {
+        _retriesPerOperation = retries;
+    }
+
+    /**
+     * @return Backoff before the first retry in milliseconds. It is doubled with every further retry and randomized by
+     * up to 50% to not let all waiting builds hit the host at the same moment again.
+     */
+    public long getRetryBackoff() {
+        return _retryBackoff;
+    }
+
+    public void setRetryBackoff(@Nonnegative long retryBackoff) {
+        _retryBackoff = retryBackoff;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return _circuitBreakerThreshold;
+    }
+
+    /**
+     * @param circuitBreakerThreshold <code>0</code> disables the circuit breaker.
+     */
+    public void setCircuitBreakerThreshold(@Nonnegative int circuitBreakerThreshold) {
+        _circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return _circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(@Nonnegative long circuitBreakerOpenDuration) {
+        _circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    /**
+     * @return Timeout of every single attempt in seconds like required by JGit and the git CLI.
+     */
+    public int getTimeoutInSeconds() {
+        return (int) Math.max(1, (_timeout + 999) / 1000);
+    }
+
+    /**
+     * @return a client which uses {@link #getTimeout()} as connect and read timeout.
+     */
+    @Nonnull
+    public OkHttpClient getHttpClient() {
+        OkHttpClient result = _httpClient;
+        if (result == null) {
+            result = new OkHttpClient.Builder()
+                .connectTimeout(_timeout, MILLISECONDS)
+                .readTimeout(_timeout, MILLISECONDS)
+                .build();
+            _httpClient = result;
+        }
+        return result;
+    }
+
+    /**
+     * Executes the given operation. If it fails with a transient failure it is retried, as long as
+     * <code>idempotent</code> is <code>true</code>.
+     *
+     * @throws HostUnavailableException if the circuit breaker of the host of <code>target</code> is open.
+     */
+    public <T, E extends Exception> T execute(@Nonnull URI target, @Nonnull String description, boolean idempotent, @Nonnull Operation<T, E> operation) throws E, IOException {
+        final String hostName = hostOf(target);
+        final Host host = hostFor(hostName);
+        _operations.incrementAndGet();
+        int attempt = 0;
+        while (true) {
+            host.checkAvailable(hostName);
+            try {
+                final T result = operation.execute();
+                host.recordSuccess();
+                return result;
+            } catch (final Exception e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                _failures.incrementAndGet();
+                host.recordFailure(hostName);
+                if (!idempotent || attempt >= _retriesPerOperation || host.isOpen()) {
+                    throw e;
+                }
+                attempt++;
+                final long backoff = backoffFor(attempt);
+                _retries.incrementAndGet();
+                host._retries.incrementAndGet();
+                LOGGER.warn("{} failed ({}). Retry {}/{} in {}ms...", description, e.toString(), attempt, _retriesPerOperation, backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (final InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    protected long backoffFor(@Nonnegative int attempt) {
+        final long base = _retryBackoff << Math.min(attempt - 1, 16);
+        final double jitter;
+        synchronized (_random) {
+            jitter = 0.5d + _random.nextDouble();
+        }
+        return (long) (base * jitter);
+    }
+
+    /**
+     * Only failures of the network or of the remote side are worth a retry. A missing repository, a missing file or an
+     * unknown host will not change within the next seconds.
+     */
+    protected boolean isTransient(@Nonnull Throwable throwable) {
+        Throwable current = throwable;
+        boolean result = false;
+        while (current != null) {
+            if (current instanceof HostUnavailableException
+                || current instanceof PermanentRemoteFailureException
+                || current instanceof NoRemoteRepositoryException
+                || current instanceof FileNotFoundException
+                || current instanceof UnknownHostException
+                || (current instanceof InterruptedIOException && Thread.currentThread().isInterrupted())) {
+                return false;
+            }
+            if (current instanceof IOException) {
+                result = true;
+            }
+            current = current.getCause() != current ? current.getCause() : null;
+        }
+        return result;
+    }
+
+    @Nonnull
+    protected Host hostFor(@Nonnull String hostName) {
+        final Host candidate = new Host();
+        final Host existing = _hosts.putIfAbsent(hostName, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    @Nonnull
+    protected static String hostOf(@Nonnull URI target) {
+        final String host = target.getHost();
+        if (host != null) {
+            return target.getPort() >= 0 ? host + ":" + target.getPort() : host;
+        }
+        // Like git@github.com:foo/bar.git
+        final String plain = target.getSchemeSpecificPart();
+        if (plain != null) {
+            final int at = plain.indexOf('@');
+            final int colon = plain.indexOf(':', at + 1);
+            if (colon > at + 1) {
+                return plain.substring(at + 1, colon);
+            }
+        }
+        return target.getScheme() != null ? target.getScheme() : "local";
+    }
+
+    public long getNumberOfOperations() {
+        return _operations.get();
+    }
+
+    public long getNumberOfRetries() {
+        return _retries.get();
+    }
+
+    public long getNumberOfFailures() {
+        return _failures.get();
+    }
+
+    public long getNumberOfShortCircuitedOperations() {
+        return _shortCircuited.get();
+    }
+
+    @Nonnull
+    public String describeStatistics() {
+        final StringBuilder sb = new StringBuilder()
+            .append(_operations.get()).append(" remote operations, ")
+            .append(_failures.get()).append(" transient failures, ")
+            .append(_retries.get()).append(" retries, ")
+            .append(_shortCircuited.get()).append(" short circuited.");
+        for (final Entry<String, Host> entry : _hosts.entrySet()) {
+            final Host host = entry.getValue();
+            if (host._retries.get() > 0 || host._shortCircuited.get() > 0) {
+                sb.append("\n\t* ").append(entry.getKey()).append(": ")
+                    .append(host._retries.get()).append(" retries, ")
+                    .append(host._shortCircuited.get()).append(" short circuited");
+            }
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        _hosts.clear();
+        _operations.set(0);
+        _retries.set(0);
+        _failures.set(0);
+        _shortCircuited.set(0);
+    }
+
+    public static interface Operation<T, E extends Exception> {
+
+        @Nullable
+        public T execute() throws E, IOException;
+
+    }
+
+    public static class HostUnavailableException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public HostUnavailableException(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * Failure of a remote operation which will not disappear with a retry - like a missing repository or missing
+     * credentials. It is neither retried nor counted by the circuit breaker of the host.
+     */
+    public static class PermanentRemoteFailureException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public PermanentRemoteFailureException(String message) {
+            super(message);
+        }
+
+    }
+
+    protected class Host {
+
+        private final AtomicLong _retries = new AtomicLong();
+        private final AtomicLong _shortCircuited = new AtomicLong();
+        private int _consecutiveFailures;
+        private long _openUntil;
+
+        protected synchronized void checkAvailable(@Nonnull String hostName) throws HostUnavailableException {
+            if (_openUntil > currentTimeMillis()) {
+                _shortCircuited.incrementAndGet();
+                RemoteOperationGuard.this._shortCircuited.incrementAndGet();
+                throw new HostUnavailableException("Host " + hostName + " failed " + _consecutiveFailures
+                    + " times in a row and will not be contacted again before " + new Date(_openUntil) + ".");
+            }
+        }
+
+        protected synchronized boolean isOpen() {
+            return _openUntil > currentTimeMillis();
+        }
+
+        protected synchronized void recordSuccess() {
+            _consecutiveFailures = 0;
+            _openUntil = 0;
+        }
+
+        protected synchronized void recordFailure(@Nonnull String hostName) {
+            _consecutiveFailures++;
+            final int threshold = _circuitBreakerThreshold;
+            if (threshold > 0 && _consecutiveFailures >= threshold && _openUntil <= currentTimeMillis()) {
+                _openUntil = currentTimeMillis() + _circuitBreakerOpenDuration;
+                LOGGER.warn("Host {} failed {} times in a row. It will not be contacted again before {}.", hostName, _consecutiveFailures, new Date(_openUntil));
+            }
+        }
+
+    }
+
+}
@@ -1,10 +1,20 @@
 package org.echocat.gradle.plugins.golang.utils;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.TimeUnit.*;
 
 public class StringUtils {
 
+    private static final Pattern SIZE_PATTERN = Pattern.compile("^([0-9]+)\\s*([kmgt]?)b?$");
+    private static final Pattern DURATION_PATTERN = Pattern.compile("^([0-9]+)\\s*(ms|s|m|h|d)?$");
+
     public static String expand(Map<String, String> match, String s) {
         String result = s;
         for (final Entry<String, String> entry : match.entrySet()) {
@@ -13,4 +23,75 @@ public class StringUtils {
         return result;
     }
 
+    /**
+     * Parses sizes like <code>1024</code>, <code>512k</code>, <code>100m</code> or <code>10g</code> into bytes.
+     */
+    @Nullable
+    public static Long parseSize(@Nullable String plain) throws IllegalArgumentException {
+        if (plain == null || plain.trim().isEmpty()) {
+            return null;
+        }
+        final Matcher matcher = SIZE_PATTERN.matcher(plain.trim().toLowerCase(Locale.US));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Illegal size: " + plain);
+        }
+        final long value = Long.valueOf(matcher.group(1));
+        final String unit = matcher.group(2);
+        if ("k".equals(unit)) {
+            return value * 1024L;
+        }
+        if ("m".equals(unit)) {
+            return value * 1024L * 1024L;
+        }
+        if ("g".equals(unit)) {
+            return value * 1024L * 1024L * 1024L;
+        }
+        if ("t".equals(unit)) {
+            return value * 1024L * 1024L * 1024L * 1024L;
+        }
+        return value;
+    }
+
+    /**
+     * Parses durations like <code>500ms</code>, <code>30s</code>, <code>10m</code>, <code>12h</code> or <code>30d</code>
+     * into milliseconds. Values without unit are milliseconds.
+     */
+    @Nullable
+    public static Long parseDuration(@Nullable String plain) throws IllegalArgumentException {
+        if (plain == null || plain.trim().isEmpty()) {
+            return null;
+        }
+        final Matcher matcher = DURATION_PATTERN.matcher(plain.trim().toLowerCase(Locale.US));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Illegal duration: " + plain);
+        }
+        final long value = Long.valueOf(matcher.group(1));
+        final String unit = matcher.group(2);
+        if ("s".equals(unit)) {
+            return SECONDS.toMillis(value);
+        }
+        if ("m".equals(unit)) {
+            return MINUTES.toMillis(value);
+        }
+        if ("h".equals(unit)) {
+            return HOURS.toMillis(value);
+        }
+        if ("d".equals(unit)) {
+            return DAYS.toMillis(value);
+        }
+        return value;
+    }
+
+    private static final char[] HEX_CHARACTERS = "0123456789abcdef".toCharArray();
+
+    @Nonnull
+    public static String toHexString(@Nonnull byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX_CHARACTERS[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX_CHARACTERS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
 }
@@ -0,0 +1,298 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository.ProgressMonitor;
+import org.gradle.internal.logging.progress.ProgressLogger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Wraps a {@link ProgressLogger} and coalesces all updates to a fixed frame rate. Updates only remember the latest
+ * {@link Status}, the message itself is rendered only once per frame (and at latest one frame after the last update),
+ * so callers could report every single transferred object or started test without flooding the console.
+ */
+@ThreadSafe
+public class ThrottledProgressLogger {
+
+    public static final long DEFAULT_FRAME_INTERVAL = 200;
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final ScheduledExecutorService SCHEDULER = newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            final Thread result = new Thread(runnable, "golang-progress");
+            result.setDaemon(true);
+            return result;
+        }
+    });
+
+    @Nonnull
+    public static ThrottledProgressLogger throttled(@Nonnull ProgressLogger delegate) {
+        return new ThrottledProgressLogger(delegate, DEFAULT_FRAME_INTERVAL);
+    }
+
+    @Nonnull
+    private final ProgressLogger _delegate;
+    @Nonnegative
+    private final long _frameInterval;
+    @Nonnull
+    private final Clock _clock;
+    private final Runnable _flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    @Nullable
+    private Status _pending;
+    @Nullable
+    private ScheduledFuture<?> _scheduled;
+    @Nullable
+    private String _lastMessage;
+    private long _lastEmitted;
+    private boolean _completed;
+
+    public ThrottledProgressLogger(@Nonnull ProgressLogger delegate, @Nonnegative long frameInterval) {
+        this(delegate, frameInterval, SYSTEM_CLOCK);
+    }
+
+    public ThrottledProgressLogger(@Nonnull ProgressLogger delegate, @Nonnegative long frameInterval, @Nonnull Clock clock) {
+        _delegate = delegate;
+        _frameInterval = frameInterval;
+        _clock = clock;
+    }
+
+    /**
+     * @return the wrapped logger, for example to start child operations of it.
+     */
+    @Nonnull
+    public ProgressLogger getDelegate() {
+        return _delegate;
+    }
+
+    public void progress(@Nonnull final String message) {
+        update(new Status() {
+            @Nonnull
+            @Override
+            public String render(long now) {
+                return message;
+            }
+        });
+    }
+
+    public synchronized void update(@Nonnull Status status) {
+        if (_completed) {
+            return;
+        }
+        _pending = status;
+        if (_scheduled == null) {
+            final long now = _clock.currentTimeMillis();
+            final long wait = _lastEmitted + _frameInterval - now;
+            if (wait <= 0) {
+                emit(now);
+            } else {
+                _scheduled = SCHEDULER.schedule(_flush, wait, MILLISECONDS);
+            }
+        }
+    }
+
+    public void completed() {
+        completed(null);
+    }
+
+    public synchronized void completed(@Nullable String status) {
+        if (_scheduled != null) {
+            _scheduled.cancel(false);
+            _scheduled = null;
+        }
+        _pending = null;
+        if (!_completed) {
+            _completed = true;
+            if (status != null) {
+                _delegate.completed(status);
+            } else {
+                _delegate.completed();
+            }
+        }
+    }
+
+    /**
+     * @return a monitor which reports <code>description... 42.0% (ETA 12s)</code>.
+     */
+    @Nonnull
+    public ProgressMonitor monitorFor(@Nonnull String description) {
+        return new Monitor(description);
+    }
+
+    /**
+     * @return a counter which reports <code>description current... (123 unit, 45.6 unit/s)</code>.
+     */
+    @Nonnull
+    public Counter counterFor(@Nonnull String description, @Nonnull String unit) {
+        return new Counter(description, unit);
+    }
+
+    protected synchronized void flush() {
+        _scheduled = null;
+        if (_pending != null && !_completed) {
+            emit(_clock.currentTimeMillis());
+        }
+    }
+
+    protected void emit(long now) {
+        final Status pending = _pending;
+        _pending = null;
+        _lastEmitted = now;
+        if (pending != null) {
+            final String message = pending.render(now);
+            if (!message.equals(_lastMessage)) {
+                _lastMessage = message;
+                _delegate.progress(message);
+            }
+        }
+    }
+
+    @Nonnull
+    protected static String formatDuration(long millis) {
+        final long seconds = millis / 1000;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return (seconds / 60) + "m" + (seconds % 60) + "s";
+        }
+        return (seconds / 3600) + "h" + ((seconds % 3600) / 60) + "m";
+    }
+
+    /**
+     * Source of the current time of frames, elapsed times and rates.
+     */
+    public static interface Clock {
+
+        public long currentTimeMillis();
+
+    }
+
+    public static interface Status {
+
+        @Nonnull
+        public String render(long now);
+
+    }
+
+    protected class Monitor implements ProgressMonitor, Status {
+
+        @Nonnull
+        private final String _description;
+        private volatile long _started;
+        private volatile double _progress;
+
+        protected Monitor(@Nonnull String description) {
+            _description = description;
+        }
+
+        @Override
+        public void started() {
+            _started = _clock.currentTimeMillis();
+            _progress = 0;
+            ThrottledProgressLogger.this.update(this);
+        }
+
+        @Override
+        public void update(@Nonnegative double progress) {
+            if (_started == 0) {
+                _started = _clock.currentTimeMillis();
+            }
+            _progress = progress;
+            ThrottledProgressLogger.this.update(this);
+        }
+
+        @Override
+        public void finished() {
+            update(1d);
+        }
+
+        @Nonnull
+        @Override
+        public String render(long now) {
+            final double progress = _progress;
+            final StringBuilder sb = new StringBuilder(_description)
+                .append("... ")
+                .append(String.format(Locale.US, "%.1f%%", progress * 100));
+            final long elapsed = now - _started;
+            if (progress > 0 && progress < 1 && elapsed > 1000) {
+                sb.append(" (ETA ").append(formatDuration((long) (elapsed * (1 - progress) / progress))).append(')');
+            }
+            return sb.toString();
+        }
+    }
+
+    public class Counter implements Status {
+
+        @Nonnull
+        private final String _unit;
+        @Nonnull
+        private final AtomicLong _count = new AtomicLong();
+        private final long _started = _clock.currentTimeMillis();
+        @Nonnull
+        private volatile String _description;
+        @Nullable
+        private volatile String _current;
+
+        protected Counter(@Nonnull String description, @Nonnull String unit) {
+            _description = description;
+            _unit = unit;
+        }
+
+        public void setDescription(@Nonnull String description) {
+            _description = description;
+            _current = null;
+            update(this);
+        }
+
+        public void increment(@Nullable String current) {
+            _count.incrementAndGet();
+            _current = current;
+            update(this);
+        }
+
+        public long getCount() {
+            return _count.get();
+        }
+
+        @Nonnull
+        @Override
+        public String render(long now) {
+            final long count = _count.get();
+            final String current = _current;
+            final StringBuilder sb = new StringBuilder(_description);
+            if (current != null) {
+                sb.append(' ').append(current);
+            }
+            sb.append("... (").append(count).append(' ').append(_unit);
+            final long elapsed = now - _started;
+            if (elapsed > 1000) {
+                sb.append(", ").append(String.format(Locale.US, "%.1f", count * 1000d / elapsed)).append(' ').append(_unit).append("/s");
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package org.echocat.gradle.plugins.golang.vcs;
 
+import org.echocat.gradle.plugins.golang.cache.NegativeResultCache;
+import org.echocat.gradle.plugins.golang.vcs.git.GitBackend;
 import org.echocat.gradle.plugins.golang.vcs.isps.BitbucketVcsRepositoryProvider;
 import org.echocat.gradle.plugins.golang.vcs.isps.GolangOrgVcsRepositoryProvider;
 import org.echocat.gradle.plugins.golang.vcs.isps.GoogleGolangOrgVcsRepositoryProvider;
 import org.echocat.gradle.plugins.golang.vcs.isps.SuffixDetectingVcsRepositoryProvider;
+import org.echocat.gradle.plugins.golang.vcs.isps.VcsRepositoryProviderSupport;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -44,6 +47,20 @@ public class CombinedVcsRepositoryProvider implements VcsRepositoryProvider {
         return _delegates;
     }
 
+    @Nonnull
+    public static Iterable<VcsRepositoryProvider> delegatesWithDefaults(@Nullable Iterable<VcsRepositoryProvider> delegates, @Nullable NegativeResultCache negativeResultCache, @Nullable GitBackend defaultGitBackend, boolean sparseCheckout) {
+        final Iterable<VcsRepositoryProvider> result = delegatesWithDefaults(delegates);
+        for (final VcsRepositoryProvider candidate : result) {
+            if (candidate instanceof VcsRepositoryProviderSupport) {
+                final VcsRepositoryProviderSupport support = (VcsRepositoryProviderSupport) candidate;
+                support.setNegativeResultCache(negativeResultCache);
+                support.setDefaultGitBackend(defaultGitBackend);
+                support.setSparseCheckout(sparseCheckout);
+            }
+        }
+        return result;
+    }
+
     @Nonnull
     public static Iterable<VcsRepositoryProvider> delegatesWithDefaults(@Nullable Iterable<VcsRepositoryProvider> delegates) {
         final List<VcsRepositoryProvider> result = new ArrayList<>(defaultConcretes());
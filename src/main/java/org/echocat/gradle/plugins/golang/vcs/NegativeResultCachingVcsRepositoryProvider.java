@@ -0,0 +1,59 @@
+package org.echocat.gradle.plugins.golang.vcs;
+
+import org.echocat.gradle.plugins.golang.cache.NegativeResultCache;
+import org.echocat.gradle.plugins.golang.model.NegativeResults.Entry;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Fails instantly for references which could not be resolved by the <code>delegate</code> within the time to live of
+ * the given {@link NegativeResultCache}.
+ */
+public class NegativeResultCachingVcsRepositoryProvider implements VcsRepositoryProvider {
+
+    @Nonnull
+    private final NegativeResultCache _cache;
+    @Nonnull
+    private final VcsRepositoryProvider _delegate;
+
+    public NegativeResultCachingVcsRepositoryProvider(@Nonnull NegativeResultCache cache, @Nonnull VcsRepositoryProvider delegate) {
+        _cache = cache;
+        _delegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    public VcsRepository tryProvideFor(@Nonnull RawVcsReference rawReference) throws VcsException {
+        final String key = keyFor(rawReference);
+        final Entry failure = _cache.findFailureOf(key);
+        if (failure != null) {
+            throw new VcsException("Resolution of " + _cache.describe(key, failure));
+        }
+        final VcsRepository result;
+        try {
+            result = _delegate.tryProvideFor(rawReference);
+        } catch (final VcsException e) {
+            _cache.recordFailureOf(key, e);
+            throw e;
+        }
+        _cache.recordSuccessOf(key);
+        return result;
+    }
+
+    @Nonnull
+    protected String keyFor(@Nonnull RawVcsReference rawReference) {
+        final StringBuilder sb = new StringBuilder("resolve:").append(rawReference.getId());
+        if (rawReference.getType() != null) {
+            sb.append(':').append(rawReference.getType());
+        }
+        if (rawReference.getUri() != null) {
+            sb.append(':').append(rawReference.getUri());
+        }
+        if (rawReference.getRef() != null) {
+            sb.append('@').append(rawReference.getRef());
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,21 @@
+package org.echocat.gradle.plugins.golang.vcs;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+
+/**
+ * Repository which could materialize only the {@link VcsReference#getSubPath() subPath} of its reference instead of
+ * the whole tree.
+ */
+public interface SparseVcsRepository extends VcsRepository {
+
+    /**
+     * Materializes the {@link VcsReference#getSubPath() subPath} of this reference inside of an already existing
+     * sparse checkout.
+     *
+     * @return <code>true</code> if something was materialized, <code>false</code> if it was already present or the
+     * existing checkout is not a sparse one.
+     */
+    public boolean expandIfRequired(@Nonnull Path baseDirectory) throws VcsException;
+
+}
@@ -1,13 +1,62 @@
 package org.echocat.gradle.plugins.golang.vcs;
 
+import org.echocat.gradle.plugins.golang.vcs.git.CliGitVcsRepository;
+import org.echocat.gradle.plugins.golang.vcs.git.GitBackend;
 import org.echocat.gradle.plugins.golang.vcs.git.GitVcsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 
 import static org.echocat.gradle.plugins.golang.vcs.VcsType.git;
+import static org.echocat.gradle.plugins.golang.vcs.git.CliGitVcsRepository.findGitBinary;
+import static org.echocat.gradle.plugins.golang.vcs.git.GitBackend.cli;
 
 public class VcsRepositoryFactory {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(VcsRepositoryFactory.class);
+
+    @Nullable
+    private GitBackend _gitBackend;
+    @Nullable
+    private GitBackend _defaultGitBackend;
+    private boolean _sparseCheckout;
+
+    /**
+     * @return the backend explicitly selected for this factory or <code>null</code> if the default is used.
+     */
+    @Nullable
+    public GitBackend getGitBackend() {
+        return _gitBackend;
+    }
+
+    public void setGitBackend(@Nullable GitBackend gitBackend) {
+        _gitBackend = gitBackend;
+    }
+
+    @Nullable
+    public GitBackend getDefaultGitBackend() {
+        return _defaultGitBackend;
+    }
+
+    public void setDefaultGitBackend(@Nullable GitBackend defaultGitBackend) {
+        _defaultGitBackend = defaultGitBackend;
+    }
+
+    public boolean isSparseCheckout() {
+        return _sparseCheckout;
+    }
+
+    /**
+     * @param sparseCheckout If <code>true</code> repositories which are {@link SparseVcsRepository} will only
+     *                       materialize the subPath of the reference.
+     */
+    public void setSparseCheckout(boolean sparseCheckout) {
+        _sparseCheckout = sparseCheckout;
+    }
+
     @Nonnull
     public VcsRepository createFor(@Nonnull VcsReference reference) throws VcsException {
         final VcsType type = reference.getType();
@@ -19,6 +68,16 @@ public class VcsRepositoryFactory {
 
     @Nonnull
     protected GitVcsRepository createGitFor(@Nonnull VcsReference reference) throws VcsException {
+        final GitBackend backend = _gitBackend != null ? _gitBackend : _defaultGitBackend;
+        if (backend == cli) {
+            final Path gitBinary = findGitBinary();
+            if (gitBinary != null) {
+                return new CliGitVcsRepository(reference, gitBinary, _sparseCheckout);
+            }
+            LOGGER.debug("There is no git binary available. Fallback to jgit for {}.", reference);
+        } else if (_sparseCheckout) {
+            LOGGER.debug("Sparse checkout is only supported by the cli git backend. {} will be checked out completely.", reference);
+        }
         return new GitVcsRepository(reference);
     }
 
@@ -0,0 +1,147 @@
+package org.echocat.gradle.plugins.golang.vcs.cacheserver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.echocat.gradle.plugins.golang.model.DependencyGraph;
+import org.echocat.gradle.plugins.golang.model.VcsRepositoryInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+
+import static java.nio.file.Files.newOutputStream;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.io.IOUtils.copy;
+import static org.echocat.gradle.plugins.golang.cache.DependencyCacheServer.DEPENDENCIES_PATH;
+import static org.echocat.gradle.plugins.golang.cache.DependencyCacheServer.GRAPH_PATH;
+
+/**
+ * Client of a {@link org.echocat.gradle.plugins.golang.cache.DependencyCacheServer}. Every failure of the server is
+ * only logged and reported as "not available", so callers could always fallback to the origin.
+ */
+public class CacheServerClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheServerClient.class);
+
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
+        .connectTimeout(2, SECONDS)
+        .readTimeout(30, SECONDS)
+        .build();
+
+    @Nonnull
+    private final URI _root;
+    @Nonnull
+    private final Gson _gson = new Gson();
+
+    public CacheServerClient(@Nonnull URI root) {
+        final String plain = root.toString();
+        _root = URI.create(plain.endsWith("/") ? plain.substring(0, plain.length() - 1) : plain);
+    }
+
+    @Nonnull
+    public URI getRoot() {
+        return _root;
+    }
+
+    @Nullable
+    public VcsRepositoryInfo info(@Nonnull String id) {
+        return getAsJson(DEPENDENCIES_PATH + id + "/info", VcsRepositoryInfo.class);
+    }
+
+    @Nullable
+    public DependencyGraph graph() {
+        return getAsJson(GRAPH_PATH, DependencyGraph.class);
+    }
+
+    /**
+     * @param knownFullRef If the server still has this full reference (like a commit) nothing will be downloaded.
+     * @param expectedFullRef The archive is only accepted if it contains this full reference - the dependency could have
+     *                        been updated on the server since its {@link #info(String) info} was requested.
+     */
+    @Nonnull
+    public DownloadResult download(@Nonnull String id, @Nullable String knownFullRef, @Nonnull String expectedFullRef, @Nonnull Path to) {
+        final URI uri = uriFor(DEPENDENCIES_PATH + id + ".zip");
+        final Request.Builder request = new Request.Builder()
+            .url(uri.toString());
+        if (knownFullRef != null) {
+            request.header("If-None-Match", "\"" + knownFullRef + "\"");
+        }
+        try (final Response response = HTTP_CLIENT.newCall(request.build()).execute()) {
+            if (response.code() == 304) {
+                return DownloadResult.notModified;
+            }
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                logUnavailable(uri, response);
+                return DownloadResult.unavailable;
+            }
+            if (!("\"" + expectedFullRef + "\"").equals(response.header("ETag"))) {
+                LOGGER.debug("{} was changed on the cache server while it was requested.", uri);
+                return DownloadResult.unavailable;
+            }
+            try (final InputStream is = body.byteStream()) {
+                try (final OutputStream os = newOutputStream(to)) {
+                    copy(is, os);
+                }
+            }
+            return DownloadResult.downloaded;
+        } catch (final IOException e) {
+            LOGGER.info("Could not download {}. Got: {}", uri, e.toString());
+            return DownloadResult.unavailable;
+        }
+    }
+
+    @Nullable
+    protected <T> T getAsJson(@Nonnull String path, @Nonnull Class<T> type) {
+        final URI uri = uriFor(path);
+        final Request request = new Request.Builder()
+            .url(uri.toString())
+            .build();
+        try (final Response response = HTTP_CLIENT.newCall(request).execute()) {
+            final ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                logUnavailable(uri, response);
+                return null;
+            }
+            return _gson.fromJson(body.string(), type);
+        } catch (final IOException | JsonParseException e) {
+            LOGGER.info("Could not retrieve {}. Got: {}", uri, e.toString());
+            return null;
+        }
+    }
+
+    protected void logUnavailable(@Nonnull URI uri, @Nonnull Response response) {
+        if (response.code() == 404) {
+            LOGGER.debug("{} not available at cache server.", uri);
+        } else {
+            LOGGER.info("Could not retrieve {}. Got: {} {}", uri, response.code(), response.message());
+        }
+    }
+
+    @Nonnull
+    protected URI uriFor(@Nonnull String path) {
+        return URI.create(_root + path);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheServerClient{" + _root + "}";
+    }
+
+    public enum DownloadResult {
+        downloaded,
+        notModified,
+        unavailable
+    }
+
+}
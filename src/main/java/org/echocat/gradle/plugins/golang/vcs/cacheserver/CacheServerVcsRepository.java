@@ -0,0 +1,125 @@
+package org.echocat.gradle.plugins.golang.vcs.cacheserver;
+
+import org.echocat.gradle.plugins.golang.model.VcsRepositoryInfo;
+import org.echocat.gradle.plugins.golang.vcs.*;
+import org.echocat.gradle.plugins.golang.vcs.cacheserver.CacheServerClient.DownloadResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static java.nio.file.Files.createTempFile;
+import static org.echocat.gradle.plugins.golang.utils.ArchiveUtils.unZip;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+
+/**
+ * Takes a dependency from a {@link org.echocat.gradle.plugins.golang.cache.DependencyCacheServer} if it has the
+ * requested reference in a version that satisfies the update policy. In every other case - including any failure of
+ * the server - the <code>fallback</code> is used.
+ */
+public class CacheServerVcsRepository extends BaseVcsRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheServerVcsRepository.class);
+    private static final Pattern NOTHING_TO_REMOVE = Pattern.compile("^");
+
+    @Nonnull
+    private final CacheServerClient _client;
+    @Nonnull
+    private final VcsRepository _fallback;
+
+    public CacheServerVcsRepository(@Nonnull VcsReference reference, @Nonnull CacheServerClient client, @Nonnull VcsRepository fallback) {
+        super(reference);
+        _client = client;
+        _fallback = fallback;
+    }
+
+    @Override
+    public boolean isWorking() throws VcsException {
+        return _fallback.isWorking();
+    }
+
+    @Nonnull
+    @Override
+    public VcsFullReference forceUpdate(@Nonnull Path baseDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        final VcsFullReference result = tryUpdateFromServer(baseDirectory, progressMonitor);
+        if (result != null) {
+            return result;
+        }
+        return _fallback.forceUpdate(baseDirectory, progressMonitor);
+    }
+
+    @Nullable
+    protected VcsFullReference tryUpdateFromServer(@Nonnull Path baseDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        final VcsReference reference = getReference();
+        final String id = reference.getId();
+        final VcsRepositoryInfo remote = _client.info(id);
+        if (remote == null || remote.getFullRef() == null) {
+            return null;
+        }
+        if (!Objects.equals(remote.getRef(), reference.getRef())) {
+            LOGGER.debug("{} has {} only in ref {}.", _client, id, remote.getRef());
+            return null;
+        }
+        if (reference.getUpdatePolicy().updateRequired(remote.getLastUpdatedMillis())) {
+            LOGGER.debug("{} has {} but it is outdated.", _client, id);
+            return null;
+        }
+
+        final Path targetDirectory = resolveTargetDirectoryFor(baseDirectory);
+        final String knownFullRef = knownFullRefOf(targetDirectory);
+        if (progressMonitor != null) {
+            progressMonitor.started();
+        }
+        final Path archive;
+        try {
+            archive = createTempFile("cache-server", ".zip");
+        } catch (final IOException e) {
+            throw new VcsException("Could not create temporary file.", e);
+        }
+        try {
+            final DownloadResult downloadResult = _client.download(id, knownFullRef, remote.getFullRef(), archive);
+            final VcsFullReference result;
+            if (downloadResult == DownloadResult.notModified && knownFullRef != null) {
+                LOGGER.debug("{} is still up to date with {}.", id, _client);
+                result = new VcsFullReference(reference, knownFullRef);
+            } else if (downloadResult == DownloadResult.downloaded) {
+                emptyDirectoryIfExists(targetDirectory);
+                resolveTargetDirectoryFor(baseDirectory);
+                unZip(archive, targetDirectory, NOTHING_TO_REMOVE);
+                LOGGER.debug("{} downloaded from {}.", id, _client);
+                result = new VcsFullReference(reference, remote.getFullRef());
+            } else {
+                return null;
+            }
+            saveInfoFile(targetDirectory, result);
+            if (progressMonitor != null) {
+                progressMonitor.finished();
+            }
+            return result;
+        } catch (final IOException e) {
+            LOGGER.info("Could not extract {} from {}. Fallback to origin. Got: {}", id, _client, e.toString());
+            return null;
+        } finally {
+            deleteQuietly(archive);
+        }
+    }
+
+    @Nullable
+    protected String knownFullRefOf(@Nonnull Path targetDirectory) {
+        try {
+            final VcsRepositoryInfo local = tryReadInfoFor(targetDirectory);
+            if (local != null && Objects.equals(local.getRef(), getReference().getRef())) {
+                return local.getFullRef();
+            }
+        } catch (final VcsException e) {
+            LOGGER.debug("Could not read info of {}. It will be ignored.", targetDirectory, e);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.echocat.gradle.plugins.golang.vcs.cacheserver;
+
+import org.echocat.gradle.plugins.golang.vcs.RawVcsReference;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepositoryProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+
+/**
+ * Asks a {@link org.echocat.gradle.plugins.golang.cache.DependencyCacheServer} first before the repository provided by
+ * the <code>delegate</code> is used.
+ */
+public class CacheServerVcsRepositoryProvider implements VcsRepositoryProvider {
+
+    @Nonnull
+    private final CacheServerClient _client;
+    @Nonnull
+    private final VcsRepositoryProvider _delegate;
+
+    public CacheServerVcsRepositoryProvider(@Nonnull URI server, @Nonnull VcsRepositoryProvider delegate) {
+        this(new CacheServerClient(server), delegate);
+    }
+
+    public CacheServerVcsRepositoryProvider(@Nonnull CacheServerClient client, @Nonnull VcsRepositoryProvider delegate) {
+        _client = client;
+        _delegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    public VcsRepository tryProvideFor(@Nonnull RawVcsReference rawReference) throws VcsException {
+        final VcsRepository direct = _delegate.tryProvideFor(rawReference);
+        if (direct == null) {
+            return null;
+        }
+        return new CacheServerVcsRepository(direct.getReference(), _client, direct);
+    }
+
+}
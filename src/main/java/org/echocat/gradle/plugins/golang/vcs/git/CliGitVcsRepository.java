@@ -0,0 +1,254 @@
+package org.echocat.gradle.plugins.golang.vcs.git;
+
+import org.echocat.gradle.plugins.golang.utils.Executor;
+import org.echocat.gradle.plugins.golang.utils.Executor.ExecutionFailedExceptionProducer;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.Operation;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.PermanentRemoteFailureException;
+import org.echocat.gradle.plugins.golang.vcs.*;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.io.File.pathSeparator;
+import static java.nio.file.Files.isDirectory;
+import static java.nio.file.Files.isExecutable;
+import static java.nio.file.Files.isRegularFile;
+import static java.util.Arrays.asList;
+import static org.apache.commons.lang3.StringUtils.split;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.createDirectoriesIfRequired;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
+import static org.echocat.gradle.plugins.golang.vcs.git.GitVcsUri.gitVcsUriFor;
+
+/**
+ * Uses the local installed <code>git</code> binary instead of JGit. Only the requested ref is fetched (without
+ * history) which is a lot faster for large repositories. The resulting {@link VcsFullReference} and info file are the
+ * same as the ones of {@link GitVcsRepository}.
+ * <p>
+ * In sparse mode only the subPath of the reference is checked out (and only its blobs are downloaded if the server
+ * supports partial clones). Other sub paths are added by {@link #expandIfRequired(Path)} once they are required.
+ */
+public class CliGitVcsRepository extends GitVcsRepository implements SparseVcsRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CliGitVcsRepository.class);
+    private static final Pattern LS_REMOTE_LINE_PATTERN = Pattern.compile("^(?<id>[0-9a-f]{40})\\s+(?<name>\\S+)$");
+    private static final Pattern PERMANENT_FAILURE_PATTERN = Pattern.compile("not found|does not appear to be a git repository|couldn't find remote ref|could not read (username|password)|authentication failed|permission denied|could not resolve host", Pattern.CASE_INSENSITIVE);
+    private static final ExecutionFailedExceptionProducer<IOException> REMOTE_FAILURE_PRODUCER = new ExecutionFailedExceptionProducer<IOException>() {
+        @Nonnull
+        @Override
+        public IOException produceFor(@Nonnull Executor executor, @Nonnull String[] commandLine, int errorCode) {
+            final String output = executor.getStdoutAsString().trim();
+            final String message = "Got unexpected exit code " + errorCode + " while executing " + Arrays.toString(commandLine) + (output.isEmpty() ? "." : ": " + output);
+            return PERMANENT_FAILURE_PATTERN.matcher(output).find() ? new PermanentRemoteFailureException(message) : new IOException(message);
+        }
+    };
+
+    private static volatile Path GIT_BINARY;
+    private static volatile boolean GIT_BINARY_RESOLVED;
+
+    /**
+     * @return <code>null</code> if there is no <code>git</code> binary in the <code>PATH</code>.
+     */
+    @Nullable
+    public static Path findGitBinary() {
+        if (!GIT_BINARY_RESOLVED) {
+            GIT_BINARY = findExecutableInPath(currentOperatingSystem() == WINDOWS ? "git.exe" : "git");
+            GIT_BINARY_RESOLVED = true;
+            LOGGER.debug("Detected git binary: {}", GIT_BINARY);
+        }
+        return GIT_BINARY;
+    }
+
+    @Nullable
+    protected static Path findExecutableInPath(@Nonnull String name) {
+        final String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (final String directory : split(path, pathSeparator)) {
+            final Path candidate = Paths.get(directory).resolve(name);
+            if (isRegularFile(candidate) && isExecutable(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Nonnull
+    private final Path _gitBinary;
+    private final boolean _sparse;
+
+    public CliGitVcsRepository(@Nonnull VcsReference ref, @Nonnull Path gitBinary) {
+        this(ref, gitBinary, false);
+    }
+
+    public CliGitVcsRepository(@Nonnull VcsReference ref, @Nonnull Path gitBinary, boolean sparse) {
+        super(ref);
+        _gitBinary = gitBinary;
+        _sparse = sparse;
+    }
+
+    @Override
+    public boolean isWorking() throws VcsException {
+        return resolveRemoteRef() != null;
+    }
+
+    @Override
+    @Nonnull
+    protected VcsFullReference downloadToInternal(@Nonnull Path targetDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        final GitVcsUri uri = gitVcsUriFor(getReference());
+        final Ref ref = resolveRemoteRef();
+        if (ref == null) {
+            throw new VcsValidationException("Could not find ref " + uri + "@" + getReference().getRef() + ".");
+        }
+        final String refName = ref.getName();
+        if (progressMonitor != null) {
+            progressMonitor.started();
+        }
+        LOGGER.debug("Fetch remote ref {}@{} to {}...", uri, refName, targetDirectory);
+        try {
+            createDirectoriesIfRequired(targetDirectory);
+            git(targetDirectory).arguments("init", "--quiet").execute();
+            git(targetDirectory).arguments("remote", "add", "origin", uri.getUri()).execute();
+            final List<Object> fetch = new ArrayList<Object>(asList("fetch", "--quiet", "--depth", "1"));
+            if (_sparse && initSparseCheckout(targetDirectory)) {
+                fetch.add("--filter=blob:none");
+            }
+            fetch.addAll(asList("origin", refName));
+            executeRemote(uri, "Fetch of " + uri + "@" + refName, targetDirectory, fetch.toArray());
+            git(targetDirectory).arguments("-c", "advice.detachedHead=false", "checkout", "--quiet", "FETCH_HEAD").execute();
+        } catch (final IOException e) {
+            throw new VcsException("Cannot fetch " + uri + "@" + refName + " to " + targetDirectory + ".", e);
+        }
+        LOGGER.debug("Fetch remote ref {}@{} to {}... DONE!", uri, refName, targetDirectory);
+        final String fullRevision = fullRevisionOf(targetDirectory);
+        if (progressMonitor != null) {
+            progressMonitor.finished();
+        }
+        return new VcsFullReference(getReference(), fullRevision);
+    }
+
+    protected boolean initSparseCheckout(@Nonnull Path targetDirectory) {
+        final String subPath = normalizedSubPath();
+        try {
+            if (subPath != null) {
+                git(targetDirectory).arguments("sparse-checkout", "set", "--cone", subPath).execute();
+            } else {
+                git(targetDirectory).arguments("sparse-checkout", "set", "--cone").execute();
+            }
+            return true;
+        } catch (final IOException e) {
+            LOGGER.debug("Could not initialize sparse checkout in {}. It will be checked out completely.", targetDirectory, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean expandIfRequired(@Nonnull Path baseDirectory) throws VcsException {
+        final String subPath = normalizedSubPath();
+        final Path targetDirectory = baseDirectory.resolve(getReference().getId()).toAbsolutePath();
+        if (subPath == null
+            || !isRegularFile(targetDirectory.resolve(".git").resolve("info").resolve("sparse-checkout"))
+            || isDirectory(targetDirectory.resolve(subPath))) {
+            return false;
+        }
+        LOGGER.debug("Expand sparse checkout {} by {}...", targetDirectory, subPath);
+        try {
+            git(targetDirectory).arguments("sparse-checkout", "add", subPath).execute();
+        } catch (final IOException e) {
+            throw new VcsException("Could not expand sparse checkout " + targetDirectory + " by " + subPath + ".", e);
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>null</code> if the reference points to the root of the repository.
+     */
+    @Nullable
+    protected String normalizedSubPath() {
+        final String subPath = getReference().getSubPath();
+        if (subPath == null) {
+            return null;
+        }
+        final String result = subPath.startsWith("/") ? subPath.substring(1) : subPath;
+        return result.isEmpty() ? null : result;
+    }
+
+    @Nonnull
+    protected String fullRevisionOf(@Nonnull Path targetDirectory) throws VcsException {
+        try {
+            return git(targetDirectory).arguments("rev-parse", "HEAD").execute().getStdoutAsString().trim();
+        } catch (final IOException e) {
+            throw new VcsException("Could not get current head revision from " + targetDirectory + ".", e);
+        }
+    }
+
+    @Nullable
+    @Override
+    protected Ref resolveRemoteRef() throws VcsException {
+        final GitVcsUri uri = gitVcsUriFor(getReference());
+        LOGGER.debug("Fetch remote refs from {}...", uri);
+        final String output;
+        try {
+            output = executeRemote(uri, "Fetch of remote refs from " + uri, null, "ls-remote", uri.getUri()).getStdoutAsString();
+        } catch (final IOException e) {
+            throw new VcsException("Could not fetch remote refs from " + uri + ".", e);
+        }
+        LOGGER.debug("Fetch remote refs from {}... DONE!", uri);
+        return selectFirstMatching(RefComparator.sort(parseRefs(output)));
+    }
+
+    @Nonnull
+    protected List<Ref> parseRefs(@Nonnull String lsRemoteOutput) {
+        final List<Ref> result = new ArrayList<>();
+        for (final String line : split(lsRemoteOutput, '\n')) {
+            final Matcher matcher = LS_REMOTE_LINE_PATTERN.matcher(line.trim());
+            // Peeled tags (<tag>^{}) are only the commits of annotated tags and not refs on their own.
+            if (matcher.matches() && !matcher.group("name").endsWith("^{}")) {
+                result.add(new ObjectIdRef.Unpeeled(Ref.Storage.NETWORK, matcher.group("name"), ObjectId.fromString(matcher.group("id"))));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches and ls-remote only read, so they could be retried as they are. Every attempt gets a new executor, so the
+     * output of a failed attempt is never part of the result. Failures which a retry will not fix (missing repository
+     * or ref, missing credentials, unknown host) are thrown as {@link PermanentRemoteFailureException}.
+     */
+    @Nonnull
+    protected Executor executeRemote(@Nonnull GitVcsUri uri, @Nonnull String description, @Nullable final Path workingDirectory, @Nonnull final Object... arguments) throws IOException {
+        return remoteOperationGuard().execute(uri.getUri(), description, true, new Operation<Executor, IOException>() {
+            @Override
+            public Executor execute() throws IOException {
+                return git(workingDirectory).arguments(arguments).execute(REMOTE_FAILURE_PRODUCER);
+            }
+        });
+    }
+
+    @Nonnull
+    protected Executor git(@Nullable Path workingDirectory) {
+        // Transfers slower than 1 KB/s for the whole timeout are aborted (the git CLI has no plain read timeout).
+        return executor(_gitBinary)
+            .workingDirectory(workingDirectory)
+            .env("GIT_TERMINAL_PROMPT", "0")
+            .env("GIT_HTTP_LOW_SPEED_LIMIT", "1000")
+            .env("GIT_HTTP_LOW_SPEED_TIME", Integer.toString(remoteOperationGuard().getTimeoutInSeconds()));
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.echocat.gradle.plugins.golang.vcs.git;
+
+public enum GitBackend {
+    /**
+     * Embedded JGit. Works everywhere without any additional installation.
+     */
+    jgit,
+    /**
+     * Local installed <code>git</code> binary. Faster for large repositories. If there is no binary available
+     * {@link #jgit} is used.
+     */
+    cli
+}
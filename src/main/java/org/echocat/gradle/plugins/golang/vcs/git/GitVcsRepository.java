@@ -1,6 +1,7 @@
 package org.echocat.gradle.plugins.golang.vcs.git;
 
 import com.sun.nio.sctp.IllegalReceiveException;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.Operation;
 import org.echocat.gradle.plugins.golang.vcs.*;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -13,10 +14,13 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.regex.Pattern;
 
 import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
 import static org.echocat.gradle.plugins.golang.vcs.git.GitVcsUri.gitVcsUriFor;
 
 public class GitVcsRepository extends VcsRepositorySupport {
@@ -45,7 +49,7 @@ public class GitVcsRepository extends VcsRepositorySupport {
 
     @Override
     @Nonnull
-    protected VcsFullReference downloadToInternal(@Nonnull Path targetDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+    protected VcsFullReference downloadToInternal(@Nonnull final Path targetDirectory, @Nullable final ProgressMonitor progressMonitor) throws VcsException {
         Ref ref = null;
         final GitVcsUri uri = gitVcsUriFor(getReference());
         final Git git;
@@ -56,14 +60,22 @@ public class GitVcsRepository extends VcsRepositorySupport {
             }
             final String refName = ref.getName();
             LOGGER.debug("Clone remote refs from {}@{} to {}...", uri, refName, targetDirectory);
-            git = Git.cloneRepository()
-                .setProgressMonitor(toGitProgressMonitor(progressMonitor))
-                .setURI(uri.getUri().toString())
-                .setDirectory(targetDirectory.toFile())
-                .setBranch(refName)
-                .call();
+            git = remoteOperationGuard().execute(uri.getUri(), "Clone of " + uri + "@" + refName, true, new Operation<Git, GitAPIException>() {
+                @Override
+                public Git execute() throws GitAPIException, IOException {
+                    // Leftovers of a failed attempt would let the clone fail.
+                    deleteQuietly(targetDirectory);
+                    return Git.cloneRepository()
+                        .setProgressMonitor(toGitProgressMonitor(progressMonitor))
+                        .setURI(uri.getUri().toString())
+                        .setDirectory(targetDirectory.toFile())
+                        .setBranch(refName)
+                        .setTimeout(remoteOperationGuard().getTimeoutInSeconds())
+                        .call();
+                }
+            });
             LOGGER.debug("Clone remote refs from {}@{} to {}... DONE!", uri, refName, targetDirectory);
-        } catch (final GitAPIException e) {
+        } catch (final GitAPIException | IOException e) {
             throw new VcsException("Cannot clone " + uri + "@" + (ref != null ? ref.getName() : "unresolved") + " to " + targetDirectory + ".", e);
         }
         final String fullRevision = fullRevisionOf(git);
@@ -81,6 +93,7 @@ public class GitVcsRepository extends VcsRepositorySupport {
 
             private double _totalWorkOfCurrentTask;
             private double _doneWorkOfCurrentTask;
+            private double _reportedProgress;
 
             @Override
             public void start(int numberOfTasks) {
@@ -100,9 +113,15 @@ public class GitVcsRepository extends VcsRepositorySupport {
             @Override
             public void update(int doneWorkOfCurrentTask) {
                 _doneWorkOfCurrentTask += doneWorkOfCurrentTask;
+                // JGit calls this for every single object. Tasks of unknown size and changes below 0.1% are not
+                // reported at all, everything else is throttled by the receiving monitor.
+                if (input == null || _totalWorkOfCurrentTask <= 0) {
+                    return;
+                }
                 final double progressOfCurrentTask = _doneWorkOfCurrentTask / _totalWorkOfCurrentTask;
                 final double totalProgress = (_progressPartOfATask * ((double) _currentTask)) + (_progressPartOfATask * progressOfCurrentTask);
-                if (input != null) {
+                if (totalProgress - _reportedProgress >= 0.001d) {
+                    _reportedProgress = totalProgress;
                     input.update(totalProgress);
                 }
             }
@@ -139,9 +158,22 @@ public class GitVcsRepository extends VcsRepositorySupport {
     @Nullable
     protected Ref resolveRemoteRef() throws VcsException, GitAPIException {
         LOGGER.debug("Fetch remote refs from {}...", getReference().getUri());
-        final Iterable<Ref> refs = RefComparator.sort(Git.lsRemoteRepository()
-            .setRemote(gitVcsUriFor(getReference()).getUri().toString())
-            .call());
+        final URI uri = gitVcsUriFor(getReference()).getUri();
+        final Collection<Ref> remoteRefs;
+        try {
+            remoteRefs = remoteOperationGuard().execute(uri, "Fetch of remote refs from " + uri, true, new Operation<Collection<Ref>, GitAPIException>() {
+                @Override
+                public Collection<Ref> execute() throws GitAPIException {
+                    return Git.lsRemoteRepository()
+                        .setRemote(uri.toString())
+                        .setTimeout(remoteOperationGuard().getTimeoutInSeconds())
+                        .call();
+                }
+            });
+        } catch (final IOException e) {
+            throw new VcsException("Could not fetch remote refs from " + uri + ".", e);
+        }
+        final Iterable<Ref> refs = RefComparator.sort(remoteRefs);
         LOGGER.debug("Fetch remote refs from {}... DONE!", getReference().getUri());
         return selectFirstMatching(refs);
     }
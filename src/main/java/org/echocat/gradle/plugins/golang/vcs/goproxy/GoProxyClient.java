@@ -0,0 +1,239 @@
+package org.echocat.gradle.plugins.golang.vcs.goproxy;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.Operation;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.Files.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.apache.commons.io.IOUtils.copy;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
+
+/**
+ * Client for the <a href="https://golang.org/cmd/go/#hdr-Module_proxy_protocol">GOPROXY protocol</a>. Supports
+ * <code>http://</code>, <code>https://</code> and <code>file://</code> proxies.
+ */
+public class GoProxyClient {
+
+    @Nonnull
+    private final URI _root;
+    @Nonnull
+    private final Gson _gson = new Gson();
+
+    public GoProxyClient(@Nonnull URI root) {
+        final String plain = root.toString();
+        _root = plain.endsWith("/") ? root : URI.create(plain + "/");
+    }
+
+    @Nonnull
+    public URI getRoot() {
+        return _root;
+    }
+
+    /**
+     * @return <code>null</code> if the proxy does not know the module.
+     */
+    @Nullable
+    public List<String> list(@Nonnull String module) throws VcsException {
+        final String content = getAsString(module, "@v/list");
+        if (content == null) {
+            return null;
+        }
+        final List<String> result = new ArrayList<>();
+        for (final String line : content.split("\n")) {
+            final String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed.split(" ")[0]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param query Could be a version, a branch, a tag or a revision.
+     * @return <code>null</code> if the proxy does not know the module or the query.
+     */
+    @Nullable
+    public Info info(@Nonnull String module, @Nonnull String query) throws VcsException {
+        return infoOf(module, "@v/" + escape(query) + ".info");
+    }
+
+    /**
+     * @return <code>null</code> if the proxy does not know the module or the module has no version at all.
+     */
+    @Nullable
+    public Info latest(@Nonnull String module) throws VcsException {
+        return infoOf(module, "@latest");
+    }
+
+    /**
+     * @return <code>false</code> if the proxy does not know the module or the version.
+     */
+    public boolean downloadZip(@Nonnull String module, @Nonnull String version, @Nonnull Path to) throws VcsException {
+        final URI uri = uriFor(module, "@v/" + escape(version) + ".zip");
+        try {
+            if ("file".equals(uri.getScheme())) {
+                final Path file = Paths.get(uri);
+                if (!isRegularFile(file)) {
+                    return false;
+                }
+                Files.copy(file, to, REPLACE_EXISTING);
+                return true;
+            }
+            try (final Response response = execute(uri)) {
+                if (isNotFound(response)) {
+                    return false;
+                }
+                try (final InputStream is = bodyOf(response, uri).byteStream()) {
+                    try (final OutputStream os = newOutputStream(to)) {
+                        copy(is, os);
+                    }
+                }
+                return true;
+            }
+        } catch (final IOException e) {
+            throw new VcsException("Could not download " + uri + ".", e);
+        }
+    }
+
+    @Nullable
+    protected Info infoOf(@Nonnull String module, @Nonnull String path) throws VcsException {
+        final String content = getAsString(module, path);
+        if (content == null) {
+            return null;
+        }
+        try {
+            final Info result = _gson.fromJson(content, Info.class);
+            if (result == null || result.getVersion() == null) {
+                throw new VcsException("Got illegal response from " + uriFor(module, path) + ": " + content);
+            }
+            return result;
+        } catch (final JsonParseException e) {
+            throw new VcsException("Got illegal response from " + uriFor(module, path) + ".", e);
+        }
+    }
+
+    @Nullable
+    protected String getAsString(@Nonnull String module, @Nonnull String path) throws VcsException {
+        final URI uri = uriFor(module, path);
+        try {
+            if ("file".equals(uri.getScheme())) {
+                final Path file = Paths.get(uri);
+                if (!isRegularFile(file)) {
+                    return null;
+                }
+                return new String(readAllBytes(file), "UTF-8");
+            }
+            try (final Response response = execute(uri)) {
+                if (isNotFound(response)) {
+                    return null;
+                }
+                return bodyOf(response, uri).string();
+            }
+        } catch (final IOException e) {
+            throw new VcsException("Could not retrieve " + uri + ".", e);
+        }
+    }
+
+    @Nonnull
+    protected Response execute(@Nonnull final URI uri) throws IOException {
+        final Request request = new Request.Builder()
+            .url(uri.toURL())
+            .build();
+        return remoteOperationGuard().execute(uri, "Request of " + uri, true, new Operation<Response, IOException>() {
+            @Override
+            public Response execute() throws IOException {
+                final Response response = remoteOperationGuard().getHttpClient().newCall(request).execute();
+                if (response.code() >= 500) {
+                    response.close();
+                    throw new IOException("Got unexpected response from " + uri + ": " + response.code() + " " + response.message());
+                }
+                return response;
+            }
+        });
+    }
+
+    protected boolean isNotFound(@Nonnull Response response) {
+        // The protocol defines 404 and 410 as "not available here" which allows to fallback to the next source.
+        return response.code() == 404 || response.code() == 410;
+    }
+
+    @Nonnull
+    protected ResponseBody bodyOf(@Nonnull Response response, @Nonnull URI uri) throws IOException {
+        final ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            throw new IOException("Got unexpected response from " + uri + ": " + response.code() + " " + response.message());
+        }
+        return body;
+    }
+
+    @Nonnull
+    protected URI uriFor(@Nonnull String module, @Nonnull String path) {
+        return _root.resolve(escape(module) + "/" + path);
+    }
+
+    /**
+     * Upper case letters have to be escaped as <code>!</code> followed by the lower case letter to be safe on case
+     * insensitive file systems.
+     */
+    @Nonnull
+    protected static String escape(@Nonnull String plain) {
+        final StringBuilder sb = new StringBuilder(plain.length() + 8);
+        for (final char c : plain.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                sb.append('!').append(Character.toLowerCase(c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "GoProxyClient{" + _root + "}";
+    }
+
+    public static class Info {
+
+        @SerializedName("Version")
+        private String _version;
+        @SerializedName("Time")
+        private String _time;
+
+        public String getVersion() {
+            return _version;
+        }
+
+        public void setVersion(String version) {
+            _version = version;
+        }
+
+        public String getTime() {
+            return _time;
+        }
+
+        public void setTime(String time) {
+            _time = time;
+        }
+
+    }
+
+}
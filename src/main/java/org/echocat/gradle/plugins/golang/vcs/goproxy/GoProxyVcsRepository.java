@@ -0,0 +1,214 @@
+package org.echocat.gradle.plugins.golang.vcs.goproxy;
+
+import org.echocat.gradle.plugins.golang.model.IntegerVersion;
+import org.echocat.gradle.plugins.golang.vcs.*;
+import org.echocat.gradle.plugins.golang.vcs.goproxy.GoProxyClient.Info;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.nio.file.Files.createTempFile;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.echocat.gradle.plugins.golang.utils.ArchiveUtils.unZip;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+
+/**
+ * Downloads the sources of a module as one zip archive from a GOPROXY instead of cloning the whole repository. If the
+ * proxy does not know the module the optional <code>fallback</code> repository is used.
+ */
+public class GoProxyVcsRepository extends VcsRepositorySupport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoProxyVcsRepository.class);
+    private static final Pattern NUMERIC_IDENTIFIER = Pattern.compile("[0-9]+");
+
+    @Nonnull
+    private final GoProxyClient _client;
+    @Nullable
+    private final VcsRepository _fallback;
+
+    public GoProxyVcsRepository(@Nonnull VcsReference reference, @Nonnull GoProxyClient client, @Nullable VcsRepository fallback) {
+        super(reference);
+        _client = client;
+        _fallback = fallback;
+    }
+
+    @Override
+    public boolean isWorking() throws VcsException {
+        if (_client.list(getReference().getId()) != null) {
+            return true;
+        }
+        return _fallback != null && _fallback.isWorking();
+    }
+
+    @Nonnull
+    @Override
+    public VcsFullReference forceUpdate(@Nonnull Path baseDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        final String version = resolveVersion();
+        if (version == null && _fallback != null) {
+            LOGGER.debug("{} does not know {}. Fallback to {}.", _client, getReference(), _fallback);
+            return _fallback.forceUpdate(baseDirectory, progressMonitor);
+        }
+        final Path targetDirectory = resolveTargetDirectoryFor(baseDirectory);
+        emptyDirectoryIfExists(targetDirectory);
+        final VcsFullReference result = download(version, targetDirectory, progressMonitor);
+        saveInfoFile(targetDirectory, result);
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    protected VcsFullReference downloadToInternal(@Nonnull Path targetDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        return download(resolveVersion(), targetDirectory, progressMonitor);
+    }
+
+    @Nonnull
+    protected VcsFullReference download(@Nullable String version, @Nonnull Path targetDirectory, @Nullable ProgressMonitor progressMonitor) throws VcsException {
+        final VcsReference reference = getReference();
+        final String module = reference.getId();
+        if (version == null) {
+            throw new VcsValidationException("Could not find " + module + "@" + (reference.getRef() != null ? reference.getRef() : "latest") + " at " + _client.getRoot() + ".");
+        }
+        if (progressMonitor != null) {
+            progressMonitor.started();
+        }
+        final Path archive;
+        try {
+            archive = createTempFile("goproxy", ".zip");
+        } catch (final IOException e) {
+            throw new VcsException("Could not create temporary file.", e);
+        }
+        try {
+            LOGGER.debug("Download {}@{} from {} to {}...", module, version, _client, targetDirectory);
+            if (!_client.downloadZip(module, version, archive)) {
+                throw new VcsValidationException("Could not find archive of " + module + "@" + version + " at " + _client.getRoot() + ".");
+            }
+            if (progressMonitor != null) {
+                progressMonitor.update(0.5d);
+            }
+            unZip(archive, targetDirectory, Pattern.compile("^" + Pattern.quote(module + "@" + version + "/")));
+            LOGGER.debug("Download {}@{} from {} to {}... DONE!", module, version, _client, targetDirectory);
+        } catch (final IOException e) {
+            throw new VcsException("Could not extract " + module + "@" + version + " to " + targetDirectory + ".", e);
+        } finally {
+            deleteQuietly(archive);
+        }
+        if (progressMonitor != null) {
+            progressMonitor.finished();
+        }
+        return new VcsFullReference(reference, version);
+    }
+
+    /**
+     * @return <code>null</code> if the proxy does not know the requested version.
+     */
+    @Nullable
+    protected String resolveVersion() throws VcsException {
+        final VcsReference reference = getReference();
+        final String module = reference.getId();
+        final String ref = reference.getRef();
+        if (isEmpty(ref)) {
+            final List<String> versions = _client.list(module);
+            if (versions != null && !versions.isEmpty()) {
+                return highestOf(versions);
+            }
+            final Info latest = _client.latest(module);
+            return latest != null ? latest.getVersion() : null;
+        }
+        final Info info = _client.info(module, ref);
+        return info != null ? info.getVersion() : null;
+    }
+
+    /**
+     * Like <code>go get</code> pre releases are only selected if there is no release at all.
+     */
+    @Nonnull
+    protected static String highestOf(@Nonnull List<String> versions) {
+        String result = null;
+        for (final String candidate : versions) {
+            if (result == null || isPreRelease(result) && !isPreRelease(candidate)) {
+                result = candidate;
+            } else if (isPreRelease(result) == isPreRelease(candidate) && compareVersions(candidate, result) > 0) {
+                result = candidate;
+            }
+        }
+        //noinspection ConstantConditions
+        return result;
+    }
+
+    protected static boolean isPreRelease(@Nonnull String version) {
+        return splitVersion(version)[1] != null;
+    }
+
+    /**
+     * Compares semantic versions like <code>v1.2.3</code> or <code>v1.2.3-rc.1</code>. Releases are always higher
+     * than pre releases of the same version.
+     */
+    protected static int compareVersions(@Nonnull String a, @Nonnull String b) {
+        final String[] aParts = splitVersion(a);
+        final String[] bParts = splitVersion(b);
+        final int result = integerVersionOf(aParts[0]).compareTo(integerVersionOf(bParts[0]));
+        if (result != 0) {
+            return result;
+        }
+        if (aParts[1] == null || bParts[1] == null) {
+            return aParts[1] == null ? (bParts[1] == null ? 0 : 1) : -1;
+        }
+        return comparePreReleases(aParts[1], bParts[1]);
+    }
+
+    /**
+     * Compares the dot separated identifiers like semver does: numeric ones numerically (<code>rc.2 &lt; rc.10</code>)
+     * and lower than alphanumeric ones, which are compared lexically. More identifiers are higher if all others are equal.
+     */
+    protected static int comparePreReleases(@Nonnull String a, @Nonnull String b) {
+        final String[] aIdentifiers = a.split("\\.");
+        final String[] bIdentifiers = b.split("\\.");
+        for (int i = 0; i < aIdentifiers.length && i < bIdentifiers.length; i++) {
+            final boolean aNumeric = NUMERIC_IDENTIFIER.matcher(aIdentifiers[i]).matches();
+            final boolean bNumeric = NUMERIC_IDENTIFIER.matcher(bIdentifiers[i]).matches();
+            final int result;
+            if (aNumeric && bNumeric) {
+                result = new BigInteger(aIdentifiers[i]).compareTo(new BigInteger(bIdentifiers[i]));
+            } else if (aNumeric || bNumeric) {
+                result = aNumeric ? -1 : 1;
+            } else {
+                result = aIdentifiers[i].compareTo(bIdentifiers[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(aIdentifiers.length, bIdentifiers.length);
+    }
+
+    @Nonnull
+    protected static String[] splitVersion(@Nonnull String version) {
+        String plain = version.startsWith("v") ? version.substring(1) : version;
+        final int build = plain.indexOf('+');
+        if (build >= 0) {
+            plain = plain.substring(0, build);
+        }
+        final int preRelease = plain.indexOf('-');
+        if (preRelease >= 0) {
+            return new String[]{plain.substring(0, preRelease), plain.substring(preRelease + 1)};
+        }
+        return new String[]{plain, null};
+    }
+
+    @Nonnull
+    protected static IntegerVersion integerVersionOf(@Nonnull String plain) {
+        try {
+            return new IntegerVersion(plain);
+        } catch (final IllegalArgumentException ignored) {
+            return new IntegerVersion(0, null, null);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.echocat.gradle.plugins.golang.vcs.goproxy;
+
+import org.echocat.gradle.plugins.golang.vcs.RawVcsReference;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepositoryProvider;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.URI;
+
+/**
+ * Uses the given <code>delegate</code> to identify the module of a dependency and downloads it from a GOPROXY. If the
+ * proxy does not know a module the repository of the <code>delegate</code> is used as it is.
+ */
+public class GoProxyVcsRepositoryProvider implements VcsRepositoryProvider {
+
+    @Nonnull
+    private final GoProxyClient _client;
+    @Nonnull
+    private final VcsRepositoryProvider _delegate;
+
+    public GoProxyVcsRepositoryProvider(@Nonnull URI proxy, @Nonnull VcsRepositoryProvider delegate) {
+        this(new GoProxyClient(proxy), delegate);
+    }
+
+    public GoProxyVcsRepositoryProvider(@Nonnull GoProxyClient client, @Nonnull VcsRepositoryProvider delegate) {
+        _client = client;
+        _delegate = delegate;
+    }
+
+    @Nullable
+    @Override
+    public VcsRepository tryProvideFor(@Nonnull RawVcsReference rawReference) throws VcsException {
+        final VcsRepository direct = _delegate.tryProvideFor(rawReference);
+        if (direct == null) {
+            return null;
+        }
+        return new GoProxyVcsRepository(direct.getReference(), _client, direct);
+    }
+
+}
@@ -61,7 +61,7 @@ public class BitbucketVcsRepositoryProvider extends IspBasedVcsRepositoryProvide
                 try {
                     final VcsReference reference = detectVcsUriOf(rawReference, candidate);
                     final VcsRepository vcsRepository = vcsFactory().createFor(reference);
-                    if (vcsRepository.isWorking()) {
+                    if (isWorking(vcsRepository)) {
                         return candidate;
                     }
                 } catch (final VcsException ignored) {}
@@ -1,6 +1,8 @@
 package org.echocat.gradle.plugins.golang.vcs.isps;
 
+import org.echocat.gradle.plugins.golang.cache.NegativeResultCache;
 import org.echocat.gradle.plugins.golang.vcs.*;
+import org.echocat.gradle.plugins.golang.vcs.git.GitBackend;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -17,6 +19,8 @@ public abstract class VcsRepositoryProviderSupport implements VcsRepositoryProvi
     private final VcsRepositoryFactory _vcsRepositoryFactory = new VcsRepositoryFactory();
     @Nonnull
     private final Pattern _dependencyPattern;
+    @Nullable
+    private NegativeResultCache _negativeResultCache;
 
     protected VcsRepositoryProviderSupport(@Nonnull Pattern dependencyPattern) {
         _dependencyPattern = dependencyPattern;
@@ -77,6 +81,13 @@ public abstract class VcsRepositoryProviderSupport implements VcsRepositoryProvi
     @Nullable
     protected String subPathOf(Matcher matcher) {
         try {
+            // The subPath group is normally repeated and would only contain the last element, so we take everything
+            // behind the root.
+            final String all = matcher.group();
+            final String root = matcher.group("root");
+            if (root != null && all.startsWith(root) && all.length() > root.length()) {
+                return all.substring(root.length());
+            }
             return matcher.group("subPath");
         } catch (final IllegalArgumentException ignored) {
             return null;
@@ -122,4 +133,38 @@ public abstract class VcsRepositoryProviderSupport implements VcsRepositoryProvi
     protected Pattern dependencyPattern() {
         return _dependencyPattern;
     }
+
+    @Nullable
+    public NegativeResultCache getNegativeResultCache() {
+        return _negativeResultCache;
+    }
+
+    public void setNegativeResultCache(@Nullable NegativeResultCache negativeResultCache) {
+        _negativeResultCache = negativeResultCache;
+    }
+
+    @Nullable
+    public GitBackend getGitBackend() {
+        return _vcsRepositoryFactory.getGitBackend();
+    }
+
+    /**
+     * @param gitBackend Backend to use for this provider. If <code>null</code> the default one is used.
+     */
+    public void setGitBackend(@Nullable GitBackend gitBackend) {
+        _vcsRepositoryFactory.setGitBackend(gitBackend);
+    }
+
+    public void setDefaultGitBackend(@Nullable GitBackend gitBackend) {
+        _vcsRepositoryFactory.setDefaultGitBackend(gitBackend);
+    }
+
+    public void setSparseCheckout(boolean sparseCheckout) {
+        _vcsRepositoryFactory.setSparseCheckout(sparseCheckout);
+    }
+
+    protected boolean isWorking(@Nonnull VcsRepository repository) throws VcsException {
+        final NegativeResultCache negativeResultCache = _negativeResultCache;
+        return negativeResultCache != null ? negativeResultCache.isWorking(repository) : repository.isWorking();
+    }
 }
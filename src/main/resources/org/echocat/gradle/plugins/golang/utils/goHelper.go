@@ -0,0 +1,145 @@
+package main
+
+// Long living helper which answers questions about go sources and the toolchain it was built with. It reads one JSON
+// request per line from stdin and writes one JSON response per line to stdout. Requests are handled concurrently, so
+// responses could be written in another order than the requests were read - they are correlated by their id. The
+// helper terminates as soon as stdin is closed.
+
+import (
+	"bufio"
+	"encoding/json"
+	"fmt"
+	"go/build"
+	"go/parser"
+	"go/token"
+	"io"
+	"log"
+	"os"
+	"runtime"
+	"strconv"
+	"sync"
+)
+
+type request struct {
+	Id     int64    `json:"id"`
+	Method string   `json:"method"`
+	File   string   `json:"file"`
+	Dir    string   `json:"dir"`
+	Goos   string   `json:"goos"`
+	Goarch string   `json:"goarch"`
+	Tags   []string `json:"tags"`
+}
+
+type response struct {
+	Id     int64       `json:"id"`
+	Result interface{} `json:"result,omitempty"`
+	Error  string      `json:"error,omitempty"`
+}
+
+type goPackage struct {
+	Name           string   `json:"name"`
+	GoFiles        []string `json:"goFiles"`
+	CgoFiles       []string `json:"cgoFiles"`
+	TestGoFiles    []string `json:"testGoFiles"`
+	XTestGoFiles   []string `json:"xTestGoFiles"`
+	IgnoredGoFiles []string `json:"ignoredGoFiles"`
+	Imports        []string `json:"imports"`
+	TestImports    []string `json:"testImports"`
+	XTestImports   []string `json:"xTestImports"`
+}
+
+func main() {
+	log.SetFlags(0)
+	in := bufio.NewReaderSize(os.Stdin, 64*1024)
+	out := json.NewEncoder(os.Stdout)
+	var outLock sync.Mutex
+	var running sync.WaitGroup
+	for {
+		line, err := in.ReadBytes('\n')
+		if len(line) > 0 {
+			var r request
+			if uerr := json.Unmarshal(line, &r); uerr != nil {
+				log.Printf("Could not parse request '%s'. Caused: %v", line, uerr)
+			} else {
+				running.Add(1)
+				go func(r request) {
+					defer running.Done()
+					result := response{Id: r.Id}
+					if value, herr := handle(r); herr != nil {
+						result.Error = herr.Error()
+					} else {
+						result.Result = value
+					}
+					outLock.Lock()
+					defer outLock.Unlock()
+					if eerr := out.Encode(result); eerr != nil {
+						log.Fatalf("Could not write response. Caused: %v", eerr)
+					}
+				}(r)
+			}
+		}
+		if err == io.EOF {
+			break
+		} else if err != nil {
+			log.Fatalf("Could not read request. Caused: %v", err)
+		}
+	}
+	running.Wait()
+}
+
+func handle(r request) (interface{}, error) {
+	switch r.Method {
+	case "version":
+		return runtime.Version(), nil
+	case "imports":
+		return importsOf(r.File)
+	case "package":
+		return packageOf(r.Dir, r.Goos, r.Goarch, r.Tags)
+	}
+	return nil, fmt.Errorf("Unknown method '%v'.", r.Method)
+}
+
+func importsOf(file string) ([]string, error) {
+	f, err := parser.ParseFile(token.NewFileSet(), file, nil, parser.ImportsOnly)
+	if err != nil {
+		return nil, fmt.Errorf("Could not parse imports of '%v'. Caused: %v", file, err)
+	}
+	result := []string{}
+	for _, candidate := range f.Imports {
+		path, err := strconv.Unquote(candidate.Path.Value)
+		if err != nil {
+			return nil, fmt.Errorf("Could not parse import %v of '%v'. Caused: %v", candidate.Path.Value, file, err)
+		}
+		result = append(result, path)
+	}
+	return result, nil
+}
+
+// Evaluates the build constraints of all files in the given directory for the given platform.
+func packageOf(dir string, goos string, goarch string, tags []string) (*goPackage, error) {
+	context := build.Default
+	if goos != "" {
+		context.GOOS = goos
+	}
+	if goarch != "" {
+		context.GOARCH = goarch
+	}
+	context.BuildTags = tags
+	p, err := context.ImportDir(dir, 0)
+	if err != nil {
+		if _, ok := err.(*build.NoGoError); !ok {
+			return nil, fmt.Errorf("Could not read package '%v'. Caused: %v", dir, err)
+		}
+	}
+	return &goPackage{
+		Name:           p.Name,
+		GoFiles:        p.GoFiles,
+		CgoFiles:       p.CgoFiles,
+		TestGoFiles:    p.TestGoFiles,
+		XTestGoFiles:   p.XTestGoFiles,
+		IgnoredGoFiles: p.IgnoredGoFiles,
+		Imports:        p.Imports,
+		TestImports:    p.TestImports,
+		XTestImports:   p.XTestImports,
+	}, nil
+}
@@ -0,0 +1,242 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.echocat.gradle.plugins.golang.utils.ArchiveUtils.ChecksumMismatchException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.toHexString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ArchiveCacheUnitTest {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private final byte[] _content = new byte[(int) (ArchiveCache.MINIMUM_SEGMENT_SIZE * 2 + 12345)];
+    private final List<String> _requests = new CopyOnWriteArrayList<>();
+    private HttpServer _server;
+    private String _sha256;
+    private byte[] _archive;
+    private String _archiveSha256;
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(666).nextBytes(_content);
+        _sha256 = toHexString(MessageDigest.getInstance("SHA-256").digest(_content));
+        _archive = tarGz("go/VERSION", "go1.8");
+        _archiveSha256 = toHexString(MessageDigest.getInstance("SHA-256").digest(_archive));
+        _server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        _server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleRequest(exchange);
+            }
+        });
+        _server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (_server != null) {
+            _server.stop(0);
+        }
+    }
+
+    @Test
+    public void fetchInSegmentsAndReuseByDigest() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        final URI uri = uriOf("go1.8.src.tar.gz");
+
+        final String published = cache.publishedSha256Of(uri);
+        assertThat(published, equalTo(_sha256));
+
+        final Path archive = cache.fetch(uri, published, 4, null);
+        assertThat(archive, equalTo(cache.getRoot().resolve("sha256").resolve(_sha256).resolve("go1.8.src.tar.gz")));
+        assertThat(Arrays.equals(readAllBytes(archive), _content), equalTo(true));
+        assertThat(_requests.contains("HEAD /go1.8.src.tar.gz"), equalTo(true));
+        assertThat(countOf("GET /go1.8.src.tar.gz bytes="), equalTo(2));
+
+        // Same digest - also under another name - is never downloaded again.
+        _requests.clear();
+        assertThat(cache.fetch(uriOf("go1.8.src.tar.gz"), null, 4, null), equalTo(archive));
+        assertThat(cache.fetch(uriOf("mirror/go1.8.src.tar.gz"), _sha256, 4, null), equalTo(archive));
+        assertThat(_requests.size(), equalTo(0));
+    }
+
+    @Test
+    public void fetchResumesInterruptedDownload() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        write(cache.getRoot().resolve("go1.8.src.tar.gz.part"), Arrays.copyOf(_content, 1000));
+
+        final Path archive = cache.fetch(uriOf("go1.8.src.tar.gz"), _sha256, 1, null);
+
+        assertThat(Arrays.equals(readAllBytes(archive), _content), equalTo(true));
+        assertThat(_requests, equalTo((List<String>) Arrays.asList("GET /go1.8.src.tar.gz bytes=1000-")));
+    }
+
+    @Test
+    public void fetchFailsOnChecksumMismatch() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        final String wrong = "0000000000000000000000000000000000000000000000000000000000000000";
+        try {
+            cache.fetch(uriOf("go1.8.src.tar.gz"), wrong, 1, null);
+            fail("Expected exception missing.");
+        } catch (final ChecksumMismatchException expected) {
+            assertThat(exists(cache.getRoot().resolve("go1.8.src.tar.gz.part")), equalTo(false));
+            assertThat(exists(cache.getRoot().resolve("go1.8.src.tar.gz.sha256")), equalTo(false));
+        }
+    }
+
+    @Test
+    public void fetchAndExtractWhileDownloading() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        final Path target = _temporaryFolder.getRoot().toPath().resolve("go");
+
+        final Path archive = cache.fetchAndExtract(uriOf("sdk/go1.8.linux-amd64.tar.gz"), _archiveSha256, 1, null, target);
+
+        assertThat(archive, equalTo(cache.getRoot().resolve("sha256").resolve(_archiveSha256).resolve("go1.8.linux-amd64.tar.gz")));
+        assertThat(Arrays.equals(readAllBytes(archive), _archive), equalTo(true));
+        assertThat(new String(readAllBytes(target.resolve("VERSION")), "UTF-8"), equalTo("go1.8"));
+        assertThat(_requests, equalTo((List<String>) Arrays.asList("GET /sdk/go1.8.linux-amd64.tar.gz")));
+
+        // Extracted from the cache.
+        _requests.clear();
+        final Path other = _temporaryFolder.getRoot().toPath().resolve("other");
+        assertThat(cache.fetchAndExtract(uriOf("sdk/go1.8.linux-amd64.tar.gz"), null, 1, null, other), equalTo(archive));
+        assertThat(new String(readAllBytes(other.resolve("VERSION")), "UTF-8"), equalTo("go1.8"));
+        assertThat(_requests.size(), equalTo(0));
+    }
+
+    @Test
+    public void fetchAndExtractResumedDownload() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        write(cache.getRoot().resolve("go1.8.linux-amd64.tar.gz.part"), Arrays.copyOf(_archive, 10));
+        final Path target = _temporaryFolder.getRoot().toPath().resolve("go");
+
+        final Path archive = cache.fetchAndExtract(uriOf("sdk/go1.8.linux-amd64.tar.gz"), _archiveSha256, 1, null, target);
+
+        assertThat(Arrays.equals(readAllBytes(archive), _archive), equalTo(true));
+        assertThat(new String(readAllBytes(target.resolve("VERSION")), "UTF-8"), equalTo("go1.8"));
+        assertThat(_requests, equalTo((List<String>) Arrays.asList("GET /sdk/go1.8.linux-amd64.tar.gz bytes=10-")));
+    }
+
+    @Test
+    public void fetchAndExtractFailsOnChecksumMismatch() throws Exception {
+        final ArchiveCache cache = new ArchiveCache(_temporaryFolder.newFolder().toPath());
+        final Path target = _temporaryFolder.getRoot().toPath().resolve("go");
+        final String wrong = "0000000000000000000000000000000000000000000000000000000000000000";
+        try {
+            cache.fetchAndExtract(uriOf("sdk/go1.8.linux-amd64.tar.gz"), wrong, 1, null, target);
+            fail("Expected exception missing.");
+        } catch (final ChecksumMismatchException expected) {
+            assertThat(exists(cache.getRoot().resolve("go1.8.linux-amd64.tar.gz.part")), equalTo(false));
+            assertThat(exists(target), equalTo(false));
+        }
+    }
+
+    @Test
+    public void segmentsFor() throws Exception {
+        final List<ArchiveCache.Segment> segments = ArchiveCache.segmentsFor(ArchiveCache.MINIMUM_SEGMENT_SIZE * 3 + 1, 8);
+        assertThat(segments.size(), equalTo(3));
+    }
+
+    protected URI uriOf(String path) {
+        return URI.create("http://localhost:" + _server.getAddress().getPort() + "/" + path);
+    }
+
+    protected int countOf(String prefix) {
+        int result = 0;
+        for (final String request : _requests) {
+            if (request.startsWith(prefix)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    protected static byte[] tarGz(String name, String content) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (final TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(result))) {
+            final byte[] bytes = content.getBytes("UTF-8");
+            final TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(bytes.length);
+            entry.setMode(0644);
+            tar.putArchiveEntry(entry);
+            tar.write(bytes);
+            tar.closeArchiveEntry();
+        }
+        return result.toByteArray();
+    }
+
+    protected void handleRequest(HttpExchange exchange) throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath();
+            final byte[] content = path.startsWith("/sdk/") ? _archive : _content;
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            _requests.add(exchange.getRequestMethod() + " " + path + (range != null ? " " + range : ""));
+            if (path.endsWith(".sha256")) {
+                final byte[] body = (_sha256 + "\n").getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (final OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+                return;
+            }
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", Integer.toString(content.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            int from = 0;
+            int to = content.length - 1;
+            final Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+            if (matcher != null && matcher.matches()) {
+                from = Integer.parseInt(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    to = Math.min(to, Integer.parseInt(matcher.group(2)));
+                }
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+                exchange.sendResponseHeaders(206, to - from + 1);
+            } else {
+                exchange.sendResponseHeaders(200, content.length);
+            }
+            try (final OutputStream os = exchange.getResponseBody()) {
+                os.write(content, from, to - from + 1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import org.echocat.gradle.plugins.golang.model.ArtifactInfoCache.Entry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.attribute.FileTime.fromMillis;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ArtifactAccessTrackerUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void touch() throws Exception {
+        final Path root = _temporaryFolder.newFolder().toPath();
+        final Path directory = root.resolve("github.com/echocat/foo");
+        createDirectories(directory);
+        setLastModifiedTime(directory, fromMillis(0));
+        final ArtifactAccessTracker tracker = new ArtifactAccessTracker(root);
+        final long before = currentTimeMillis();
+
+        tracker.touch("github.com/echocat/foo");
+
+        assertThat(tracker.findEntryBy("github.com/echocat/foo").getLastAccessedMillis() >= before, is(true));
+        assertThat(getLastModifiedTime(directory).toMillis() >= before - 1000, is(true));
+        assertThat(new ArtifactAccessTracker(root).findEntryBy("github.com/echocat/foo"), nullValue());
+
+        tracker.saveIfRequired();
+        assertThat(new ArtifactAccessTracker(root).findEntryBy("github.com/echocat/foo"), notNullValue());
+    }
+
+    @Test
+    public void saveIfRequiredMergesChangesOfOtherProcesses() throws Exception {
+        final Path root = _temporaryFolder.newFolder().toPath();
+        final ArtifactAccessTracker initial = new ArtifactAccessTracker(root);
+        initial.markUpdated("a");
+        initial.markUpdated("b");
+        initial.markUpdated("c");
+        initial.saveIfRequired();
+
+        final ArtifactAccessTracker process1 = new ArtifactAccessTracker(root);
+        final ArtifactAccessTracker process2 = new ArtifactAccessTracker(root);
+        process1.findEntryBy("a");
+        process2.findEntryBy("a");
+        final long accessedOfB = process2.findEntryBy("b").getLastAccessedMillis();
+
+        process1.touch("new1");
+        process1.remove("c");
+        process1.markSizeCalculated("a", 42);
+        process1.saveIfRequired();
+
+        // Still has the view before process1 saved.
+        process2.touch("new2");
+        process2.saveIfRequired();
+
+        final ArtifactAccessTracker result = new ArtifactAccessTracker(root);
+        assertThat(result.findEntryBy("a").getSize(), equalTo(42L));
+        assertThat(result.findEntryBy("b").getLastAccessedMillis(), equalTo(accessedOfB));
+        assertThat(result.findEntryBy("c"), nullValue());
+        assertThat(result.findEntryBy("new1"), notNullValue());
+        assertThat(result.findEntryBy("new2"), notNullValue());
+    }
+
+    @Test
+    public void reload() throws Exception {
+        final Path root = _temporaryFolder.newFolder().toPath();
+        final ArtifactAccessTracker process1 = new ArtifactAccessTracker(root);
+        final ArtifactAccessTracker process2 = new ArtifactAccessTracker(root);
+        process1.touch("a");
+        process2.findEntryBy("a");
+        process2.touch("b");
+        process1.saveIfRequired();
+
+        assertThat(process2.findEntryBy("a"), nullValue());
+        process2.reload();
+        assertThat(process2.findEntryBy("a"), notNullValue());
+        assertThat(process2.findEntryBy("b"), notNullValue());
+    }
+
+    @Test
+    public void mergeOfEntries() throws Exception {
+        final Entry stored = new Entry();
+        stored.setRef("stored");
+        stored.setLastUpdatedMillis(20);
+        stored.setLastAccessedMillis(10);
+        stored.setSize(1);
+        stored.setSizeCalculatedMillis(5);
+        final Entry local = new Entry();
+        local.setRef("local");
+        local.setLastUpdatedMillis(10);
+        local.setLastAccessedMillis(30);
+        local.setSize(2);
+        local.setSizeCalculatedMillis(15);
+
+        final Entry result = ArtifactAccessTracker.merge(stored, local);
+
+        assertThat(result.getRef(), equalTo("stored"));
+        assertThat(result.getLastUpdatedMillis(), equalTo(20L));
+        assertThat(result.getLastAccessedMillis(), equalTo(30L));
+        assertThat(result.getSize(), equalTo(2L));
+        assertThat(result.getSizeCalculatedMillis(), equalTo(15L));
+    }
+
+}
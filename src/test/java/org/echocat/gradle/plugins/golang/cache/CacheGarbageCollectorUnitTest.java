@@ -0,0 +1,117 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import org.echocat.gradle.plugins.golang.model.*;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.gradle.api.Project;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.*;
+import static java.nio.file.attribute.FileTime.fromMillis;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.echocat.gradle.plugins.golang.Constants.VCS_REPOSITORY_INFO_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
+import static org.echocat.gradle.plugins.golang.model.TestProjects.unusedProject;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CacheGarbageCollectorUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private Path _dependencyCache;
+    private Settings _settings;
+
+    @Before
+    public void setUp() throws Exception {
+        final Project project = unusedProject();
+        final GolangSettings golang = new GolangSettings(false, project);
+        golang.setCacheRoot(_temporaryFolder.newFolder("cache").toPath());
+        _dependencyCache = _temporaryFolder.newFolder("dependencies").toPath();
+        final DependenciesSettings dependencies = new DependenciesSettings(false, project);
+        dependencies.setDependencyCache(_dependencyCache);
+        _settings = new Settings(project, golang, new BuildSettings(false, project), new ToolchainSettings(false, project), dependencies, new TestingSettings(false, project));
+    }
+
+    @Test
+    public void collectEvictsLeastRecentlyUsedFirst() throws Exception {
+        final long now = currentTimeMillis();
+        givenDependency("a", now - 1000);
+        givenDependency("b", now - 3000);
+        givenDependency("c", now - 2000);
+        _settings.getGolang().setCacheMaxSize(250L);
+
+        assertThat(new CacheGarbageCollector(_settings).collect(), equalTo(directoriesOf("b")));
+        assertThat(exists(_dependencyCache.resolve("b")), equalTo(false));
+
+        _settings.getGolang().setCacheMaxSize(150L);
+        assertThat(new CacheGarbageCollector(_settings).collect(), equalTo(directoriesOf("c")));
+        assertThat(exists(_dependencyCache.resolve("a")), equalTo(true));
+    }
+
+    @Test
+    public void collectEvictsOnlyTooOld() throws Exception {
+        final long now = currentTimeMillis();
+        givenDependency("a", now - DAYS.toMillis(1));
+        givenDependency("b", now - DAYS.toMillis(3));
+        givenDependency("c", now - DAYS.toMillis(2) - 1000);
+        _settings.getGolang().setCacheMaxAge(DAYS.toMillis(2));
+
+        assertThat(new HashSet<>(new CacheGarbageCollector(_settings).collect()), equalTo(new HashSet<>(directoriesOf("b", "c"))));
+    }
+
+    @Test
+    public void collectDoesNotEvictRecentlyTouched() throws Exception {
+        final long now = currentTimeMillis();
+        givenDependency("a", now - 3000);
+        givenDependency("b", now - 2000);
+        artifactAccessTrackerFor(_dependencyCache).touch("a");
+        _settings.getGolang().setCacheMaxSize(150L);
+
+        assertThat(new CacheGarbageCollector(_settings).collect(), equalTo(directoriesOf("b")));
+    }
+
+    @Test
+    public void collectDoesNotEvictLocked() throws Exception {
+        final long now = currentTimeMillis();
+        givenDependency("a", now - 3000);
+        givenDependency("b", now - 2000);
+        givenDependency("c", now - 1000);
+        _settings.getGolang().setCacheMaxSize(150L);
+
+        final InterProcessLock lock = artifactAccessTrackerFor(_dependencyCache).lock("a", "using a", null);
+        try {
+            // The lock is reentrant for the thread which holds it.
+            assertThat(new CacheGarbageCollector(_settings).collectInBackground().get(), equalTo(directoriesOf("b", "c")));
+        } finally {
+            lock.close();
+        }
+        assertThat(exists(_dependencyCache.resolve("a")), equalTo(true));
+    }
+
+    protected void givenDependency(String id, long lastUsedMillis) throws Exception {
+        final Path directory = _dependencyCache.resolve(id);
+        createDirectories(directory);
+        write(directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME), "{\"lastUpdatedMillis\":0}".getBytes("UTF-8"));
+        write(directory.resolve("content.go"), new byte[100 - (int) size(directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME))]);
+        setLastModifiedTime(directory, fromMillis(lastUsedMillis));
+    }
+
+    protected Collection<Path> directoriesOf(String... ids) {
+        final Path[] result = new Path[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = _dependencyCache.resolve(ids[i]).toAbsolutePath().normalize();
+        }
+        return Arrays.asList(result);
+    }
+
+}
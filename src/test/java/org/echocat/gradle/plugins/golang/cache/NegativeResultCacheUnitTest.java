@@ -0,0 +1,76 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class NegativeResultCacheUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recordFailureOf() throws Exception {
+        final Path root = _temporaryFolder.newFolder().toPath();
+        final NegativeResultCache cache = new NegativeResultCache(root);
+        cache.recordFailureOf("foo", new IOException("Connection timed out"));
+
+        assertThat(cache.findFailureOf("foo").getCause(), equalTo("java.io.IOException: Connection timed out"));
+        assertThat(cache.findFailureOf("bar"), nullValue());
+
+        // Survives a new instance like a following build.
+        assertThat(new NegativeResultCache(root).findFailureOf("foo"), notNullValue());
+
+        cache.recordSuccessOf("foo");
+        assertThat(cache.findFailureOf("foo"), nullValue());
+    }
+
+    @Test
+    public void recordFailureOfMergesWithOtherProcesses() throws Exception {
+        final Path root = _temporaryFolder.newFolder().toPath();
+        final NegativeResultCache process1 = new NegativeResultCache(root);
+        final NegativeResultCache process2 = new NegativeResultCache(root);
+        assertThat(process1.findFailureOf("foo"), nullValue());
+        assertThat(process2.findFailureOf("foo"), nullValue());
+
+        process1.recordFailureOf("foo", "failed");
+        process2.recordFailureOf("bar", "failed");
+
+        assertThat(process2.findFailureOf("foo"), notNullValue());
+        assertThat(process1.findFailureOf("bar"), notNullValue());
+        assertThat(new NegativeResultCache(root).findFailureOf("foo"), notNullValue());
+        assertThat(new NegativeResultCache(root).findFailureOf("bar"), notNullValue());
+
+        process2.recordSuccessOf("foo");
+        assertThat(process1.findFailureOf("foo"), nullValue());
+        assertThat(process1.findFailureOf("bar"), notNullValue());
+    }
+
+    @Test
+    public void findFailureOfExpired() throws Exception {
+        final NegativeResultCache cache = new NegativeResultCache(_temporaryFolder.newFolder().toPath());
+        cache.recordFailureOf("foo", "failed");
+        cache.setTimeToLive(-1);
+
+        assertThat(cache.findFailureOf("foo"), nullValue());
+    }
+
+    @Test
+    public void findFailureOfWithReprobe() throws Exception {
+        final NegativeResultCache cache = new NegativeResultCache(_temporaryFolder.newFolder().toPath());
+        cache.recordFailureOf("foo", "failed");
+        cache.setReprobe(true);
+
+        assertThat(cache.findFailureOf("foo"), nullValue());
+
+        cache.setReprobe(false);
+        assertThat(cache.findFailureOf("foo"), notNullValue());
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.echocat.gradle.plugins.golang.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static java.nio.file.Files.*;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.FileUtils.deleteQuietly;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+public class SdkStoreUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deduplicateAndPrune() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final Path root = _temporaryFolder.newFolder("sdk").toPath();
+        final SdkStore store = new SdkStore(root.resolve(SdkStore.OBJECTS_DIRECTORY_NAME));
+        final Path a = sdk(root.resolve("go1.8.1"), "go1.8.1");
+        final Path b = sdk(root.resolve("go1.8.2"), "go1.8.2");
+
+        assertThat(store.deduplicate(a, null), equalTo(0L));
+        assertThat(store.deduplicate(b, null), equalTo((long) ("package fmt".length() + "binary".length())));
+
+        assertThat(isSameFile(a.resolve("src/fmt/print.go"), b.resolve("src/fmt/print.go")), equalTo(true));
+        assertThat(isSameFile(a.resolve("VERSION"), b.resolve("VERSION")), equalTo(false));
+        assertThat(new String(readAllBytes(b.resolve("VERSION")), "UTF-8"), equalTo("go1.8.2"));
+        // Same content but different executable flag.
+        assertThat(isSameFile(a.resolve("bin/go"), b.resolve("src/fmt/go")), equalTo(false));
+        assertThat(isExecutable(a.resolve("bin/go")), equalTo(true));
+        assertThat(isExecutable(b.resolve("src/fmt/go")), equalTo(false));
+        // Empty files are never shared.
+        assertThat(isSameFile(a.resolve("empty"), b.resolve("empty")), equalTo(false));
+
+        // Deduplicate twice changes nothing.
+        assertThat(store.deduplicate(b, null), equalTo(0L));
+
+        deleteQuietly(a);
+        assertThat(store.prune(), equalTo((long) "go1.8.1".length()));
+        assertThat(new String(readAllBytes(b.resolve("src/fmt/print.go")), "UTF-8"), equalTo("package fmt"));
+        deleteQuietly(b);
+        store.prune();
+        assertThat(isDirectory(store.getObjects()), equalTo(true));
+        assertThat(sizeOf(store), equalTo(0L));
+    }
+
+    protected static long sizeOf(SdkStore store) throws Exception {
+        long result = 0;
+        try (final DirectoryStream<Path> prefixes = newDirectoryStream(store.getObjects())) {
+            for (final Path prefix : prefixes) {
+                try (final DirectoryStream<Path> objects = newDirectoryStream(prefix)) {
+                    for (final Path object : objects) {
+                        result += size(object);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    protected static Path sdk(Path goroot, String version) throws Exception {
+        createDirectories(goroot.resolve("src/fmt"));
+        createDirectories(goroot.resolve("bin"));
+        write(goroot.resolve("VERSION"), version.getBytes("UTF-8"));
+        write(goroot.resolve("src/fmt/print.go"), "package fmt".getBytes("UTF-8"));
+        write(goroot.resolve("bin/go"), "binary".getBytes("UTF-8"));
+        setPosixFilePermissions(goroot.resolve("bin/go"), PosixFilePermissions.fromString("rwxr-xr-x"));
+        if (version.endsWith(".2")) {
+            write(goroot.resolve("src/fmt/go"), "binary".getBytes("UTF-8"));
+        }
+        write(goroot.resolve("empty"), new byte[0]);
+        return goroot;
+    }
+
+}
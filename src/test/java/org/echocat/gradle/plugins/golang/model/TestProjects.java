@@ -0,0 +1,25 @@
+package org.echocat.gradle.plugins.golang.model;
+
+import org.gradle.api.Project;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+public class TestProjects {
+
+    /**
+     * @return a {@link Project} for settings which are tested without a real project. Every call of it fails.
+     */
+    @Nonnull
+    public static Project unusedProject() {
+        return (Project) Proxy.newProxyInstance(TestProjects.class.getClassLoader(), new Class<?>[]{Project.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                throw new UnsupportedOperationException("Not available in tests: " + method);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.echocat.gradle.plugins.golang.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.*;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.model.TestProjects.unusedProject;
+import static org.echocat.gradle.plugins.golang.model.ToolchainSettings.VERSION_STAMP_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.model.ToolchainSettings.readVersionStampFrom;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+public class ToolchainSettingsUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void getGoversionAsInteger() throws Exception {
+        assertThat(toolchainWith("go1.8").getGoversionAsInteger(), equalTo(new IntegerVersion(1, 8, null)));
+        assertThat(toolchainWith("go1.8.3").getGoversionAsInteger(), equalTo(new IntegerVersion(1, 8, 3)));
+        assertThat(toolchainWith("go1.10beta1").getGoversionAsInteger(), equalTo(new IntegerVersion(1, 10, null)));
+        assertThat(toolchainWith("devel").getGoversionAsInteger(), nullValue());
+    }
+
+    @Test
+    public void isNativeCrossCompilationSupported() throws Exception {
+        assertThat(toolchainWith("go1.4.3").isNativeCrossCompilationSupported(), equalTo(false));
+        assertThat(toolchainWith("go1.5").isNativeCrossCompilationSupported(), equalTo(true));
+        assertThat(toolchainWith("go1.10").isNativeCrossCompilationSupported(), equalTo(true));
+        assertThat(toolchainWith("devel").isNativeCrossCompilationSupported(), equalTo(false));
+    }
+
+    @Test
+    public void goBinaryVersionOfIsCached() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final Path goroot = _temporaryFolder.newFolder("go").toPath();
+        final Path invocations = goroot.resolve("invocations");
+        final Path goBinary = goroot.resolve("bin").resolve("go");
+        createDirectories(goBinary.getParent());
+        write(goBinary, ("#!/bin/sh\necho x >> '" + invocations + "'\necho 'go version go1.8 linux/amd64'\n").getBytes("UTF-8"));
+        setPosixFilePermissions(goBinary, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        assertThat(toolchainWith("go1.8").goBinaryVersionOf(goroot), equalTo("go1.8"));
+        assertThat(toolchainWith("go1.8").goBinaryVersionOf(goroot), equalTo("go1.8"));
+        assertThat(readAllLines(invocations, UTF_8).size(), equalTo(1));
+        assertThat(readVersionStampFrom(goroot.resolve(VERSION_STAMP_FILE_NAME), stampOf(goBinary)), equalTo("go1.8"));
+
+        // A stamp of another binary is ignored.
+        assertThat(readVersionStampFrom(goroot.resolve(VERSION_STAMP_FILE_NAME), stampOf(goBinary) + "x"), nullValue());
+
+        // A changed binary is probed again.
+        write(goBinary, ("#!/bin/sh\necho x >> '" + invocations + "'\necho 'go version go1.10 linux/amd64'\n").getBytes("UTF-8"));
+        assertThat(toolchainWith("go1.8").goBinaryVersionOf(goroot), equalTo("go1.10"));
+        assertThat(readAllLines(invocations, UTF_8).size(), equalTo(2));
+    }
+
+    protected static String stampOf(Path goBinary) throws Exception {
+        final Path normalized = goBinary.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = readAttributes(normalized, BasicFileAttributes.class);
+        return normalized + "\n" + attributes.size() + "\n" + attributes.lastModifiedTime().toMillis() + "\n";
+    }
+
+    protected static ToolchainSettings toolchainWith(String goversion) {
+        final ToolchainSettings result = new ToolchainSettings(false, unusedProject());
+        result.setGoversion(goversion);
+        return result;
+    }
+
+}
@@ -0,0 +1,160 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isExecutable;
+import static java.nio.file.Files.readAllBytes;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.toHexString;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ArchiveUtilsUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void extractTarGz() throws Exception {
+        final byte[] archive = tarGz();
+        final Path target = _temporaryFolder.newFolder().toPath();
+
+        final String sha256 = ArchiveUtils.extract(new ByteArrayInputStream(archive), "go.tar.gz", target);
+
+        assertThat(sha256, equalTo(sha256Of(archive)));
+        assertThat(new String(readAllBytes(target.resolve("bin").resolve("go")), "UTF-8"), equalTo("#!go"));
+        assertThat(new String(readAllBytes(target.resolve("VERSION")), "UTF-8"), equalTo("go1.8"));
+        if (currentOperatingSystem() != WINDOWS) {
+            assertThat(isExecutable(target.resolve("bin").resolve("go")), equalTo(true));
+            assertThat(isExecutable(target.resolve("VERSION")), equalTo(false));
+        }
+    }
+
+    @Test
+    public void unZipInParallel() throws Exception {
+        final Path archive = _temporaryFolder.getRoot().toPath().resolve("go.zip");
+        try (final ZipArchiveOutputStream zip = new ZipArchiveOutputStream(archive.toFile())) {
+            addTo(zip, "go/bin/go", "#!go", 0755);
+            for (int i = 0; i < 200; i++) {
+                addTo(zip, "go/src/pkg" + (i % 7) + "/file" + i + ".go", "package pkg" + (i % 7) + " // " + i, 0644);
+            }
+        }
+        final Path target = _temporaryFolder.newFolder().toPath();
+
+        ArchiveUtils.unZip(archive, target);
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(new String(readAllBytes(target.resolve("src/pkg" + (i % 7) + "/file" + i + ".go")), "UTF-8"), equalTo("package pkg" + (i % 7) + " // " + i));
+        }
+        assertThat(new String(readAllBytes(target.resolve("bin").resolve("go")), "UTF-8"), equalTo("#!go"));
+        if (currentOperatingSystem() != WINDOWS) {
+            assertThat(isExecutable(target.resolve("bin").resolve("go")), equalTo(true));
+            assertThat(isExecutable(target.resolve("src/pkg0/file0.go")), equalTo(false));
+        }
+    }
+
+    @Test
+    public void extractZip() throws Exception {
+        final byte[] archive = zip();
+        final Path target = _temporaryFolder.newFolder().toPath();
+
+        final String sha256 = ArchiveUtils.extract(new ByteArrayInputStream(archive), "go.zip", target);
+
+        assertThat(sha256, equalTo(sha256Of(archive)));
+        assertThat(new String(readAllBytes(target.resolve("bin").resolve("go.exe")), "UTF-8"), equalTo("MZgo"));
+    }
+
+    @Test
+    public void unZipRejectsEntriesOutsideOfTarget() throws Exception {
+        final Path archive = _temporaryFolder.getRoot().toPath().resolve("evil.zip");
+        try (final ZipArchiveOutputStream zip = new ZipArchiveOutputStream(archive.toFile())) {
+            addTo(zip, "go/VERSION", "go1.8", 0644);
+            addTo(zip, "go/../../evil", "evil", 0644);
+        }
+        final Path target = _temporaryFolder.newFolder("parent", "target").toPath();
+
+        try {
+            ArchiveUtils.unZip(archive, target);
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage(), containsString("go/../../evil"));
+        }
+        assertThat(exists(target.getParent().getParent().resolve("evil")), equalTo(false));
+    }
+
+    @Test
+    public void extractTarGzRejectsEntriesOutsideOfTarget() throws Exception {
+        final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (final TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(archive))) {
+            addTo(tar, "go/../../evil", "evil", 0644);
+        }
+        final Path target = _temporaryFolder.newFolder("parent", "target").toPath();
+
+        try {
+            ArchiveUtils.extract(new ByteArrayInputStream(archive.toByteArray()), "go.tar.gz", target);
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage(), containsString("go/../../evil"));
+        }
+        assertThat(exists(target.getParent().getParent().resolve("evil")), equalTo(false));
+    }
+
+    protected static byte[] tarGz() throws Exception {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (final TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(result))) {
+            addTo(tar, "go/bin/go", "#!go", 0755);
+            addTo(tar, "go/VERSION", "go1.8", 0644);
+        }
+        return result.toByteArray();
+    }
+
+    protected static void addTo(TarArchiveOutputStream tar, String name, String content, int mode) throws Exception {
+        final byte[] bytes = content.getBytes("UTF-8");
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(bytes.length);
+        entry.setMode(mode);
+        tar.putArchiveEntry(entry);
+        tar.write(bytes);
+        tar.closeArchiveEntry();
+    }
+
+    protected static void addTo(ZipArchiveOutputStream zip, String name, String content, int mode) throws Exception {
+        final ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(mode);
+        zip.putArchiveEntry(entry);
+        zip.write(content.getBytes("UTF-8"));
+        zip.closeArchiveEntry();
+    }
+
+    protected static byte[] zip() throws Exception {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (final ZipArchiveOutputStream zip = new ZipArchiveOutputStream(result)) {
+            zip.putArchiveEntry(new ZipArchiveEntry("go/bin/go.exe"));
+            zip.write("MZgo".getBytes("UTF-8"));
+            zip.closeArchiveEntry();
+        }
+        return result.toByteArray();
+    }
+
+    protected static String sha256Of(byte[] bytes) throws Exception {
+        return toHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+}
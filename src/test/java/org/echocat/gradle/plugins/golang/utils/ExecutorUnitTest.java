@@ -0,0 +1,146 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
+
+public class ExecutorUnitTest {
+
+    private static final Path SH = Paths.get("/bin/sh");
+
+    @Test
+    public void separatedAndRedirectedStreams() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        executor(SH, stdout, stderr).arguments("-c", "echo out; echo err >&2").execute();
+        assertThat(stdout.toString("UTF-8"), equalTo("out\n"));
+        assertThat(stderr.toString("UTF-8"), equalTo("err\n"));
+
+        final Executor redirected = executor(SH).arguments("-c", "echo out; echo err >&2; echo out2").redirectErrorToOutput().execute();
+        assertThat(redirected.getStdoutAsString(), equalTo("out\nerr\nout2\n"));
+    }
+
+    @Test
+    public void failKeywords() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        try {
+            executor(SH).arguments("-c", "echo building; echo 'ERROR: broken' >&2").failKeywords("ERROR: ").discardOutput().execute();
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage().startsWith("Problem while executing"), equalTo(true));
+        }
+    }
+
+    @Test
+    public void failKeywordsAreOnlyMatchedInCapturedOutput() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        try {
+            executor(SH, captured, captured).arguments("-c", "echo 'ERROR: broken' >&2").failKeywords("ERROR: ").execute();
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage().startsWith("Problem while executing"), equalTo(true));
+        }
+
+        // Streams of the caller (like loggers) are not scanned.
+        final OutputStream stdout = new FilterOutputStream(new ByteArrayOutputStream());
+        executor(SH, stdout, stdout).arguments("-c", "echo 'ERROR: broken'").failKeywords("ERROR: ").execute();
+        // Separated stderr is not scanned.
+        executor(SH, new ByteArrayOutputStream(), new ByteArrayOutputStream()).arguments("-c", "echo 'ERROR: broken' >&2").failKeywords("ERROR: ").execute();
+    }
+
+    @Test
+    public void pumpsAreReused() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        for (int i = 0; i < 20; i++) {
+            assertThat(executor(SH).arguments("-c", "echo " + i).execute().getStdoutAsString(), equalTo(i + "\n"));
+        }
+        final Set<String> pumps = new HashSet<>();
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("golang-process-output-")) {
+                pumps.add(thread.getName());
+            }
+        }
+        assertThat(pumps.size() < 20, equalTo(true));
+    }
+
+    @Test
+    public void timeoutDumpsStacksAndKillsProcessTree() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        // Like a go program: Prints its stacks on SIGABRT. The child ignores it and has to be killed.
+        final String script = "trap 'echo stacks dumped' ABRT; " +
+            "sh -c 'trap \"\" ABRT; sleep 60' & echo \"child $!\"; " +
+            "wait; wait";
+        final long started = System.currentTimeMillis();
+        try {
+            executor(SH, stdout, stdout).arguments("-c", script).timeout(1000L).execute();
+            fail("Expected exception missing.");
+        } catch (final Executor.ExecutionTimedOutException expected) {
+            assertThat(expected.getMessage().startsWith("Got no result within "), equalTo(true));
+        }
+        assertThat(System.currentTimeMillis() - started < 30000, equalTo(true));
+        final String output = stdout.toString("UTF-8");
+        assertThat(output.contains("stacks dumped"), equalTo(true));
+        assertThat(isTerminated(childOf(output)), equalTo(true));
+    }
+
+    @Test
+    public void interruptKillsProcessTree() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor(SH, stdout, stdout).arguments("-c", "sleep 60 & echo \"child $!\"; wait").execute();
+                } catch (final Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        thread.start();
+        while (!stdout.toString("UTF-8").contains("\n")) {
+            Thread.sleep(10);
+        }
+        thread.interrupt();
+        thread.join(30000);
+
+        assertThat(thread.isAlive(), equalTo(false));
+        assertThat(failure.get() instanceof IOException, equalTo(true));
+        assertThat(isTerminated(childOf(stdout.toString("UTF-8"))), equalTo(true));
+    }
+
+    protected static String childOf(String output) {
+        return output.substring(output.indexOf("child ") + 6, output.indexOf('\n', output.indexOf("child ")));
+    }
+
+    protected static boolean isTerminated(String pid) throws Exception {
+        // Killed processes could stay zombies until they are reaped by init.
+        final Process ps = new ProcessBuilder("ps", "-o", "stat=", "-p", pid).start();
+        final String state = IOUtils.toString(ps.getInputStream(), "UTF-8").trim();
+        ps.waitFor();
+        return state.isEmpty() || state.startsWith("Z");
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.nio.file.Files.write;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.GoHelper.closeGoHelperOf;
+import static org.echocat.gradle.plugins.golang.utils.GoHelper.goHelperFor;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
+
+public class GoHelperUnitTest {
+
+    /**
+     * Speaks the protocol of goHelper.go: Answers of imports are delayed (the later requested, the earlier answered) and
+     * a file named crash terminates the helper.
+     */
+    private static final String FAKE_HELPER = "#!/bin/sh\n" +
+        "while IFS= read -r line; do\n" +
+        "  id=$(echo \"$line\" | sed 's/.*\"id\":\\([0-9]*\\).*/\\1/')\n" +
+        "  case \"$line\" in\n" +
+        "    *'\"method\":\"version\"'*) echo \"{\\\"id\\\":$id,\\\"result\\\":\\\"go1.7.4\\\"}\" ;;\n" +
+        "    *'/crash\"'*) exit 1 ;;\n" +
+        "    *'\"method\":\"imports\"'*)\n" +
+        "      file=$(echo \"$line\" | sed 's/.*\"file\":\"\\([^\"]*\\)\".*/\\1/')\n" +
+        "      (sleep 0.$(( (20 - id) % 10 )); echo \"{\\\"id\\\":$id,\\\"result\\\":[\\\"fmt\\\",\\\"$file\\\"]}\") & ;;\n" +
+        "    *) echo \"{\\\"id\\\":$id,\\\"error\\\":\\\"Unknown method.\\\"}\" ;;\n" +
+        "  esac\n" +
+        "done\n" +
+        "wait\n";
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private Path _binary;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        _binary = _temporaryFolder.getRoot().toPath().resolve(GoHelper.NAME);
+        write(_binary, FAKE_HELPER.getBytes("UTF-8"));
+        assertThat(_binary.toFile().setExecutable(true), equalTo(true));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (_binary != null) {
+            closeGoHelperOf(_binary);
+        }
+    }
+
+    @Test
+    public void concurrentRequests() throws Exception {
+        final GoHelper helper = goHelperFor(_binary);
+        assertThat(goHelperFor(_binary), sameInstance(helper));
+        assertThat(helper.version(), equalTo("go1.7.4"));
+
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            files.add(_temporaryFolder.getRoot().toPath().resolve("file" + i + ".go"));
+        }
+        final long started = System.currentTimeMillis();
+        final Map<Path, List<String>> imports = helper.importsOf(files);
+        // All requests are pending at the same time - one after another they would take seconds.
+        assertThat(System.currentTimeMillis() - started < 2000, equalTo(true));
+        assertThat(imports.size(), equalTo(files.size()));
+        for (final Path file : files) {
+            assertThat(imports.get(file), equalTo(Arrays.asList("fmt", file.toString())));
+        }
+
+        try {
+            helper.packageOf(_temporaryFolder.getRoot().toPath(), null, null);
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage(), equalTo("Unknown method."));
+        }
+    }
+
+    @Test
+    public void restartAfterTermination() throws Exception {
+        final GoHelper helper = goHelperFor(_binary);
+        try {
+            helper.importsOf(_temporaryFolder.getRoot().toPath().resolve("crash"));
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage(), equalTo("Helper " + _binary + " was terminated."));
+        }
+        assertThat(helper.version(), equalTo("go1.7.4"));
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.nio.file.Files.exists;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.echocat.gradle.plugins.golang.utils.InterProcessLock.tryAcquire;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class InterProcessLockUnitTest {
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void acquire() throws Exception {
+        final Path target = _temporaryFolder.getRoot().toPath().resolve("go1.8");
+        final ExecutorService executor = newSingleThreadExecutor();
+        try {
+            try (final InterProcessLock lock = InterProcessLock.acquire(target, "installing go1.8", null)) {
+                assertThat(lock.getLockFile(), equalTo(_temporaryFolder.getRoot().toPath().toAbsolutePath().normalize().resolve(".go1.8.lock")));
+                assertThat(exists(lock.getLockFile()), equalTo(true));
+                assertThat(tryAcquireIn(executor, target), equalTo(false));
+
+                // The same thread could acquire it again.
+                try (final InterProcessLock nested = InterProcessLock.acquire(target, "installing go1.8", null)) {
+                    assertThat(nested, notNullValue());
+                }
+                assertThat(tryAcquireIn(executor, target), equalTo(false));
+            }
+            assertThat(tryAcquireIn(executor, target), equalTo(true));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void acquireWaitsForOtherHolder() throws Exception {
+        final Path target = _temporaryFolder.getRoot().toPath().resolve("go1.8");
+        final ExecutorService executor = newSingleThreadExecutor();
+        try {
+            final InterProcessLock lock = InterProcessLock.acquire(target, "installing go1.8", null);
+            final Future<Long> waited = executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    final long started = System.currentTimeMillis();
+                    final InterProcessLock other = InterProcessLock.acquire(target, "installing go1.8", null);
+                    try {
+                        return System.currentTimeMillis() - started;
+                    } finally {
+                        other.close();
+                    }
+                }
+            });
+            Thread.sleep(600);
+            lock.close();
+            assertThat(waited.get() >= 500, equalTo(true));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected static boolean tryAcquireIn(ExecutorService executor, final Path target) throws Exception {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                final InterProcessLock lock = tryAcquire(target);
+                if (lock == null) {
+                    return false;
+                }
+                lock.close();
+                return true;
+            }
+        }).get();
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.echocat.gradle.plugins.golang.utils.OutputScanner.LineListener;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.echocat.gradle.plugins.golang.utils.KeywordMatcher.keywordMatcherFor;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OutputScannerUnitTest {
+
+    @Test
+    public void keywordMatcher() throws Exception {
+        final KeywordMatcher matcher = keywordMatcherFor(Arrays.asList("ERROR: ", "($GOPATH not set)", "he", "she", "hers"));
+
+        assertThat(matcher.containsAnyIn("Building Go toolchain1 using /usr/lib/go."), equalTo(false));
+        assertThat(matcher.containsAnyIn("go tool dist: ERROR: something"), equalTo(true));
+        assertThat(matcher.containsAnyIn("cannot find package (($GOPATH not set))"), equalTo(true));
+        assertThat(matcher.containsAnyIn("ushers"), equalTo(true));
+        assertThat(matcher.containsAnyIn("ERROR:"), equalTo(false));
+        assertThat(keywordMatcherFor(Collections.<String>emptyList()), nullValue());
+    }
+
+    @Test
+    public void scanWhilePassingThrough() throws Exception {
+        final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+        final List<String> lines = new ArrayList<>();
+        final OutputScanner scanner = new OutputScanner(delegate, keywordMatcherFor(Collections.singleton("ERROR: ")), 2, Collections.<LineListener>singleton(new LineListener() {
+            @Override
+            public void onLine(@Nonnull String line) {
+                lines.add(line);
+            }
+        }));
+
+        write(scanner, "first\r\nsecond ERR");
+        assertThat(scanner.hasMatched(), equalTo(false));
+        write(scanner, "OR: \nthird\nfou");
+        write(scanner, "rth");
+        scanner.finish();
+
+        assertThat(delegate.toString("UTF-8"), equalTo("first\r\nsecond ERROR: \nthird\nfourth"));
+        assertThat(scanner.hasMatched(), equalTo(true));
+        assertThat(lines, equalTo(Arrays.asList("first", "second ERROR: ", "third", "fourth")));
+        assertThat(scanner.getTail(), equalTo(Arrays.asList("third", "fourth")));
+    }
+
+    @Test
+    public void keywordsAreNotMatchedAcrossLines() throws Exception {
+        final OutputScanner scanner = new OutputScanner(null, keywordMatcherFor(Collections.singleton("ERROR: ")), 0, null);
+        write(scanner, "ERR\nOR: ");
+        assertThat(scanner.hasMatched(), equalTo(false));
+    }
+
+    @Test
+    public void tailOfOverrunBuffer() throws Exception {
+        final OutputScanner scanner = new OutputScanner(null, null, 3, null);
+        for (int i = 0; i < 20000; i++) {
+            write(scanner, "line " + i + "\n");
+        }
+        assertThat(scanner.getTail(), equalTo(Arrays.asList("line 19997", "line 19998", "line 19999")));
+    }
+
+    protected static void write(OutputScanner scanner, String text) throws Exception {
+        final byte[] bytes = text.getBytes("UTF-8");
+        scanner.write(bytes, 0, bytes.length);
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.echocat.gradle.plugins.golang.utils.Execution.Step;
+import org.echocat.gradle.plugins.golang.utils.ProcessScheduler.Slot;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.Execution.awaitAll;
+import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.ProcessScheduler.processScheduler;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
+
+public class ProcessSchedulerUnitTest {
+
+    @Test
+    public void acquireBlocksIfLimitIsReached() throws Exception {
+        final ProcessScheduler scheduler = new ProcessScheduler();
+        scheduler.setMaxConcurrentProcesses(1);
+        final ExecutorService executor = newSingleThreadExecutor();
+        try {
+            final Future<Integer> other;
+            final Slot slot = scheduler.acquire();
+            try {
+                // The same thread always gets a further slot.
+                final Slot nested = scheduler.acquire();
+                assertThat(scheduler.getRunning(), equalTo(2));
+                nested.close();
+                other = executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        final Slot slot = scheduler.acquire();
+                        try {
+                            return scheduler.getRunning();
+                        } finally {
+                            slot.close();
+                        }
+                    }
+                });
+                Thread.sleep(200);
+                assertThat(other.isDone(), equalTo(false));
+            } finally {
+                slot.close();
+            }
+            assertThat(other.get(1000, MILLISECONDS), equalTo(1));
+            assertThat(scheduler.getRunning(), equalTo(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void executeAsync() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final List<Execution> executions = new ArrayList<>();
+        final List<String> outputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            executions.add(sh("echo " + i).then(new Step() {
+                @Override
+                public Execution next(@Nonnull Executor previous) throws Exception {
+                    return sh("echo " + previous.getStdoutAsString().trim() + "-next");
+                }
+            }));
+        }
+        awaitAll(executions);
+        for (final Execution execution : executions) {
+            outputs.add(execution.await().getStdoutAsString().trim());
+        }
+        assertThat(outputs.toString(), equalTo("[0-next, 1-next, 2-next]"));
+    }
+
+    @Test
+    public void awaitAllCancelsOthersOnFirstFailure() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ProcessScheduler scheduler = new ProcessScheduler();
+        scheduler.setMaxConcurrentProcesses(2);
+        // The failing one is not the first one: awaitAll has to react on the first which completes.
+        final Execution sleeping = sh("sleep 30", scheduler);
+        final Execution failing = sh("exit 1", scheduler);
+        final List<Execution> executions = new ArrayList<>();
+        executions.add(sleeping);
+        executions.add(failing);
+        final long started = System.currentTimeMillis();
+        try {
+            awaitAll(executions);
+            fail("Expected exception missing.");
+        } catch (final IOException expected) {
+            assertThat(sleeping.isCancelled(), equalTo(true));
+            assertThat(System.currentTimeMillis() - started < 20000, equalTo(true));
+        }
+    }
+
+    @Test
+    public void cancelOfThenCancelsRunningNext() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ProcessScheduler scheduler = new ProcessScheduler();
+        scheduler.setMaxConcurrentProcesses(2);
+        final CountDownLatch nextStarted = new CountDownLatch(1);
+        final AtomicReference<Execution> next = new AtomicReference<>();
+        final Execution chain = sh("true", scheduler).then(new Step() {
+            @Override
+            public Execution next(@Nonnull Executor previous) throws Exception {
+                next.set(sh("sleep 30", scheduler));
+                nextStarted.countDown();
+                return next.get();
+            }
+        });
+        assertThat(nextStarted.await(10, SECONDS), equalTo(true));
+        chain.cancel(true);
+        assertThat(next.get().isCancelled(), equalTo(true));
+    }
+
+    @Nonnull
+    protected static Execution sh(@Nonnull String script) {
+        return sh(script, processScheduler());
+    }
+
+    @Nonnull
+    protected static Execution sh(@Nonnull String script, @Nonnull ProcessScheduler scheduler) {
+        return executor(Paths.get("/bin/sh")).arguments("-c", script).scheduler(scheduler).executeAsync();
+    }
+
+}
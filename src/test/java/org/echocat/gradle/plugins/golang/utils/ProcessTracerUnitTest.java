@@ -0,0 +1,92 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.echocat.gradle.plugins.golang.utils.ProcessTracer.Group;
+import org.echocat.gradle.plugins.golang.utils.ProcessTracer.Record;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newBufferedReader;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.ProcessTracer.processTracer;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeThat;
+
+public class ProcessTracerUnitTest {
+
+    private static final Path SH = Paths.get("/bin/sh");
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recordAndExport() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        final ProcessTracer tracer = processTracer();
+        tracer.enable();
+        try {
+            final Group group = tracer.enterGroup(":build");
+            try {
+                executor(SH).arguments("-c", "echo 12345; echo err >&2").execute();
+                executor(SH).arguments("-c", "sleep 0.2").executeAsync().await();
+                try {
+                    executor(SH).arguments("-c", "exit 3").execute();
+                    fail("Expected exception missing.");
+                } catch (final IOException expected) {}
+            } finally {
+                group.close();
+            }
+            executor(SH).arguments("-c", "true").execute();
+            assertThat(tracer.currentGroup(), nullValue());
+
+            final List<Record> records = tracer.getRecords();
+            assertThat(records.size(), equalTo(4));
+            assertThat(records.get(0).getGroup(), equalTo(":build"));
+            assertThat(records.get(0).getName(), equalTo("sh -c"));
+            assertThat(records.get(0).getExitCode(), equalTo(0));
+            assertThat(records.get(0).getStdoutBytes() + records.get(0).getStderrBytes(), equalTo(10L));
+            assertThat(records.get(1).getGroup(), equalTo(":build"));
+            assertThat(records.get(2).getExitCode(), equalTo(3));
+            assertThat(records.get(3).getGroup(), equalTo("<none>"));
+            assertThat(tracer.slowest(1), equalTo(Arrays.asList(records.get(1))));
+
+            final Path file = _temporaryFolder.getRoot().toPath().resolve("build").resolve("trace.json");
+            tracer.exportTo(file);
+            final JsonArray events;
+            try (final Reader reader = newBufferedReader(file, UTF_8)) {
+                events = new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("traceEvents");
+            }
+            // Two process names (":build" and "<none>") and four executions.
+            assertThat(events.size(), equalTo(6));
+            final JsonObject metadata = events.get(0).getAsJsonObject();
+            assertThat(metadata.get("ph").getAsString(), equalTo("M"));
+            assertThat(metadata.getAsJsonObject("args").get("name").getAsString(), equalTo(":build"));
+            final JsonObject slow = events.get(3).getAsJsonObject();
+            assertThat(slow.get("ph").getAsString(), equalTo("X"));
+            assertThat(slow.get("pid").getAsInt(), equalTo(1));
+            assertThat(slow.get("dur").getAsLong() >= 200000L, equalTo(true));
+            assertThat(slow.getAsJsonObject("args").get("commandLine").getAsString(), equalTo(SH.toAbsolutePath() + " -c sleep 0.2"));
+        } finally {
+            tracer.disable();
+        }
+        assertThat(tracer.getRecords().isEmpty(), equalTo(true));
+    }
+
+}
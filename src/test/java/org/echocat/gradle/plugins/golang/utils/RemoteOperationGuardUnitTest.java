@@ -0,0 +1,120 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.HostUnavailableException;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.Operation;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.PermanentRemoteFailureException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RemoteOperationGuardUnitTest {
+
+    private static final URI TARGET = URI.create("https://example.org/foo/bar.git");
+
+    private final RemoteOperationGuard _guard = new RemoteOperationGuard();
+
+    @Before
+    public void setUp() throws Exception {
+        _guard.setRetryBackoff(1);
+    }
+
+    @Test
+    public void executeRetriesTransientFailures() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final String result = _guard.execute(TARGET, "test", true, failingTimes(2, attempts, new SocketTimeoutException("Read timed out")));
+
+        assertThat(result, equalTo("ok"));
+        assertThat(attempts.get(), equalTo(3));
+        assertThat(_guard.getNumberOfRetries(), equalTo(2L));
+        assertThat(_guard.getNumberOfFailures(), equalTo(2L));
+    }
+
+    @Test
+    public void executeDoesNotRetryPermanentFailures() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            _guard.execute(TARGET, "test", true, failingTimes(2, attempts, new FileNotFoundException("Not found")));
+            fail("Expected exception missing.");
+        } catch (final FileNotFoundException expected) {
+            assertThat(attempts.get(), equalTo(1));
+            assertThat(_guard.getNumberOfRetries(), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void executeDoesNotCountPermanentRemoteFailures() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            _guard.execute(TARGET, "test", true, failingTimes(2, attempts, new PermanentRemoteFailureException("fatal: could not read Username")));
+            fail("Expected exception missing.");
+        } catch (final PermanentRemoteFailureException expected) {
+            assertThat(attempts.get(), equalTo(1));
+            assertThat(_guard.getNumberOfFailures(), equalTo(0L));
+        }
+    }
+
+    @Test
+    public void executeDoesNotRetryNotIdempotentOperations() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        try {
+            _guard.execute(TARGET, "test", false, failingTimes(2, attempts, new SocketTimeoutException("Read timed out")));
+            fail("Expected exception missing.");
+        } catch (final SocketTimeoutException expected) {
+            assertThat(attempts.get(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void executeOpensCircuitBreakerOfHost() throws Exception {
+        _guard.setRetries(0);
+        _guard.setCircuitBreakerThreshold(2);
+        final AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            try {
+                _guard.execute(TARGET, "test", true, failingTimes(10, attempts, new SocketTimeoutException("Read timed out")));
+                fail("Expected exception missing.");
+            } catch (final SocketTimeoutException expected) {}
+        }
+
+        try {
+            _guard.execute(URI.create("https://example.org/other.git"), "test", true, failingTimes(0, attempts, null));
+            fail("Expected exception missing.");
+        } catch (final HostUnavailableException expected) {
+            assertThat(attempts.get(), equalTo(2));
+            assertThat(_guard.getNumberOfShortCircuitedOperations(), equalTo(1L));
+        }
+
+        // Other hosts are not affected.
+        assertThat(_guard.execute(URI.create("https://example.com/other.git"), "test", true, failingTimes(0, attempts, null)), equalTo("ok"));
+    }
+
+    @Test
+    public void hostOf() throws Exception {
+        assertThat(RemoteOperationGuard.hostOf(URI.create("https://github.com/foo/bar.git")), equalTo("github.com"));
+        assertThat(RemoteOperationGuard.hostOf(URI.create("http://localhost:8765/foo")), equalTo("localhost:8765"));
+        assertThat(RemoteOperationGuard.hostOf(URI.create("file:///tmp/foo")), equalTo("file"));
+    }
+
+    protected static Operation<String, IOException> failingTimes(final int times, final AtomicInteger attempts, final IOException failure) {
+        return new Operation<String, IOException>() {
+            @Override
+            public String execute() throws IOException {
+                if (attempts.incrementAndGet() <= times) {
+                    throw failure;
+                }
+                return "ok";
+            }
+        };
+    }
+
+}
@@ -0,0 +1,43 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.junit.Test;
+
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseDuration;
+import static org.echocat.gradle.plugins.golang.utils.StringUtils.parseSize;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StringUtilsUnitTest {
+
+    @Test
+    public void parseSizeOf() throws Exception {
+        assertThat(parseSize(null), nullValue());
+        assertThat(parseSize(""), nullValue());
+        assertThat(parseSize("1024"), equalTo(1024L));
+        assertThat(parseSize("512k"), equalTo(512L * 1024));
+        assertThat(parseSize("100MB"), equalTo(100L * 1024 * 1024));
+        assertThat(parseSize("10g"), equalTo(10L * 1024 * 1024 * 1024));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseSizeOfIllegal() throws Exception {
+        parseSize("10x");
+    }
+
+    @Test
+    public void parseDurationOf() throws Exception {
+        assertThat(parseDuration(null), nullValue());
+        assertThat(parseDuration("150"), equalTo(150L));
+        assertThat(parseDuration("150ms"), equalTo(150L));
+        assertThat(parseDuration("2s"), equalTo(2000L));
+        assertThat(parseDuration("3m"), equalTo(3L * 60 * 1000));
+        assertThat(parseDuration("90d"), equalTo(90L * 24 * 60 * 60 * 1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseDurationOfIllegal() throws Exception {
+        parseDuration("soon");
+    }
+
+}
@@ -0,0 +1,108 @@
+package org.echocat.gradle.plugins.golang.utils;
+
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Clock;
+import org.echocat.gradle.plugins.golang.utils.ThrottledProgressLogger.Counter;
+import org.echocat.gradle.plugins.golang.vcs.VcsRepository.ProgressMonitor;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ThrottledProgressLoggerUnitTest {
+
+    /**
+     * Long enough that the real scheduler never flushes while a test is running; the tests flush on their own.
+     */
+    private static final long FRAME_INTERVAL = HOURS.toMillis(1);
+
+    private final List<String> _calls = new CopyOnWriteArrayList<>();
+    private final AtomicLong _clock = new AtomicLong(FRAME_INTERVAL);
+
+    @Test
+    public void progress() throws Exception {
+        final ThrottledProgressLogger progress = throttledProgressLogger();
+        for (int i = 0; i < 10000; i++) {
+            progress.progress("Step " + i);
+        }
+        assertThat(_calls.size(), equalTo(1));
+        assertThat(_calls.get(0), equalTo("progress: Step 0"));
+
+        _clock.addAndGet(FRAME_INTERVAL);
+        progress.flush();
+        assertThat(_calls.size(), equalTo(2));
+        assertThat(_calls.get(1), equalTo("progress: Step 9999"));
+
+        progress.completed();
+        progress.progress("Too late");
+        _clock.addAndGet(FRAME_INTERVAL);
+        progress.flush();
+        assertThat(_calls.size(), equalTo(3));
+        assertThat(_calls.get(2), equalTo("completed"));
+    }
+
+    @Test
+    public void counter() throws Exception {
+        final ThrottledProgressLogger progress = throttledProgressLogger();
+        final Counter counter = progress.counterFor("Run tests", "tests");
+        for (int i = 0; i < 10000; i++) {
+            counter.increment("Test" + i);
+        }
+        _clock.addAndGet(FRAME_INTERVAL);
+        progress.flush();
+
+        assertThat(counter.getCount(), equalTo(10000L));
+        assertThat(_calls.size(), equalTo(2));
+        assertThat(_calls.get(0), equalTo("progress: Run tests Test0... (1 tests)"));
+        assertThat(_calls.get(1), equalTo("progress: Run tests Test9999... (10000 tests, 2.8 tests/s)"));
+    }
+
+    @Test
+    public void monitor() throws Exception {
+        final ThrottledProgressLogger progress = throttledProgressLogger();
+        final ProgressMonitor monitor = progress.monitorFor("Download");
+        monitor.started();
+        monitor.update(0.25d);
+        _clock.addAndGet(FRAME_INTERVAL);
+        progress.flush();
+
+        assertThat(_calls.size(), equalTo(2));
+        assertThat(_calls.get(0), equalTo("progress: Download... 0.0%"));
+        assertThat(_calls.get(1), equalTo("progress: Download... 25.0% (ETA 3h0m)"));
+    }
+
+    @Test
+    public void formatDuration() throws Exception {
+        assertThat(ThrottledProgressLogger.formatDuration(12345), equalTo("12s"));
+        assertThat(ThrottledProgressLogger.formatDuration(125000), equalTo("2m5s"));
+        assertThat(ThrottledProgressLogger.formatDuration(7500000), equalTo("2h5m"));
+    }
+
+    protected ThrottledProgressLogger throttledProgressLogger() {
+        return new ThrottledProgressLogger(recordingProgressLogger(), FRAME_INTERVAL, new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return _clock.get();
+            }
+        });
+    }
+
+    protected ProgressLogger recordingProgressLogger() {
+        return (ProgressLogger) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ProgressLogger.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                _calls.add(method.getName() + (args != null && args.length > 0 ? ": " + args[0] : ""));
+                return null;
+            }
+        });
+    }
+
+}
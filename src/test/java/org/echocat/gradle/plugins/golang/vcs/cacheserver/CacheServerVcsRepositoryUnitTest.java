@@ -0,0 +1,226 @@
+package org.echocat.gradle.plugins.golang.vcs.cacheserver;
+
+import com.google.gson.Gson;
+import org.apache.commons.io.IOUtils;
+import org.echocat.gradle.plugins.golang.cache.DependencyCacheServer;
+import org.echocat.gradle.plugins.golang.model.VcsRepositoryInfo;
+import org.echocat.gradle.plugins.golang.utils.InterProcessLock;
+import org.echocat.gradle.plugins.golang.vcs.*;
+import org.echocat.gradle.plugins.golang.vcs.cacheserver.CacheServerClient.DownloadResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipFile;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.*;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.echocat.gradle.plugins.golang.cache.ArtifactAccessTracker.artifactAccessTrackerFor;
+import static org.echocat.gradle.plugins.golang.Constants.VCS_REPOSITORY_INFO_FILE_NAME;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.WINDOWS;
+import static org.echocat.gradle.plugins.golang.model.OperatingSystem.currentOperatingSystem;
+import static org.echocat.gradle.plugins.golang.vcs.VcsReference.vcsReference;
+import static org.echocat.gradle.plugins.golang.vcs.VcsType.git;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+public class CacheServerVcsRepositoryUnitTest {
+
+    private static final String ID = "github.com/echocat/foo";
+    private static final String URI = "https://github.com/echocat/foo.git";
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private Path _serverCache;
+    private DependencyCacheServer _server;
+
+    @Before
+    public void setUp() throws Exception {
+        _serverCache = _temporaryFolder.newFolder("server").toPath();
+        _server = new DependencyCacheServer(_serverCache, _temporaryFolder.newFolder("archives").toPath(), null)
+            .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _server.close();
+    }
+
+    @Test
+    public void forceUpdate() throws Exception {
+        givenServerHas("master", "abc");
+        final Path target = _temporaryFolder.newFolder("target").toPath();
+        final RecordingFallback fallback = new RecordingFallback();
+
+        assertThat(repositoryFor("master", fallback).forceUpdate(target).getFull(), equalTo("abc"));
+        assertThat(new String(readAllBytes(target.resolve(ID).resolve("foo.go")), "UTF-8"), equalTo("package foo // abc"));
+
+        // Second time the server responds with "not modified" and the content stays untouched.
+        write(target.resolve(ID).resolve("foo.go"), "package foo // local".getBytes("UTF-8"));
+        assertThat(repositoryFor("master", fallback).forceUpdate(target).getFull(), equalTo("abc"));
+        assertThat(new String(readAllBytes(target.resolve(ID).resolve("foo.go")), "UTF-8"), equalTo("package foo // local"));
+
+        assertThat(fallback._calls, equalTo(0));
+    }
+
+    @Test
+    public void forceUpdateDoesNotFollowSymbolicLinksOfServer() throws Exception {
+        assumeThat(currentOperatingSystem(), not(equalTo(WINDOWS)));
+        givenServerHas("master", "abc");
+        final Path secret = _temporaryFolder.newFile("secret").toPath();
+        write(secret, "secret".getBytes("UTF-8"));
+        createSymbolicLink(_serverCache.resolve(ID).resolve("secret.go"), secret);
+        final Path target = _temporaryFolder.newFolder("target").toPath();
+
+        assertThat(repositoryFor("master", new RecordingFallback()).forceUpdate(target).getFull(), equalTo("abc"));
+        assertThat(exists(target.resolve(ID).resolve("foo.go")), is(true));
+        assertThat(exists(target.resolve(ID).resolve("secret.go")), is(false));
+    }
+
+    @Test
+    public void downloadWaitsForLockOfDependencyOnServer() throws Exception {
+        givenServerHas("master", "abc");
+        final Path archive = _temporaryFolder.newFile("archive.zip").toPath();
+        final CacheServerClient client = clientFor(_server);
+        final ExecutorService executor = newSingleThreadExecutor();
+        try {
+            final Future<DownloadResult> result;
+            // Like an update of the dependency by another build on the server.
+            final InterProcessLock lock = artifactAccessTrackerFor(_serverCache).lock(ID, "updating " + ID, null);
+            try {
+                result = executor.submit(new Callable<DownloadResult>() {
+                    @Override
+                    public DownloadResult call() throws Exception {
+                        return client.download(ID, null, "def", archive);
+                    }
+                });
+                Thread.sleep(500);
+                assertThat(result.isDone(), is(false));
+                givenServerHas("master", "def");
+            } finally {
+                lock.close();
+            }
+
+            assertThat(result.get(), equalTo(DownloadResult.downloaded));
+            try (final ZipFile zip = new ZipFile(archive.toFile())) {
+                assertThat(IOUtils.toString(zip.getInputStream(zip.getEntry("foo.go")), "UTF-8"), equalTo("package foo // def"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void downloadRejectsOtherFullRef() throws Exception {
+        givenServerHas("master", "def");
+
+        assertThat(clientFor(_server).download(ID, null, "abc", _temporaryFolder.newFile("archive.zip").toPath()), equalTo(DownloadResult.unavailable));
+    }
+
+    @Test
+    public void forceUpdateFallsBackIfServerHasOtherRef() throws Exception {
+        givenServerHas("develop", "abc");
+        final RecordingFallback fallback = new RecordingFallback();
+
+        assertThat(repositoryFor("master", fallback).forceUpdate(_temporaryFolder.newFolder("target").toPath()).getFull(), equalTo("fallback"));
+        assertThat(fallback._calls, equalTo(1));
+    }
+
+    @Test
+    public void forceUpdateFallsBackIfServerIsNotAvailable() throws Exception {
+        givenServerHas("master", "abc");
+        final RecordingFallback fallback = new RecordingFallback();
+        final CacheServerVcsRepository repository = repositoryFor("master", fallback);
+        _server.close();
+
+        assertThat(repository.forceUpdate(_temporaryFolder.newFolder("target").toPath()).getFull(), equalTo("fallback"));
+        assertThat(fallback._calls, is(1));
+    }
+
+    @Nonnull
+    protected CacheServerVcsRepository repositoryFor(@Nullable String ref, @Nonnull RecordingFallback fallback) throws Exception {
+        final VcsReference reference = vcsReference(git, ID, URI, ref, null);
+        fallback._reference = reference;
+        return new CacheServerVcsRepository(reference, clientFor(_server), fallback);
+    }
+
+    @Nonnull
+    protected static CacheServerClient clientFor(@Nonnull DependencyCacheServer server) {
+        final InetSocketAddress address = server.getAddress();
+        return new CacheServerClient(java.net.URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/"));
+    }
+
+    protected void givenServerHas(@Nonnull String ref, @Nonnull String fullRef) throws IOException {
+        final Path directory = _serverCache.resolve(ID);
+        createDirectories(directory);
+        write(directory.resolve("foo.go"), ("package foo // " + fullRef).getBytes("UTF-8"));
+        final VcsRepositoryInfo info = new VcsRepositoryInfo()
+            .setType(git)
+            .setId(ID)
+            .setUri(java.net.URI.create(URI))
+            .setRef(ref)
+            .setFullRef(fullRef)
+            .setLastUpdatedMillis(currentTimeMillis());
+        write(directory.resolve(VCS_REPOSITORY_INFO_FILE_NAME), new Gson().toJson(info).getBytes("UTF-8"));
+    }
+
+    protected static class RecordingFallback implements VcsRepository {
+
+        private VcsReference _reference;
+        private int _calls;
+
+        @Nonnull
+        @Override
+        public VcsReference getReference() {
+            return _reference;
+        }
+
+        @Override
+        public boolean isWorking() {
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public VcsFullReference updateIfRequired(@Nonnull Path baseDirectory) {
+            return forceUpdate(baseDirectory);
+        }
+
+        @Nullable
+        @Override
+        public VcsFullReference updateIfRequired(@Nonnull Path baseDirectory, @Nullable ProgressMonitor progressMonitor) {
+            return forceUpdate(baseDirectory);
+        }
+
+        @Nonnull
+        @Override
+        public VcsFullReference forceUpdate(@Nonnull Path baseDirectory) {
+            _calls++;
+            return new VcsFullReference(_reference, "fallback");
+        }
+
+        @Nonnull
+        @Override
+        public VcsFullReference forceUpdate(@Nonnull Path baseDirectory, @Nullable ProgressMonitor progressMonitor) {
+            return forceUpdate(baseDirectory);
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.echocat.gradle.plugins.golang.vcs.git;
+
+import org.echocat.gradle.plugins.golang.utils.Executor;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard;
+import org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.PermanentRemoteFailureException;
+import org.echocat.gradle.plugins.golang.vcs.VcsException;
+import org.echocat.gradle.plugins.golang.vcs.VcsReference;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.Files.write;
+import static org.echocat.gradle.plugins.golang.utils.Executor.executor;
+import static org.echocat.gradle.plugins.golang.utils.RemoteOperationGuard.remoteOperationGuard;
+import static org.echocat.gradle.plugins.golang.vcs.VcsReference.vcsReference;
+import static org.echocat.gradle.plugins.golang.vcs.VcsType.git;
+import static org.echocat.gradle.plugins.golang.vcs.git.CliGitVcsRepository.findGitBinary;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNotNull;
+
+public class CliGitVcsRepositoryUnitTest {
+
+    private static final String NAME = "github.com/echocat/foo";
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private Path _gitBinary;
+    private Path _bareRepository;
+    private String _firstCommit;
+    private String _secondCommit;
+
+    @Before
+    public void setUp() throws Exception {
+        _gitBinary = findGitBinary();
+        assumeNotNull(_gitBinary);
+
+        final Path source = _temporaryFolder.newFolder("source").toPath();
+        git(source, "init", "--quiet");
+        write(source.resolve("foo.go"), "package foo // 1".getBytes("UTF-8"));
+        write(createDirectories(source.resolve("pkg").resolve("a")).resolve("a.go"), "package a".getBytes("UTF-8"));
+        write(createDirectories(source.resolve("pkg").resolve("b")).resolve("b.go"), "package b".getBytes("UTF-8"));
+        git(source, "add", ".");
+        git(source, "commit", "--quiet", "-m", "1");
+        git(source, "tag", "-a", "v1.0.0", "-m", "v1.0.0");
+        _firstCommit = git(source, "rev-parse", "HEAD").getStdoutAsString().trim();
+        write(source.resolve("foo.go"), "package foo // 2".getBytes("UTF-8"));
+        git(source, "commit", "--quiet", "-a", "-m", "2");
+        _secondCommit = git(source, "rev-parse", "HEAD").getStdoutAsString().trim();
+
+        _bareRepository = _temporaryFolder.getRoot().toPath().resolve("repository.git");
+        git(_temporaryFolder.getRoot().toPath(), "clone", "--quiet", "--bare", source, _bareRepository);
+        git(_bareRepository, "config", "uploadpack.allowFilter", "true");
+    }
+
+    @Test
+    public void forceUpdate() throws Exception {
+        final Path target = _temporaryFolder.newFolder("target").toPath();
+
+        assertThat(repositoryFor(null).forceUpdate(target).getFull(), equalTo(_secondCommit));
+        assertThat(new String(readAllBytes(target.resolve(NAME).resolve("foo.go")), "UTF-8"), equalTo("package foo // 2"));
+
+        assertThat(repositoryFor("v1.0.0").forceUpdate(target).getFull(), equalTo(_firstCommit));
+        assertThat(new String(readAllBytes(target.resolve(NAME).resolve("foo.go")), "UTF-8"), equalTo("package foo // 1"));
+    }
+
+    @Test
+    public void resolveRemoteRef() throws Exception {
+        assertThat(repositoryFor(null).resolveRemoteRef().getName(), equalTo("HEAD"));
+        assertThat(repositoryFor("v1.0.0").resolveRemoteRef().getName(), equalTo("refs/tags/v1.0.0"));
+        assertThat(repositoryFor("refs/v1.0.0").resolveRemoteRef(), nullValue());
+    }
+
+    @Test
+    public void missingRepositoryIsNotRetried() throws Exception {
+        final RemoteOperationGuard guard = remoteOperationGuard();
+        final long retries = guard.getNumberOfRetries();
+        final long failures = guard.getNumberOfFailures();
+        final VcsReference reference = vcsReference(git, NAME, _temporaryFolder.getRoot().toPath().resolve("missing.git").toUri().toString(), null, null);
+        try {
+            new CliGitVcsRepository(reference, _gitBinary).resolveRemoteRef();
+            fail("Expected exception missing.");
+        } catch (final VcsException expected) {
+            assertThat(expected.getCause() instanceof PermanentRemoteFailureException, equalTo(true));
+            assertThat(guard.getNumberOfRetries(), equalTo(retries));
+            assertThat(guard.getNumberOfFailures(), equalTo(failures));
+        }
+    }
+
+    @Test
+    public void sparseCheckout() throws Exception {
+        final Path target = _temporaryFolder.newFolder("target").toPath();
+        final Path directory = target.resolve(NAME);
+
+        assertThat(repositoryFor(null, "/pkg/a").forceUpdate(target).getFull(), equalTo(_secondCommit));
+        assertThat(isRegularFile(directory.resolve("foo.go")), equalTo(true));
+        assertThat(isRegularFile(directory.resolve("pkg").resolve("a").resolve("a.go")), equalTo(true));
+        assertThat(exists(directory.resolve("pkg").resolve("b")), equalTo(false));
+
+        assertThat(repositoryFor(null, "/pkg/b").expandIfRequired(target), equalTo(true));
+        assertThat(isRegularFile(directory.resolve("pkg").resolve("b").resolve("b.go")), equalTo(true));
+        assertThat(repositoryFor(null, "/pkg/b").expandIfRequired(target), equalTo(false));
+    }
+
+    @Nonnull
+    protected CliGitVcsRepository repositoryFor(@Nullable String ref) throws Exception {
+        final VcsReference reference = vcsReference(git, NAME, _bareRepository.toUri().toString(), ref, null);
+        return new CliGitVcsRepository(reference, _gitBinary);
+    }
+
+    @Nonnull
+    protected CliGitVcsRepository repositoryFor(@Nullable String ref, @Nullable String subPath) throws Exception {
+        final VcsReference reference = vcsReference(git, NAME, _bareRepository.toUri().toString(), ref, subPath);
+        return new CliGitVcsRepository(reference, _gitBinary, true);
+    }
+
+    @Nonnull
+    protected Executor git(@Nonnull Path workingDirectory, @Nonnull Object... arguments) throws Exception {
+        return executor(_gitBinary)
+            .workingDirectory(workingDirectory)
+            .env("GIT_AUTHOR_NAME", "test")
+            .env("GIT_AUTHOR_EMAIL", "test@example.org")
+            .env("GIT_COMMITTER_NAME", "test")
+            .env("GIT_COMMITTER_EMAIL", "test@example.org")
+            .arguments(arguments)
+            .execute();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.echocat.gradle.plugins.golang.vcs.goproxy;
+
+import org.echocat.gradle.plugins.golang.vcs.VcsReference;
+import org.echocat.gradle.plugins.golang.vcs.VcsValidationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.file.Files.*;
+import static java.util.Arrays.asList;
+import static org.echocat.gradle.plugins.golang.vcs.VcsReference.vcsReference;
+import static org.echocat.gradle.plugins.golang.vcs.VcsType.git;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class GoProxyVcsRepositoryUnitTest {
+
+    private static final String MODULE = "github.com/echocat/Foo";
+    private static final String URI = "https://github.com/echocat/Foo.git";
+
+    @Rule
+    public final TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void updateIfRequired() throws Exception {
+        final Path proxy = givenProxyWith("v1.0.0", "v1.2.0", "v1.10.0-rc.1");
+        final Path target = _temporaryFolder.newFolder("target").toPath();
+
+        assertThat(repositoryFor(proxy, null).updateIfRequired(target).getFull(), equalTo("v1.2.0"));
+        assertThat(new String(readAllBytes(target.resolve(MODULE).resolve("foo.go")), "UTF-8"), equalTo("package foo // v1.2.0"));
+        assertThat(repositoryFor(proxy, null).updateIfRequired(target), nullValue());
+
+        assertThat(repositoryFor(proxy, "v1.0.0").updateIfRequired(target).getFull(), equalTo("v1.0.0"));
+        assertThat(new String(readAllBytes(target.resolve(MODULE).resolve("foo.go")), "UTF-8"), equalTo("package foo // v1.0.0"));
+    }
+
+    @Test(expected = VcsValidationException.class)
+    public void updateIfRequiredOfUnknownVersion() throws Exception {
+        final Path proxy = givenProxyWith("v1.0.0");
+        repositoryFor(proxy, "v2.0.0").updateIfRequired(_temporaryFolder.newFolder("target").toPath());
+    }
+
+    @Test
+    public void highestOf() throws Exception {
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.0.0", "v1.10.0", "v1.9.0")), equalTo("v1.10.0"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.1.0-rc.1", "v1.1.0", "v1.0.0")), equalTo("v1.1.0"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.2.0-rc.1", "v1.1.0")), equalTo("v1.1.0"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.1.0-rc.1", "v1.1.0-rc.2")), equalTo("v1.1.0-rc.2"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.1.0-rc.10", "v1.1.0-rc.2")), equalTo("v1.1.0-rc.10"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.1.0-rc.1", "v1.1.0-rc.1.1")), equalTo("v1.1.0-rc.1.1"));
+        assertThat(GoProxyVcsRepository.highestOf(asList("v1.1.0-beta", "v1.1.0-1")), equalTo("v1.1.0-beta"));
+    }
+
+    @Nonnull
+    protected GoProxyVcsRepository repositoryFor(@Nonnull Path proxy, @Nullable String ref) throws VcsValidationException {
+        final VcsReference reference = vcsReference(git, MODULE, URI, ref, null);
+        return new GoProxyVcsRepository(reference, new GoProxyClient(proxy.toUri()), null);
+    }
+
+    @Nonnull
+    protected Path givenProxyWith(@Nonnull String... versions) throws IOException {
+        final Path proxy = _temporaryFolder.newFolder("proxy").toPath();
+        final Path directory = proxy.resolve(GoProxyClient.escape(MODULE)).resolve("@v");
+        createDirectories(directory);
+        final StringBuilder list = new StringBuilder();
+        for (final String version : versions) {
+            list.append(version).append('\n');
+            write(directory.resolve(version + ".info"), ("{\"Version\":\"" + version + "\",\"Time\":\"2018-01-01T00:00:00Z\"}").getBytes("UTF-8"));
+            try (final OutputStream os = newOutputStream(directory.resolve(version + ".zip"))) {
+                try (final ZipOutputStream zip = new ZipOutputStream(os)) {
+                    zip.putNextEntry(new ZipEntry(MODULE + "@" + version + "/foo.go"));
+                    zip.write(("package foo // " + version).getBytes("UTF-8"));
+                    zip.closeEntry();
+                }
+            }
+        }
+        write(directory.resolve("list"), list.toString().getBytes("UTF-8"));
+        return proxy;
+    }
+
+}